@@ -23,6 +23,8 @@ import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.AccelerateInterpolator;
 import android.widget.Toast;
 
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationTrackCV;
 import de.thkoeln.cvogt.android.opengl_utilities.GLAnimatorFactoryCV;
 import de.thkoeln.cvogt.android.opengl_utilities.GLRendererCV;
 import de.thkoeln.cvogt.android.opengl_utilities.GLShapeCV;
@@ -261,35 +263,44 @@ public class ApplicationsActivity extends Activity {
         drone = GLShapeFactoryCV.joinShapes("Drone", drone, cone4, 1, 1, 1, 0, 0, 270, -apexHeight / 2, apexHeight / 2, 0);
         drone = GLShapeFactoryCV.joinShapes("Drone", drone, cone5, 1, 1, 1, 90, 0, 0, 0, apexHeight / 2, -apexHeight / 2);
         drone = GLShapeFactoryCV.joinShapes("Drone", drone, cone6, 1, 1, 1, 270, 0, 0, 0, apexHeight / 2, apexHeight / 2, 0, apexHeight / 2, 0);
+        // The choreography of the drones is baked into a few tracks with different random targets.
+        // These tracks are then replayed by all drones with individual start delays.
+        final int numberOfTracks = 6;
+        final int durationFirstPath = 3000;
+        final int durationTilt = 500;
+        final int durationSecondPath = 3000;
+        GLAnimationTrackCV[] tracks = new GLAnimationTrackCV[numberOfTracks];
+        for (int k=0;k<numberOfTracks;k++) {
+            GLShapeCV template = new GLShapeCV("Choreography"+k,null);
+            template.setScale(0.75f).setTransX(-8).setTransY(12).setTransZ(-30);
+            GLAnimatorFactoryCV.addAnimationRotY(template, 405, durationFirstPath, 0, false);
+            float targetXFirstPath = -6f+14*(float)Math.random();
+            float targetYFirstPath = -10f+6*(float)Math.random();
+            GLAnimatorFactoryCV.addAnimationTrans(template, targetXFirstPath, targetYFirstPath, -10, durationFirstPath, 0);
+            GLAnimationCV animTilt = GLAnimatorFactoryCV.addAnimationRotZInModelSpace(template, 30, durationTilt, 0, false);
+            animTilt.setStartDelay(durationFirstPath);
+            GLAnimationCV animSecondPathRot = GLAnimatorFactoryCV.addAnimationRotYInModelSpace(template, 36000, durationSecondPath, 0, false);
+            animSecondPathRot.setInterpolator(new AccelerateInterpolator());
+            animSecondPathRot.setStartDelay(durationSecondPath + durationTilt);
+            float targetXSecondPath;
+            switch (k%3) {
+                case 0: targetXSecondPath = -20; break;
+                case 1: targetXSecondPath = 0; break;
+                default: targetXSecondPath = 20; break;
+            }
+            GLAnimationCV animSecondPathTrans = GLAnimatorFactoryCV.addAnimationTrans(template, targetXSecondPath, 50, -20, durationSecondPath, 0);
+            animSecondPathTrans.setStartDelay(durationSecondPath + durationTilt);
+            animSecondPathTrans.setInterpolator(new AccelerateInterpolator());
+            tracks[k] = GLAnimationTrackCV.bake(template,1000/60f);
+        }
         final int numberOfDrones = 50;
         GLShapeCV[] drones = new GLShapeCV[numberOfDrones];
         int startDelay = 0;
         final int startIntervals = 500;
         for (int i=0;i<numberOfDrones;i++) {
             drones[i] = drone.copy("Drone"+i);
-            int durationFirstPath = 3000;
-            int durationTilt = 500;
-            int durationSecondPath = 3000;
             drones[i].setScale(0.75f).setTransX(-8).setTransY(12).setTransZ(-30);
-            ObjectAnimator animFirstPathRot = GLAnimatorFactoryCV.addAnimatorRotY(drones[i], 405, durationFirstPath, 0, false);
-            animFirstPathRot.setStartDelay(startDelay);
-            float targetXFirstPath = -6f+14*(float)Math.random();
-            float targetYFirstPath = -10f+6*(float)Math.random();
-            ObjectAnimator animFirstPathTrans = GLAnimatorFactoryCV.addAnimatorTrans(drones[i], targetXFirstPath, targetYFirstPath, -10, durationFirstPath, 0);
-            animFirstPathTrans.setStartDelay(startDelay);
-            ObjectAnimator animTilt = GLAnimatorFactoryCV.addAnimatorRotZInModelSpace(drones[i], 30, durationTilt, 0, false);
-            animTilt.setStartDelay(startDelay + durationFirstPath);
-            ObjectAnimator animSecondPathRot = GLAnimatorFactoryCV.addAnimatorRotYInModelSpace(drones[i], 36000, durationSecondPath, 0, false);
-            animSecondPathRot.setInterpolator(new AccelerateInterpolator());
-            animSecondPathRot.setStartDelay(startDelay + durationSecondPath + durationTilt);
-            double random = Math.random();
-            float targetXSecondPath = 20;
-            if (random<0.333f) targetXSecondPath = -20;
-             else if (random<0.667f) targetXSecondPath = 0;
-             else targetXSecondPath = 20;
-            ObjectAnimator animSecondPathTrans = GLAnimatorFactoryCV.addAnimatorTrans(drones[i], targetXSecondPath, 50, -20, durationSecondPath, 0);
-            animSecondPathTrans.setStartDelay(startDelay + durationSecondPath + durationTilt);
-            animSecondPathTrans.setInterpolator(new AccelerateInterpolator());
+            tracks[(int)(numberOfTracks*Math.random())].replay(drones[i],startDelay);
             surfaceView.addShape(drones[i]);
             startDelay += startIntervals;
         }
@@ -0,0 +1,29 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+/**
+ * Access of the benchmarks to package-internal methods of the library.
+ * The class is part of the benchmark module only, i.e. these methods stay package-internal in the library.
+ */
+
+public class BenchmarkAccessCV {
+
+    /**
+     * Writes the current model matrix of a shape into an array (see GLShapeCV.getCurrentModelMatrix(float[])).
+     * @param shape The shape.
+     * @param result Array of length 16 to store the matrix.
+     */
+
+    public static void getCurrentModelMatrix(GLShapeCV shape, float[] result) {
+        shape.getCurrentModelMatrix(result);
+    }
+
+}
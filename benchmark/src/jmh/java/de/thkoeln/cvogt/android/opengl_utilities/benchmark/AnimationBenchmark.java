@@ -0,0 +1,93 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import de.thkoeln.cvogt.android.opengl_utilities.BenchmarkAccessCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationSchedulerCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimatorFactoryCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLShapeCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLShapeFactoryCV;
+
+/**
+ * Microbenchmarks for the evaluators of class <I>GLAnimatorFactoryCV</I>:
+ * A set of shapes is animated by animations of one kind, and each benchmark call advances the animation scheduler by one frame
+ * and reads the model matrices of all shapes (as the renderer does when drawing them).
+ * The evaluators are the same as those of the corresponding <I>ObjectAnimator</I>s,
+ * but are called by the scheduler on the calling thread such that no Android looper is needed.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimationBenchmark {
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    @Param({"rotation", "align", "rotationInModelSpace", "pitch", "arcPath", "spiralPath", "bezierPath"})
+    public String animation;
+
+    @Param({"100"})
+    public int numberOfShapes;
+
+    private GLAnimationSchedulerCV scheduler;
+
+    private GLShapeCV[] shapes;
+
+    private final float[] modelMatrix = new float[16];
+
+    private long frameTime;
+
+    @Setup
+    public void setup() {
+        scheduler = new GLAnimationSchedulerCV();
+        shapes = new GLShapeCV[numberOfShapes];
+        float[] origin = { 0, 0, 0 }, yAxisPoint = { 0, 1, 0 };
+        for (int i=0; i<numberOfShapes; i++) {
+            GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube"+i,GLShapeFactoryCV.red);
+            shape.setTrans(i%10,i/10,0);
+            GLAnimationCV anim;
+            switch (animation) {
+                case "rotation": anim = GLAnimatorFactoryCV.addAnimationRot(shape,360,new float[] {1,1,0},1000,GLAnimationCV.INFINITE,false); break;
+                case "align": anim = GLAnimatorFactoryCV.addAnimationAlign(shape,0,new float[] {1,-2,0.5f},1000); break;
+                case "rotationInModelSpace": anim = GLAnimatorFactoryCV.addAnimationRotYInModelSpace(shape,90,1000,GLAnimationCV.INFINITE,true); break;
+                case "pitch": anim = GLAnimatorFactoryCV.addAnimationPitch(shape,30,1000,GLAnimationCV.INFINITE); break;
+                case "arcPath": anim = GLAnimatorFactoryCV.addAnimationArcPathAroundAxis(shape,origin,yAxisPoint,180,1000,0); break;
+                case "spiralPath": anim = GLAnimatorFactoryCV.addAnimationSpiralPath(shape,origin,yAxisPoint,2,3,1000,0); break;
+                case "bezierPath": anim = GLAnimatorFactoryCV.addAnimationBezierPath(shape,new float[] {1,2,3},new float[] {4,5,6},new float[] {7,8,9},0,1000,0); break;
+                default: throw new IllegalArgumentException(animation);
+            }
+            scheduler.start(anim.setRepeatCount(GLAnimationCV.INFINITE));
+            shapes[i] = shape;
+        }
+        // the evaluators take their start values from the shapes in the first frame
+        scheduler.advance(frameTime);
+    }
+
+    @Benchmark
+    public float[] advanceOneFrame() {
+        scheduler.advance(frameTime += FRAME_NANOS);
+        for (GLShapeCV shape : shapes)
+            BenchmarkAccessCV.getCurrentModelMatrix(shape,modelMatrix);
+        return modelMatrix;
+    }
+
+}
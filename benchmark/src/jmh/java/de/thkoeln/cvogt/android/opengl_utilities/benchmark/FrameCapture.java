@@ -0,0 +1,47 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import java.io.File;
+
+/**
+ * Captures a frame of a heavy scene of the demo app (see class <I>Scenes</I>) into a file, to be replayed by class <I>FrameReplay</I>.
+ * The frame is captured after a number of warm-up frames, i.e. with the animations of the scene in progress.
+ * <P>
+ * Usage: <I>./gradlew :benchmark:captureFrame -PcaptureArgs="scene file [warmupFrames]"</I>
+ * (default warm-up: 60 frames).
+ */
+
+public class FrameCapture {
+
+    public static void main(String[] args) {
+        if (args.length<2) {
+            System.out.println("Usage: FrameCapture scene file [warmupFrames]");
+            return;
+        }
+        int warmupFrames = args.length>2 ? Integer.parseInt(args[2]) : 60;
+        Scenes.Scene scene = Scenes.build(args[0]);
+        if (scene==null) {
+            System.out.println("Unknown scene: "+args[0]);
+            return;
+        }
+        for (int i=0; i<warmupFrames; i++)
+            scene.renderFrame();
+        File file = new File(args[1]);
+        if (!scene.renderer.captureNextFrame(file)) {
+            System.out.println("Cannot write "+file);
+            return;
+        }
+        scene.gl.reset();
+        scene.renderFrame();
+        System.out.println("Captured frame "+warmupFrames+" of "+args[0]+": "+scene.gl.getTotalCalls()+" calls, "+file.length()+" bytes in "+file);
+    }
+
+}
@@ -0,0 +1,65 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+
+import de.thkoeln.cvogt.android.opengl_utilities.GLFrameReplayCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLRecordingBackendCV;
+
+/**
+ * Replays a frame captured by <I>GLRendererCV.captureNextFrame()</I> (e.g. on a device or by class <I>FrameCapture</I>)
+ * against the recording backend of the library and reports the OpenGL calls and data volumes of the frame
+ * and the execution times of the calls, i.e. the overhead of the Java side of the calls without a GPU.
+ * <P>
+ * Usage: <I>./gradlew :benchmark:replayFrame -PreplayArgs="file [repetitions]"</I>
+ * (default: 100 repetitions, of which the first 10 are regarded as warm-up).
+ */
+
+public class FrameReplay {
+
+    public static void main(String[] args) {
+        if (args.length<1) {
+            System.out.println("Usage: FrameReplay file [repetitions]");
+            return;
+        }
+        int repetitions = args.length>1 ? Math.max(Integer.parseInt(args[1]),1) : 100;
+        GLFrameReplayCV frame = GLFrameReplayCV.load(new File(args[0]));
+        if (frame==null) {
+            System.out.println("Not a captured frame: "+args[0]);
+            return;
+        }
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        int warmup = repetitions/10;
+        long[] replayNanos = new long[repetitions-warmup];
+        for (int i=0; i<repetitions; i++) {
+            gl.reset();
+            if (!frame.replay(gl)) {
+                System.out.println("Corrupted frame: "+args[0]);
+                return;
+            }
+            if (i>=warmup)
+                replayNanos[i-warmup] = frame.getTotalNanos();
+        }
+        Arrays.sort(replayNanos);
+        int n = replayNanos.length;
+        System.out.println(String.format(Locale.ROOT,"=== %s: %d bytes uncompressed, %d calls, %d draw calls, %d vertices",
+                args[0],frame.getFrameSize(),gl.getTotalCalls(),gl.getDrawCalls(),gl.getVerticesDrawn()));
+        System.out.println(String.format(Locale.ROOT,"GL bytes: buffer uploads %d, textures %d, client arrays %d, uniforms %d",
+                gl.getBufferBytesUploaded(),gl.getTextureBytesUploaded(),gl.getClientArrayBytes(),gl.getUniformBytes()));
+        System.out.println(String.format(Locale.ROOT,"replay time (us): median %.1f, p95 %.1f, max %.1f (%d replays)",
+                replayNanos[n/2]/1e3,replayNanos[(int)(n*0.95)]/1e3,replayNanos[n-1]/1e3,n));
+        System.out.println("last replay:");
+        System.out.print(frame);
+    }
+
+}
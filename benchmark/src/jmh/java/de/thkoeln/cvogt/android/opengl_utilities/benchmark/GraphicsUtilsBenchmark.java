@@ -0,0 +1,126 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import de.thkoeln.cvogt.android.opengl_utilities.GraphicsUtilsCV;
+
+/**
+ * Microbenchmarks for the vector, matrix, and quaternion methods of class <I>GraphicsUtilsCV</I>
+ * as called per frame by the animations and per vertex by the shape factory.
+ * <P>
+ * For each method with an allocation-free variant, both variants are measured such that the difference shows up in the results.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GraphicsUtilsBenchmark {
+
+    private final float[] p1 = { 1, -2, 3 }, p2 = { 4, 0.5f, -1 }, axisPoint1 = { 0, 0, 0 }, axisPoint2 = { 1, 2, 2 };
+    private final float[] vectors = new float[12], circle = new float[3*64], matrix = new float[16], eulerMatrix = new float[16], axis = new float[3];
+    private final float[] quaternions = new float[12];
+    private float angle;
+
+    @Setup
+    public void setup() {
+        GraphicsUtilsCV.rotationMatrixAroundPivot(40,axisPoint2,axisPoint1,matrix);
+        GraphicsUtilsCV.quaternionFromAxisAngle(10,1,0,0,quaternions,0);
+        GraphicsUtilsCV.quaternionFromAxisAngle(150,0,1,1,quaternions,4);
+    }
+
+    @Benchmark
+    public float distance() {
+        return GraphicsUtilsCV.distance(p1,p2);
+    }
+
+    @Benchmark
+    public float[] crossProduct() {
+        return GraphicsUtilsCV.crossProduct(p1,p2);
+    }
+
+    @Benchmark
+    public float[] crossProductIntoArray() {
+        GraphicsUtilsCV.crossProduct(p1,0,p2,0,vectors,0);
+        return vectors;
+    }
+
+    @Benchmark
+    public float[] normalizedCopy() {
+        return GraphicsUtilsCV.getNormalizedCopy(p2);
+    }
+
+    @Benchmark
+    public float[] rotateAroundAxis() {
+        return GraphicsUtilsCV.rotateAroundAxis(p1,axisPoint1,axisPoint2,angle += 1);
+    }
+
+    @Benchmark
+    public float[] rotateAroundAxisIntoArray() {
+        GraphicsUtilsCV.rotateAroundAxis(p1,axisPoint1,axisPoint2,angle += 1,vectors);
+        return vectors;
+    }
+
+    @Benchmark
+    public float[][] pointsOnCircle3D() {
+        return GraphicsUtilsCV.pointsOnCircle3D(p1,2,p2,64);
+    }
+
+    @Benchmark
+    public float[] pointsOnCircle3DIntoArray() {
+        GraphicsUtilsCV.pointsOnCircle3D(p1,2,p2,64,circle,0,3);
+        return circle;
+    }
+
+    @Benchmark
+    public float[] rotationMatrixFromEulerAngles() {
+        GraphicsUtilsCV.rotationMatrixFromEulerAngles(10,angle += 1,30,eulerMatrix,0);
+        return eulerMatrix;
+    }
+
+    @Benchmark
+    public boolean is4x4RotationMatrix() {
+        return GraphicsUtilsCV.is4x4RotationMatrix(matrix);
+    }
+
+    @Benchmark
+    public float rotAngleAndAxisFromMatrix() {
+        GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(matrix,axis);
+        return GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(matrix)+axis[0];
+    }
+
+    @Benchmark
+    public float rotAngleAndAxisFromTwoDimensionalMatrix() {
+        float[][] matrix2D = GraphicsUtilsCV.matrixFromArray(matrix,4,4);
+        return GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(matrix2D)+GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(matrix2D)[0];
+    }
+
+    @Benchmark
+    public float[] quaternionSlerp() {
+        GraphicsUtilsCV.quaternionSlerp(quaternions,0,quaternions,4,0.37f,quaternions,8);
+        return quaternions;
+    }
+
+    @Benchmark
+    public float[] rotationMatrixFromQuaternion() {
+        GraphicsUtilsCV.rotationMatrixFromQuaternion(quaternions,4,matrix,0);
+        return matrix;
+    }
+
+}
@@ -0,0 +1,88 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import de.thkoeln.cvogt.android.opengl_utilities.GLShapeCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLShapeFactoryCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLTriangleCV;
+
+/**
+ * Microbenchmarks for building meshes: the sphere factory at several numbers of subdivision iterations,
+ * the transformation of triangles, joining shapes, and shapes made of cubes.
+ * <P>
+ * The number of triangles of a sphere is 8*4^iterations, i.e. 128 triangles for 2 iterations and 8192 triangles for 5 iterations.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeshBenchmark {
+
+    @Param({"1", "3", "5"})
+    public int iterations;
+
+    private GLShapeCV sphere, cube;
+
+    private GLTriangleCV[] triangles;
+
+    private boolean[][][] positionsWithCubes;
+
+    private float direction = 1;
+
+    @Setup
+    public void setup() {
+        sphere = GLShapeFactoryCV.makeSphere("Sphere",iterations,GLShapeFactoryCV.red);
+        cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.blue);
+        triangles = sphere.getTriangles();
+        // a raster with 2^iterations cubes along each edge, every second position occupied
+        int size = 1<<iterations;
+        positionsWithCubes = new boolean[size][size][size];
+        for (int i=0; i<size; i++)
+            for (int j=0; j<size; j++)
+                for (int k=0; k<size; k++)
+                    positionsWithCubes[i][j][k] = (i+j+k)%2==0;
+    }
+
+    @Benchmark
+    public GLShapeCV makeSphere() {
+        return GLShapeFactoryCV.makeSphere("Sphere",iterations,GLShapeFactoryCV.red);
+    }
+
+    @Benchmark
+    public GLTriangleCV[] transformTriangles() {
+        // the triangles are moved back and forth such that their coordinates stay in the same range
+        direction = -direction;
+        for (GLTriangleCV triangle : triangles)
+            triangle.transform(1,1,1,0,10*direction,0,0.1f*direction,0,0);
+        return triangles;
+    }
+
+    @Benchmark
+    public GLShapeCV joinShapes() {
+        return GLShapeFactoryCV.joinShapes("Joined",sphere,cube,2,2,2,0,45,0,1.5f,0,0);
+    }
+
+    @Benchmark
+    public GLShapeCV makeShapeFromCubes() {
+        return GLShapeFactoryCV.makeShapeFromCubes("Cubes",GLShapeFactoryCV.red,GLShapeFactoryCV.blue,2,positionsWithCubes);
+    }
+
+}
@@ -0,0 +1,53 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the heavy scenes of the demo app (see class <I>Scenes</I>):
+ * Each benchmark call renders one frame of a scene, i.e. advances its animations and draws its shapes against the recording OpenGL backend.
+ * The allocations per frame can be measured with the GC profiler of JMH (e.g. <I>./gradlew :benchmark:jmh -PjmhIncludes=ScenarioBenchmark -PjmhProfilers=gc</I>),
+ * the OpenGL calls and the memory of the scenes are reported by <I>ScenarioRunner</I>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScenarioBenchmark {
+
+    @Param({"blocks8000", "drones", "cubeOfCubes", "spheres"})
+    public String scene;
+
+    private Scenes.Scene builtScene;
+
+    @Setup
+    public void setup() {
+        builtScene = Scenes.build(scene);
+        // the first frame uploads the vertex buffers
+        builtScene.renderFrame();
+    }
+
+    @Benchmark
+    public Scenes.Scene renderFrame() {
+        builtScene.renderFrame();
+        return builtScene;
+    }
+
+}
@@ -0,0 +1,108 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import de.thkoeln.cvogt.android.opengl_utilities.GLMemoryReportCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLRecordingBackendCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLTraceCV;
+
+/**
+ * Runs the heavy scenes of the demo app (see class <I>Scenes</I>) headlessly for a fixed number of frames
+ * and reports for each scene:
+ * <UL>
+ * <LI>the time to build the scene and its heap memory,
+ * <LI>the most costly steps of the construction of the scene and its first frame (see class <I>GLTraceCV</I>),
+ * <LI>the CPU time per frame (mean, median, 95th percentile, maximum),
+ * <LI>the bytes allocated per frame,
+ * <LI>the OpenGL calls per frame (total, draw calls, by name) and the bytes passed to OpenGL per frame,
+ * <LI>the memory of the vertex buffer objects,
+ * <LI>the memory report of the shapes (see class <I>GLMemoryReportCV</I>).
+ * </UL>
+ * The numbers refer to the measured frames, i.e. the warm-up frames (which include the JIT compilation and the first upload of the buffers) are left out.
+ * <P>
+ * Usage: <I>./gradlew :benchmark:scenarios [-PscenarioArgs="frames warmupFrames scene1 scene2 ..."]</I>
+ * (default: 600 frames after 120 warm-up frames for all scenes).
+ */
+
+public class ScenarioRunner {
+
+    public static void main(String[] args) {
+        int frames = args.length>0 ? Integer.parseInt(args[0]) : 600;
+        int warmupFrames = args.length>1 ? Integer.parseInt(args[1]) : 120;
+        String[] names = args.length>2 ? Arrays.copyOfRange(args,2,args.length) : Scenes.NAMES;
+        for (String name : names)
+            run(name,frames,warmupFrames);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; i++)
+            System.gc();
+        return runtime.totalMemory()-runtime.freeMemory();
+    }
+
+    private static void run(String name, int frames, int warmupFrames) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long heapBefore = usedHeap();
+        // the construction of the scene and its first frame are traced (without a sink, i.e. only summarized)
+        GLTraceCV.reset();
+        GLTraceCV.setSink(null);
+        GLTraceCV.setEnabled(true);
+        long start = System.nanoTime();
+        Scenes.Scene scene = Scenes.build(name);
+        if (scene==null) {
+            GLTraceCV.setEnabled(false);
+            System.out.println("Unknown scene: "+name);
+            return;
+        }
+        long buildNanos = System.nanoTime()-start;
+        scene.renderFrame();
+        GLTraceCV.setEnabled(false);
+        long sceneHeap = Math.max(usedHeap()-heapBefore,0);
+        for (int i=1; i<warmupFrames; i++)
+            scene.renderFrame();
+        GLRecordingBackendCV gl = scene.gl;
+        gl.reset();
+        long[] frameNanos = new long[frames];
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i=0; i<frames; i++) {
+            long frameStart = System.nanoTime();
+            scene.renderFrame();
+            frameNanos[i] = System.nanoTime()-frameStart;
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId)-allocatedBefore;
+        long total = 0;
+        for (long nanos : frameNanos)
+            total += nanos;
+        Arrays.sort(frameNanos);
+        System.out.println(String.format(Locale.ROOT,"=== %s: %d shapes, built in %.1f ms, %.1f MB heap",
+                name,scene.shapes.size(),buildNanos/1e6,sceneHeap/1048576.0));
+        System.out.println(String.format(Locale.ROOT,"frame time (us): mean %.1f, median %.1f, p95 %.1f, max %.1f (%d frames)",
+                total/1e3/frames,frameNanos[frames/2]/1e3,frameNanos[(int)(frames*0.95)]/1e3,frameNanos[frames-1]/1e3,frames));
+        System.out.println(String.format(Locale.ROOT,"allocated per frame: %.0f bytes",(double)allocated/frames));
+        System.out.println(String.format(Locale.ROOT,"GL calls per frame: %.1f, draw calls %.1f, vertices %.0f",
+                (double)gl.getTotalCalls()/frames,(double)gl.getDrawCalls()/frames,(double)gl.getVerticesDrawn()/frames));
+        System.out.println(String.format(Locale.ROOT,"GL bytes per frame: buffer uploads %.0f, client arrays %.0f, uniforms %.0f",
+                (double)gl.getBufferBytesUploaded()/frames,(double)gl.getClientArrayBytes()/frames,(double)gl.getUniformBytes()/frames));
+        System.out.println(String.format(Locale.ROOT,"vertex buffers: %d, %.1f MB",
+                gl.getNumberOfBuffers(),gl.getBufferMemory()/1048576.0));
+        System.out.println("memory: "+GLMemoryReportCV.getReport(scene.shapes));
+        System.out.print("startup (construction and first frame):\n"+GLTraceCV.getTopCostsTable(6));
+        for (Map.Entry<String,Long> entry : gl.getCallCounts().entrySet())
+            System.out.println(String.format(Locale.ROOT,"  %-28s %10.1f",entry.getKey(),(double)entry.getValue()/frames));
+    }
+
+}
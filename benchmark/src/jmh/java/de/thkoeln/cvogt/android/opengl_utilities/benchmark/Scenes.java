@@ -0,0 +1,230 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities.benchmark;
+
+import android.animation.TimeInterpolator;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationSchedulerCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimationTrackCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLAnimatorFactoryCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLPlatformCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLRecordingBackendCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLRendererCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLSceneFactoryCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLShapeCV;
+import de.thkoeln.cvogt.android.opengl_utilities.GLShapeFactoryCV;
+
+/**
+ * The heavy scenes of the demo app, rebuilt headlessly for the scenario benchmarks:
+ * <UL>
+ * <LI><I>blocks8000</I>: 8000 cubes with edge lines, each moving on an arc (AdvancedTechniquesActivity.cubesInCubeform()).
+ * <LI><I>drones</I>: 50 drones replaying baked tracks of 5 animations each (ApplicationsActivity.drones()).
+ * <LI><I>cubeOfCubes</I>: One shape built from 125 cubes plus a wireframe, both rotating (ApplicationsActivity.cubeOfCubes()).
+ * <LI><I>spheres</I>: A field of iteration-4 spheres that are scaled and rotated (ApplicationsActivity.randomSpheres()).
+ * </UL>
+ * The scenes use animations of class <I>GLAnimationCV</I> instead of the Android animators of the demos, as these need a looper,
+ * and repeat them infinitely such that all frames of a benchmark have the same workload.
+ * Random values are taken from a generator with a fixed seed, i.e. each scene is the same in every run.
+ * <P>
+ * A scene is rendered by a renderer without a surface view (see <I>GLRendererCV.drawShapes()</I>)
+ * against a recording backend that counts the OpenGL calls (see <I>GLRecordingBackendCV</I>).
+ */
+
+public class Scenes {
+
+    public static final String[] NAMES = { "blocks8000", "drones", "cubeOfCubes", "spheres" };
+
+    /** The duration of a frame at 60 fps (ns). */
+
+    public static final long FRAME_NANOS = 16666667L;
+
+    /** A scene: The shapes, the renderer that draws them and the backend that records the OpenGL calls. */
+
+    public static class Scene {
+
+        public final String name;
+
+        public final ArrayList<GLShapeCV> shapes = new ArrayList<>();
+
+        public final GLRendererCV renderer = new GLRendererCV();
+
+        public final GLRecordingBackendCV gl = new GLRecordingBackendCV();
+
+        private long frameTime;
+
+        private Scene(String name) {
+            this.name = name;
+            GLPlatformCV.setBackend(gl);
+            renderer.onSurfaceChanged(null,1080,2160);
+        }
+
+        private void add(GLShapeCV shape) {
+            shapes.add(shape);
+        }
+
+        /**
+         * Starts the animations of the shapes (as GLSurfaceViewCV.addShape() does) and compiles the OpenGL programs
+         * (as the renderer does in onSurfaceCreated()).
+         */
+
+        private Scene start() {
+            GLAnimationSchedulerCV scheduler = renderer.getAnimationScheduler();
+            for (GLShapeCV shape : shapes) {
+                for (GLAnimationCV animation : shape.getAnimations())
+                    scheduler.start(animation.setRepeatCount(GLAnimationCV.INFINITE));
+                shape.initOpenGLProgram();
+                shape.prepareTextures();
+            }
+            return this;
+        }
+
+        /**
+         * Renders the next frame, i.e. advances the animations by one frame time and draws all shapes (as GLRendererCV.onDrawFrame() does).
+         */
+
+        public void renderFrame() {
+            renderer.getAnimationScheduler().advance(frameTime += FRAME_NANOS);
+            renderer.drawShapes(shapes);
+        }
+
+    }
+
+    /**
+     * Builds a scene and starts its animations.
+     * @param name The name of the scene (see NAMES).
+     * @return The scene or null if there is no scene with this name.
+     */
+
+    public static Scene build(String name) {
+        Scene scene = new Scene(name);
+        switch (name) {
+            case "blocks8000": blocks8000(scene); break;
+            case "drones": drones(scene); break;
+            case "cubeOfCubes": cubeOfCubes(scene); break;
+            case "spheres": spheres(scene); break;
+            default: return null;
+        }
+        return scene.start();
+    }
+
+    /** Replacement for the AccelerateInterpolator of the Android SDK (whose stub class cannot be used on a plain JVM). */
+
+    private static final TimeInterpolator ACCELERATE = new TimeInterpolator() {
+        public float getInterpolation(float input) {
+            return input*input;
+        }
+    };
+
+    /** Replacement for the AccelerateDecelerateInterpolator of the Android SDK. */
+
+    private static final TimeInterpolator ACCELERATE_DECELERATE = new TimeInterpolator() {
+        public float getInterpolation(float input) {
+            return (float)(Math.cos((input+1)*Math.PI)/2.0)+0.5f;
+        }
+    };
+
+    private static void blocks8000(Scene scene) {
+        int dim = 40;
+        boolean[][][] positions = new boolean[dim][dim][dim];
+        for (int i=0; i<dim; i+=2)
+            for (int j=0; j<dim; j+=2)
+                for (int k=0; k<dim; k+=2)
+                    positions[i][j][k] = true;
+        GLShapeCV[] shapes = GLSceneFactoryCV.makeBlocksScene(positions,0.05f,GLShapeFactoryCV.white,GLShapeFactoryCV.red,10,0);
+        float[] axis1 = { -5, 5, 5 };
+        float[] axis2 = { 5, -5, -5 };
+        for (GLShapeCV shape : shapes) {
+            GLAnimatorFactoryCV.addAnimationArcPathAroundAxis(shape,axis1,axis2,360,10000,0);
+            scene.add(shape);
+        }
+    }
+
+    private static void drones(Scene scene) {
+        Random random = new Random(1);
+        float[] baseColor = GLShapeFactoryCV.darkgrey;
+        float[][] colors = { GLShapeFactoryCV.red, GLShapeFactoryCV.green, GLShapeFactoryCV.blue, GLShapeFactoryCV.yellow, GLShapeFactoryCV.orange, GLShapeFactoryCV.purple };
+        float apexHeight = 4f;
+        GLShapeCV[] cones = new GLShapeCV[6];
+        for (int i=0; i<6; i++)
+            cones[i] = GLShapeFactoryCV.makePyramid("Cone"+(i+1),16,apexHeight,baseColor,new float[][] { colors[i] });
+        GLShapeCV drone = GLShapeFactoryCV.joinShapes("Drone", cones[0], cones[1], 1, 1, 1, 180, 0, 0, 0, apexHeight, 0);
+        drone = GLShapeFactoryCV.joinShapes("Drone", drone, cones[2], 1, 1, 1, 0, 0, 90, apexHeight / 2, apexHeight / 2, 0);
+        drone = GLShapeFactoryCV.joinShapes("Drone", drone, cones[3], 1, 1, 1, 0, 0, 270, -apexHeight / 2, apexHeight / 2, 0);
+        drone = GLShapeFactoryCV.joinShapes("Drone", drone, cones[4], 1, 1, 1, 90, 0, 0, 0, apexHeight / 2, -apexHeight / 2);
+        drone = GLShapeFactoryCV.joinShapes("Drone", drone, cones[5], 1, 1, 1, 270, 0, 0, 0, apexHeight / 2, apexHeight / 2, 0, apexHeight / 2, 0);
+        final int numberOfTracks = 6, durationFirstPath = 3000, durationTilt = 500, durationSecondPath = 3000;
+        GLAnimationTrackCV[] tracks = new GLAnimationTrackCV[numberOfTracks];
+        for (int k=0; k<numberOfTracks; k++) {
+            GLShapeCV template = new GLShapeCV("Choreography"+k,null);
+            template.setScale(0.75f).setTransX(-8).setTransY(12).setTransZ(-30);
+            GLAnimatorFactoryCV.addAnimationRotY(template,405,durationFirstPath,0,false);
+            GLAnimatorFactoryCV.addAnimationTrans(template,-6f+14*random.nextFloat(),-10f+6*random.nextFloat(),-10,durationFirstPath,0);
+            GLAnimatorFactoryCV.addAnimationRotZInModelSpace(template,30,durationTilt,0,false).setStartDelay(durationFirstPath);
+            GLAnimatorFactoryCV.addAnimationRotYInModelSpace(template,36000,durationSecondPath,0,false)
+                    .setInterpolator(ACCELERATE).setStartDelay(durationSecondPath+durationTilt);
+            float targetXSecondPath = (k%3-1)*20;
+            GLAnimatorFactoryCV.addAnimationTrans(template,targetXSecondPath,50,-20,durationSecondPath,0)
+                    .setInterpolator(ACCELERATE).setStartDelay(durationSecondPath+durationTilt);
+            tracks[k] = GLAnimationTrackCV.bake(template,1000/60f);
+        }
+        final int numberOfDrones = 50, startIntervals = 500;
+        for (int i=0; i<numberOfDrones; i++) {
+            GLShapeCV copy = drone.copy("Drone"+i);
+            copy.setScale(0.75f).setTransX(-8).setTransY(12).setTransZ(-30);
+            tracks[random.nextInt(numberOfTracks)].replay(copy,i*startIntervals);
+            scene.add(copy);
+        }
+    }
+
+    private static void cubeOfCubes(Scene scene) {
+        int numberOfCubes = 5;
+        boolean[][][] positions = new boolean[2*numberOfCubes-1][2*numberOfCubes-1][2*numberOfCubes-1];
+        for (int i=0; i<numberOfCubes; i++)
+            for (int j=0; j<numberOfCubes; j++)
+                for (int k=0; k<numberOfCubes; k++)
+                    positions[2*i][2*j][2*k] = true;
+        GLShapeCV cubes = GLShapeFactoryCV.makeShapeFromCubes("CubeOfCubes",GLShapeFactoryCV.darkgreen,GLShapeFactoryCV.white,10,positions);
+        cubes.setTransZ(-2*numberOfCubes-2);
+        float[] axis = { 0.57735f, 1, 0 };
+        int duration = 140000;
+        GLAnimatorFactoryCV.addAnimationRot(cubes,3600,axis,duration,0,false);
+        scene.add(cubes);
+        GLShapeCV wireframe = GLShapeFactoryCV.makeCubeWireframe("Wireframe",GLShapeFactoryCV.red,10);
+        wireframe.setScale(numberOfCubes*2).setTransZ(-2*numberOfCubes-2);
+        GLAnimatorFactoryCV.addAnimationRot(wireframe,3600,axis,duration,0,false);
+        scene.add(wireframe);
+    }
+
+    private static void spheres(Scene scene) {
+        Random random = new Random(1);
+        int xDim = 10, yDim = 15, zDim = 5;
+        float probability = 0.1f;
+        int durationScaleAnim = 2000, maxStartDelay = 5000, numberOfRotations = 40;
+        float initScale = 0.1f, targetScale = 0.4f;
+        float[][] colors = { GLShapeFactoryCV.red, GLShapeFactoryCV.green, GLShapeFactoryCV.blue, GLShapeFactoryCV.yellow };
+        for (int i=0; i<xDim; i++)
+            for (int j=0; j<yDim; j++)
+                for (int k=0; k<zDim; k++)
+                    if (random.nextFloat()<probability) {
+                        GLShapeCV shape = GLShapeFactoryCV.makeSphere("Sphere_"+i+"_"+j+"_"+k,4,colors);
+                        shape.setTrans(-xDim/2f+0.5f+i,-yDim/2f+.5f+j,-k-2).setScale(initScale);
+                        int startDelay = random.nextInt(maxStartDelay);
+                        GLAnimatorFactoryCV.addAnimationScale(shape,targetScale,durationScaleAnim,0,true).setStartDelay(startDelay);
+                        GLAnimatorFactoryCV.addAnimationRotY(shape,360*numberOfRotations,durationScaleAnim*numberOfRotations/8,0,false)
+                                .setInterpolator(ACCELERATE_DECELERATE).setStartDelay(startDelay+durationScaleAnim+500);
+                        scene.add(shape);
+                    }
+    }
+
+}
@@ -0,0 +1,179 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package android.opengl;
+
+/**
+ * Pure-Java implementation of the subset of <I>android.opengl.Matrix</I> used by the library,
+ * such that the library can be run and measured on a plain JVM (see the benchmark module).
+ * <P>
+ * The class replaces the stub class of the Android SDK on the classpath of the benchmarks.
+ * The methods follow the semantics of the Android implementation (column-major 4x4 matrices, angles in degrees),
+ * including its behavior when the result array is also an operand:
+ * <I>multiplyMM()</I> reads each column of the right-hand matrix before writing the corresponding column of the result,
+ * i.e. the result may be written into the right-hand matrix (but not into the left-hand matrix),
+ * and <I>multiplyMV()</I> may write the result into the vector.
+ */
+
+public class Matrix {
+
+    /** Scratch array for the in-place rotation (guarded by its own monitor, as in the Android implementation). */
+
+    private static final float[] TEMP = new float[32];
+
+    public static void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs, int rhsOffset) {
+        for (int col=0; col<4; col++) {
+            float r0 = rhs[rhsOffset+4*col], r1 = rhs[rhsOffset+4*col+1], r2 = rhs[rhsOffset+4*col+2], r3 = rhs[rhsOffset+4*col+3];
+            for (int row=0; row<4; row++)
+                result[resultOffset+4*col+row] = lhs[lhsOffset+row]*r0+lhs[lhsOffset+4+row]*r1+lhs[lhsOffset+8+row]*r2+lhs[lhsOffset+12+row]*r3;
+        }
+    }
+
+    public static void multiplyMV(float[] resultVec, int resultVecOffset, float[] lhsMat, int lhsMatOffset, float[] rhsVec, int rhsVecOffset) {
+        float x = rhsVec[rhsVecOffset], y = rhsVec[rhsVecOffset+1], z = rhsVec[rhsVecOffset+2], w = rhsVec[rhsVecOffset+3];
+        for (int row=0; row<4; row++)
+            resultVec[resultVecOffset+row] = lhsMat[lhsMatOffset+row]*x+lhsMat[lhsMatOffset+4+row]*y+lhsMat[lhsMatOffset+8+row]*z+lhsMat[lhsMatOffset+12+row]*w;
+    }
+
+    public static void setIdentityM(float[] sm, int smOffset) {
+        for (int i=0; i<16; i++)
+            sm[smOffset+i] = i%5==0 ? 1 : 0;
+    }
+
+    public static void transposeM(float[] mTrans, int mTransOffset, float[] m, int mOffset) {
+        for (int i=0; i<4; i++)
+            for (int j=0; j<4; j++)
+                mTrans[mTransOffset+4*i+j] = m[mOffset+4*j+i];
+    }
+
+    /**
+     * Inverts a 4x4 matrix by Gauss-Jordan elimination with partial pivoting.
+     * @return false if the matrix is singular (then 'mInv' is not modified).
+     */
+
+    public static boolean invertM(float[] mInv, int mInvOffset, float[] m, int mOffset) {
+        double[] a = new double[32];
+        for (int row=0; row<4; row++)
+            for (int col=0; col<4; col++) {
+                a[8*row+col] = m[mOffset+4*col+row];
+                a[8*row+4+col] = row==col ? 1 : 0;
+            }
+        for (int col=0; col<4; col++) {
+            int pivot = col;
+            for (int row=col+1; row<4; row++)
+                if (Math.abs(a[8*row+col])>Math.abs(a[8*pivot+col])) pivot = row;
+            if (a[8*pivot+col]==0) return false;
+            for (int k=0; k<8; k++) {
+                double tmp = a[8*col+k];
+                a[8*col+k] = a[8*pivot+k];
+                a[8*pivot+k] = tmp;
+            }
+            double factor = a[8*col+col];
+            for (int k=0; k<8; k++)
+                a[8*col+k] /= factor;
+            for (int row=0; row<4; row++)
+                if (row!=col) {
+                    double f = a[8*row+col];
+                    for (int k=0; k<8; k++)
+                        a[8*row+k] -= f*a[8*col+k];
+                }
+        }
+        for (int row=0; row<4; row++)
+            for (int col=0; col<4; col++)
+                mInv[mInvOffset+4*col+row] = (float) a[8*row+4+col];
+        return true;
+    }
+
+    public static void setRotateM(float[] rm, int rmOffset, float a, float x, float y, float z) {
+        rm[rmOffset+3] = rm[rmOffset+7] = rm[rmOffset+11] = 0;
+        rm[rmOffset+12] = rm[rmOffset+13] = rm[rmOffset+14] = 0;
+        rm[rmOffset+15] = 1;
+        float s = (float) Math.sin(Math.toRadians(a));
+        float c = (float) Math.cos(Math.toRadians(a));
+        if (x==1&&y==0&&z==0) {
+            rm[rmOffset] = 1; rm[rmOffset+4] = 0; rm[rmOffset+8] = 0;
+            rm[rmOffset+1] = 0; rm[rmOffset+5] = c; rm[rmOffset+9] = -s;
+            rm[rmOffset+2] = 0; rm[rmOffset+6] = s; rm[rmOffset+10] = c;
+        } else if (x==0&&y==1&&z==0) {
+            rm[rmOffset] = c; rm[rmOffset+4] = 0; rm[rmOffset+8] = s;
+            rm[rmOffset+1] = 0; rm[rmOffset+5] = 1; rm[rmOffset+9] = 0;
+            rm[rmOffset+2] = -s; rm[rmOffset+6] = 0; rm[rmOffset+10] = c;
+        } else if (x==0&&y==0&&z==1) {
+            rm[rmOffset] = c; rm[rmOffset+4] = -s; rm[rmOffset+8] = 0;
+            rm[rmOffset+1] = s; rm[rmOffset+5] = c; rm[rmOffset+9] = 0;
+            rm[rmOffset+2] = 0; rm[rmOffset+6] = 0; rm[rmOffset+10] = 1;
+        } else {
+            float length = (float) Math.sqrt(x*x+y*y+z*z);
+            if (length!=1) {
+                float recipLength = 1/length;
+                x *= recipLength;
+                y *= recipLength;
+                z *= recipLength;
+            }
+            float nc = 1-c, xy = x*y, yz = y*z, zx = z*x, xs = x*s, ys = y*s, zs = z*s;
+            rm[rmOffset] = x*x*nc+c; rm[rmOffset+4] = xy*nc-zs; rm[rmOffset+8] = zx*nc+ys;
+            rm[rmOffset+1] = xy*nc+zs; rm[rmOffset+5] = y*y*nc+c; rm[rmOffset+9] = yz*nc-xs;
+            rm[rmOffset+2] = zx*nc-ys; rm[rmOffset+6] = yz*nc+xs; rm[rmOffset+10] = z*z*nc+c;
+        }
+    }
+
+    public static void rotateM(float[] m, int mOffset, float a, float x, float y, float z) {
+        synchronized (TEMP) {
+            setRotateM(TEMP,0,a,x,y,z);
+            multiplyMM(TEMP,16,m,mOffset,TEMP,0);
+            System.arraycopy(TEMP,16,m,mOffset,16);
+        }
+    }
+
+    public static void scaleM(float[] m, int mOffset, float x, float y, float z) {
+        for (int i=0; i<4; i++) {
+            m[mOffset+i] *= x;
+            m[mOffset+4+i] *= y;
+            m[mOffset+8+i] *= z;
+        }
+    }
+
+    public static void translateM(float[] m, int mOffset, float x, float y, float z) {
+        for (int i=0; i<4; i++)
+            m[mOffset+12+i] += m[mOffset+i]*x+m[mOffset+4+i]*y+m[mOffset+8+i]*z;
+    }
+
+    public static void frustumM(float[] m, int offset, float left, float right, float bottom, float top, float near, float far) {
+        float rWidth = 1/(right-left), rHeight = 1/(top-bottom), rDepth = 1/(near-far);
+        for (int i=0; i<16; i++)
+            m[offset+i] = 0;
+        m[offset] = 2*near*rWidth;
+        m[offset+5] = 2*near*rHeight;
+        m[offset+8] = (right+left)*rWidth;
+        m[offset+9] = (top+bottom)*rHeight;
+        m[offset+10] = (far+near)*rDepth;
+        m[offset+11] = -1;
+        m[offset+14] = 2*far*near*rDepth;
+    }
+
+    public static void setLookAtM(float[] rm, int rmOffset, float eyeX, float eyeY, float eyeZ,
+                                  float centerX, float centerY, float centerZ, float upX, float upY, float upZ) {
+        float fx = centerX-eyeX, fy = centerY-eyeY, fz = centerZ-eyeZ;
+        float rlf = 1/(float) Math.sqrt(fx*fx+fy*fy+fz*fz);
+        fx *= rlf; fy *= rlf; fz *= rlf;
+        // s = f x up
+        float sx = fy*upZ-fz*upY, sy = fz*upX-fx*upZ, sz = fx*upY-fy*upX;
+        float rls = 1/(float) Math.sqrt(sx*sx+sy*sy+sz*sz);
+        sx *= rls; sy *= rls; sz *= rls;
+        // u = s x f
+        float ux = sy*fz-sz*fy, uy = sz*fx-sx*fz, uz = sx*fy-sy*fx;
+        rm[rmOffset] = sx; rm[rmOffset+1] = ux; rm[rmOffset+2] = -fx; rm[rmOffset+3] = 0;
+        rm[rmOffset+4] = sy; rm[rmOffset+5] = uy; rm[rmOffset+6] = -fy; rm[rmOffset+7] = 0;
+        rm[rmOffset+8] = sz; rm[rmOffset+9] = uz; rm[rmOffset+10] = -fz; rm[rmOffset+11] = 0;
+        rm[rmOffset+12] = rm[rmOffset+13] = rm[rmOffset+14] = 0;
+        rm[rmOffset+15] = 1;
+        translateM(rm,rmOffset,-eyeX,-eyeY,-eyeZ);
+    }
+
+}
@@ -0,0 +1,35 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package android.util;
+
+/**
+ * Pure-Java implementation of the subset of <I>android.util.Log</I> used by the library,
+ * such that the library can log on a plain JVM (see the benchmark module). The messages are written to System.err.
+ * <P>
+ * The class replaces the stub class of the Android SDK on the classpath of the benchmarks.
+ */
+
+public class Log {
+
+    public static int v(String tag, String msg) {
+        return println("V",tag,msg);
+    }
+
+    public static int e(String tag, String msg) {
+        return println("E",tag,msg);
+    }
+
+    private static int println(String priority, String tag, String msg) {
+        String line = priority+"/"+tag+": "+msg;
+        System.err.println(line);
+        return line.length();
+    }
+
+}
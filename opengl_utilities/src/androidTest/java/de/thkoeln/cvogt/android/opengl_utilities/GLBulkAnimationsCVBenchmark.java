@@ -0,0 +1,90 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.animation.ObjectAnimator;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark, which will execute on an Android device:
+ * Compares the time per frame to animate 10000 shapes by ObjectAnimators (one translation and one rotation animator per shape, made by GLAnimatorFactoryCV)
+ * with the time per frame of a store of bulk animations (class GLBulkAnimationsCV) with the same animations, without and with parallelism.
+ * <P>
+ * The ObjectAnimators are driven by setCurrentPlayTime() on the main thread, i.e. without the choreographer,
+ * such that only the evaluation and the property updates are measured. The results are written to the log (tag "GLDEMO").
+ */
+@RunWith(AndroidJUnit4.class)
+public class GLBulkAnimationsCVBenchmark {
+
+    private static final int SHAPES = 10000;
+
+    private static final int FRAMES = 120;
+
+    private static final int FRAME_MILLIS = 16;
+
+    @Test
+    public void objectAnimatorsVersusBulkAnimations() {
+        final float[] axis = { 0, 1, 1 };
+        final ArrayList<ObjectAnimator> animators = new ArrayList<>();
+        final long[] nanos = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i=0; i<SHAPES; i++) {
+                    GLShapeCV shape = makeShape(i);
+                    animators.add(GLAnimatorFactoryCV.addAnimatorTrans(shape,new float[] {5,i%100,0},1000,0));
+                    animators.add(GLAnimatorFactoryCV.addAnimatorRot(shape,360,axis,1000,0,false));
+                }
+                for (int frame=0; frame<10; frame++)   // warm up
+                    for (ObjectAnimator animator : animators)
+                        animator.setCurrentPlayTime(frame*FRAME_MILLIS);
+                long start = System.nanoTime();
+                for (int frame=0; frame<FRAMES; frame++)
+                    for (ObjectAnimator animator : animators)
+                        animator.setCurrentPlayTime((frame*FRAME_MILLIS)%1000);
+                nanos[0] = System.nanoTime()-start;
+            }
+        });
+        long animatorNanos = nanos[0]/FRAMES;
+        long bulkNanos = timeBulkAnimations(1);
+        int cores = Runtime.getRuntime().availableProcessors();
+        long parallelNanos = timeBulkAnimations(cores);
+        Log.i("GLDEMO",">>> "+SHAPES+" shapes, time per frame: ObjectAnimators "+animatorNanos/1000+" microsec, bulk animations "+bulkNanos/1000
+                +" microsec, bulk animations with "+cores+" threads "+parallelNanos/1000+" microsec");
+        assertTrue(bulkNanos>0&&parallelNanos>0);
+    }
+
+    private static long timeBulkAnimations(int threads) {
+        float[] axis = { 0, 1, 1 };
+        GLBulkAnimationsCV store = new GLBulkAnimationsCV(SHAPES).setParallelism(threads);
+        for (int i=0; i<SHAPES; i++) {
+            int slot = store.add(makeShape(i),1000);
+            store.setLinearPath(slot,new float[] {5,i%100,0}).setRotation(slot,360,axis);
+        }
+        long time = 0;
+        for (int frame=0; frame<10; frame++)   // warm up
+            store.update(time += FRAME_MILLIS*1000000L);
+        long start = System.nanoTime();
+        for (int frame=0; frame<FRAMES; frame++)
+            store.update(time += FRAME_MILLIS*1000000L);
+        long duration = System.nanoTime()-start;
+        store.release();
+        float[] matrix = new float[16];
+        assertTrue(store.getModelMatrix(SHAPES-1,matrix));
+        return duration/FRAMES;
+    }
+
+    private static GLShapeCV makeShape(int i) {
+        GLShapeCV shape = new GLShapeCV("Shape"+i,null);
+        shape.setTrans(i%100,0,-i/100);
+        return shape;
+    }
+
+}
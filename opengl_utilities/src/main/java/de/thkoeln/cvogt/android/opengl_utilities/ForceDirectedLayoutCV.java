@@ -0,0 +1,620 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Class for the force-directed layout of graphs in 3D, i.e. for the calculation of the 3D positions of the vertices of a graph
+ * such that the graph can be rendered with this library (see <I>makeEdgesShape()</I>).
+ * <P>
+ * As in the classical algorithm (cf. GraphsUtilsCV.placeVertices_ForceDirectedLayout()), the vertices repulse each other like electrically charged particles
+ * (force relativeStrength*optimalDistance²/distance) and vertices sharing an edge attract each other like connected by springs (force distance²/optimalDistance).
+ * In each iteration, each vertex is moved by a step into the direction of the force it experiences. The step length is adapted to the progress of the layout
+ * (it shrinks when the energy of the system, i.e. the sum of the squared forces, does not decrease any more), and the layout has converged
+ * when the step length has fallen below a tolerance.
+ * <P>
+ * The repulsive forces are approximated by the Barnes-Hut algorithm: In each iteration, the vertices are sorted into an octree whose nodes store
+ * the number of their vertices and the center of mass of these vertices. Groups of vertices that are far away from a vertex (relative to their extent,
+ * as specified by the parameter theta) act on it as a single particle. An iteration thus costs O(V log V + E) instead of O(V²).
+ * The octree, the positions and the forces are held in primitive arrays that are reused between iterations.
+ * The forces can be accumulated by several threads in parallel (see <I>setParallelism()</I>); the result does not depend on the number of threads.
+ * <P>
+ * When edges or vertices are added to the graph, <I>updateGraph()</I> continues the layout from the current positions (warm start):
+ * The vertices keep their positions, new vertices are placed near their neighbors, and the layout is refined with a small step length.
+ * <P>
+ * The edges are regarded as undirected. The positions are reproducible for a given seed of the random initial positions.
+ * @see GraphsUtilsCV#placeVertices_ForceDirectedLayout3D(IntGraphCV, int)
+ */
+
+public class ForceDirectedLayoutCV {
+
+    /** Maximum depth of the octree. Vertices that still share a node at this depth (i.e. have almost equal positions) are kept in one leaf. */
+
+    private static final int MAX_DEPTH = 32;
+
+    /** Size of the stacks for the traversal of the octree. */
+
+    private static final int STACK_SIZE = 8*(MAX_DEPTH+2);
+
+    /** Factor by which the step length is shrunk or enlarged. */
+
+    private static final float STEP_FACTOR = 0.9f;
+
+    /** Number of iterations with decreasing energy after which the step length is enlarged. */
+
+    private static final int PROGRESS_STEPS = 5;
+
+    /** Step length for a warm start relative to the optimal distance. */
+
+    private static final float WARM_START_STEP = 0.1f;
+
+    /** The graph as passed by the application. */
+
+    private IntGraphCV graph;
+
+    /** The undirected simple version of the graph. */
+
+    private int[] offsets, targets;
+
+    /** The number of vertices. */
+
+    private int n;
+
+    /** The positions of the vertices, 3 values per vertex (x, y, z). */
+
+    private float[] positions;
+
+    /** The forces on the vertices in the current iteration, 3 values per vertex. */
+
+    private float[] forces;
+
+    private float optimalDistance = 1;
+
+    private float relativeStrength = 0.2f;
+
+    private float theta = 0.8f;
+
+    private float tolerance = 0.01f;
+
+    /** The current step length. */
+
+    private float step;
+
+    /** The energy of the last iteration. */
+
+    private double energy = Double.MAX_VALUE;
+
+    /** The number of iterations with decreasing energy. */
+
+    private int progress;
+
+    /** The number of iterations since the start of the layout. */
+
+    private int iterations;
+
+    private final Random random;
+
+    /** The octree: centers and half edge lengths of the cubes of the nodes (3+1 values per node). */
+
+    private float[] nodeCenters, nodeHalfSizes;
+
+    /** The octree: centers of mass of the nodes (3 values per node; sums of the positions while the tree is built). */
+
+    private float[] nodeCentersOfMass;
+
+    /** The octree: numbers of the vertices in the nodes. */
+
+    private int[] nodeMasses;
+
+    /** The octree: children of the nodes (8 values per node, 0 = no child since the root is no child). */
+
+    private int[] nodeChildren;
+
+    /** The octree: vertex of a leaf (-1 for inner nodes and empty nodes). */
+
+    private int[] nodeVertices;
+
+    /** The number of nodes of the octree. */
+
+    private int numberOfNodes;
+
+    /** The stacks for the traversal of the octree, one per thread. */
+
+    private int[][] stacks = new int[1][STACK_SIZE];
+
+    /** The worker threads that accumulate the forces on parts of the vertices in parallel to the thread that calls iterate() (null if no parallelism). */
+
+    private WorkerThreadsCV workers;
+
+    /**
+     * Initializes the layout of a graph with random positions in a cube whose volume grows with the number of vertices (seed 0).
+     * @param graph The graph.
+     */
+
+    public ForceDirectedLayoutCV(IntGraphCV graph) {
+        this(graph,0);
+    }
+
+    /**
+     * Initializes the layout of a graph with random positions in a cube whose volume grows with the number of vertices.
+     * @param graph The graph (null = empty graph).
+     * @param seed The seed for the random positions.
+     */
+
+    public ForceDirectedLayoutCV(IntGraphCV graph, long seed) {
+        random = new Random(seed);
+        setUndirectedGraph(graph!=null ? graph : IntGraphCV.fromEdges(0,new int[0],new int[0],false));
+        positions = new float[3*n];
+        float size = initialSize();
+        for (int i=0; i<3*n; i++)
+            positions[i] = (random.nextFloat()-0.5f)*size;
+        step = optimalDistance;
+    }
+
+    private void setUndirectedGraph(IntGraphCV graph) {
+        this.graph = graph;
+        IntGraphCV undirected = graph.toUndirected();
+        offsets = undirected.offsets();
+        targets = undirected.targets();
+        n = graph.getNumberOfVertices();
+        forces = new float[3*n];
+    }
+
+    /** @return The edge length of the cube for the initial positions. */
+
+    private float initialSize() {
+        return optimalDistance*(float)Math.cbrt(Math.max(n,1));
+    }
+
+    /**
+     * Sets the optimal distance, i.e. the length of the edges at which the repulsive and attractive forces would cancel out for two vertices (default: 1).
+     * The current positions are not changed.
+     * @param optimalDistance The optimal distance (> 0).
+     * @return The layout itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public ForceDirectedLayoutCV setOptimalDistance(float optimalDistance) {
+        if (optimalDistance<=0) return this;
+        step *= optimalDistance/this.optimalDistance;
+        this.optimalDistance = optimalDistance;
+        return this;
+    }
+
+    synchronized public float getOptimalDistance() {
+        return optimalDistance;
+    }
+
+    /**
+     * Sets the strength of the repulsive forces relative to the attractive forces (default: 0.2).
+     * @param relativeStrength The relative strength (> 0).
+     * @return The layout itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public ForceDirectedLayoutCV setRelativeStrength(float relativeStrength) {
+        if (relativeStrength>0)
+            this.relativeStrength = relativeStrength;
+        return this;
+    }
+
+    synchronized public float getRelativeStrength() {
+        return relativeStrength;
+    }
+
+    /**
+     * Sets the accuracy of the Barnes-Hut approximation: A node of the octree acts as a single particle on a vertex
+     * if the edge length of its cube is smaller than theta times its distance to the vertex (default: 0.8).
+     * @param theta The parameter (>= 0; 0 = exact calculation of the repulsive forces in O(V²)).
+     * @return The layout itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public ForceDirectedLayoutCV setTheta(float theta) {
+        if (theta>=0)
+            this.theta = theta;
+        return this;
+    }
+
+    synchronized public float getTheta() {
+        return theta;
+    }
+
+    /**
+     * Sets the tolerance for the convergence: The layout has converged when the step length has fallen below tolerance times the optimal distance (default: 0.01).
+     * @param tolerance The tolerance (> 0).
+     * @return The layout itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public ForceDirectedLayoutCV setTolerance(float tolerance) {
+        if (tolerance>0)
+            this.tolerance = tolerance;
+        return this;
+    }
+
+    synchronized public float getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets the number of threads that accumulate the forces in iterate().
+     * With n threads, the thread that calls iterate() handles the first of n parts of the vertices, and n-1 worker threads handle the other parts.
+     * @param threads The number of threads (1 = no worker threads).
+     * @return The layout itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public ForceDirectedLayoutCV setParallelism(int threads) {
+        stopWorkers();
+        threads = Math.max(threads,1);
+        stacks = new int[threads][STACK_SIZE];
+        if (threads==1) return this;
+        workers = new WorkerThreadsCV("ForceDirectedLayoutCV",threads,new WorkerThreadsCV.Task() {
+            @Override
+            public void runPart(int part, int parts) {
+                accumulateForces(part,parts);
+            }
+        });
+        return this;
+    }
+
+    synchronized public int getParallelism() {
+        return workers==null ? 1 : workers.getParts();
+    }
+
+    /**
+     * Terminates the worker threads (if any). The layout can still be iterated afterwards, but without parallelism.
+     */
+
+    synchronized public void release() {
+        stopWorkers();
+        stacks = new int[1][STACK_SIZE];
+    }
+
+    private void stopWorkers() {
+        if (workers==null) return;
+        workers.stop();
+        workers = null;
+    }
+
+    /**
+     * Continues the layout with a changed graph (warm start), typically after edges or vertices have been added.
+     * The vertices of the new graph that are also vertices of the old graph (i.e. have equal vertex objects, see <I>IntGraphCV.getVertex()</I>) keep their positions.
+     * A new vertex is placed near the center of its neighbors that have positions already or, if there are none, at a random position.
+     * The step length is reduced such that the next iterations refine the layout locally instead of rebuilding it.
+     * @param graph The new graph.
+     * @return The layout itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public ForceDirectedLayoutCV updateGraph(IntGraphCV graph) {
+        if (graph==null) return this;
+        IntGraphCV oldGraph = this.graph;
+        float[] oldPositions = positions;
+        setUndirectedGraph(graph);
+        positions = new float[3*n];
+        boolean[] placed = new boolean[n];
+        float[] min = new float[3], max = new float[3];
+        Arrays.fill(min,Float.MAX_VALUE);
+        Arrays.fill(max,-Float.MAX_VALUE);
+        for (int v=0; v<n; v++) {
+            int old = oldGraph.getIndex(graph.getVertex(v));
+            if (old<0) continue;
+            for (int i=0; i<3; i++) {
+                positions[3*v+i] = oldPositions[3*old+i];
+                min[i] = Math.min(min[i],positions[3*v+i]);
+                max[i] = Math.max(max[i],positions[3*v+i]);
+            }
+            placed[v] = true;
+        }
+        boolean anyPlaced = min[0]<=max[0];
+        for (int v=0; v<n; v++) {
+            if (placed[v]) continue;
+            int neighbors = 0;
+            for (int e=offsets[v]; e<offsets[v+1]; e++)
+                if (placed[targets[e]]) {
+                    for (int i=0; i<3; i++)
+                        positions[3*v+i] += positions[3*targets[e]+i];
+                    neighbors++;
+                }
+            for (int i=0; i<3; i++) {
+                float jitter = (random.nextFloat()-0.5f)*optimalDistance;
+                if (neighbors>0)
+                    positions[3*v+i] = positions[3*v+i]/neighbors+jitter;
+                else if (anyPlaced)
+                    positions[3*v+i] = min[i]+random.nextFloat()*(max[i]-min[i])+jitter;
+                else
+                    positions[3*v+i] = (random.nextFloat()-0.5f)*initialSize();
+            }
+            placed[v] = true;
+        }
+        step = WARM_START_STEP*optimalDistance;
+        energy = Double.MAX_VALUE;
+        progress = 0;
+        return this;
+    }
+
+    /**
+     * Performs iterations of the layout until it has converged.
+     * @param maxIterations The maximum number of iterations.
+     * @return The number of iterations performed.
+     */
+
+    synchronized public int iterate(int maxIterations) {
+        int performed = 0;
+        while (performed<maxIterations&&!isConverged()) {
+            buildOctree();
+            if (workers==null)
+                accumulateForces(0,1);
+            else
+                workers.run();
+            moveVertices();
+            performed++;
+        }
+        iterations += performed;
+        return performed;
+    }
+
+    /**
+     * @return true if the step length has fallen below the tolerance (or the graph has no vertices).
+     */
+
+    synchronized public boolean isConverged() {
+        return n==0||step<tolerance*optimalDistance;
+    }
+
+    /**
+     * @return The number of iterations performed since the layout has been created.
+     */
+
+    synchronized public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return The current step length.
+     */
+
+    synchronized public float getStep() {
+        return step;
+    }
+
+    synchronized public IntGraphCV getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return A copy of the positions of the vertices, 3 values (x, y, z) per vertex in the order of the vertex numbers.
+     */
+
+    synchronized public float[] getPositions() {
+        return positions.clone();
+    }
+
+    /**
+     * @param vertex The number of a vertex.
+     * @return The position of the vertex (x, y, z) or null if the vertex number is not valid.
+     */
+
+    synchronized public float[] getPosition(int vertex) {
+        if (vertex<0||vertex>=n) return null;
+        return Arrays.copyOfRange(positions,3*vertex,3*vertex+3);
+    }
+
+    /**
+     * @return A map mapping the vertex objects of the graph (see IntGraphCV.getVertex()) to their positions (x, y, z).
+     */
+
+    synchronized public HashMap<Object, float[]> getPositionsAsHashMap() {
+        HashMap<Object, float[]> result = new HashMap<>(n*4/3+1);
+        for (int v=0; v<n; v++)
+            result.put(graph.getVertex(v),Arrays.copyOfRange(positions,3*v,3*v+3));
+        return result;
+    }
+
+    /**
+     * Makes a shape with a line for each (undirected) edge of the graph at the current positions of its vertices.
+     * The vertices can be marked by further shapes, e.g. small spheres placed at getPosition().
+     * @param id The ID of the shape.
+     * @param color The color of the lines.
+     * @param lineWidth The width of the lines.
+     * @return The shape.
+     */
+
+    synchronized public GLShapeCV makeEdgesShape(String id, float[] color, float lineWidth) {
+        int numberOfLines = 0;
+        for (int v=0; v<n; v++)
+            for (int e=offsets[v]; e<offsets[v+1]; e++)
+                if (v<targets[e]) numberOfLines++;
+        GLLineCV[] lines = new GLLineCV[numberOfLines];
+        int l = 0;
+        for (int v=0; v<n; v++)
+            for (int e=offsets[v]; e<offsets[v+1]; e++)
+                if (v<targets[e])
+                    lines[l++] = new GLLineCV(id+"_"+v+"_"+targets[e],getPosition(v),getPosition(targets[e]),color);
+        return new GLShapeCV(id,lines,lineWidth);
+    }
+
+    /**
+     * Sorts the vertices into the octree.
+     */
+
+    private void buildOctree() {
+        float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE }, max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for (int v=0; v<n; v++)
+            for (int i=0; i<3; i++) {
+                min[i] = Math.min(min[i],positions[3*v+i]);
+                max[i] = Math.max(max[i],positions[3*v+i]);
+            }
+        float halfSize = Math.max(Math.max(max[0]-min[0],max[1]-min[1]),max[2]-min[2])/2*1.001f+Float.MIN_NORMAL;
+        numberOfNodes = 0;
+        addNode((min[0]+max[0])/2,(min[1]+max[1])/2,(min[2]+max[2])/2,halfSize);
+        for (int v=0; v<n; v++)
+            insert(v);
+        for (int node=0; node<numberOfNodes; node++)
+            for (int i=0; i<3; i++)
+                nodeCentersOfMass[3*node+i] /= nodeMasses[node];
+    }
+
+    /**
+     * Inserts a vertex into the octree. The masses and centers of mass (as sums) of the nodes along the path are updated on the way down.
+     */
+
+    private void insert(int v) {
+        float x = positions[3*v], y = positions[3*v+1], z = positions[3*v+2];
+        int node = 0;
+        for (int depth=0; ; depth++) {
+            int mass = nodeMasses[node]++;
+            nodeCentersOfMass[3*node] += x;
+            nodeCentersOfMass[3*node+1] += y;
+            nodeCentersOfMass[3*node+2] += z;
+            if (mass==0) {
+                nodeVertices[node] = v;
+                return;
+            }
+            if (nodeVertices[node]>=0) {
+                if (depth>=MAX_DEPTH) return;
+                // push the vertex of the leaf down into a child
+                int u = nodeVertices[node];
+                nodeVertices[node] = -1;
+                int child = child(node,positions[3*u],positions[3*u+1],positions[3*u+2]);
+                nodeMasses[child] = 1;
+                nodeVertices[child] = u;
+                System.arraycopy(positions,3*u,nodeCentersOfMass,3*child,3);
+            }
+            node = child(node,x,y,z);
+        }
+    }
+
+    /**
+     * Returns the child of a node whose cube contains a point; the child is created if the node has no such child yet.
+     */
+
+    private int child(int node, float x, float y, float z) {
+        float cx = nodeCenters[3*node], cy = nodeCenters[3*node+1], cz = nodeCenters[3*node+2];
+        int octant = (x>=cx?1:0)|(y>=cy?2:0)|(z>=cz?4:0);
+        int child = nodeChildren[8*node+octant];
+        if (child==0) {
+            float h = nodeHalfSizes[node]/2;
+            child = addNode(x>=cx?cx+h:cx-h,y>=cy?cy+h:cy-h,z>=cz?cz+h:cz-h,h);
+            nodeChildren[8*node+octant] = child;
+        }
+        return child;
+    }
+
+    /**
+     * Adds an empty node to the octree (enlarging the arrays if necessary).
+     */
+
+    private int addNode(float x, float y, float z, float halfSize) {
+        if (nodeMasses==null||numberOfNodes==nodeMasses.length) {
+            int capacity = Math.max(2*numberOfNodes,2*n+16);
+            nodeCenters = nodeCenters==null ? new float[3*capacity] : Arrays.copyOf(nodeCenters,3*capacity);
+            nodeHalfSizes = nodeHalfSizes==null ? new float[capacity] : Arrays.copyOf(nodeHalfSizes,capacity);
+            nodeCentersOfMass = nodeCentersOfMass==null ? new float[3*capacity] : Arrays.copyOf(nodeCentersOfMass,3*capacity);
+            nodeMasses = nodeMasses==null ? new int[capacity] : Arrays.copyOf(nodeMasses,capacity);
+            nodeChildren = nodeChildren==null ? new int[8*capacity] : Arrays.copyOf(nodeChildren,8*capacity);
+            nodeVertices = nodeVertices==null ? new int[capacity] : Arrays.copyOf(nodeVertices,capacity);
+        }
+        int node = numberOfNodes++;
+        nodeCenters[3*node] = x;
+        nodeCenters[3*node+1] = y;
+        nodeCenters[3*node+2] = z;
+        nodeHalfSizes[node] = halfSize;
+        nodeCentersOfMass[3*node] = nodeCentersOfMass[3*node+1] = nodeCentersOfMass[3*node+2] = 0;
+        nodeMasses[node] = 0;
+        Arrays.fill(nodeChildren,8*node,8*node+8,0);
+        nodeVertices[node] = -1;
+        return node;
+    }
+
+    /**
+     * Calculates the forces on the vertices in one of several equally sized parts of the vertices.
+     * Reads only the positions and the octree, and writes only the forces of the vertices of the part.
+     * @param part The number of the part.
+     * @param parts The number of parts.
+     */
+
+    private void accumulateForces(int part, int parts) {
+        int from = (int) ((long) n*part/parts);
+        int to = (int) ((long) n*(part+1)/parts);
+        int[] stack = stacks[part];
+        float repulsion = relativeStrength*optimalDistance*optimalDistance;
+        float thetaSquared = theta*theta;
+        for (int v=from; v<to; v++) {
+            float x = positions[3*v], y = positions[3*v+1], z = positions[3*v+2];
+            float fx = 0, fy = 0, fz = 0;
+            // repulsive forces: traversal of the octree
+            int top = 0;
+            stack[top++] = 0;
+            while (top>0) {
+                int node = stack[--top];
+                float dx = x-nodeCentersOfMass[3*node], dy = y-nodeCentersOfMass[3*node+1], dz = z-nodeCentersOfMass[3*node+2];
+                float d2 = dx*dx+dy*dy+dz*dz;
+                int mass = nodeMasses[node];
+                boolean leaf = nodeVertices[node]>=0;
+                if (leaf&&nodeVertices[node]==v&&mass==1) continue;
+                float size = 2*nodeHalfSizes[node];
+                if (leaf||size*size<thetaSquared*d2) {
+                    if (d2>0) {
+                        float f = repulsion*mass/d2;
+                        fx += f*dx;
+                        fy += f*dy;
+                        fz += f*dz;
+                    }
+                    continue;
+                }
+                for (int octant=0; octant<8; octant++) {
+                    int child = nodeChildren[8*node+octant];
+                    if (child!=0) stack[top++] = child;
+                }
+            }
+            // attractive forces: springs along the edges
+            for (int e=offsets[v]; e<offsets[v+1]; e++) {
+                int u = targets[e];
+                float dx = positions[3*u]-x, dy = positions[3*u+1]-y, dz = positions[3*u+2]-z;
+                float d = (float) Math.sqrt(dx*dx+dy*dy+dz*dz)/optimalDistance;
+                fx += d*dx;
+                fy += d*dy;
+                fz += d*dz;
+            }
+            forces[3*v] = fx;
+            forces[3*v+1] = fy;
+            forces[3*v+2] = fz;
+        }
+    }
+
+    /**
+     * Moves each vertex by the step length into the direction of its force and adapts the step length.
+     */
+
+    private void moveVertices() {
+        double newEnergy = 0;
+        for (int v=0; v<n; v++) {
+            float fx = forces[3*v], fy = forces[3*v+1], fz = forces[3*v+2];
+            float f2 = fx*fx+fy*fy+fz*fz;
+            newEnergy += f2;
+            if (f2==0) continue;
+            float factor = step/(float)Math.sqrt(f2);
+            positions[3*v] += factor*fx;
+            positions[3*v+1] += factor*fy;
+            positions[3*v+2] += factor*fz;
+        }
+        if (newEnergy<energy) {
+            if (++progress>=PROGRESS_STEPS) {
+                progress = 0;
+                step /= STEP_FACTOR;
+            }
+        } else {
+            progress = 0;
+            step *= STEP_FACTOR;
+        }
+        energy = newEnergy;
+    }
+
+}
@@ -0,0 +1,545 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.animation.TimeInterpolator;
+import android.animation.TypeEvaluator;
+
+/**
+ * Class to define animations that are advanced by the renderer, i.e. in the render loop, and not by the Android animation framework.
+ * <P>
+ * An animation of this class animates a property of a shape, e.g. its translation, its scaling factors or its rotation matrix.
+ * The values of the property are calculated by a <I>TypeEvaluator</I> - the same evaluator types as for <I>ObjectAnimator</I> objects can be used.
+ * In contrast to an <I>ObjectAnimator</I>, the property values are not written through reflective setter calls on the UI thread.
+ * Instead, all active animations of a surface view are advanced in one pass at the start of each frame
+ * by the animation scheduler of the renderer (class <I>GLAnimationSchedulerCV</I>) based on the frame timestamp.
+ * The predefined properties (<I>TRANS</I>, <I>SCALE</I>, <I>ROTATION_MATRIX</I>, <I>ORIENTATION</I>, ...) write directly into the attributes of the shape;
+ * the model matrix of an animated shape is composed only when it is read next, i.e. at most once per frame.
+ * <P>
+ * The timing follows the semantics of <I>ValueAnimator</I>: An animation has a duration, a start delay, a repeat count and
+ * an optional reverse mode; the elapsed fraction is mapped by a time interpolator (linear if none is set).
+ * If no start value is specified, it will be taken from the property when the start delay has elapsed.
+ * <P>
+ * Animations are typically made by the <I>addAnimationXxx()</I> methods of class <I>GLAnimatorFactoryCV</I>
+ * and started automatically when the animated shape is added to a surface view.
+ * <BR>
+ * @see GLAnimationSchedulerCV
+ * @see GLAnimatorFactoryCV
+ * @see GLShapeCV
+ */
+
+public class GLAnimationCV {
+
+    /** Value for the repeat count to specify that the animation shall be repeated infinitely. */
+
+    public static final int INFINITE = -1;
+
+    /** Result of advance(): The start delay of the animation has not yet elapsed, i.e. no value has been written. */
+
+    static final int WAITING = 0;
+
+    /** Result of advance(): A new value has been written to the property. */
+
+    static final int RUNNING = 1;
+
+    /** Result of advance(): The final value has been written to the property, i.e. the animation has ended. */
+
+    static final int ENDED = 2;
+
+    /**
+     * Interface for properties that can be animated, i.e. attributes of a shape that can be read and written as float arrays.
+     * The methods are called by the animation scheduler while it holds the monitor of the shape.
+     */
+
+    public interface Property {
+
+        /**
+         * Get the current value of the property.
+         * @param shape The animated shape.
+         * @return The current value (will be used as start value of the animation).
+         */
+
+        float[] get(GLShapeCV shape);
+
+        /**
+         * Set the property to a new value.
+         * @param shape The animated shape.
+         * @param value The new value (the array must not be stored by the property as it may be reused by the evaluator).
+         */
+
+        void set(GLShapeCV shape, float[] value);
+
+    }
+
+    /** Property for the translation of a shape (value: array of length 3). */
+
+    public static final Property TRANS = new Property() {
+        public float[] get(GLShapeCV shape) {
+            return shape.getTrans();
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            for (int i=0; i<3; i++)
+                shape.writeTrans(i,value[i]);
+        }
+    };
+
+    /** Property for the translation of a shape in the x dimension (value: array of length 1). */
+
+    public static final Property TRANS_X = new TransProperty(0);
+
+    /** Property for the translation of a shape in the y dimension (value: array of length 1). */
+
+    public static final Property TRANS_Y = new TransProperty(1);
+
+    /** Property for the translation of a shape in the z dimension (value: array of length 1). */
+
+    public static final Property TRANS_Z = new TransProperty(2);
+
+    /** Property for the scaling factors of a shape (value: array of length 3). */
+
+    public static final Property SCALE = new Property() {
+        public float[] get(GLShapeCV shape) {
+            float[] result = new float[3];
+            result[0] = shape.getScaleX();
+            result[1] = shape.getScaleY();
+            result[2] = shape.getScaleZ();
+            return result;
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            for (int i=0; i<3; i++)
+                shape.writeScale(i,value[i]);
+        }
+    };
+
+    /** Property for the scaling factor of a shape in the x dimension (value: array of length 1). */
+
+    public static final Property SCALE_X = new ScaleProperty(0);
+
+    /** Property for the scaling factor of a shape in the y dimension (value: array of length 1). */
+
+    public static final Property SCALE_Y = new ScaleProperty(1);
+
+    /** Property for the scaling factor of a shape in the z dimension (value: array of length 1). */
+
+    public static final Property SCALE_Z = new ScaleProperty(2);
+
+    /**
+     * Property for the rotation matrix of a shape (value: array of length 16).
+     * In contrast to GLShapeCV.setRotationMatrix(), it is not checked that the value is indeed a rotation matrix.
+     */
+
+    public static final Property ROTATION_MATRIX = new Property() {
+        public float[] get(GLShapeCV shape) {
+            return shape.getRotationMatrix();
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            shape.writeRotationMatrix(value);
+        }
+    };
+
+    /**
+     * Property for the orientation of a shape as a unit quaternion (value: array of length 4, see GLShapeCV.setOrientation()).
+     * The rotation matrix of the shape is derived from the quaternion when the model matrix is composed.
+     */
+
+    public static final Property ORIENTATION = new Property() {
+        public float[] get(GLShapeCV shape) {
+            return shape.getOrientation();
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            shape.writeOrientation(value);
+        }
+    };
+
+    /**
+     * Makes a property for the local transformation matrix of a vertex group of a shape (value: array of length 16).
+     * @param groupName The name of the vertex group (see GLShapeCV.defineVertexGroup()).
+     * @return The property. If the shape has no group with this name, values written to the property are ignored.
+     */
+
+    public static Property vertexGroupMatrix(String groupName) {
+        return new VertexGroupMatrixProperty(groupName);
+    }
+
+    /** The animated shape (may be null for properties that are not related to a shape). */
+
+    private final GLShapeCV shape;
+
+    /** The animated property. */
+
+    private final Property property;
+
+    /** The evaluator to calculate the property values. */
+
+    private final TypeEvaluator<float[]> evaluator;
+
+    /** The start value to be passed to the evaluator (null = to be taken from the property when the animation starts). */
+
+    private float[] startValue;
+
+    /** Specifies whether the start value shall be taken from the property when the animation starts. */
+
+    private final boolean startValueFromProperty;
+
+    /** The end value to be passed to the evaluator. */
+
+    private final float[] endValue;
+
+    /** The duration of one iteration of the animation (ms). */
+
+    private long duration = 300;
+
+    /** The start delay of the animation (ms). */
+
+    private long startDelay;
+
+    /** The number of times the animation shall be repeated after the first iteration (INFINITE = endless). */
+
+    private int repeatCount;
+
+    /** Specifies whether every second iteration shall run backwards. */
+
+    private boolean reverse;
+
+    /** The time interpolator (null = linear). */
+
+    private TimeInterpolator interpolator;
+
+    /** Action to be executed by the renderer thread when the animation has ended. */
+
+    private Runnable endAction;
+
+    /**
+     * Frame time (ns) at which the animation was started by the scheduler, i.e. the time of the first frame after the call of start().
+     * -1 if not yet set. Accessed only by the thread that advances the scheduler.
+     */
+
+    private long startTime = -1;
+
+    /** Specifies whether the start delay has elapsed. Accessed only by the thread that advances the scheduler. */
+
+    private boolean delayElapsed;
+
+    /** Specifies whether the animation is currently in the active list of a scheduler. Accessed only by the thread that advances the scheduler. */
+
+    boolean scheduled;
+
+    /** Specifies whether the animation has been started and has neither ended nor been cancelled. */
+
+    private volatile boolean running;
+
+    /** Specifies whether the animation shall be cancelled. */
+
+    private volatile boolean cancelled;
+
+    /**
+     * Makes an animation with a linear evaluator.
+     * The start value is taken from the property when the start delay has elapsed.
+     * @param shape The shape to be animated.
+     * @param property The property to be animated.
+     * @param endValue The end value of the animation.
+     */
+
+    public GLAnimationCV(GLShapeCV shape, Property property, float[] endValue) {
+        this(shape,property,new LinearEvaluator(),null,endValue);
+    }
+
+    /**
+     * Makes an animation.
+     * @param shape The shape to be animated.
+     * @param property The property to be animated.
+     * @param evaluator The evaluator to calculate the property values from the (interpolated) fraction, the start value, and the end value.
+     * @param startValue The start value to be passed to the evaluator (null = to be taken from the property when the start delay has elapsed).
+     * @param endValue The end value to be passed to the evaluator.
+     */
+
+    public GLAnimationCV(GLShapeCV shape, Property property, TypeEvaluator<float[]> evaluator, float[] startValue, float[] endValue) {
+        this.shape = shape;
+        this.property = property;
+        this.evaluator = evaluator;
+        this.startValueFromProperty = startValue==null;
+        this.startValue = startValue==null ? null : startValue.clone();
+        this.endValue = endValue==null ? null : endValue.clone();
+    }
+
+    public GLShapeCV getShape() {
+        return shape;
+    }
+
+    /**
+     * Sets the duration of one iteration of the animation.
+     * @param duration The duration (ms); negative values are ignored.
+     * @return The animation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    public GLAnimationCV setDuration(long duration) {
+        if (duration>=0)
+            this.duration = duration;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Sets the start delay of the animation, i.e. the time between the first frame after the start and the begin of the animation.
+     * @param startDelay The start delay (ms); negative values are ignored.
+     * @return The animation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    public GLAnimationCV setStartDelay(long startDelay) {
+        if (startDelay>=0)
+            this.startDelay = startDelay;
+        return this;
+    }
+
+    public long getStartDelay() {
+        return startDelay;
+    }
+
+    /**
+     * Sets the number of times the animation shall be repeated after its first iteration.
+     * @param repeatCount The repeat count (INFINITE = endless repetition).
+     * @return The animation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    public GLAnimationCV setRepeatCount(int repeatCount) {
+        this.repeatCount = repeatCount<0 ? INFINITE : repeatCount;
+        return this;
+    }
+
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    /**
+     * Specifies whether every second iteration of the animation shall run backwards (corresponds to ValueAnimator.REVERSE).
+     * @param reverse true if the iterations shall be reversed alternately.
+     * @return The animation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    public GLAnimationCV setReverse(boolean reverse) {
+        this.reverse = reverse;
+        return this;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * Sets the time interpolator that maps the elapsed fraction of an iteration to the fraction passed to the evaluator.
+     * @param interpolator The interpolator (null = linear).
+     * @return The animation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    public GLAnimationCV setInterpolator(TimeInterpolator interpolator) {
+        this.interpolator = interpolator;
+        return this;
+    }
+
+    public TimeInterpolator getInterpolator() {
+        return interpolator;
+    }
+
+    /**
+     * Sets an action to be executed when the animation has ended (but not when it has been cancelled).
+     * The action is executed by the thread that advances the scheduler, i.e. typically the renderer thread,
+     * after the monitor of the animated shape has been released.
+     * @param endAction The action.
+     * @return The animation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    public GLAnimationCV setEndAction(Runnable endAction) {
+        this.endAction = endAction;
+        return this;
+    }
+
+    public Runnable getEndAction() {
+        return endAction;
+    }
+
+    /**
+     * Checks whether the animation is running, i.e. has been started and has neither ended nor been cancelled.
+     * Note that an animation is running also during its start delay.
+     */
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Cancels the animation. The property keeps its current value, the end action is not executed.
+     * The animation will be removed from its scheduler in the next frame.
+     */
+
+    public void cancel() {
+        cancelled = true;
+        running = false;
+    }
+
+    /** Checks whether the animation has been cancelled (and not been restarted afterwards). */
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Marks the animation as started. Called by GLAnimationSchedulerCV.start().
+     */
+
+    void markStarted() {
+        cancelled = false;
+        running = true;
+    }
+
+    /**
+     * Resets the timing of the animation such that it begins at a given time.
+     * Called by the scheduler when it takes over the animation.
+     * The start time is set here and not with the first call of advance()
+     * such that the animation keeps its timing if the scheduler does not advance it in every frame (see GLAnimationSchedulerCV.setOffscreenPolicy()).
+     * @param startTime The start time (ns, as delivered by the clock of the scheduler).
+     */
+
+    void restart(long startTime) {
+        this.startTime = startTime;
+        delayElapsed = false;
+        if (startValueFromProperty)
+            startValue = null;
+    }
+
+    /**
+     * Advances the animation to a given frame time, i.e. writes the corresponding value to the property.
+     * Must be called with the monitor of the shape held (if there is a shape).
+     * @param frameTimeNanos The frame time (ns, as delivered by the clock of the scheduler).
+     * @return WAITING if the start delay has not yet elapsed, RUNNING if a value has been written, ENDED if the final value has been written.
+     */
+
+    int advance(long frameTimeNanos) {
+        if (startTime<0)
+            startTime = frameTimeNanos;
+        double playTime = (frameTimeNanos-startTime)/1e6-startDelay;
+        if (playTime<0)
+            return WAITING;
+        if (!delayElapsed) {
+            if (startValueFromProperty)
+                startValue = property.get(shape);
+            delayElapsed = true;
+        }
+        float fraction;
+        long iteration;
+        boolean ended = false;
+        if (duration==0) {
+            iteration = repeatCount==INFINITE ? 0 : repeatCount;
+            fraction = 1;
+            ended = true;
+        } else {
+            iteration = (long) (playTime/duration);
+            fraction = (float) ((playTime-iteration*duration)/duration);
+            if (repeatCount!=INFINITE&&iteration>repeatCount) {
+                iteration = repeatCount;
+                fraction = 1;
+                ended = true;
+            }
+        }
+        if (reverse&&iteration%2==1)
+            fraction = 1-fraction;
+        if (interpolator!=null)
+            fraction = interpolator.getInterpolation(fraction);
+        property.set(shape,evaluator.evaluate(fraction,startValue,endValue));
+        if (ended)
+            running = false;
+        return ended ? ENDED : RUNNING;
+    }
+
+    /**
+     * Property for a single translation value.
+     */
+
+    private static class TransProperty implements Property {
+        private final int dimension;
+        TransProperty(int dimension) {
+            this.dimension = dimension;
+        }
+        public float[] get(GLShapeCV shape) {
+            float[] result = new float[1];
+            result[0] = shape.getTrans()[dimension];
+            return result;
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            shape.writeTrans(dimension,value[0]);
+        }
+    }
+
+    /**
+     * Property for the local transformation matrix of a vertex group.
+     * The group number is looked up once per shape.
+     */
+
+    private static class VertexGroupMatrixProperty implements Property {
+        private final String groupName;
+        private GLShapeCV lastShape;
+        private int lastGroup;
+        VertexGroupMatrixProperty(String groupName) {
+            this.groupName = groupName;
+        }
+        public float[] get(GLShapeCV shape) {
+            return shape.getVertexGroupMatrix(groupName);
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            if (shape!=lastShape) {
+                lastGroup = shape.getVertexGroup(groupName);
+                lastShape = shape;
+            }
+            shape.writeVertexGroupMatrix(lastGroup,value);
+        }
+    }
+
+    /**
+     * Property for a single scaling factor.
+     */
+
+    private static class ScaleProperty implements Property {
+        private final int dimension;
+        ScaleProperty(int dimension) {
+            this.dimension = dimension;
+        }
+        public float[] get(GLShapeCV shape) {
+            float[] result = new float[1];
+            switch (dimension) {
+                case 0: result[0] = shape.getScaleX(); break;
+                case 1: result[0] = shape.getScaleY(); break;
+                case 2: result[0] = shape.getScaleZ(); break;
+            }
+            return result;
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            shape.writeScale(dimension,value[0]);
+        }
+    }
+
+    /**
+     * Evaluator for a linear interpolation between the start value and the end value.
+     * The result array is reused in all calls, i.e. the evaluator does not allocate memory after its first call.
+     */
+
+    private static class LinearEvaluator implements TypeEvaluator<float[]> {
+        private float[] result;
+        public float[] evaluate(float f, float[] start, float[] end) {
+            if (result==null||result.length!=end.length)
+                result = new float[end.length];
+            for (int i=0; i<result.length; i++)
+                result[i] = start[i]+f*(end[i]-start[i]);
+            return result;
+        }
+    }
+
+}
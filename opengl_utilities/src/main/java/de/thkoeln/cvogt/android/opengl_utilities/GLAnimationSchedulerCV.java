@@ -0,0 +1,416 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import java.util.ArrayList;
+
+/**
+ * Class to define animation schedulers, i.e. objects that advance animations of class <I>GLAnimationCV</I> in the render loop.
+ * <P>
+ * Each renderer (class <I>GLRendererCV</I>) owns a scheduler and calls its <I>advance()</I> method at the start of <I>onDrawFrame()</I>.
+ * This method takes one timestamp from the clock of the scheduler and advances all active animations to this timestamp in one pass.
+ * The animations of the same shape are kept adjacent in the list of active animations
+ * such that the monitor of each shape is acquired only once per frame.
+ * The model matrix of a shape is marked as outdated then and composed only when it is read next, i.e. at most once per frame.
+ * Actions to be executed at the end of animations are run after all monitors have been released.
+ * <P>
+ * In addition, the scheduler updates subsystems that animate many shapes at once in each frame,
+ * i.e. stores of bulk animations (class <I>GLBulkAnimationsCV</I>) and physics simulations (class <I>GLPhysicsCV</I>).
+ * <P>
+ * The scheduler can be paused, e.g. while the surface view is paused. The time of the pause is then excluded from the frame times,
+ * i.e. the animations continue where they have been paused.
+ * <P>
+ * Optionally, the animations of shapes outside the view of the camera can be advanced at a reduced rate or be skipped (see <I>setOffscreenPolicy()</I>).
+ * <P>
+ * Animations can be started from any thread through <I>start()</I>; they will be taken over by the scheduler with the next frame.
+ * <P>
+ * The clock is pluggable such that the scheduler can be driven deterministically, e.g. in unit tests.
+ * <BR>
+ * @see GLAnimationCV
+ * @see GLBulkAnimationsCV
+ * @see GLPhysicsCV
+ * @see GLRendererCV
+ */
+
+public class GLAnimationSchedulerCV {
+
+    /**
+     * Interface for clocks that deliver the frame timestamps.
+     */
+
+    public interface Clock {
+
+        /**
+         * @return The current time in nanoseconds (arbitrary origin, monotonically increasing).
+         */
+
+        long nanoTime();
+
+    }
+
+    /**
+     * Interface for subsystems that update many shapes at once in each frame (see start(Updatable)).
+     */
+
+    public interface Updatable {
+
+        /**
+         * Updates the shapes of the subsystem. Called by the scheduler once per frame after the animations have been advanced.
+         * @param frameTimeNanos The frame time (ns).
+         */
+
+        void update(long frameTimeNanos);
+
+    }
+
+    /**
+     * Interface for tests whether shapes are in the view of the camera (see setOffscreenPolicy()).
+     */
+
+    public interface VisibilityTest {
+
+        /**
+         * Called with the monitor of the shape being held.
+         * @return false if the shape is outside the view, true otherwise.
+         */
+
+        boolean isVisible(GLShapeCV shape);
+
+    }
+
+    /** Policy for shapes outside the view: Advance their animations in every frame (default). */
+
+    public static final int OFFSCREEN_ALWAYS = 0;
+
+    /** Policy for shapes outside the view: Advance their animations only in every n-th frame. */
+
+    public static final int OFFSCREEN_REDUCED_RATE = 1;
+
+    /**
+     * Policy for shapes outside the view: Do not advance their animations.
+     * As the animations calculate their values from the frame time, they catch up when the shape is visible again.
+     * Note that a shape stays at its last pose as long as it is outside the view,
+     * i.e. this policy is not suited for animations that move shapes into the view (use OFFSCREEN_REDUCED_RATE for these).
+     * End actions of animations are executed when the shape is visible again.
+     */
+
+    public static final int OFFSCREEN_SKIP = 2;
+
+    /** Clock based on System.nanoTime(). */
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /** The clock of the scheduler. */
+
+    private final Clock clock;
+
+    /** The animations that have been started since the last frame. Guarded by its own monitor. */
+
+    private final ArrayList<GLAnimationCV> pendingAnimations;
+
+    /** The active animations, grouped by their shapes. Accessed only by the thread that calls advance(). */
+
+    private final ArrayList<GLAnimationCV> activeAnimations;
+
+    /** The subsystems to be updated in each frame. Guarded by its own monitor. */
+
+    private final ArrayList<Updatable> updatables;
+
+    /** The end actions of the animations that have ended in the current frame (reused in all frames). */
+
+    private final ArrayList<Runnable> endActions;
+
+    /** The time of the last frame, i.e. the time passed to the last call of advance(). */
+
+    private long frameTimeNanos;
+
+    /** The time of the clock at which the scheduler has been paused (-1 = not paused). Guarded by the monitor of the scheduler. */
+
+    private long pausedAtNanos = -1;
+
+    /** The total duration of all pauses so far, i.e. the value to be subtracted from the time of the clock. Guarded by the monitor of the scheduler. */
+
+    private long pausedTotalNanos;
+
+    /** The policy for shapes outside the view (OFFSCREEN_ALWAYS, OFFSCREEN_REDUCED_RATE, OFFSCREEN_SKIP). */
+
+    private volatile int offscreenPolicy = OFFSCREEN_ALWAYS;
+
+    /** The n for the policy OFFSCREEN_REDUCED_RATE, i.e. the animations of shapes outside the view are advanced in every n-th frame. */
+
+    private volatile int offscreenInterval = 4;
+
+    /** The test whether shapes are in the view (null = all shapes are regarded as visible). */
+
+    private volatile VisibilityTest visibilityTest;
+
+    /** The number of frames so far. */
+
+    private long frameCount;
+
+    /**
+     * Makes a scheduler with the system clock.
+     */
+
+    public GLAnimationSchedulerCV() {
+        this(SYSTEM_CLOCK);
+    }
+
+    /**
+     * Makes a scheduler with a specific clock.
+     * @param clock The clock to deliver the frame timestamps (if null, the system clock is used).
+     */
+
+    public GLAnimationSchedulerCV(Clock clock) {
+        this.clock = clock==null ? SYSTEM_CLOCK : clock;
+        pendingAnimations = new ArrayList<>();
+        activeAnimations = new ArrayList<>();
+        endActions = new ArrayList<>();
+        updatables = new ArrayList<>();
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Starts an animation, i.e. registers it such that it will be advanced from the next frame on.
+     * If the animation is already active in this scheduler, it is restarted.
+     * The method can be called from any thread.
+     * @param animation The animation to be started.
+     */
+
+    public void start(GLAnimationCV animation) {
+        if (animation==null) return;
+        synchronized (pendingAnimations) {
+            animation.markStarted();
+            pendingAnimations.add(animation);
+        }
+    }
+
+    /**
+     * Pauses the scheduler: advance() does not advance the animations until resume() is called,
+     * and the duration of the pause will be excluded from the frame times.
+     * The method can be called from any thread.
+     */
+
+    synchronized public void pause() {
+        if (pausedAtNanos<0)
+            pausedAtNanos = clock.nanoTime();
+    }
+
+    /**
+     * Resumes the scheduler after a pause.
+     * The method can be called from any thread.
+     */
+
+    synchronized public void resume() {
+        if (pausedAtNanos>=0) {
+            pausedTotalNanos += clock.nanoTime()-pausedAtNanos;
+            pausedAtNanos = -1;
+        }
+    }
+
+    synchronized public boolean isPaused() {
+        return pausedAtNanos>=0;
+    }
+
+    /**
+     * Sets the policy for the animations of shapes outside the view.
+     * @param policy OFFSCREEN_ALWAYS, OFFSCREEN_REDUCED_RATE, or OFFSCREEN_SKIP.
+     * @param interval For OFFSCREEN_REDUCED_RATE: the animations of shapes outside the view are advanced in every n-th frame with n = interval (at least 2).
+     *                 Each shape has a fixed phase (derived from its serial number), such that the shapes are distributed evenly among the frames
+     *                 and each shape is advanced exactly every n-th frame, even if other shapes start or end animations.
+     * @return The scheduler itself, such that calls of methods of this kind can be daisy chained (or null if the policy is not valid).
+     */
+
+    public GLAnimationSchedulerCV setOffscreenPolicy(int policy, int interval) {
+        if (policy<OFFSCREEN_ALWAYS||policy>OFFSCREEN_SKIP) return null;
+        offscreenInterval = Math.max(interval,2);
+        offscreenPolicy = policy;
+        return this;
+    }
+
+    public int getOffscreenPolicy() {
+        return offscreenPolicy;
+    }
+
+    /**
+     * Sets the test whether shapes are in the view of the camera. The renderer sets a test based on its view/projection matrix.
+     * @param visibilityTest The test (null = all shapes are regarded as visible).
+     */
+
+    public void setVisibilityTest(VisibilityTest visibilityTest) {
+        this.visibilityTest = visibilityTest;
+    }
+
+    /**
+     * Starts a subsystem, e.g. a store of bulk animations or a physics simulation,
+     * i.e. registers it such that it will be updated in each frame from the next frame on.
+     * The method can be called from any thread.
+     * @param updatable The subsystem to be started.
+     */
+
+    public void start(Updatable updatable) {
+        if (updatable==null) return;
+        synchronized (updatables) {
+            if (!updatables.contains(updatable))
+                updatables.add(updatable);
+        }
+    }
+
+    /**
+     * Stops a subsystem, i.e. it will not be updated any more. The shapes of the subsystem remain in their current poses.
+     * The method can be called from any thread.
+     * @param updatable The subsystem to be stopped.
+     */
+
+    public void stop(Updatable updatable) {
+        synchronized (updatables) {
+            updatables.remove(updatable);
+        }
+    }
+
+    /**
+     * Gets the number of active animations (including animations in their start delay).
+     * Must be called from the thread that calls advance().
+     */
+
+    public int getNumberOfActiveAnimations() {
+        return activeAnimations.size();
+    }
+
+    /**
+     * Gets the time of the last frame, i.e. the time passed to the last call of advance().
+     * Shapes use this time to evaluate their shader motions (see GLShapeCV.draw()).
+     */
+
+    public long getFrameTimeNanos() {
+        return frameTimeNanos;
+    }
+
+    /**
+     * Advances all active animations to the current time of the clock (minus the durations of the pauses).
+     * Does nothing while the scheduler is paused.
+     */
+
+    public void advance() {
+        long time;
+        synchronized (this) {
+            if (pausedAtNanos>=0) return;
+            time = clock.nanoTime()-pausedTotalNanos;
+        }
+        advance(time);
+    }
+
+    /**
+     * Advances all active animations to a given frame time.
+     * @param frameTimeNanos The frame time (ns).
+     */
+
+    public void advance(long frameTimeNanos) {
+        this.frameTimeNanos = frameTimeNanos;
+        // take over the animations started since the last frame
+        synchronized (pendingAnimations) {
+            for (int i=0; i<pendingAnimations.size(); i++) {
+                GLAnimationCV animation = pendingAnimations.get(i);
+                animation.restart(frameTimeNanos);
+                if (!animation.scheduled) {
+                    insertGroupedByShape(animation);
+                    animation.scheduled = true;
+                }
+            }
+            pendingAnimations.clear();
+        }
+        // advance the animations shape by shape
+        frameCount++;
+        int policy = offscreenPolicy;
+        VisibilityTest test = visibilityTest;
+        if (test==null) policy = OFFSCREEN_ALWAYS;
+        int numberOfAnimations = activeAnimations.size();
+        int from = 0;
+        while (from<numberOfAnimations) {
+            GLShapeCV shape = activeAnimations.get(from).getShape();
+            int to = from+1;
+            while (to<numberOfAnimations&&activeAnimations.get(to).getShape()==shape)
+                to++;
+            if (shape==null)
+                advanceRange(from,to,frameTimeNanos);
+            else
+                synchronized (shape) {
+                    boolean advance = policy==OFFSCREEN_ALWAYS
+                            || (policy==OFFSCREEN_REDUCED_RATE&&(frameCount+shape.getSerialNumber())%offscreenInterval==0)
+                            || test.isVisible(shape);
+                    if (advance&&advanceRange(from,to,frameTimeNanos))
+                        shape.invalidateModelMatrix();
+                }
+            from = to;
+        }
+        // update the subsystems
+        synchronized (updatables) {
+            for (int i=0; i<updatables.size(); i++)
+                updatables.get(i).update(frameTimeNanos);
+        }
+        // remove the animations that have ended or have been cancelled
+        int kept = 0;
+        for (int i=0; i<numberOfAnimations; i++) {
+            GLAnimationCV animation = activeAnimations.get(i);
+            if (animation.isRunning())
+                activeAnimations.set(kept++,animation);
+            else
+                animation.scheduled = false;
+        }
+        for (int i=numberOfAnimations-1; i>=kept; i--)
+            activeAnimations.remove(i);
+        // execute the end actions
+        for (int i=0; i<endActions.size(); i++)
+            endActions.get(i).run();
+        endActions.clear();
+    }
+
+    /**
+     * Advances the active animations in a given range of the list 'activeAnimations'.
+     * @return true if at least one of the animations has written a value.
+     */
+
+    private boolean advanceRange(int from, int to, long frameTimeNanos) {
+        boolean written = false;
+        for (int i=from; i<to; i++) {
+            GLAnimationCV animation = activeAnimations.get(i);
+            if (animation.isCancelled()) continue;
+            int state = animation.advance(frameTimeNanos);
+            if (state!=GLAnimationCV.WAITING)
+                written = true;
+            if (state==GLAnimationCV.ENDED&&animation.getEndAction()!=null)
+                endActions.add(animation.getEndAction());
+        }
+        return written;
+    }
+
+    /**
+     * Inserts an animation into the list 'activeAnimations' behind the last animation of the same shape
+     * (or at the end of the list if there is no such animation).
+     * The animations of a shape thus remain in the order in which they have been started.
+     */
+
+    private void insertGroupedByShape(GLAnimationCV animation) {
+        for (int i=activeAnimations.size()-1; i>=0; i--)
+            if (activeAnimations.get(i).getShape()==animation.getShape()) {
+                activeAnimations.add(i+1,animation);
+                return;
+            }
+        activeAnimations.add(animation);
+    }
+
+}
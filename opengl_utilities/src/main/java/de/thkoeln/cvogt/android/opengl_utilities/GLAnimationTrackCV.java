@@ -0,0 +1,262 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.animation.TypeEvaluator;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Class to define animation tracks, i.e. sequences of poses of a shape sampled at equidistant points in time ("keyframes").
+ * <P>
+ * A track is made by "baking" a choreography, i.e. by running the animations of a template shape (class <I>GLAnimationCV</I>)
+ * once with a private animation scheduler and recording the translation, rotation, and scaling of the shape at every tick.
+ * The track can then be replayed by any number of shapes with individual time offsets (method <I>replay()</I>).
+ * A replaying shape has a single animation that looks up the pose for the current time in the shared sample array
+ * and interpolates between the two adjacent samples (linearly for translation and scaling, by spherical linear interpolation of quaternions for the rotation, see GraphicsUtilsCV.quaternionSlerp()).
+ * It thus does not evaluate the possibly expensive evaluators of the original choreography again.
+ * <P>
+ * Tracks are serializable such that the poses of expensive paths can be computed in advance, e.g. stored in a file and loaded at runtime.
+ * <P>
+ * Only the pose of the template shape is sampled. Other properties (e.g. matrices of vertex groups) and end actions of the animations are not part of a track.
+ * <BR>
+ * @see GLAnimationCV
+ * @see GLAnimationSchedulerCV
+ */
+
+public class GLAnimationTrackCV implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of values per sample: translation (x, y, z), rotation as a unit quaternion (x, y, z, w), scaling factors (x, y, z).
+     */
+
+    public static final int VALUES_PER_SAMPLE = 10;
+
+    /** Maximum duration of a choreography that is baked until all its animations have ended (ms). */
+
+    public static final int MAX_BAKE_DURATION = 600000;
+
+    /** The time between two samples (ms). */
+
+    private final float tickMillis;
+
+    /** The number of samples. */
+
+    private final int numberOfSamples;
+
+    /** The samples, VALUES_PER_SAMPLE values each (see there). */
+
+    private final float[] samples;
+
+    /**
+     * Makes a track from sample values.
+     * @param tickMillis The time between two samples (ms, must be > 0).
+     * @param samples The samples, VALUES_PER_SAMPLE values each (see there). The array is not copied.
+     * At least one sample must be given.
+     * @throws IllegalArgumentException if a parameter is not valid.
+     */
+
+    public GLAnimationTrackCV(float tickMillis, float[] samples) {
+        if (tickMillis<=0||samples==null||samples.length==0||samples.length%VALUES_PER_SAMPLE!=0)
+            throw new IllegalArgumentException("Invalid track parameters");
+        this.tickMillis = tickMillis;
+        this.samples = samples;
+        this.numberOfSamples = samples.length/VALUES_PER_SAMPLE;
+    }
+
+    /**
+     * Bakes the animations of a shape (see GLShapeCV.getAnimations()) into a track, running them until all of them have ended.
+     * For details see bake(GLShapeCV,int,float).
+     * @param shape The template shape.
+     * @param tickMillis The time between two samples (ms).
+     * @return The track (null if a parameter is not valid or the animations run longer than MAX_BAKE_DURATION).
+     */
+
+    public static GLAnimationTrackCV bake(GLShapeCV shape, float tickMillis) {
+        return bake(shape,-1,tickMillis);
+    }
+
+    /**
+     * Bakes the animations of a shape (see GLShapeCV.getAnimations()) into a track.
+     * The animations are started together at time 0 and advanced by a private animation scheduler tick by tick,
+     * i.e. their start delays, durations, repetitions and interpolators are reflected by the track.
+     * The pose of the shape is sampled after every tick and restored afterwards.
+     * <BR>
+     * The shape serves only as a template: It should not be added to a surface view, as its animations remain attached to it.
+     * @param shape The template shape.
+     * @param durationMillis The duration to be baked (ms). If <0, the animations are run until all of them have ended.
+     * @param tickMillis The time between two samples (ms).
+     * @return The track (null if a parameter is not valid or if durationMillis<0 and the animations run longer than MAX_BAKE_DURATION).
+     */
+
+    public static GLAnimationTrackCV bake(GLShapeCV shape, int durationMillis, float tickMillis) {
+        if (shape==null||tickMillis<=0) return null;
+        float[] trans = shape.getTrans();
+        float[] rotationMatrix = shape.getRotationMatrix();
+        float[] scale = { shape.getScaleX(), shape.getScaleY(), shape.getScaleZ() };
+        GLAnimationSchedulerCV scheduler = new GLAnimationSchedulerCV();
+        for (GLAnimationCV animation : shape.getAnimations())
+            scheduler.start(animation);
+        int maxSamples = (int) Math.ceil((durationMillis<0?MAX_BAKE_DURATION:durationMillis)/tickMillis)+1;
+        float[] samples = new float[VALUES_PER_SAMPLE*Math.min(maxSamples,1024)];
+        int numberOfSamples = 0;
+        boolean ended = false;
+        while (numberOfSamples<maxSamples) {
+            scheduler.advance((long)(numberOfSamples*tickMillis*1e6));
+            if (samples.length<(numberOfSamples+1)*VALUES_PER_SAMPLE)
+                samples = Arrays.copyOf(samples,Math.min(2*samples.length,maxSamples*VALUES_PER_SAMPLE));
+            writeSample(shape,samples,numberOfSamples*VALUES_PER_SAMPLE);
+            numberOfSamples++;
+            if (durationMillis<0&&scheduler.getNumberOfActiveAnimations()==0) {
+                ended = true;
+                break;
+            }
+        }
+        // cancel the animations and let the scheduler release them such that they can be started again by another scheduler
+        for (GLAnimationCV animation : shape.getAnimations())
+            animation.cancel();
+        scheduler.advance((long)(numberOfSamples*tickMillis*1e6));
+        shape.setTrans(trans);
+        shape.setRotationMatrix(rotationMatrix,false);
+        shape.setScale(scale[0],scale[1],scale[2]);
+        if (durationMillis<0&&!ended) return null;
+        return new GLAnimationTrackCV(tickMillis,Arrays.copyOf(samples,numberOfSamples*VALUES_PER_SAMPLE));
+    }
+
+    /**
+     * Writes the current pose of a shape as a sample into an array.
+     */
+
+    private static void writeSample(GLShapeCV shape, float[] samples, int offset) {
+        float[] trans = shape.getTrans();
+        float[] m = shape.getRotationMatrix();
+        samples[offset] = trans[0];
+        samples[offset+1] = trans[1];
+        samples[offset+2] = trans[2];
+        GraphicsUtilsCV.quaternionFromRotationMatrix(m,0,samples,offset+3);
+        samples[offset+7] = shape.getScaleX();
+        samples[offset+8] = shape.getScaleY();
+        samples[offset+9] = shape.getScaleZ();
+    }
+
+    public float getTickMillis() {
+        return tickMillis;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /**
+     * Gets the duration of the track, i.e. the time of its last sample (ms).
+     */
+
+    public float getDurationMillis() {
+        return (numberOfSamples-1)*tickMillis;
+    }
+
+    /**
+     * Gets the pose at a specific time, interpolated between the two adjacent samples.
+     * Times before 0 and after the duration are mapped to the first and the last sample, respectively.
+     * The method does not allocate memory.
+     * @param timeMillis The time (ms).
+     * @param result Array of length >= 22 to which the pose is written: translation at positions 0-2,
+     * rotation matrix (column-major order) at positions 3-18, scaling factors at positions 19-21.
+     */
+
+    public void getPose(float timeMillis, float[] result) {
+        float position = timeMillis/tickMillis;
+        int index;
+        float f;
+        if (position<=0) {
+            index = 0;
+            f = 0;
+        } else if (position>=numberOfSamples-1) {
+            index = numberOfSamples-1;
+            f = 0;
+        } else {
+            index = (int) position;
+            f = position-index;
+        }
+        int o1 = index*VALUES_PER_SAMPLE;
+        int o2 = f>0 ? o1+VALUES_PER_SAMPLE : o1;
+        for (int i=0; i<3; i++) {
+            result[i] = samples[o1+i]+f*(samples[o2+i]-samples[o1+i]);
+            result[19+i] = samples[o1+7+i]+f*(samples[o2+7+i]-samples[o1+7+i]);
+        }
+        // interpolation of the quaternions along the shorter arc, using positions 3-6 of the result as a scratch area
+        GraphicsUtilsCV.quaternionSlerp(samples,o1+3,samples,o2+3,f,result,3);
+        GraphicsUtilsCV.rotationMatrixFromQuaternion(result,3,result,3);
+    }
+
+    /**
+     * Makes an animation to let a shape replay the track and adds it to the animations of the shape.
+     * The animation is started when the shape is added to a surface view (see GLShapeCV.addAnimation()).
+     * Any number of shapes can replay the same track, the samples are shared.
+     * @param shape The shape to replay the track.
+     * @param timeOffset The time offset (ms): If >=0, the replay starts after a delay of 'timeOffset' milliseconds;
+     * if <0, the replay starts at once at time -'timeOffset' of the track.
+     * @return The new animation (null if the shape is null or the offset lies behind the end of the track).
+     */
+
+    public GLAnimationCV replay(GLShapeCV shape, int timeOffset) {
+        if (shape==null) return null;
+        float skip = Math.max(-timeOffset,0);
+        if (skip>getDurationMillis()&&numberOfSamples>1) return null;
+        float[] dummy = new float[1];
+        GLAnimationCV animation = new GLAnimationCV(shape,POSE,new TrackEvaluator(this,skip),dummy,dummy);
+        animation.setDuration(Math.round(getDurationMillis()-skip)).setStartDelay(Math.max(timeOffset,0));
+        shape.addAnimation(animation);
+        return animation;
+    }
+
+    /**
+     * Property for the pose of a shape as delivered by getPose() (value: array of length 22).
+     */
+
+    private static final GLAnimationCV.Property POSE = new GLAnimationCV.Property() {
+        public float[] get(GLShapeCV shape) {
+            return null;   // not needed, the start value of a replay is not taken from the shape
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            for (int i=0; i<3; i++) {
+                shape.writeTrans(i,value[i]);
+                shape.writeScale(i,value[19+i]);
+            }
+            shape.writeRotationMatrix(value,3);
+        }
+    };
+
+    /**
+     * Evaluator that maps the fraction of a replay animation to a pose of the track.
+     * The result array is reused in all calls.
+     */
+
+    private static class TrackEvaluator implements TypeEvaluator<float[]> {
+        private final GLAnimationTrackCV track;
+        private final float skip;
+        private final float[] pose = new float[22];
+
+        TrackEvaluator(GLAnimationTrackCV track, float skip) {
+            this.track = track;
+            this.skip = skip;
+        }
+
+        public float[] evaluate(float f, float[] dummy1, float[] dummy2) {
+            track.getPose(skip+f*(track.getDurationMillis()-skip),pose);
+            return pose;
+        }
+
+    }
+
+}
@@ -33,6 +33,12 @@ import java.util.ArrayList;
  * all methods of the Android Java class <I>ObjectAnimator</I> can be applied to the animators generated by the methods of this class
  * (e.g. <I>setInterpolator()</I> to assign a time interpolator to control the timing of the animator).
  * <P>
+ * The <I>addAnimationXxx()</I> methods make corresponding animations of class <I>GLAnimationCV</I> with the same evaluators.
+ * These animations are not advanced by the Android animation framework but by the animation scheduler of the renderer
+ * at the start of each frame, i.e. with direct writes into the attributes of the shape and without reflection.
+ * The <I>setShaderMotionXxx()</I> methods set motions of class <I>GLShaderMotionCV</I> that are evaluated by the vertex shader,
+ * i.e. without any calculations on the CPU per frame.
+ * <P>
  * Currently, these animations are supported:
  * <UL>
  * <P><LI>Scaling, rotation, translation
@@ -228,7 +234,7 @@ public class GLAnimatorFactoryCV {
         EvaluatorRotation eval = new EvaluatorRotation(shape,angleToTraverse,axis);
         float[] dummy = new float[1];
         // ObjectAnimator animator = ObjectAnimator.ofObject(shape,"rotationForAnimator",eval,dummy,dummy);
-        ObjectAnimator animator = ObjectAnimator.ofObject(shape,"rotationMatrix",eval,dummy,dummy);
+        ObjectAnimator animator = ObjectAnimator.ofObject(shape,"orientation",eval,dummy,dummy);
         animator.setDuration(duration);
         animator.setRepeatCount(repeatCount);
         if (reverse)
@@ -240,14 +246,19 @@ public class GLAnimatorFactoryCV {
 
     /**
      * Class that defines a TypeEvaluator for a rotation around an axis in the world coordinate system - see method addAnimatorRot().
+     * <BR>
+     * Like all evaluators of this class, it writes its results into scratch arrays that are allocated once per evaluator,
+     * i.e. evaluate() returns the same array in every call and does not allocate memory.
+     * This is safe because the setters called by the animators and the properties of the animations copy the values.
      */
 
     private static class EvaluatorRotation implements TypeEvaluator<float[]> {
         private GLShapeCV shape;
-        private float[] startRotMatrix; // rotation matrix of the shape when the rotation starts
+        private final float[] startOrientation = new float[4]; // orientation of the shape (quaternion) when the rotation starts
         private float angleToTraverse;  // rotation angle to traverse in the animation
         private float[] axis;           // rotation axis of the animation
         private boolean attributeIsValid;
+        private final float[] result = new float[4];      // scratch array for the result
 
         EvaluatorRotation(GLShapeCV shape, float angleToTraverse, float[] axis) {
             this.shape = shape;
@@ -258,28 +269,17 @@ public class GLAnimatorFactoryCV {
 
         public float[] evaluate(float f, float[] dummy1, float[] dummy2) {
             if (!attributeIsValid) {
-                startRotMatrix = shape.getRotationMatrix();
-                // for debugging purposes
-                // float rotAngleInit = GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(startRotMatrix,4,4));
-                // float[] rotAxisInit = GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(startRotMatrix,4,4));
-                // Log.v("GLDEMO","AnimatorRot: "+rotAngleInit+"  "+rotAxisInit[0]+" "+rotAxisInit[1]+" "+rotAxisInit[2]);
+                shape.getOrientation(startOrientation,0);
                 attributeIsValid = true;
             }
             float currentRotAngle = f*angleToTraverse;
             // Log.v("GLDEMO","animator: "+currentRotAngle+"  "+axis[0]+" "+axis[1]+" "+axis[2]);
-            float[] rotMatrix = new float[16];
-            Matrix.setRotateM(rotMatrix,0,currentRotAngle,axis[0],axis[1],axis[2]);
-            Matrix.multiplyMM(rotMatrix,0,rotMatrix,0,startRotMatrix,0);
-            /*
-            float[] result = new float[4];
-            float[][] rotMatrix2Dim = GraphicsUtilsCV.matrixFromArray(rotMatrix,4,4);
-            result[0] = GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(rotMatrix2Dim);
-            float[] tmp = GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(rotMatrix2Dim);
-            result[1] = tmp[0];
-            result[2] = tmp[1];
-            result[3] = tmp[2];
-            return result; */
-            return rotMatrix;
+            // the rotation of the current frame (as a quaternion, not interpolated by slerp such that angles above 180 degrees are traversed completely),
+            // composed with the start orientation
+            if (!GraphicsUtilsCV.quaternionFromAxisAngle(currentRotAngle,axis[0],axis[1],axis[2],result,0))
+                System.arraycopy(startOrientation,0,result,0,4);
+            else GraphicsUtilsCV.quaternionMultiply(result,0,startOrientation,0,result,0);
+            return result;
         }
 
     }
@@ -303,7 +303,7 @@ public class GLAnimatorFactoryCV {
     public static ObjectAnimator addAnimatorAlign(GLShapeCV shape, int axisToAlign, float[] vectorToAlignWith, int duration) {
         EvaluatorAlignWithVector eval = new EvaluatorAlignWithVector(shape,axisToAlign,vectorToAlignWith);
         float[] dummy = new float[1];
-        ObjectAnimator animator = ObjectAnimator.ofObject(shape,"rotationMatrix",eval,dummy,dummy);
+        ObjectAnimator animator = ObjectAnimator.ofObject(shape,"orientation",eval,dummy,dummy);
         animator.setDuration(duration);
         animator.setInterpolator(new LinearInterpolator());
         shape.addAnimator(animator);
@@ -329,16 +329,16 @@ public class GLAnimatorFactoryCV {
 
     private static class EvaluatorAlignWithVector implements TypeEvaluator<float[]> {
         private GLShapeCV shape;
-        private float[] startRotMatrix;
+        private final float[] startOrientation = new float[4];  // orientation of the shape (quaternion) when the alignment starts
+        private final float[] endOrientation = new float[4];    // orientation of the shape when it is aligned
         private float[] shapeAxisToAlign;
         private float[] vectorToAlignWith;
-        private float[] rotAxis;
-        private float rotAngle;
         private boolean attributeIsValid;
+        private final float[] result = new float[4];
 
         EvaluatorAlignWithVector(GLShapeCV shape, int axisToAlign, float[] vectorToAlignWith) {
             this.shape = shape;
-            this.shapeAxisToAlign = new float[4];
+            this.shapeAxisToAlign = new float[3];
             this.shapeAxisToAlign[axisToAlign] = 1;
             this.vectorToAlignWith = vectorToAlignWith.clone();
             this.attributeIsValid = false;
@@ -346,25 +346,17 @@ public class GLAnimatorFactoryCV {
 
         public float[] evaluate(float f, float[] dummy1, float[] dummy2) {
             if (!attributeIsValid) {
-                startRotMatrix = shape.getRotationMatrix();
-                // float rotAngleInit = GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(startRotMatrix,4,4));
-                // float[] rotAxisInit = GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(startRotMatrix,4,4));
-                // Log.v("GLDEMO","AnimatorAlign: "+rotAngleInit+"  "+rotAxisInit[0]+" "+rotAxisInit[1]+" "+rotAxisInit[2]);
-                Matrix.multiplyMV(shapeAxisToAlign,0,startRotMatrix,0,shapeAxisToAlign,0);
-                float[] shapeAxisShort = new float[3];
-                for (int i=0;i<3;i++)
-                    shapeAxisShort[i] = this.shapeAxisToAlign[i];
-                GraphicsUtilsCV.normalize(shapeAxisShort);
-                GraphicsUtilsCV.normalize(vectorToAlignWith);
-                rotAxis = GraphicsUtilsCV.crossProduct(shapeAxisShort,vectorToAlignWith);
-                rotAngle = (float) (180*Math.acos(GraphicsUtilsCV.dotProduct(shapeAxisShort,vectorToAlignWith))/Math.PI);
+                shape.getOrientation(startOrientation,0);
+                float[] rotatedShapeAxis = new float[3];
+                GraphicsUtilsCV.rotateByQuaternion(startOrientation,0,shapeAxisToAlign,0,rotatedShapeAxis,0);
+                // the shortest rotation that turns the axis of the shape into the vector, applied after the start orientation
+                if (GraphicsUtilsCV.quaternionBetweenVectors(rotatedShapeAxis,0,vectorToAlignWith,0,endOrientation,0))
+                    GraphicsUtilsCV.quaternionMultiply(endOrientation,0,startOrientation,0,endOrientation,0);
+                else System.arraycopy(startOrientation,0,endOrientation,0,4);
                 attributeIsValid = true;
             }
-            float currentRotAngle = f*rotAngle;
-            float[] rotMatrix = new float[16];
-            Matrix.setRotateM(rotMatrix,0,currentRotAngle,rotAxis[0],rotAxis[1],rotAxis[2]);
-            Matrix.multiplyMM(rotMatrix,0,rotMatrix,0,startRotMatrix,0);
-            return rotMatrix;
+            GraphicsUtilsCV.quaternionSlerp(startOrientation,0,endOrientation,0,f,result,0);
+            return result;
         }
 
     }
@@ -389,7 +381,7 @@ public class GLAnimatorFactoryCV {
     public static ObjectAnimator addAnimatorAlign(GLShapeCV shape, GLShapeCV shapeToAlignWith, int duration) {
         EvaluatorAlignWithShape eval = new EvaluatorAlignWithShape(shape,shapeToAlignWith);
         float[] dummy = new float[1];
-        ObjectAnimator animator = ObjectAnimator.ofObject(shape,"rotationMatrix",eval,dummy,dummy);
+        ObjectAnimator animator = ObjectAnimator.ofObject(shape,"orientation",eval,dummy,dummy);
         animator.setDuration(duration);
         animator.setInterpolator(new LinearInterpolator());
         shape.addAnimator(animator);
@@ -403,11 +395,10 @@ public class GLAnimatorFactoryCV {
     private static class EvaluatorAlignWithShape implements TypeEvaluator<float[]> {
         private GLShapeCV shape;
         private GLShapeCV shapeToAlignWith;
-        private float[] startRotMatrix;
-        private float[] vectorToAlignWith;
-        private float[] rotAxis;
-        private float rotAngle;
+        private final float[] startOrientation = new float[4];  // orientation of the shape (quaternion) when the alignment starts
+        private final float[] endOrientation = new float[4];    // orientation of the other shape when the alignment starts (as published for the render thread, read without its monitor)
         private boolean attributeIsValid;
+        private final float[] result = new float[4];
 
         EvaluatorAlignWithShape(GLShapeCV shape,GLShapeCV shapeToAlignWith) {
             this.shape = shape;
@@ -417,23 +408,12 @@ public class GLAnimatorFactoryCV {
 
         public float[] evaluate(float f, float[] dummy1, float[] dummy2) {
             if (!attributeIsValid) {
-                startRotMatrix = shape.getRotationMatrix();
-                float[] rotMatrix1 = shapeToAlignWith.getRotationMatrix();
-                float[] rotMatrix2 = shape.getRotationMatrix();
-                float[] inversRotMatrix = new float[16];
-                Matrix.invertM(inversRotMatrix, 0, rotMatrix2, 0);
-                float[] animRotMatrix = new float[16];
-                Matrix.multiplyMM(animRotMatrix, 0, rotMatrix1, 0, inversRotMatrix, 0);
-                float[][] animRotMatrix2D = GraphicsUtilsCV.matrixFromArray(animRotMatrix, 4, 4);
-                rotAngle = -GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(animRotMatrix2D);
-                rotAxis = GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(animRotMatrix2D);
+                shape.getOrientation(startOrientation,0);
+                shapeToAlignWith.getPublishedOrientation(endOrientation,0);
                 attributeIsValid = true;
             }
-            float currentRotAngle = f*rotAngle;
-            float[] rotMatrix = new float[16];
-            Matrix.setRotateM(rotMatrix,0,currentRotAngle,rotAxis[0],rotAxis[1],rotAxis[2]);
-            Matrix.multiplyMM(rotMatrix,0,rotMatrix,0,startRotMatrix,0);
-            return rotMatrix;
+            GraphicsUtilsCV.quaternionSlerp(startOrientation,0,endOrientation,0,f,result,0);
+            return result;
         }
 
     }
@@ -546,6 +526,8 @@ public class GLAnimatorFactoryCV {
                                      // results from rotating the shape-specific x, z, or y axis by startRotMatrix
         private float angleToTraverse;
         private boolean attributeIsValid;
+        private final float[] rotMatrix = new float[16];
+        private final float[] result = new float[16];
 
         EvaluatorRotationInModelSpace(GLShapeCV shape, int axisId, float angleToTraverse) {
             this.shape = shape;
@@ -561,16 +543,16 @@ public class GLAnimatorFactoryCV {
                 // calculate the rotated x, z, or y axis
                 float[] axisPoint1 = {0,0,0,1}, axisPoint2 = {0,0,0,1};
                 axisPoint2[axisId] = 1;
-                Matrix.multiplyMV(axisPoint1,0,startRotMatrix,0,axisPoint1,0);
-                Matrix.multiplyMV(axisPoint2,0,startRotMatrix,0,axisPoint2,0);
+                float[] rotatedPoint1 = new float[4], rotatedPoint2 = new float[4];
+                Matrix.multiplyMV(rotatedPoint1,0,startRotMatrix,0,axisPoint1,0);
+                Matrix.multiplyMV(rotatedPoint2,0,startRotMatrix,0,axisPoint2,0);
                 for (int i=0;i<4;i++)
-                    axis[i] = axisPoint1[i]-axisPoint2[i];
+                    axis[i] = rotatedPoint1[i]-rotatedPoint2[i];
             }
             float currentAngle = f*angleToTraverse;
-            float[] rotMatrix = new float[16];
             Matrix.setRotateM(rotMatrix,0,currentAngle,axis[0],axis[1],axis[2]);
-            Matrix.multiplyMM(rotMatrix,0,rotMatrix,0,startRotMatrix,0);
-            return rotMatrix;
+            Matrix.multiplyMM(result,0,rotMatrix,0,startRotMatrix,0);
+            return result;
         }
 
     }
@@ -675,6 +657,8 @@ public class GLAnimatorFactoryCV {
                                      // results from rotating the shape-specific x, z, or y axis by startRotMatrix
         private float maxAngle;  // maximum angle by which the shape shall be moved
         private boolean attributeIsValid;
+        private final float[] rotMatrix = new float[16];
+        private final float[] result = new float[16];
 
         EvaluatorPitchRollYaw(GLShapeCV shape, float maxAngle, int type) {
             this.shape = shape;
@@ -694,10 +678,11 @@ public class GLAnimatorFactoryCV {
                     case 1: axisPoint2[2] = 1; break; // roll = rotation around z axis
                     case 2: axisPoint2[1] = 1; break; // yaw = rotation around y axis
                 }
-                Matrix.multiplyMV(axisPoint1,0,startRotMatrix,0,axisPoint1,0);
-                Matrix.multiplyMV(axisPoint2,0,startRotMatrix,0,axisPoint2,0);
+                float[] rotatedPoint1 = new float[4], rotatedPoint2 = new float[4];
+                Matrix.multiplyMV(rotatedPoint1,0,startRotMatrix,0,axisPoint1,0);
+                Matrix.multiplyMV(rotatedPoint2,0,startRotMatrix,0,axisPoint2,0);
                 for (int i=0;i<4;i++)
-                    axis[i] = axisPoint1[i]-axisPoint2[i];
+                    axis[i] = rotatedPoint1[i]-rotatedPoint2[i];
             }
             float currentAngle;
             if (f<0.25)
@@ -708,11 +693,10 @@ public class GLAnimatorFactoryCV {
                 currentAngle = (f-.5f)*4*maxAngle;
             else
                 currentAngle = maxAngle-(f-0.75f)*4*maxAngle;
-            float[] rotMatrix = new float[16];
             // pitch, roll, or yaw around the rotated x, z, or y matrix
             Matrix.setRotateM(rotMatrix,0,currentAngle,axis[0],axis[1],axis[2]);
-            Matrix.multiplyMM(rotMatrix,0,rotMatrix,0,startRotMatrix,0);
-            return rotMatrix;
+            Matrix.multiplyMM(result,0,rotMatrix,0,startRotMatrix,0);
+            return result;
         }
 
     }
@@ -923,6 +907,7 @@ public class GLAnimatorFactoryCV {
         double angle;  // angle of the arc to traverse
         float[] start;  // start position of the shape
         boolean attributeIsValid;
+        final float[] result = new float[3];  // scratch array for the result
 
         // The start position of the animated shape is stored when the animation starts.
         // 'attributeIsValid' specifies if this has been done already.
@@ -939,8 +924,8 @@ public class GLAnimatorFactoryCV {
                 start = shape.getTrans();
                 attributeIsValid = true;
             }
-            float[] retval = GraphicsUtilsCV.rotateAroundAxis(start,axisPoint1,axisPoint2,(float)(f*angle));
-            return retval;
+            GraphicsUtilsCV.rotateAroundAxis(start,axisPoint1,axisPoint2,(float)(f*angle),result);
+            return result;
         }
 
     }
@@ -981,6 +966,7 @@ public class GLAnimatorFactoryCV {
         float angle;  // angle of the arc to traverse
         float[] start;  // start position of the shape
         boolean attributeIsValid;
+        final float[] result = new float[3];  // scratch array for the result
 
         // The start position of the animated shape is stored when the animation starts.
         // 'attributeIsValid' specifies if this has been done already.
@@ -1002,10 +988,10 @@ public class GLAnimatorFactoryCV {
                 start = shape.getTrans();
                 attributeIsValid = true;
             }
-            float[] retval = GraphicsUtilsCV.rotateAroundAxis(start,axisPoint1,axisPoint2,f*angle);
+            GraphicsUtilsCV.rotateAroundAxis(start,axisPoint1,axisPoint2,f*angle,result);
             for (int i=0; i<3; i++)
-                retval[i] += f*normedAxisVector[i];
-            return retval;
+                result[i] += f*normedAxisVector[i];
+            return result;
         }
 
     }
@@ -1101,9 +1087,17 @@ public class GLAnimatorFactoryCV {
 
         private float[] start;
 
-        /** the last position of the shape */
+        /** the last position of the shape at which it has been aligned with the path */
+
+        private final float[] lastPos = new float[3];
+
+        /** scratch array for the result */
 
-        private float[] lastPos;
+        private final float[] result = new float[3];
+
+        /** scratch array for the direction of the path */
+
+        private final float[] vector = new float[3];
 
         private int axisToAlign = -1;
 
@@ -1138,10 +1132,9 @@ public class GLAnimatorFactoryCV {
         /** Evaluator */
 
         public float[] evaluate(float f, float[] dummy, float[] target) {
-            float[] result = new float[3];
             if (start==null) {
                 start = shape.getTrans();
-                lastPos = start;
+                System.arraycopy(start,0,lastPos,0,3);
             }
             if (order==2) {
                 result[0] = ((start[0] - 2 * contr1[0] + target[0]) * f * f + (-2 * start[0] + 2 * contr1[0]) * f + start[0]);
@@ -1154,17 +1147,530 @@ public class GLAnimatorFactoryCV {
                 result[2] = (1 - f) * (1 - f) * (1 - f) * start[2] + 3 * (1 - f) * (1 - f) * f * contr1[2] + 3 * (1 - f) * f * f * contr2[2] + f * f * f * target[2];
             }
             if (axisToAlign>=0 && GraphicsUtilsCV.distance(lastPos,result)>0.2) {
-                float vector[] = new float[3];
                 for (int i=0;i<3;i++)
                     vector[i] = result[i]-lastPos[i];
                 shape.alignWith(axisToAlign,vector,0,0,0);
-                lastPos = result.clone();
+                System.arraycopy(result,0,lastPos,0,3);
             }
             return result;
         }
 
     }
 
+    /*
+     * Methods to make animations that are advanced in the render loop (objects of class GLAnimationCV).
+     * They correspond to the addAnimatorXxx() methods and use the same evaluators
+     * but let the animation scheduler of the renderer write the property values directly into the shape.
+     */
+
+    /**
+     * Makes an animation to scale a given shape in all three dimensions.
+     * Adds the new animation to the animations of the shape.
+     * @param shape The shape to be animated.
+     * @param scaleFactor The target scale factor of the animation.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationScale(GLShapeCV shape, float scaleFactor, int duration, int repeatCount, boolean reverse) {
+        float[] target = { scaleFactor, scaleFactor, scaleFactor };
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.SCALE,target);
+        return addAnimation(shape,animation,duration,repeatCount,reverse,0);
+    }
+
+    /**
+     * Makes an animation to let a given shape make a rotation around the x axis of the world coordinate system.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRotX().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRotX(GLShapeCV shape, float angleToTraverse, int duration, int repeatCount, boolean reverse) {
+        float axis[] = { 1, 0, 0 };
+        return addAnimationRot(shape,angleToTraverse,axis,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape make a rotation around the y axis of the world coordinate system.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRotY().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRotY(GLShapeCV shape, float angleToTraverse, int duration, int repeatCount, boolean reverse) {
+        float axis[] = { 0, 1, 0 };
+        return addAnimationRot(shape,angleToTraverse,axis,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape make a rotation around the z axis of the world coordinate system.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRotZ().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRotZ(GLShapeCV shape, float angleToTraverse, int duration, int repeatCount, boolean reverse) {
+        float axis[] = { 0, 0, 1 };
+        return addAnimationRot(shape,angleToTraverse,axis,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape make a rotation around a specified axis of the world coordinate system.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRot().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param axis The rotation axis.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRot(GLShapeCV shape, float angleToTraverse, float[] axis, int duration, int repeatCount, boolean reverse) {
+        EvaluatorRotation eval = new EvaluatorRotation(shape,angleToTraverse,axis);
+        return addRotationAnimation(shape,GLAnimationCV.ORIENTATION,eval,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape make a rotation to align it with a given vector.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorAlign().
+     * @param shape The shape to be animated.
+     * @param axisToAlign The axis of the shape to be aligned with vector - 0 = x axis, 1 = y axis, 2 = z axis.
+     * @param vectorToAlignWith The vector to align the shape with.
+     * @param duration The duration of the animation (ms).
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationAlign(GLShapeCV shape, int axisToAlign, float[] vectorToAlignWith, int duration) {
+        EvaluatorAlignWithVector eval = new EvaluatorAlignWithVector(shape,axisToAlign,vectorToAlignWith);
+        return addRotationAnimation(shape,GLAnimationCV.ORIENTATION,eval,duration,0,false);
+    }
+
+    /**
+     * Makes an animation to let a given shape rotate around its own x axis, i.e. the axis in its model coordinate space.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRotXInModelSpace().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRotXInModelSpace(GLShapeCV shape, float angleToTraverse, int duration, int repeatCount, boolean reverse) {
+        EvaluatorRotationInModelSpace eval = new EvaluatorRotationInModelSpace(shape,0,angleToTraverse);
+        return addRotationAnimation(shape,GLAnimationCV.ROTATION_MATRIX,eval,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape rotate around its own y axis, i.e. the axis in its model coordinate space.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRotYInModelSpace().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRotYInModelSpace(GLShapeCV shape, float angleToTraverse, int duration, int repeatCount, boolean reverse) {
+        EvaluatorRotationInModelSpace eval = new EvaluatorRotationInModelSpace(shape,1,angleToTraverse);
+        return addRotationAnimation(shape,GLAnimationCV.ROTATION_MATRIX,eval,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape rotate around its own z axis, i.e. the axis in its model coordinate space.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRotZInModelSpace().
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRotZInModelSpace(GLShapeCV shape, float angleToTraverse, int duration, int repeatCount, boolean reverse) {
+        EvaluatorRotationInModelSpace eval = new EvaluatorRotationInModelSpace(shape,2,angleToTraverse);
+        return addRotationAnimation(shape,GLAnimationCV.ROTATION_MATRIX,eval,duration,repeatCount,reverse);
+    }
+
+    /**
+     * Makes an animation to let a given shape "pitch", i.e. move up and down rotating around its x axis.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorPitch().
+     * @param shape The shape to be animated.
+     * @param maxAngle The maximum angle by which the object is moved up or down.
+     * @param duration The duration of a full round (= movement of the shape in both directions and return to the start position).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationPitch(GLShapeCV shape, float maxAngle, int duration, int repeatCount) {
+        return addRotationAnimation(shape,GLAnimationCV.ROTATION_MATRIX,new EvaluatorPitchRollYaw(shape,maxAngle,0),duration,repeatCount,false);
+    }
+
+    /**
+     * Makes an animation to let a given shape "roll" around its z axis.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorRoll().
+     * @param shape The shape to be animated.
+     * @param maxAngle The maximum angle by which the object is roll.
+     * @param duration The duration of a full round (= movement of the shape in both directions and return to the start position).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationRoll(GLShapeCV shape, float maxAngle, int duration, int repeatCount) {
+        return addRotationAnimation(shape,GLAnimationCV.ROTATION_MATRIX,new EvaluatorPitchRollYaw(shape,maxAngle,1),duration,repeatCount,false);
+    }
+
+    /**
+     * Makes an animation to let a given shape "yaw", i.e. move left and right rotating around its y axis.
+     * Adds the new animation to the animations of the shape.
+     * For details see addAnimatorYaw().
+     * @param shape The shape to be animated.
+     * @param maxAngle The maximum angle by which the object is moved left or right.
+     * @param duration The duration of a full round (= movement of the shape in both directions and return to the start position).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationYaw(GLShapeCV shape, float maxAngle, int duration, int repeatCount) {
+        return addRotationAnimation(shape,GLAnimationCV.ROTATION_MATRIX,new EvaluatorPitchRollYaw(shape,maxAngle,2),duration,repeatCount,false);
+    }
+
+    /**
+     * Makes an animation to let a given shape move on a direct line to a specific (x,y,z) position.
+     * Adds the new animation to the animations of the shape.
+     * @param shape The shape to be animated.
+     * @param targetX The target x position of the animation.
+     * @param targetY The target y position of the animation.
+     * @param targetZ The target z position of the animation.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated. If repeatCount is greater than 1, the animation is reversed.
+     * @return The newly generated animation.
+     */
+
+    public static GLAnimationCV addAnimationTrans(GLShapeCV shape, float targetX, float targetY, float targetZ, int duration, int repeatCount) {
+        float[] target = { targetX, targetY, targetZ };
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.TRANS,target);
+        return addAnimation(shape,animation,duration,repeatCount,true,0);
+    }
+
+    /**
+     * Makes an animation to let a given shape move on a direct line to a specific (x,y,z) position.
+     * Adds the new animation to the animations of the shape.
+     * @param shape The shape to be animated.
+     * @param target The target position of the animation.
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated. If repeatCount is greater than 1, the animation is reversed.
+     * @return The newly generated animation or null if the target parameter is not valid, i.e. not an array of length 3.
+     */
+
+    public static GLAnimationCV addAnimationTrans(GLShapeCV shape, float[] target, int duration, int repeatCount) {
+        if (target==null||target.length!=3) return null;
+        return addAnimationTrans(shape,target[0],target[1],target[2],duration,repeatCount);
+    }
+
+    /**
+     * Makes an animation to move a given shape along an arc around an axis that is specified by two points in 3D space.
+     * Adds the new animation to the animations of the shape.
+     * @param shape The shape to be animated.
+     * @param axisPoint1 The first point defining the axis.
+     * @param axisPoint2 The second point defining the axis.
+     * @param angle The angle of the arc to be traversed.
+     * @param duration The duration of the animation (in ms).
+     * @param startDelay The start delay of the animation (in ms).
+     * @return The new animation.
+     */
+
+    public static GLAnimationCV addAnimationArcPathAroundAxis(GLShapeCV shape, float[] axisPoint1, float[] axisPoint2, float angle, int duration, int startDelay) {
+        return addAnimationSpiralPath(shape,axisPoint1,axisPoint2,angle/360,0,duration,startDelay);
+    }
+
+    /**
+     * Makes an animation to move a given shape in a spiral around an axis. The axis is specified by two points in 3D space.
+     * Adds the new animation to the animations of the shape.
+     * @param shape The shape to be animated.
+     * @param axisPoint1 The first point defining the axis.
+     * @param axisPoint2 The second point defining the axis.
+     * @param turns The number of turns to be made around the axis. If negative, the rotation is clockwise.
+     * @param height The height of the spiral.
+     * @param duration The duration of the animation (in ms).
+     * @param startDelay The start delay of the animation (in ms).
+     * @return The new animation.
+     */
+
+    public static GLAnimationCV addAnimationSpiralPath(GLShapeCV shape, float[] axisPoint1, float[] axisPoint2, float turns, float height, int duration, int startDelay) {
+        EvaluatorSpiralPath eval = new EvaluatorSpiralPath(shape,axisPoint1,axisPoint2,turns,height);
+        float[] dummy = new float[1];
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.TRANS,eval,dummy,dummy);
+        return addAnimation(shape,animation,duration,0,false,startDelay);
+    }
+
+    /** Add an animation to move the object along a quadratic Bezier curve.
+     *
+     * @param control control point
+     * @param target target point
+     * @param axisToAlign specifies if the shape shall be aligned with its current movement direction:
+     *                    -1 = no alignment, 0/1/2 = alignment of the shape's x/y/z axis
+     * @param duration Duration of the animation (in ms)
+     * @param startDelay Start delay of the animation (in ms)
+     * @return The new animation
+     */
+
+    public static GLAnimationCV addAnimationBezierPath(GLShapeCV shape, float[] control, float[] target, int axisToAlign, int duration, int startDelay) {
+        BezierEvaluator eval = new BezierEvaluator(shape,control,axisToAlign);
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.TRANS,eval,shape.getTrans(),target);
+        return addAnimation(shape,animation,duration,0,false,startDelay);
+    }
+
+    /** Add an animation to move the object along a cubic Bezier curve.
+     *
+     * @param control1 first control point
+     * @param control2 second control point
+     * @param target target point
+     * @param axisToAlign specifies if the shape shall be aligned with its current movement direction:
+     *                    -1 = no alignment, 0/1/2 = alignment of the shape's x/y/z axis
+     * @param duration Duration of the animation (in ms)
+     * @param startDelay Start delay of the animation (in ms)
+     * @return The new animation
+     */
+
+    public static GLAnimationCV addAnimationBezierPath(GLShapeCV shape, float[] control1, float[] control2, float[] target, int axisToAlign, int duration, int startDelay) {
+        BezierEvaluator eval = new BezierEvaluator(shape,control1,control2,axisToAlign);
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.TRANS,eval,shape.getTrans(),target);
+        return addAnimation(shape,animation,duration,0,false,startDelay);
+    }
+
+    /**
+     * Makes an animation to let a vertex group of a shape (see GLShapeCV.defineVertexGroup()) rotate around an axis through a pivot point,
+     * e.g. to let the wings of a bird flap or the propeller of an airplane spin.
+     * The animation writes the local transformation matrix of the group, i.e. the vertex coordinates of the shape are not modified.
+     * Adds the new animation to the animations of the shape.
+     * @param shape The shape to be animated.
+     * @param groupName The name of the vertex group.
+     * @param axis The direction of the rotation axis in model coordinates.
+     * @param pivot A point on the rotation axis in model coordinates.
+     * @param startAngle The rotation angle at the start of the animation (degrees).
+     * @param endAngle The rotation angle at the end of the animation (degrees).
+     * @param duration The duration of the animation (ms).
+     * @param repeatCount The number of times the animation shall be repeated.
+     * @param reverse true if the animation shall be reversed.
+     * @return The newly generated animation (null if the shape has no vertex group with the given name).
+     */
+
+    public static GLAnimationCV addAnimationVertexGroupRot(GLShapeCV shape, String groupName, float[] axis, float[] pivot, float startAngle, float endAngle, int duration, int repeatCount, boolean reverse) {
+        if (shape.getVertexGroup(groupName)<0) return null;
+        float[] start = { startAngle };
+        float[] end = { endAngle };
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.vertexGroupMatrix(groupName),new EvaluatorRotationAroundPivot(axis,pivot),start,end);
+        return addAnimation(shape,animation,duration,repeatCount,reverse,0);
+    }
+
+    /**
+     * Class that defines a TypeEvaluator for a rotation around an axis through a pivot point - see method addAnimationVertexGroupRot().
+     * The start and end values are the rotation angles, the result is the rotation matrix (the same array is returned in every call).
+     */
+
+    private static class EvaluatorRotationAroundPivot implements TypeEvaluator<float[]> {
+        private float[] axis;
+        private float[] pivot;
+        private float[] matrix;
+
+        EvaluatorRotationAroundPivot(float[] axis, float[] pivot) {
+            this.axis = axis.clone();
+            this.pivot = pivot.clone();
+            this.matrix = new float[16];
+        }
+
+        public float[] evaluate(float f, float[] startAngle, float[] endAngle) {
+            GraphicsUtilsCV.rotationMatrixAroundPivot(startAngle[0]+f*(endAngle[0]-startAngle[0]),axis,pivot,matrix);
+            return matrix;
+        }
+
+    }
+
+    /**
+     * Makes an animation of the rotation matrix or the orientation of a shape with an evaluator that ignores its start and end values.
+     */
+
+    private static GLAnimationCV addRotationAnimation(GLShapeCV shape, GLAnimationCV.Property property, TypeEvaluator<float[]> eval, int duration, int repeatCount, boolean reverse) {
+        float[] dummy = new float[1];
+        GLAnimationCV animation = new GLAnimationCV(shape,property,eval,dummy,dummy);
+        return addAnimation(shape,animation,duration,repeatCount,reverse,0);
+    }
+
+    /**
+     * Sets the timing parameters of an animation and adds it to the animations of a shape.
+     */
+
+    private static GLAnimationCV addAnimation(GLShapeCV shape, GLAnimationCV animation, int duration, int repeatCount, boolean reverse, int startDelay) {
+        animation.setDuration(duration).setRepeatCount(repeatCount).setReverse(reverse).setStartDelay(startDelay);
+        shape.addAnimation(animation);
+        return animation;
+    }
+
+    /*
+     * Methods to set motions that are evaluated by the vertex shader (objects of class GLShaderMotionCV).
+     * Such a motion replaces the model matrix of the shape while it is set, i.e. only one motion can be applied to a shape at the same time.
+     * A path motion can be combined with a rotation through GLShaderMotionCV.setRotation().
+     */
+
+    /**
+     * Sets a motion evaluated by the vertex shader to let a given shape rotate around a specified axis of the world coordinate system.
+     * For details see addAnimatorRot() and class GLShaderMotionCV.
+     * @param shape The shape to be animated.
+     * @param angleToTraverse The rotation angle to traverse.
+     * @param axis The rotation axis.
+     * @param duration The duration of the motion (ms).
+     * @param repeatCount The number of times the motion shall be repeated (GLAnimationCV.INFINITE = endless).
+     * @param reverse true if the motion shall be reversed.
+     * @return The new motion (or null if the axis is not valid).
+     */
+
+    public static GLShaderMotionCV setShaderMotionRot(GLShapeCV shape, float angleToTraverse, float[] axis, int duration, int repeatCount, boolean reverse) {
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_NONE,duration);
+        if (motion.setRotation(angleToTraverse,axis)==null) return null;
+        motion.setRepeatCount(repeatCount).setReverse(reverse);
+        shape.setShaderMotion(motion);
+        return motion;
+    }
+
+    /**
+     * Sets a motion evaluated by the vertex shader to let a given shape move on a direct line to a specific (x,y,z) position.
+     * For details see addAnimatorTrans() and class GLShaderMotionCV.
+     * @param shape The shape to be animated.
+     * @param target The target position of the motion.
+     * @param duration The duration of the motion (ms).
+     * @param repeatCount The number of times the motion shall be repeated (GLAnimationCV.INFINITE = endless).
+     * @param reverse true if the motion shall be reversed.
+     * @return The new motion (or null if the target parameter is not valid, i.e. not an array of length 3).
+     */
+
+    public static GLShaderMotionCV setShaderMotionTrans(GLShapeCV shape, float[] target, int duration, int repeatCount, boolean reverse) {
+        if (target==null||target.length!=3) return null;
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_LINEAR,duration);
+        motion.setLinearPath(target);
+        motion.setRepeatCount(repeatCount).setReverse(reverse);
+        shape.setShaderMotion(motion);
+        return motion;
+    }
+
+    /**
+     * Sets a motion evaluated by the vertex shader to move a given shape along an arc around an axis that is specified by two points in 3D space.
+     * For details see addAnimatorArcPathAroundAxis() and class GLShaderMotionCV.
+     * @param shape The shape to be animated.
+     * @param axisPoint1 The first point defining the axis.
+     * @param axisPoint2 The second point defining the axis.
+     * @param angle The angle of the arc to be traversed.
+     * @param duration The duration of the motion (in ms).
+     * @param startDelay The start delay of the motion (in ms).
+     * @return The new motion (or null if an axis point is not valid).
+     */
+
+    public static GLShaderMotionCV setShaderMotionArcPathAroundAxis(GLShapeCV shape, float[] axisPoint1, float[] axisPoint2, float angle, int duration, int startDelay) {
+        return setShaderMotionSpiralPath(shape,axisPoint1,axisPoint2,angle/360,0,duration,startDelay);
+    }
+
+    /**
+     * Sets a motion evaluated by the vertex shader to move a given shape in a spiral around an axis. The axis is specified by two points in 3D space.
+     * For details see addAnimatorSpiralPath() and class GLShaderMotionCV.
+     * @param shape The shape to be animated.
+     * @param axisPoint1 The first point defining the axis.
+     * @param axisPoint2 The second point defining the axis.
+     * @param turns The number of turns to be made around the axis. If negative, the rotation is clockwise.
+     * @param height The height of the spiral.
+     * @param duration The duration of the motion (in ms).
+     * @param startDelay The start delay of the motion (in ms).
+     * @return The new motion (or null if an axis point is not valid).
+     */
+
+    public static GLShaderMotionCV setShaderMotionSpiralPath(GLShapeCV shape, float[] axisPoint1, float[] axisPoint2, float turns, float height, int duration, int startDelay) {
+        if (axisPoint1==null||axisPoint1.length!=3||axisPoint2==null||axisPoint2.length!=3) return null;
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_SPIRAL,duration);
+        motion.setSpiralPath(axisPoint1,axisPoint2,turns,height);
+        motion.setStartDelay(startDelay);
+        shape.setShaderMotion(motion);
+        return motion;
+    }
+
+    /**
+     * Sets a motion evaluated by the vertex shader to move a given shape along a quadratic Bezier curve.
+     * For details see addAnimatorBezierPath() and class GLShaderMotionCV. (An alignment of the shape with the movement direction is not supported.)
+     * @param shape The shape to be animated.
+     * @param control The control point.
+     * @param target The target point.
+     * @param duration The duration of the motion (in ms).
+     * @param startDelay The start delay of the motion (in ms).
+     * @return The new motion (or null if a point is not valid).
+     */
+
+    public static GLShaderMotionCV setShaderMotionBezierPath(GLShapeCV shape, float[] control, float[] target, int duration, int startDelay) {
+        return setShaderMotionBezierPath(shape,control,null,target,duration,startDelay);
+    }
+
+    /**
+     * Sets a motion evaluated by the vertex shader to move a given shape along a cubic Bezier curve.
+     * For details see addAnimatorBezierPath() and class GLShaderMotionCV. (An alignment of the shape with the movement direction is not supported.)
+     * @param shape The shape to be animated.
+     * @param control1 The first control point.
+     * @param control2 The second control point (null for a quadratic curve).
+     * @param target The target point.
+     * @param duration The duration of the motion (in ms).
+     * @param startDelay The start delay of the motion (in ms).
+     * @return The new motion (or null if a point is not valid).
+     */
+
+    public static GLShaderMotionCV setShaderMotionBezierPath(GLShapeCV shape, float[] control1, float[] control2, float[] target, int duration, int startDelay) {
+        if (control1==null||control1.length!=3||(control2!=null&&control2.length!=3)||target==null||target.length!=3) return null;
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_BEZIER,duration);
+        motion.setBezierPath(control1,control2,target);
+        motion.setStartDelay(startDelay);
+        shape.setShaderMotion(motion);
+        return motion;
+    }
+
+    /**
+     * Class for actions that shall be executed when an animation of class GLAnimationCV ends
+     * and that will remove the animated shape from the surface view.
+     */
+
+    public static class EndActionRemove implements Runnable {
+        private GLShapeCV shape;
+        private GLSurfaceViewCV surfaceView;
+        public EndActionRemove(GLShapeCV shape, GLSurfaceViewCV surfaceView) {
+            this.shape = shape;
+            this.surfaceView = surfaceView;
+        }
+        @Override
+        public void run() {
+            surfaceView.removeShape(shape);
+        }
+    }
+
     /**
      * Class for listeners that shall be executed when an animation ends
      * and that will remove the animated shape from the surface view.
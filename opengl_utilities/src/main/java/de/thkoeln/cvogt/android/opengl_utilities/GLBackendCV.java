@@ -0,0 +1,124 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.graphics.Bitmap;
+
+import java.nio.Buffer;
+
+/**
+ * Interface for the OpenGL ES 2.0 functions used by the library.
+ * All OpenGL calls of the classes <I>GLShapeCV</I>, <I>GLRendererCV</I> and <I>GLPlatformCV</I> are made through the backend
+ * that is currently set in <I>GLPlatformCV</I> (see <I>GLPlatformCV.setBackend()</I>).
+ * <P>
+ * The methods have the signatures and the semantics of the methods of <I>android.opengl.GLES20</I> with the same names
+ * (and of <I>android.opengl.GLUtils.texImage2D()</I>), the constants to be passed are those of <I>GLES20</I>.
+ * Like the OpenGL functions, the methods may only be called by the render thread.
+ * <P>
+ * Implementations:
+ * <UL>
+ * <LI><I>GLES20BackendCV</I> - calls the OpenGL functions of the device (the default backend).
+ * <LI><I>GLRecordingBackendCV</I> - counts the calls and the bytes passed to OpenGL and tracks the bound state,
+ * optionally forwarding the calls to another backend. Can be used without a GPU, e.g. in tests on a plain JVM.
+ * </UL>
+ * @see GLPlatformCV#setBackend(GLBackendCV)
+ */
+
+public interface GLBackendCV {
+
+    void glAttachShader(int program, int shader);
+
+    void glBindBuffer(int target, int buffer);
+
+    void glBindTexture(int target, int texture);
+
+    void glBufferData(int target, int size, Buffer data, int usage);
+
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+
+    void glClear(int mask);
+
+    void glClearColor(float red, float green, float blue, float alpha);
+
+    void glCompileShader(int shader);
+
+    int glCreateProgram();
+
+    int glCreateShader(int type);
+
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+
+    void glDeleteProgram(int program);
+
+    void glDeleteShader(int shader);
+
+    void glDeleteTextures(int n, int[] textures, int offset);
+
+    void glDepthFunc(int func);
+
+    void glDepthMask(boolean flag);
+
+    void glDisableVertexAttribArray(int index);
+
+    void glDrawArrays(int mode, int first, int count);
+
+    void glEnable(int cap);
+
+    void glEnableVertexAttribArray(int index);
+
+    void glGenBuffers(int n, int[] buffers, int offset);
+
+    void glGenTextures(int n, int[] textures, int offset);
+
+    int glGetAttribLocation(int program, String name);
+
+    String glGetProgramInfoLog(int program);
+
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    String glGetShaderInfoLog(int shader);
+
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+    int glGetUniformLocation(int program, String name);
+
+    void glLineWidth(float width);
+
+    void glLinkProgram(int program);
+
+    void glShaderSource(int shader, String string);
+
+    void glTexParameteri(int target, int pname, int param);
+
+    /** Corresponds to <I>GLUtils.texImage2D(target,level,bitmap,border)</I>. */
+
+    void texImage2D(int target, int level, Bitmap bitmap, int border);
+
+    void glUniform1f(int location, float x);
+
+    void glUniform3fv(int location, int count, float[] v, int offset);
+
+    void glUniform4fv(int location, int count, float[] v, int offset);
+
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    void glUseProgram(int program);
+
+    /** Vertex attribute array in client memory. */
+
+    void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr);
+
+    /** Vertex attribute array in the buffer object bound to GL_ARRAY_BUFFER. */
+
+    void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset);
+
+    void glViewport(int x, int y, int width, int height);
+
+}
@@ -0,0 +1,524 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+/**
+ * Class to animate large numbers of shapes in a data-oriented way.
+ * <P>
+ * A store has a fixed number of slots. Each slot holds one shape and the parameters of its animation,
+ * i.e. a path (direct line, spiral or arc around an axis, cubic Bezier curve), a rotation around an axis in world space,
+ * and a scaling from the start scaling factors to target factors, all with a common timing (duration, start delay, repeat count, reverse mode)
+ * and a linear time interpolation. The parameters of all slots are kept in packed arrays of primitive values.
+ * In each frame, method <I>update()</I> evaluates the animations of all slots in a tight loop
+ * (optionally split across several threads, see <I>setParallelism()</I>)
+ * and writes the resulting model matrices into a packed array (16 values per slot).
+ * The shapes of the store are drawn with their matrices from this array, i.e. no objects are involved per shape and frame
+ * (in contrast to ObjectAnimators or animations of class GLAnimationCV with their evaluators, property objects, and listeners).
+ * <P>
+ * The semantics of the paths, the rotation, and the timing are those of the shader motions (class <I>GLShaderMotionCV</I>),
+ * which are evaluated by the vertex shader. A store can thus be seen as their CPU counterpart for shapes whose model matrices shall be available on the CPU
+ * or whose OpenGL programs shall not be modified.
+ * <P>
+ * A store is typically driven by the animation scheduler of a renderer (see <I>GLAnimationSchedulerCV.start(Updatable)</I>).
+ * The animation of a slot starts with the first update after the slot has been filled, with the pose that the shape had when it was added to the store.
+ * While a shape is in a store, its own translation, rotation, and scaling are not updated;
+ * they are set to the current pose of the animation when the shape is removed from the store.
+ * <P>
+ * The slots are identified by their numbers. They are filled by <I>add()</I> and the animation parameters are set by the methods <I>setXxx()</I>.
+ * All public methods can be called from any thread.
+ * <BR>
+ * @see GLShaderMotionCV
+ * @see GLAnimationSchedulerCV
+ */
+
+public class GLBulkAnimationsCV implements GLAnimationSchedulerCV.Updatable {
+
+    /** Path type: no path, i.e. the shape stays at its start position. */
+
+    public static final int PATH_NONE = GLShaderMotionCV.PATH_NONE;
+
+    /** Path type: direct line from the start position to a target position. */
+
+    public static final int PATH_LINEAR = GLShaderMotionCV.PATH_LINEAR;
+
+    /** Path type: spiral around an axis (an arc if the height of the spiral is zero). */
+
+    public static final int PATH_SPIRAL = GLShaderMotionCV.PATH_SPIRAL;
+
+    /** Path type: cubic Bezier curve from the start position to a target position. */
+
+    public static final int PATH_BEZIER = GLShaderMotionCV.PATH_BEZIER;
+
+    /** The number of slots. */
+
+    private final int capacity;
+
+    /** The shapes in the slots (null = free slot). */
+
+    private final GLShapeCV[] shapes;
+
+    /** One plus the highest number of a filled slot, i.e. the slots to be evaluated by update(). */
+
+    private int slotsInUse;
+
+    /** The durations of the animations (ms). */
+
+    private final int[] durations;
+
+    /** The start delays of the animations (ms). */
+
+    private final int[] startDelays;
+
+    /** The repeat counts of the animations (GLAnimationCV.INFINITE = endless). */
+
+    private final int[] repeatCounts;
+
+    /** Specifies for the animations whether every second iteration shall run backwards. */
+
+    private final boolean[] reverse;
+
+    /** The times at which the animations have started (ns, as passed to update(); -1 = not yet started). */
+
+    private final long[] startTimes;
+
+    /** Specifies whether there are slots whose animations have not yet started. */
+
+    private boolean slotsToStart;
+
+    /** The path types (PATH_NONE, PATH_LINEAR, PATH_SPIRAL, PATH_BEZIER). */
+
+    private final int[] pathTypes;
+
+    /** The angles to traverse on spiral paths (degrees). */
+
+    private final float[] pathAngles;
+
+    /**
+     * The points defining the paths, 12 values per slot with the layout of GLShaderMotionCV:
+     * Point 0 is always the start position.
+     * PATH_LINEAR: point 3 = target position.
+     * PATH_SPIRAL: point 1 = first axis point, point 2 = normalized axis vector, point 3 = axis vector with the length of the spiral height.
+     * PATH_BEZIER: points 1 and 2 = control points, point 3 = target position.
+     */
+
+    private final float[] pathPoints;
+
+    /** The rotations, 4 values per slot: normalized axis, angle to traverse (degrees). */
+
+    private final float[] rotations;
+
+    /** The rotation matrices of the shapes when they have been added, 9 values per slot (3x3, column-major). */
+
+    private final float[] startRotations;
+
+    /** The scaling factors, 6 values per slot: start factors (x, y, z), target factors (x, y, z). */
+
+    private final float[] scales;
+
+    /** The model matrices of the shapes, 16 values per slot (column-major, as android.opengl.Matrix). Written only by the thread that calls update(). */
+
+    private final float[] modelMatrices;
+
+    /** The time passed to the last call of update() (ns). */
+
+    private long frameTimeNanos;
+
+    /** The worker threads that evaluate parts of the slots in parallel to the thread that calls update() (null if no parallelism). */
+
+    private WorkerThreadsCV workers;
+
+    /** Scratch array for remove(). */
+
+    private final float[] scratchMatrix = new float[16];
+
+    /**
+     * Makes a store with a given number of slots.
+     * @param capacity The number of slots (at least 1).
+     */
+
+    public GLBulkAnimationsCV(int capacity) {
+        this.capacity = Math.max(capacity,1);
+        shapes = new GLShapeCV[this.capacity];
+        durations = new int[this.capacity];
+        startDelays = new int[this.capacity];
+        repeatCounts = new int[this.capacity];
+        reverse = new boolean[this.capacity];
+        startTimes = new long[this.capacity];
+        pathTypes = new int[this.capacity];
+        pathAngles = new float[this.capacity];
+        pathPoints = new float[12*this.capacity];
+        rotations = new float[4*this.capacity];
+        startRotations = new float[9*this.capacity];
+        scales = new float[6*this.capacity];
+        modelMatrices = new float[16*this.capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of filled slots.
+     */
+
+    synchronized public int getNumberOfShapes() {
+        int number = 0;
+        for (int i=0; i<slotsInUse; i++)
+            if (shapes[i]!=null)
+                number++;
+        return number;
+    }
+
+    /**
+     * @param slot The number of a slot.
+     * @return The shape in the slot (or null if the slot is free or the number is not valid).
+     */
+
+    synchronized public GLShapeCV getShape(int slot) {
+        if (slot<0||slot>=capacity) return null;
+        return shapes[slot];
+    }
+
+    /**
+     * Adds a shape to the store. Its current translation, rotation, and scaling are taken as the start pose of its animation.
+     * Initially, the animation has no path, no rotation, and no scaling, the given duration, no start delay, and no repetitions.
+     * @param shape The shape to be added.
+     * @param duration The duration of the animation (ms).
+     * @return The number of the slot of the shape (or -1 if the shape is null or there is no free slot).
+     */
+
+    synchronized public int add(GLShapeCV shape, int duration) {
+        if (shape==null) return -1;
+        int slot = 0;
+        while (slot<capacity&&shapes[slot]!=null)
+            slot++;
+        if (slot==capacity) return -1;
+        float[] trans = shape.getTrans();
+        float[] rotationMatrix = shape.getRotationMatrix();
+        shapes[slot] = shape;
+        slotsInUse = Math.max(slotsInUse,slot+1);
+        durations[slot] = Math.max(duration,0);
+        startDelays[slot] = 0;
+        repeatCounts[slot] = 0;
+        reverse[slot] = false;
+        startTimes[slot] = -1;
+        slotsToStart = true;
+        pathTypes[slot] = PATH_NONE;
+        pathAngles[slot] = 0;
+        for (int i=0; i<12; i++)
+            pathPoints[12*slot+i] = i<3 ? trans[i] : 0;
+        rotations[4*slot] = rotations[4*slot+1] = rotations[4*slot+3] = 0;
+        rotations[4*slot+2] = 1;
+        for (int col=0; col<3; col++)
+            for (int row=0; row<3; row++)
+                startRotations[9*slot+3*col+row] = rotationMatrix[4*col+row];
+        scales[6*slot] = scales[6*slot+3] = shape.getScaleX();
+        scales[6*slot+1] = scales[6*slot+4] = shape.getScaleY();
+        scales[6*slot+2] = scales[6*slot+5] = shape.getScaleZ();
+        return slot;
+    }
+
+    /**
+     * Removes a shape from the store.
+     * The translation, rotation, and scaling of the shape are set to the pose of its animation at the time of the last update.
+     * @param slot The number of the slot of the shape.
+     * @return The removed shape (or null if the slot is free or the number is not valid).
+     */
+
+    synchronized public GLShapeCV remove(int slot) {
+        GLShapeCV shape = getShape(slot);
+        if (shape==null) return null;
+        synchronized (shape) {
+            float time = startTimes[slot]<0 ? 0 : (frameTimeNanos-startTimes[slot])/1e6f;
+            float fraction = getFraction(slot,time);
+            evaluate(slot,time,scratchMatrix,0,false);
+            for (int i=0; i<3; i++) {
+                shape.writeTrans(i,scratchMatrix[12+i]);
+                shape.writeScale(i,scales[6*slot+i]+fraction*(scales[6*slot+3+i]-scales[6*slot+i]));
+                scratchMatrix[12+i] = 0;
+            }
+            shape.writeRotationMatrix(scratchMatrix);
+            shape.invalidateModelMatrix();
+            shape.setBulkModelMatrix(null,0);
+        }
+        shapes[slot] = null;
+        while (slotsInUse>0&&shapes[slotsInUse-1]==null)
+            slotsInUse--;
+        return shape;
+    }
+
+    /**
+     * Sets a direct line from the start position to a target position as the path of an animation.
+     * @param slot The number of the slot.
+     * @param target The target position.
+     * @return The store itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLBulkAnimationsCV setLinearPath(int slot, float[] target) {
+        if (getShape(slot)==null||target==null||target.length!=3) return null;
+        pathTypes[slot] = PATH_LINEAR;
+        System.arraycopy(target,0,pathPoints,12*slot+9,3);
+        return this;
+    }
+
+    /**
+     * Sets a spiral around an axis as the path of an animation. For details see GLAnimatorFactoryCV.addAnimatorSpiralPath().
+     * @param slot The number of the slot.
+     * @param axisPoint1 The first point defining the axis.
+     * @param axisPoint2 The second point defining the axis.
+     * @param turns The number of turns to be made around the axis. If negative, the rotation is clockwise.
+     * @param height The height of the spiral (0 for an arc).
+     * @return The store itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLBulkAnimationsCV setSpiralPath(int slot, float[] axisPoint1, float[] axisPoint2, float turns, float height) {
+        if (getShape(slot)==null||axisPoint1==null||axisPoint1.length!=3||axisPoint2==null||axisPoint2.length!=3) return null;
+        float dist = GraphicsUtilsCV.distance(axisPoint1,axisPoint2);
+        if (dist==0) return null;
+        pathTypes[slot] = PATH_SPIRAL;
+        int base = 12*slot;
+        System.arraycopy(axisPoint1,0,pathPoints,base+3,3);
+        for (int i=0; i<3; i++) {
+            pathPoints[base+6+i] = (axisPoint2[i]-axisPoint1[i])/dist;
+            pathPoints[base+9+i] = (axisPoint2[i]-axisPoint1[i])*height/dist;
+        }
+        pathAngles[slot] = turns*360;
+        return this;
+    }
+
+    /**
+     * Sets a Bezier curve from the start position to a target position as the path of an animation.
+     * @param slot The number of the slot.
+     * @param control1 The (first) control point.
+     * @param control2 The second control point (null for a quadratic curve).
+     * @param target The target position.
+     * @return The store itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLBulkAnimationsCV setBezierPath(int slot, float[] control1, float[] control2, float[] target) {
+        if (getShape(slot)==null||control1==null||control1.length!=3||(control2!=null&&control2.length!=3)||target==null||target.length!=3) return null;
+        pathTypes[slot] = PATH_BEZIER;
+        int base = 12*slot;
+        for (int i=0; i<3; i++) {
+            float start = pathPoints[base+i];
+            if (control2==null) {
+                // elevate the quadratic curve (start, control, target) to a cubic curve
+                pathPoints[base+3+i] = start+2f/3f*(control1[i]-start);
+                pathPoints[base+6+i] = target[i]+2f/3f*(control1[i]-target[i]);
+            } else {
+                pathPoints[base+3+i] = control1[i];
+                pathPoints[base+6+i] = control2[i];
+            }
+            pathPoints[base+9+i] = target[i];
+        }
+        return this;
+    }
+
+    /**
+     * Sets the rotation of an animation, i.e. a rotation around an axis in world space which is applied on top of the start rotation of the shape.
+     * @param slot The number of the slot.
+     * @param angleToTraverse The rotation angle to traverse (degrees).
+     * @param axis The rotation axis.
+     * @return The store itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLBulkAnimationsCV setRotation(int slot, float angleToTraverse, float[] axis) {
+        if (getShape(slot)==null||axis==null||axis.length!=3) return null;
+        float length = (float) Math.sqrt(axis[0]*axis[0]+axis[1]*axis[1]+axis[2]*axis[2]);
+        if (length==0) return null;
+        for (int i=0; i<3; i++)
+            rotations[4*slot+i] = axis[i]/length;
+        rotations[4*slot+3] = angleToTraverse;
+        return this;
+    }
+
+    /**
+     * Sets the target scaling factors of an animation. The scaling factors change linearly from those of the start pose to the target factors.
+     * @param slot The number of the slot.
+     * @param targetScale The target scaling factors (x, y, z).
+     * @return The store itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLBulkAnimationsCV setScaling(int slot, float[] targetScale) {
+        if (getShape(slot)==null||targetScale==null||targetScale.length!=3) return null;
+        System.arraycopy(targetScale,0,scales,6*slot+3,3);
+        return this;
+    }
+
+    /**
+     * Sets the timing parameters of an animation.
+     * @param slot The number of the slot.
+     * @param duration The duration of one iteration (ms).
+     * @param startDelay The start delay (ms).
+     * @param repeatCount The number of times the animation shall be repeated (GLAnimationCV.INFINITE = endless).
+     * @param reverse true if every second iteration shall run backwards.
+     * @return The store itself, such that calls of methods of this kind can be daisy chained (or null if the slot is not valid).
+     */
+
+    synchronized public GLBulkAnimationsCV setTiming(int slot, int duration, int startDelay, int repeatCount, boolean reverse) {
+        if (getShape(slot)==null) return null;
+        durations[slot] = Math.max(duration,0);
+        startDelays[slot] = Math.max(startDelay,0);
+        repeatCounts[slot] = repeatCount<0 ? GLAnimationCV.INFINITE : repeatCount;
+        this.reverse[slot] = reverse;
+        return this;
+    }
+
+    /**
+     * Copies the model matrix of a shape as calculated by the last update.
+     * @param slot The number of the slot.
+     * @param result Array of length 16 to store the matrix.
+     * @return true if the matrix has been copied, false if the slot is free or has not been updated yet or a parameter is not valid.
+     */
+
+    synchronized public boolean getModelMatrix(int slot, float[] result) {
+        if (getShape(slot)==null||startTimes[slot]<0||result==null||result.length!=16) return false;
+        System.arraycopy(modelMatrices,16*slot,result,0,16);
+        return true;
+    }
+
+    /**
+     * Sets the number of threads that evaluate the animations in update().
+     * With n threads, the thread that calls update() evaluates the first of n parts of the slots, and n-1 worker threads evaluate the other parts.
+     * @param threads The number of threads (1 = no worker threads).
+     * @return The store itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public GLBulkAnimationsCV setParallelism(int threads) {
+        stopWorkers();
+        threads = Math.min(Math.max(threads,1),capacity);
+        if (threads==1) return this;
+        workers = new WorkerThreadsCV("GLBulkAnimationsCV",threads,new WorkerThreadsCV.Task() {
+            @Override
+            public void runPart(int part, int parts) {
+                evaluatePart(part,parts);
+            }
+        });
+        return this;
+    }
+
+    synchronized public int getParallelism() {
+        return workers==null ? 1 : workers.getParts();
+    }
+
+    /**
+     * Terminates the worker threads (if any). The store can still be updated afterwards, but without parallelism.
+     */
+
+    synchronized public void release() {
+        stopWorkers();
+    }
+
+    private void stopWorkers() {
+        if (workers==null) return;
+        workers.stop();
+        workers = null;
+    }
+
+    /**
+     * Evaluates the animations of all shapes at a given frame time and writes their model matrices into the packed array.
+     * Starts the animations of slots that have been filled since the last update.
+     * Is called by the animation scheduler of the renderer (or directly by an application) once per frame, i.e. always by the same thread.
+     * @param frameTimeNanos The frame time (ns).
+     */
+
+    synchronized public void update(long frameTimeNanos) {
+        this.frameTimeNanos = frameTimeNanos;
+        if (slotsToStart) {
+            for (int i=0; i<slotsInUse; i++)
+                if (shapes[i]!=null&&startTimes[i]<0) {
+                    startTimes[i] = frameTimeNanos;
+                    evaluate(i,0,modelMatrices,16*i,true);
+                    shapes[i].setBulkModelMatrix(modelMatrices,16*i);
+                }
+            slotsToStart = false;
+        }
+        if (workers==null)
+            evaluatePart(0,1);
+        else
+            workers.run();
+    }
+
+    /**
+     * Evaluates the animations in one of several equally sized parts of the slots in use.
+     * @param part The number of the part.
+     * @param parts The number of parts.
+     */
+
+    private void evaluatePart(int part, int parts) {
+        int from = (int) ((long) slotsInUse*part/parts);
+        int to = (int) ((long) slotsInUse*(part+1)/parts);
+        long frameTime = frameTimeNanos;
+        for (int i=from; i<to; i++)
+            if (shapes[i]!=null)
+                evaluate(i,(frameTime-startTimes[i])/1e6f,modelMatrices,16*i,true);
+    }
+
+    /**
+     * Calculates the fraction of the current iteration of an animation (as GLShaderMotionCV.getFraction()).
+     * @param slot The number of the slot.
+     * @param time The time since the start of the animation (ms).
+     * @return The fraction (between 0 and 1).
+     */
+
+    private float getFraction(int slot, float time) {
+        int duration = durations[slot];
+        if (duration<=0) return 1;
+        float playTime = Math.max(time-startDelays[slot],0)/duration;
+        float iteration = (float) Math.floor(playTime);
+        float fraction = playTime-iteration;
+        int repeatCount = repeatCounts[slot];
+        if (repeatCount>=0&&iteration>repeatCount) {
+            iteration = repeatCount;
+            fraction = 1;
+        }
+        if (reverse[slot]&&iteration%2>0.5f)
+            fraction = 1-fraction;
+        return fraction;
+    }
+
+    /**
+     * Calculates the model matrix of a shape at a given time, i.e. the product of the translation to the path position,
+     * the rotation around the axis of the animation, the start rotation, and the (interpolated) scaling.
+     * @param slot The number of the slot.
+     * @param time The time since the start of the animation (ms).
+     * @param result The array to store the matrix.
+     * @param offset The position of the matrix in the array.
+     * @param withScaling false if the scaling shall be omitted, i.e. only the rotation and translation shall be calculated.
+     */
+
+    private void evaluate(int slot, float time, float[] result, int offset, boolean withScaling) {
+        float f = getFraction(slot,time);
+        // rotate the columns of the start rotation (multiplied by the scaling factors) around the axis (Rodrigues' rotation formula)
+        int r = 4*slot;
+        float kx = rotations[r], ky = rotations[r+1], kz = rotations[r+2];
+        double angle = Math.toRadians(f*rotations[r+3]);
+        float c = (float) Math.cos(angle), s = (float) Math.sin(angle), t = 1-c;
+        for (int col=0; col<3; col++) {
+            float scale = 1;
+            if (withScaling) {
+                float start = scales[6*slot+col];
+                scale = start+f*(scales[6*slot+3+col]-start);
+            }
+            int b = 9*slot+3*col;
+            float vx = startRotations[b]*scale, vy = startRotations[b+1]*scale, vz = startRotations[b+2]*scale;
+            float dot = kx*vx+ky*vy+kz*vz;
+            int o = offset+4*col;
+            result[o] = vx*c+(ky*vz-kz*vy)*s+kx*dot*t;
+            result[o+1] = vy*c+(kz*vx-kx*vz)*s+ky*dot*t;
+            result[o+2] = vz*c+(kx*vy-ky*vx)*s+kz*dot*t;
+            result[o+3] = 0;
+        }
+        // calculate the position on the path
+        GLShaderMotionCV.evaluatePath(pathTypes[slot],pathPoints,12*slot,pathAngles[slot],f,result,offset+12);
+        result[offset+15] = 1;
+    }
+
+}
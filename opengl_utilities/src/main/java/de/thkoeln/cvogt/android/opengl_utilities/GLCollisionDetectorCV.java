@@ -0,0 +1,309 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import java.util.Arrays;
+
+/**
+ * Class for the broad phase of a collision detection between shapes, i.e. for finding the pairs of shapes whose bounding boxes overlap.
+ * <P>
+ * In each frame, method <I>update()</I> calculates the axis-aligned bounding boxes of all registered shapes in world coordinates
+ * (derived from the vertices of their triangles and lines and their current model matrices, see <I>GLShapeCV.getWorldBoundingBox()</I>)
+ * and finds the overlapping boxes by "sweep and prune":
+ * The shapes are sorted by the minimum coordinates of their boxes along one axis (the axis along which the boxes are spread most).
+ * Then, for each shape, only the following shapes whose boxes begin before its own box ends along this axis are checked for an overlap along the other axes.
+ * As the order of the shapes changes only slightly from frame to frame, the sorting is done by insertion sort on the order of the last frame,
+ * i.e. in nearly linear time. The detection thus scales to thousands of moving shapes, as long as not too many of them overlap along the sweep axis.
+ * <P>
+ * The pairs found are compared with those of the last frame. For each new pair, the <I>collisionBegin()</I> method of the registered listener is called,
+ * for each pair that does not overlap any more (or of which a shape has been removed), its <I>collisionEnd()</I> method is called.
+ * As only the bounding boxes are compared, a pair indicates a potential collision which may be checked more precisely by the listener.
+ * <P>
+ * A detector is typically driven by the animation scheduler of a renderer (see <I>GLAnimationSchedulerCV.start(Updatable)</I>).
+ * It should be started after other subsystems that move shapes (e.g. a physics simulation) such that it sees their updated positions in the same frame.
+ * The listener is then called on the render thread.
+ * <BR>
+ * @see GLShapeCV#getWorldBoundingBox(float[], int)
+ * @see GLAnimationSchedulerCV
+ */
+
+public class GLCollisionDetectorCV implements GLAnimationSchedulerCV.Updatable {
+
+    /**
+     * Interface for listeners to be notified of collisions.
+     */
+
+    public interface CollisionListener {
+
+        /**
+         * Called when the bounding boxes of two shapes begin to overlap.
+         */
+
+        void collisionBegin(GLShapeCV shape1, GLShapeCV shape2);
+
+        /**
+         * Called when the bounding boxes of two shapes do not overlap any more or when one of the shapes has been removed from the detector.
+         */
+
+        void collisionEnd(GLShapeCV shape1, GLShapeCV shape2);
+
+    }
+
+    /** The shapes (null = free entry). */
+
+    private GLShapeCV[] shapes;
+
+    /** Specifies for the shapes whether they have been removed and their entries shall be freed with the next update. */
+
+    private boolean[] removed;
+
+    /** One plus the highest number of a shape. */
+
+    private int shapesInUse;
+
+    /** The bounding boxes of the shapes in world coordinates, 6 values per shape (minimum x, y, z, maximum x, y, z). */
+
+    private float[] boxes;
+
+    /** Specifies for the shapes whether they have a bounding box, i.e. have vertices. */
+
+    private boolean[] hasBox;
+
+    /** The numbers of the shapes, sorted by the minimum coordinates of their boxes along the sweep axis. */
+
+    private int[] sorted;
+
+    /** The number of valid entries of 'sorted'. */
+
+    private int numberSorted;
+
+    /** The sweep axis (0 = x, 1 = y, 2 = z). */
+
+    private int sweepAxis;
+
+    /** Scratch arrays to calculate the spread of the boxes along the axes (to avoid allocations in each frame). */
+
+    private final float[] sum = new float[3], sumOfSquares = new float[3], variances = new float[3];
+
+    /** The overlapping pairs of the current and the last frame, each encoded as (smaller number &lt;&lt; 32) | larger number, sorted in ascending order. */
+
+    private long[] pairs, lastPairs;
+
+    /** The numbers of valid entries of 'pairs' and 'lastPairs'. */
+
+    private int numberOfPairs, numberOfLastPairs;
+
+    /** The listener (may be null). */
+
+    private CollisionListener listener;
+
+    /**
+     * Makes a detector.
+     * @param capacity The expected number of shapes (the detector grows if more shapes are added).
+     */
+
+    public GLCollisionDetectorCV(int capacity) {
+        capacity = Math.max(capacity,1);
+        shapes = new GLShapeCV[capacity];
+        removed = new boolean[capacity];
+        boxes = new float[6*capacity];
+        hasBox = new boolean[capacity];
+        sorted = new int[capacity];
+        pairs = new long[capacity];
+        lastPairs = new long[capacity];
+    }
+
+    synchronized public GLCollisionDetectorCV setListener(CollisionListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Adds a shape to the set of shapes to be checked for collisions.
+     * @param shape The shape.
+     * @return The number of the shape in the detector (or -1 if the shape is null).
+     */
+
+    synchronized public int add(GLShapeCV shape) {
+        if (shape==null) return -1;
+        int number = 0;
+        while (number<shapes.length&&shapes[number]!=null)
+            number++;
+        if (number==shapes.length) {
+            int capacity = 2*shapes.length;
+            shapes = Arrays.copyOf(shapes,capacity);
+            removed = Arrays.copyOf(removed,capacity);
+            boxes = Arrays.copyOf(boxes,6*capacity);
+            hasBox = Arrays.copyOf(hasBox,capacity);
+            sorted = Arrays.copyOf(sorted,capacity);
+        }
+        shapes[number] = shape;
+        removed[number] = false;
+        hasBox[number] = false;
+        sorted[numberSorted++] = number;
+        shapesInUse = Math.max(shapesInUse,number+1);
+        return number;
+    }
+
+    /**
+     * Removes a shape from the detector. With the next update, the listener is notified of the end of all collisions of the shape.
+     * @param number The number of the shape in the detector.
+     * @return The shape (or null if there is no shape with this number).
+     */
+
+    synchronized public GLShapeCV remove(int number) {
+        if (number<0||number>=shapesInUse||shapes[number]==null||removed[number]) return null;
+        removed[number] = true;
+        return shapes[number];
+    }
+
+    /**
+     * @param number The number of a shape in the detector.
+     * @return The shape (or null if there is no shape with this number).
+     */
+
+    synchronized public GLShapeCV getShape(int number) {
+        if (number<0||number>=shapesInUse||removed[number]) return null;
+        return shapes[number];
+    }
+
+    /**
+     * @return The number of pairs of shapes whose bounding boxes overlapped at the last update.
+     */
+
+    synchronized public int getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    /**
+     * Gets the pairs of shapes whose bounding boxes overlapped at the last update.
+     * @return An array with one entry per pair, each entry being an array with the numbers of the two shapes (the smaller number first).
+     */
+
+    synchronized public int[][] getPairs() {
+        int[][] result = new int[numberOfPairs][2];
+        for (int i=0; i<numberOfPairs; i++) {
+            result[i][0] = (int) (pairs[i]>>>32);
+            result[i][1] = (int) pairs[i];
+        }
+        return result;
+    }
+
+    /**
+     * Finds the overlapping pairs of shapes for the current positions of the shapes and notifies the listener of the changes since the last update.
+     * Is called by the animation scheduler of the renderer (or directly by an application) once per frame.
+     * @param frameTimeNanos The frame time (not used).
+     */
+
+    synchronized public void update(long frameTimeNanos) {
+        // calculate the bounding boxes and choose the axis along which their centers are spread most
+        Arrays.fill(sum,0);
+        Arrays.fill(sumOfSquares,0);
+        int numberOfBoxes = 0;
+        for (int i=0; i<shapesInUse; i++) {
+            hasBox[i] = shapes[i]!=null&&!removed[i]&&shapes[i].getWorldBoundingBox(boxes,6*i);
+            if (!hasBox[i]) continue;
+            numberOfBoxes++;
+            for (int axis=0; axis<3; axis++) {
+                float center = (boxes[6*i+axis]+boxes[6*i+3+axis])/2;
+                sum[axis] += center;
+                sumOfSquares[axis] += center*center;
+            }
+        }
+        if (numberOfBoxes>0) {
+            int newAxis = sweepAxis;
+            for (int axis=0; axis<3; axis++) {
+                variances[axis] = sumOfSquares[axis]/numberOfBoxes-(sum[axis]/numberOfBoxes)*(sum[axis]/numberOfBoxes);
+                if (variances[axis]>variances[newAxis]) newAxis = axis;
+            }
+            // change the axis only if the spread along the new axis is significantly larger (i.e. not back and forth between frames)
+            if (variances[newAxis]>1.2f*variances[sweepAxis])
+                sweepAxis = newAxis;
+        }
+        // sort the shapes by insertion sort, based on the order of the last frame
+        // (shapes without vertices are kept, sorted at the end, as they may get vertices later)
+        int count = 0;
+        for (int k=0; k<numberSorted; k++) {
+            int number = sorted[k];
+            if (!removed[number])
+                sorted[count++] = number;
+        }
+        numberSorted = count;
+        for (int k=1; k<numberSorted; k++) {
+            int number = sorted[k];
+            float key = sortKey(number);
+            int j = k-1;
+            while (j>=0&&sortKey(sorted[j])>key) {
+                sorted[j+1] = sorted[j];
+                j--;
+            }
+            sorted[j+1] = number;
+        }
+        // sweep: check each box against the following boxes that begin before it ends along the sweep axis
+        long[] swap = lastPairs;
+        lastPairs = pairs;
+        numberOfLastPairs = numberOfPairs;
+        pairs = swap;
+        numberOfPairs = 0;
+        int a1 = (sweepAxis+1)%3, a2 = (sweepAxis+2)%3;
+        for (int k=0; k<numberSorted; k++) {
+            int i = sorted[k];
+            if (!hasBox[i]) break;
+            float end = boxes[6*i+3+sweepAxis];
+            for (int l=k+1; l<numberSorted; l++) {
+                int j = sorted[l];
+                if (!hasBox[j]||boxes[6*j+sweepAxis]>end) break;
+                if (boxes[6*i+a1]<=boxes[6*j+3+a1]&&boxes[6*j+a1]<=boxes[6*i+3+a1]
+                        &&boxes[6*i+a2]<=boxes[6*j+3+a2]&&boxes[6*j+a2]<=boxes[6*i+3+a2])
+                    addPair(Math.min(i,j),Math.max(i,j));
+            }
+        }
+        Arrays.sort(pairs,0,numberOfPairs);
+        // compare with the pairs of the last frame and notify the listener
+        int p = 0, q = 0;
+        while (p<numberOfPairs||q<numberOfLastPairs) {
+            if (q==numberOfLastPairs||(p<numberOfPairs&&pairs[p]<lastPairs[q])) {
+                if (listener!=null)
+                    listener.collisionBegin(shapes[(int)(pairs[p]>>>32)],shapes[(int)pairs[p]]);
+                p++;
+            } else if (p==numberOfPairs||lastPairs[q]<pairs[p]) {
+                if (listener!=null)
+                    listener.collisionEnd(shapes[(int)(lastPairs[q]>>>32)],shapes[(int)lastPairs[q]]);
+                q++;
+            } else {
+                p++;
+                q++;
+            }
+        }
+        // free the entries of removed shapes
+        for (int i=0; i<shapesInUse; i++)
+            if (removed[i]) {
+                shapes[i] = null;
+                removed[i] = false;
+            }
+        while (shapesInUse>0&&shapes[shapesInUse-1]==null)
+            shapesInUse--;
+    }
+
+    /**
+     * The key by which the shapes are sorted: the minimum coordinate of the box along the sweep axis (shapes without boxes at the end).
+     */
+
+    private float sortKey(int number) {
+        return hasBox[number] ? boxes[6*number+sweepAxis] : Float.MAX_VALUE;
+    }
+
+    private void addPair(int smaller, int larger) {
+        if (numberOfPairs==pairs.length)
+            pairs = Arrays.copyOf(pairs,2*pairs.length);
+        pairs[numberOfPairs++] = ((long) smaller<<32)|larger;
+    }
+
+}
@@ -0,0 +1,766 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Backend that captures the OpenGL command stream of a frame into a compact binary format, forwarding all calls to another backend.
+ * The capture contains all data needed to re-execute the frame without the app, i.e. the shader sources, the contents of the buffer objects
+ * and of the vertex attribute arrays in client memory, the uniform values, the texture images and the draw calls,
+ * together with the names and locations returned by the target backend (which are mapped to new names and locations when the frame is replayed).
+ * <P>
+ * Usually, the capture backend is not used directly but through <I>GLRendererCV.captureNextFrame()</I>,
+ * which makes the captured frame self-contained by recording the creation of the existing programs, buffer objects and textures of all shapes
+ * at the start of the frame (without creating them anew).
+ * The captured frame can be re-executed against any backend by <I>GLFrameReplayCV</I>.
+ * <P>
+ * Format (GZIP-compressed, big-endian as written by <I>DataOutputStream</I>): the header (MAGIC, VERSION),
+ * then one record per call, consisting of an operation code (OP_...) and the arguments of the call, then OP_END.
+ * Strings (shader sources, names of attributes and uniforms) and client-side arrays are written only at their first occurrence
+ * and referenced by an index afterwards.
+ * @see GLFrameReplayCV
+ * @see GLRendererCV#captureNextFrame(java.io.OutputStream)
+ */
+
+public class GLFrameCaptureCV implements GLBackendCV {
+
+    static final int MAGIC = 0x474C4356;   // "GLCV"
+    static final int VERSION = 1;
+
+    static final int OP_END = 0;
+    static final int OP_ATTACH_SHADER = 1;
+    static final int OP_BIND_BUFFER = 2;
+    static final int OP_BIND_TEXTURE = 3;
+    static final int OP_BUFFER_DATA = 4;
+    static final int OP_BUFFER_SUB_DATA = 5;
+    static final int OP_CLEAR = 6;
+    static final int OP_CLEAR_COLOR = 7;
+    static final int OP_COMPILE_SHADER = 8;
+    static final int OP_CREATE_PROGRAM = 9;
+    static final int OP_CREATE_SHADER = 10;
+    static final int OP_DEPTH_FUNC = 11;
+    static final int OP_DEPTH_MASK = 12;
+    static final int OP_DISABLE_VERTEX_ATTRIB_ARRAY = 13;
+    static final int OP_DRAW_ARRAYS = 14;
+    static final int OP_ENABLE = 15;
+    static final int OP_ENABLE_VERTEX_ATTRIB_ARRAY = 16;
+    static final int OP_GEN_BUFFERS = 17;
+    static final int OP_GEN_TEXTURES = 18;
+    static final int OP_GET_ATTRIB_LOCATION = 19;
+    static final int OP_GET_PROGRAM_INFO_LOG = 20;
+    static final int OP_GET_PROGRAMIV = 21;
+    static final int OP_GET_SHADER_INFO_LOG = 22;
+    static final int OP_GET_SHADERIV = 23;
+    static final int OP_GET_UNIFORM_LOCATION = 24;
+    static final int OP_LINE_WIDTH = 25;
+    static final int OP_LINK_PROGRAM = 26;
+    static final int OP_SHADER_SOURCE = 27;
+    static final int OP_TEX_PARAMETERI = 28;
+    static final int OP_TEX_IMAGE_2D = 29;
+    static final int OP_UNIFORM_1F = 30;
+    static final int OP_UNIFORM_3FV = 31;
+    static final int OP_UNIFORM_4FV = 32;
+    static final int OP_UNIFORM_MATRIX_4FV = 33;
+    static final int OP_USE_PROGRAM = 34;
+    static final int OP_VERTEX_ATTRIB_POINTER_CLIENT = 35;
+    static final int OP_VERTEX_ATTRIB_POINTER_OFFSET = 36;
+    static final int OP_VIEWPORT = 37;
+    static final int OP_DELETE_BUFFERS = 38;
+    static final int OP_DELETE_PROGRAM = 39;
+    static final int OP_DELETE_SHADER = 40;
+    static final int OP_DELETE_TEXTURES = 41;
+
+    /** The names of the calls by operation code (as used by GLRecordingBackendCV). */
+
+    static final String[] CALL_NAMES = { "end", "glAttachShader", "glBindBuffer", "glBindTexture", "glBufferData", "glBufferSubData",
+            "glClear", "glClearColor", "glCompileShader", "glCreateProgram", "glCreateShader", "glDepthFunc", "glDepthMask",
+            "glDisableVertexAttribArray", "glDrawArrays", "glEnable", "glEnableVertexAttribArray", "glGenBuffers", "glGenTextures",
+            "glGetAttribLocation", "glGetProgramInfoLog", "glGetProgramiv", "glGetShaderInfoLog", "glGetShaderiv", "glGetUniformLocation",
+            "glLineWidth", "glLinkProgram", "glShaderSource", "glTexParameteri", "texImage2D", "glUniform1f", "glUniform3fv", "glUniform4fv",
+            "glUniformMatrix4fv", "glUseProgram", "glVertexAttribPointer", "glVertexAttribPointer", "glViewport",
+            "glDeleteBuffers", "glDeleteProgram", "glDeleteShader", "glDeleteTextures" };
+
+    /** Element types of captured buffers. */
+
+    static final int BUFFER_NULL = 0, BUFFER_FLOAT = 1, BUFFER_BYTE = 2, BUFFER_SHORT = 3, BUFFER_INT = 4;
+
+    private final GLBackendCV target;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream out;
+
+    private final HashMap<String,Integer> strings = new HashMap<>();
+
+    private final IdentityHashMap<Buffer,Integer> clientArrays = new IdentityHashMap<>();
+
+    private int numberOfCalls;
+
+    /** The last name given to a shader recorded by recordProgram() (negative, i.e. not a name assigned by OpenGL). */
+
+    private int lastRecordedShader;
+
+    private boolean finished, failed;
+
+    /**
+     * @param target The backend to which the calls are forwarded (must not be null).
+     */
+
+    public GLFrameCaptureCV(GLBackendCV target) {
+        this.target = target;
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(new GZIPOutputStream(bytes));
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+        } catch (IOException e) {
+            failed = true;
+        }
+        out = stream;
+    }
+
+    /**
+     * @return The backend to which the calls are forwarded.
+     */
+
+    public GLBackendCV getTarget() {
+        return target;
+    }
+
+    /**
+     * @return The number of calls captured so far.
+     */
+
+    public int getNumberOfCalls() {
+        return numberOfCalls;
+    }
+
+    /**
+     * Ends the capture. Later calls are only forwarded to the target backend.
+     * @return The captured frame in the format described above or null if the capture has failed.
+     */
+
+    public byte[] finish() {
+        if (!finished) {
+            finished = true;
+            try {
+                if (!failed) {
+                    out.writeByte(OP_END);
+                    out.close();
+                }
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+        return failed ? null : bytes.toByteArray();
+    }
+
+    /**
+     * Records the creation of an existing program as if it were created in the captured frame, without calling the target backend,
+     * i.e. records the creation, compilation and deletion of its shaders and the creation and linking of the program.
+     * Used to make the captured frame self-contained without creating new objects in the app.
+     * @param program The name of the program.
+     * @param vertexShaderCode The code of the vertex shader of the program.
+     * @param fragmentShaderCode The code of the fragment shader of the program.
+     */
+
+    void recordProgram(int program, String vertexShaderCode, String fragmentShaderCode) {
+        int vertexShader = --lastRecordedShader, fragmentShader = --lastRecordedShader;
+        writeCreateShader(GLES20.GL_VERTEX_SHADER, vertexShader);
+        writeShaderSource(vertexShader, vertexShaderCode);
+        writeCompileShader(vertexShader);
+        writeCreateShader(GLES20.GL_FRAGMENT_SHADER, fragmentShader);
+        writeShaderSource(fragmentShader, fragmentShaderCode);
+        writeCompileShader(fragmentShader);
+        writeCreateProgram(program);
+        writeAttachShader(program, vertexShader);
+        writeAttachShader(program, fragmentShader);
+        writeLinkProgram(program);
+        writeDeleteShader(vertexShader);
+        writeDeleteShader(fragmentShader);
+    }
+
+    /**
+     * Records the creation of an existing array buffer object and the upload of its contents, without calling the target backend.
+     * @param buffer The name of the buffer object.
+     * @param data The contents of the buffer object (from the current position).
+     * @param size The size of the buffer object (bytes).
+     */
+
+    void recordArrayBuffer(int buffer, Buffer data, int size) {
+        writeGenBuffers(1, new int[] { buffer }, 0);
+        writeBindBuffer(GLES20.GL_ARRAY_BUFFER, buffer);
+        writeBufferData(GLES20.GL_ARRAY_BUFFER, size, data, GLES20.GL_DYNAMIC_DRAW);
+        writeBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Records the creation of an existing 2D texture and the upload of its image, without calling the target backend.
+     * @param texture The name of the texture.
+     * @param bitmap The image of the texture.
+     * @param parameters The parameters of the texture as pairs of parameter names and values (as passed to glTexParameteri()).
+     */
+
+    void recordTexture(int texture, Bitmap bitmap, int[] parameters) {
+        writeGenTextures(1, new int[] { texture }, 0);
+        writeBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        for (int i=0; i+1<parameters.length; i+=2)
+            writeTexParameteri(GLES20.GL_TEXTURE_2D, parameters[i], parameters[i+1]);
+        writeTexImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
+    }
+
+    /**
+     * Auxiliary method to start a record: Returns false if nothing shall be written (capture finished or failed).
+     */
+
+    private boolean record(int op) {
+        if (finished||failed) return false;
+        try {
+            out.writeByte(op);
+            numberOfCalls++;
+            return true;
+        } catch (IOException e) {
+            failed = true;
+            return false;
+        }
+    }
+
+    private void writeString(String string) throws IOException {
+        Integer index = strings.get(string);
+        if (index!=null)
+            out.writeInt(index);
+        else {
+            out.writeInt(-1);
+            out.writeUTF(string!=null?string:"");
+            strings.put(string,strings.size());
+        }
+    }
+
+    /**
+     * Writes the elements of a buffer from its current position, at most 'maxBytes' bytes (all remaining elements if maxBytes<0).
+     */
+
+    private void writeBuffer(Buffer buffer, int maxBytes) throws IOException {
+        if (buffer instanceof FloatBuffer) {
+            FloatBuffer data = (FloatBuffer) buffer;
+            int n = maxBytes<0 ? data.remaining() : Math.min(data.remaining(),maxBytes/4);
+            out.writeByte(BUFFER_FLOAT);
+            out.writeInt(n);
+            for (int i=0; i<n; i++)
+                out.writeFloat(data.get(data.position()+i));
+        } else if (buffer instanceof ByteBuffer) {
+            ByteBuffer data = (ByteBuffer) buffer;
+            int n = maxBytes<0 ? data.remaining() : Math.min(data.remaining(),maxBytes);
+            out.writeByte(BUFFER_BYTE);
+            out.writeInt(n);
+            for (int i=0; i<n; i++)
+                out.writeByte(data.get(data.position()+i));
+        } else if (buffer instanceof ShortBuffer) {
+            ShortBuffer data = (ShortBuffer) buffer;
+            int n = maxBytes<0 ? data.remaining() : Math.min(data.remaining(),maxBytes/2);
+            out.writeByte(BUFFER_SHORT);
+            out.writeInt(n);
+            for (int i=0; i<n; i++)
+                out.writeShort(data.get(data.position()+i));
+        } else if (buffer instanceof IntBuffer) {
+            IntBuffer data = (IntBuffer) buffer;
+            int n = maxBytes<0 ? data.remaining() : Math.min(data.remaining(),maxBytes/4);
+            out.writeByte(BUFFER_INT);
+            out.writeInt(n);
+            for (int i=0; i<n; i++)
+                out.writeInt(data.get(data.position()+i));
+        } else
+            out.writeByte(BUFFER_NULL);
+    }
+
+    private void writeFloats(float[] values, int offset, int n) throws IOException {
+        out.writeInt(n);
+        for (int i=0; i<n; i++)
+            out.writeFloat(values[offset+i]);
+    }
+
+    private void writeAttachShader(int program, int shader) {
+        if (record(OP_ATTACH_SHADER))
+            try {
+                out.writeInt(program);
+                out.writeInt(shader);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeBindBuffer(int target, int buffer) {
+        if (record(OP_BIND_BUFFER))
+            try {
+                out.writeInt(target);
+                out.writeInt(buffer);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeBindTexture(int target, int texture) {
+        if (record(OP_BIND_TEXTURE))
+            try {
+                out.writeInt(target);
+                out.writeInt(texture);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeBufferData(int target, int size, Buffer data, int usage) {
+        if (record(OP_BUFFER_DATA))
+            try {
+                out.writeInt(target);
+                out.writeInt(size);
+                out.writeInt(usage);
+                writeBuffer(data,size);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeCompileShader(int shader) {
+        if (record(OP_COMPILE_SHADER))
+            try {
+                out.writeInt(shader);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeCreateProgram(int program) {
+        if (record(OP_CREATE_PROGRAM))
+            try {
+                out.writeInt(program);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeCreateShader(int type, int shader) {
+        if (record(OP_CREATE_SHADER))
+            try {
+                out.writeInt(type);
+                out.writeInt(shader);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeDeleteShader(int shader) {
+        if (record(OP_DELETE_SHADER))
+            try {
+                out.writeInt(shader);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeGenBuffers(int n, int[] buffers, int offset) {
+        if (record(OP_GEN_BUFFERS))
+            try {
+                out.writeInt(n);
+                for (int i=0; i<n; i++)
+                    out.writeInt(buffers[offset+i]);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeGenTextures(int n, int[] textures, int offset) {
+        if (record(OP_GEN_TEXTURES))
+            try {
+                out.writeInt(n);
+                for (int i=0; i<n; i++)
+                    out.writeInt(textures[offset+i]);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeLinkProgram(int program) {
+        if (record(OP_LINK_PROGRAM))
+            try {
+                out.writeInt(program);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeShaderSource(int shader, String string) {
+        if (record(OP_SHADER_SOURCE))
+            try {
+                out.writeInt(shader);
+                writeString(string);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeTexParameteri(int target, int pname, int param) {
+        if (record(OP_TEX_PARAMETERI))
+            try {
+                out.writeInt(target);
+                out.writeInt(pname);
+                out.writeInt(param);
+            } catch (IOException e) { failed = true; }
+    }
+
+    private void writeTexImage2D(int target, int level, Bitmap bitmap, int border) {
+        if (record(OP_TEX_IMAGE_2D))
+            try {
+                out.writeInt(target);
+                out.writeInt(level);
+                out.writeInt(border);
+                int width = bitmap!=null ? bitmap.getWidth() : 0, height = bitmap!=null ? bitmap.getHeight() : 0;
+                out.writeInt(width);
+                out.writeInt(height);
+                if (width>0&&height>0) {
+                    int[] pixels = new int[width*height];
+                    bitmap.getPixels(pixels,0,width,0,0,width,height);
+                    for (int pixel : pixels)
+                        out.writeInt(pixel);
+                }
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glAttachShader(int program, int shader) {
+        target.glAttachShader(program, shader);
+        writeAttachShader(program, shader);
+    }
+
+    public void glBindBuffer(int target, int buffer) {
+        this.target.glBindBuffer(target, buffer);
+        writeBindBuffer(target, buffer);
+    }
+
+    public void glBindTexture(int target, int texture) {
+        this.target.glBindTexture(target, texture);
+        writeBindTexture(target, texture);
+    }
+
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        this.target.glBufferData(target, size, data, usage);
+        writeBufferData(target, size, data, usage);
+    }
+
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        this.target.glBufferSubData(target, offset, size, data);
+        if (record(OP_BUFFER_SUB_DATA))
+            try {
+                out.writeInt(target);
+                out.writeInt(offset);
+                out.writeInt(size);
+                writeBuffer(data,size);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glClear(int mask) {
+        target.glClear(mask);
+        if (record(OP_CLEAR))
+            try {
+                out.writeInt(mask);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        target.glClearColor(red, green, blue, alpha);
+        if (record(OP_CLEAR_COLOR))
+            try {
+                out.writeFloat(red);
+                out.writeFloat(green);
+                out.writeFloat(blue);
+                out.writeFloat(alpha);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glCompileShader(int shader) {
+        target.glCompileShader(shader);
+        writeCompileShader(shader);
+    }
+
+    public int glCreateProgram() {
+        int program = target.glCreateProgram();
+        writeCreateProgram(program);
+        return program;
+    }
+
+    public int glCreateShader(int type) {
+        int shader = target.glCreateShader(type);
+        writeCreateShader(type, shader);
+        return shader;
+    }
+
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        target.glDeleteBuffers(n, buffers, offset);
+        if (record(OP_DELETE_BUFFERS))
+            try {
+                out.writeInt(n);
+                for (int i=0; i<n; i++)
+                    out.writeInt(buffers[offset+i]);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glDeleteProgram(int program) {
+        target.glDeleteProgram(program);
+        if (record(OP_DELETE_PROGRAM))
+            try {
+                out.writeInt(program);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glDeleteShader(int shader) {
+        target.glDeleteShader(shader);
+        writeDeleteShader(shader);
+    }
+
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        target.glDeleteTextures(n, textures, offset);
+        if (record(OP_DELETE_TEXTURES))
+            try {
+                out.writeInt(n);
+                for (int i=0; i<n; i++)
+                    out.writeInt(textures[offset+i]);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glDepthFunc(int func) {
+        target.glDepthFunc(func);
+        if (record(OP_DEPTH_FUNC))
+            try {
+                out.writeInt(func);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glDepthMask(boolean flag) {
+        target.glDepthMask(flag);
+        if (record(OP_DEPTH_MASK))
+            try {
+                out.writeBoolean(flag);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glDisableVertexAttribArray(int index) {
+        target.glDisableVertexAttribArray(index);
+        if (record(OP_DISABLE_VERTEX_ATTRIB_ARRAY))
+            try {
+                out.writeInt(index);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glDrawArrays(int mode, int first, int count) {
+        target.glDrawArrays(mode, first, count);
+        if (record(OP_DRAW_ARRAYS))
+            try {
+                out.writeInt(mode);
+                out.writeInt(first);
+                out.writeInt(count);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glEnable(int cap) {
+        target.glEnable(cap);
+        if (record(OP_ENABLE))
+            try {
+                out.writeInt(cap);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glEnableVertexAttribArray(int index) {
+        target.glEnableVertexAttribArray(index);
+        if (record(OP_ENABLE_VERTEX_ATTRIB_ARRAY))
+            try {
+                out.writeInt(index);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        target.glGenBuffers(n, buffers, offset);
+        writeGenBuffers(n, buffers, offset);
+    }
+
+    public void glGenTextures(int n, int[] textures, int offset) {
+        target.glGenTextures(n, textures, offset);
+        writeGenTextures(n, textures, offset);
+    }
+
+    public int glGetAttribLocation(int program, String name) {
+        int location = target.glGetAttribLocation(program, name);
+        if (record(OP_GET_ATTRIB_LOCATION))
+            try {
+                out.writeInt(program);
+                writeString(name);
+                out.writeInt(location);
+            } catch (IOException e) { failed = true; }
+        return location;
+    }
+
+    public String glGetProgramInfoLog(int program) {
+        String log = target.glGetProgramInfoLog(program);
+        if (record(OP_GET_PROGRAM_INFO_LOG))
+            try {
+                out.writeInt(program);
+            } catch (IOException e) { failed = true; }
+        return log;
+    }
+
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        target.glGetProgramiv(program, pname, params, offset);
+        if (record(OP_GET_PROGRAMIV))
+            try {
+                out.writeInt(program);
+                out.writeInt(pname);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public String glGetShaderInfoLog(int shader) {
+        String log = target.glGetShaderInfoLog(shader);
+        if (record(OP_GET_SHADER_INFO_LOG))
+            try {
+                out.writeInt(shader);
+            } catch (IOException e) { failed = true; }
+        return log;
+    }
+
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        target.glGetShaderiv(shader, pname, params, offset);
+        if (record(OP_GET_SHADERIV))
+            try {
+                out.writeInt(shader);
+                out.writeInt(pname);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public int glGetUniformLocation(int program, String name) {
+        int location = target.glGetUniformLocation(program, name);
+        if (record(OP_GET_UNIFORM_LOCATION))
+            try {
+                out.writeInt(program);
+                writeString(name);
+                out.writeInt(location);
+            } catch (IOException e) { failed = true; }
+        return location;
+    }
+
+    public void glLineWidth(float width) {
+        target.glLineWidth(width);
+        if (record(OP_LINE_WIDTH))
+            try {
+                out.writeFloat(width);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glLinkProgram(int program) {
+        target.glLinkProgram(program);
+        writeLinkProgram(program);
+    }
+
+    public void glShaderSource(int shader, String string) {
+        target.glShaderSource(shader, string);
+        writeShaderSource(shader, string);
+    }
+
+    public void glTexParameteri(int target, int pname, int param) {
+        this.target.glTexParameteri(target, pname, param);
+        writeTexParameteri(target, pname, param);
+    }
+
+    public void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        this.target.texImage2D(target, level, bitmap, border);
+        writeTexImage2D(target, level, bitmap, border);
+    }
+
+    public void glUniform1f(int location, float x) {
+        target.glUniform1f(location, x);
+        if (record(OP_UNIFORM_1F))
+            try {
+                out.writeInt(location);
+                out.writeFloat(x);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glUniform3fv(int location, int count, float[] v, int offset) {
+        target.glUniform3fv(location, count, v, offset);
+        if (record(OP_UNIFORM_3FV))
+            try {
+                out.writeInt(location);
+                out.writeInt(count);
+                writeFloats(v,offset,3*count);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        target.glUniform4fv(location, count, v, offset);
+        if (record(OP_UNIFORM_4FV))
+            try {
+                out.writeInt(location);
+                out.writeInt(count);
+                writeFloats(v,offset,4*count);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        target.glUniformMatrix4fv(location, count, transpose, value, offset);
+        if (record(OP_UNIFORM_MATRIX_4FV))
+            try {
+                out.writeInt(location);
+                out.writeInt(count);
+                out.writeBoolean(transpose);
+                writeFloats(value,offset,16*count);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glUseProgram(int program) {
+        target.glUseProgram(program);
+        if (record(OP_USE_PROGRAM))
+            try {
+                out.writeInt(program);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        target.glVertexAttribPointer(indx, size, type, normalized, stride, ptr);
+        if (record(OP_VERTEX_ATTRIB_POINTER_CLIENT))
+            try {
+                out.writeInt(indx);
+                out.writeInt(size);
+                out.writeInt(type);
+                out.writeBoolean(normalized);
+                out.writeInt(stride);
+                // the contents of a client-side array are written only once
+                Integer index = ptr!=null ? clientArrays.get(ptr) : null;
+                if (index!=null)
+                    out.writeInt(index);
+                else {
+                    out.writeInt(-1);
+                    writeBuffer(ptr,-1);
+                    if (ptr!=null)
+                        clientArrays.put(ptr,clientArrays.size());
+                }
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset) {
+        target.glVertexAttribPointer(indx, size, type, normalized, stride, offset);
+        if (record(OP_VERTEX_ATTRIB_POINTER_OFFSET))
+            try {
+                out.writeInt(indx);
+                out.writeInt(size);
+                out.writeInt(type);
+                out.writeBoolean(normalized);
+                out.writeInt(stride);
+                out.writeInt(offset);
+            } catch (IOException e) { failed = true; }
+    }
+
+    public void glViewport(int x, int y, int width, int height) {
+        target.glViewport(x, y, width, height);
+        if (record(OP_VIEWPORT))
+            try {
+                out.writeInt(x);
+                out.writeInt(y);
+                out.writeInt(width);
+                out.writeInt(height);
+            } catch (IOException e) { failed = true; }
+    }
+
+}
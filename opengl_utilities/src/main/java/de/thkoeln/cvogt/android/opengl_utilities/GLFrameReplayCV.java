@@ -0,0 +1,563 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.graphics.Bitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import static de.thkoeln.cvogt.android.opengl_utilities.GLFrameCaptureCV.*;
+
+/**
+ * Class to re-execute a frame captured by <I>GLFrameCaptureCV</I> against a backend, e.g. the OpenGL ES backend of a device
+ * or a <I>GLRecordingBackendCV</I> on a desktop JVM, and to measure the number and the execution times of the calls.
+ * <P>
+ * The names of programs, shaders, buffers and textures and the locations of attributes and uniforms stored in the capture
+ * are mapped to the names and locations returned by the replay backend, i.e. a frame can be replayed several times
+ * (each replay creates new programs and buffers) and on backends that assign names differently than the capturing backend.
+ * @see GLFrameCaptureCV
+ */
+
+public class GLFrameReplayCV {
+
+    /** The uncompressed captured frame. */
+
+    private final byte[] frame;
+
+    /** Number of calls per call name and execution time in nanoseconds per call name in the last replay. */
+
+    private final HashMap<String,long[]> callCounts = new HashMap<>(), callNanos = new HashMap<>();
+
+    private long totalNanos;
+
+    private GLFrameReplayCV(byte[] frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * Loads a captured frame.
+     * @param in The stream with the captured frame. The stream is read to its end but not closed.
+     * @return The loaded frame or null if the stream cannot be read or does not contain a captured frame.
+     */
+
+    public static GLFrameReplayCV load(InputStream in) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            GZIPInputStream gzip = new GZIPInputStream(in);
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n=gzip.read(chunk))>0)
+                bytes.write(chunk,0,n);
+            byte[] frame = bytes.toByteArray();
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(frame));
+            if (header.readInt()!=MAGIC||header.readInt()!=VERSION) return null;
+            return new GLFrameReplayCV(frame);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads a captured frame from a file.
+     * @param file The file with the captured frame.
+     * @return The loaded frame or null if the file cannot be read or does not contain a captured frame.
+     */
+
+    public static GLFrameReplayCV load(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return load(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads a captured frame from a byte array as returned by <I>GLFrameCaptureCV.finish()</I>.
+     * @param captured The captured frame.
+     * @return The loaded frame or null if the array does not contain a captured frame.
+     */
+
+    public static GLFrameReplayCV load(byte[] captured) {
+        if (captured==null) return null;
+        return load(new ByteArrayInputStream(captured));
+    }
+
+    /**
+     * Re-executes the frame against a backend. Afterwards, the statistics of the replay can be queried by the get methods.
+     * @param gl The backend to execute the calls (must not be null).
+     * @return false if the captured frame is corrupted (in this case, the statistics cover the calls until the corrupted record), true otherwise.
+     */
+
+    synchronized public boolean replay(GLBackendCV gl) {
+        callCounts.clear();
+        callNanos.clear();
+        totalNanos = 0;
+        // mappings of captured names and locations to the names and locations of the replay backend
+        // (programs and shaders share a name space, buffers and textures have name spaces of their own)
+        HashMap<Integer,Integer> names = new HashMap<>(), bufferNames = new HashMap<>(), textureNames = new HashMap<>();
+        HashMap<Long,Integer> attribLocations = new HashMap<>(), uniformLocations = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        ArrayList<Buffer> clientArrays = new ArrayList<>();
+        int currentProgram = 0;
+        int[] result = new int[1];
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        try {
+            in.readInt();   // header
+            in.readInt();
+            while (true) {
+                int op = in.readUnsignedByte();
+                if (op==OP_END) return true;
+                long start = 0;
+                switch (op) {
+                    case OP_ATTACH_SHADER: {
+                        int program = name(names,in.readInt()), shader = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glAttachShader(program,shader);
+                        break;
+                    }
+                    case OP_BIND_BUFFER: {
+                        int target = in.readInt(), buffer = name(bufferNames,in.readInt());
+                        start = System.nanoTime();
+                        gl.glBindBuffer(target,buffer);
+                        break;
+                    }
+                    case OP_BIND_TEXTURE: {
+                        int target = in.readInt(), texture = name(textureNames,in.readInt());
+                        start = System.nanoTime();
+                        gl.glBindTexture(target,texture);
+                        break;
+                    }
+                    case OP_BUFFER_DATA: {
+                        int target = in.readInt(), size = in.readInt(), usage = in.readInt();
+                        Buffer data = readBuffer(in);
+                        start = System.nanoTime();
+                        gl.glBufferData(target,size,data,usage);
+                        break;
+                    }
+                    case OP_BUFFER_SUB_DATA: {
+                        int target = in.readInt(), offset = in.readInt(), size = in.readInt();
+                        Buffer data = readBuffer(in);
+                        start = System.nanoTime();
+                        gl.glBufferSubData(target,offset,size,data);
+                        break;
+                    }
+                    case OP_CLEAR: {
+                        int mask = in.readInt();
+                        start = System.nanoTime();
+                        gl.glClear(mask);
+                        break;
+                    }
+                    case OP_CLEAR_COLOR: {
+                        float red = in.readFloat(), green = in.readFloat(), blue = in.readFloat(), alpha = in.readFloat();
+                        start = System.nanoTime();
+                        gl.glClearColor(red,green,blue,alpha);
+                        break;
+                    }
+                    case OP_COMPILE_SHADER: {
+                        int shader = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glCompileShader(shader);
+                        break;
+                    }
+                    case OP_CREATE_PROGRAM: {
+                        int captured = in.readInt();
+                        start = System.nanoTime();
+                        names.put(captured,gl.glCreateProgram());
+                        break;
+                    }
+                    case OP_CREATE_SHADER: {
+                        int type = in.readInt(), captured = in.readInt();
+                        start = System.nanoTime();
+                        names.put(captured,gl.glCreateShader(type));
+                        break;
+                    }
+                    case OP_DEPTH_FUNC: {
+                        int func = in.readInt();
+                        start = System.nanoTime();
+                        gl.glDepthFunc(func);
+                        break;
+                    }
+                    case OP_DEPTH_MASK: {
+                        boolean flag = in.readBoolean();
+                        start = System.nanoTime();
+                        gl.glDepthMask(flag);
+                        break;
+                    }
+                    case OP_DISABLE_VERTEX_ATTRIB_ARRAY: {
+                        int index = location(attribLocations,currentProgram,in.readInt());
+                        start = System.nanoTime();
+                        gl.glDisableVertexAttribArray(index);
+                        break;
+                    }
+                    case OP_DRAW_ARRAYS: {
+                        int mode = in.readInt(), first = in.readInt(), count = in.readInt();
+                        start = System.nanoTime();
+                        gl.glDrawArrays(mode,first,count);
+                        break;
+                    }
+                    case OP_ENABLE: {
+                        int cap = in.readInt();
+                        start = System.nanoTime();
+                        gl.glEnable(cap);
+                        break;
+                    }
+                    case OP_ENABLE_VERTEX_ATTRIB_ARRAY: {
+                        int index = location(attribLocations,currentProgram,in.readInt());
+                        start = System.nanoTime();
+                        gl.glEnableVertexAttribArray(index);
+                        break;
+                    }
+                    case OP_GEN_BUFFERS:
+                    case OP_GEN_TEXTURES: {
+                        int n = in.readInt();
+                        int[] captured = new int[n], generated = new int[n];
+                        for (int i=0; i<n; i++)
+                            captured[i] = in.readInt();
+                        start = System.nanoTime();
+                        if (op==OP_GEN_BUFFERS)
+                            gl.glGenBuffers(n,generated,0);
+                        else
+                            gl.glGenTextures(n,generated,0);
+                        for (int i=0; i<n; i++)
+                            (op==OP_GEN_BUFFERS?bufferNames:textureNames).put(captured[i],generated[i]);
+                        break;
+                    }
+                    case OP_GET_ATTRIB_LOCATION:
+                    case OP_GET_UNIFORM_LOCATION: {
+                        int captured = in.readInt(), program = name(names,captured);
+                        String name = readString(in,strings);
+                        int location = in.readInt();
+                        start = System.nanoTime();
+                        if (op==OP_GET_ATTRIB_LOCATION)
+                            attribLocations.put(key(captured,location),gl.glGetAttribLocation(program,name));
+                        else
+                            uniformLocations.put(key(captured,location),gl.glGetUniformLocation(program,name));
+                        break;
+                    }
+                    case OP_GET_PROGRAM_INFO_LOG: {
+                        int program = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glGetProgramInfoLog(program);
+                        break;
+                    }
+                    case OP_GET_PROGRAMIV: {
+                        int program = name(names,in.readInt()), pname = in.readInt();
+                        start = System.nanoTime();
+                        gl.glGetProgramiv(program,pname,result,0);
+                        break;
+                    }
+                    case OP_GET_SHADER_INFO_LOG: {
+                        int shader = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glGetShaderInfoLog(shader);
+                        break;
+                    }
+                    case OP_GET_SHADERIV: {
+                        int shader = name(names,in.readInt()), pname = in.readInt();
+                        start = System.nanoTime();
+                        gl.glGetShaderiv(shader,pname,result,0);
+                        break;
+                    }
+                    case OP_LINE_WIDTH: {
+                        float width = in.readFloat();
+                        start = System.nanoTime();
+                        gl.glLineWidth(width);
+                        break;
+                    }
+                    case OP_LINK_PROGRAM: {
+                        int program = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glLinkProgram(program);
+                        break;
+                    }
+                    case OP_SHADER_SOURCE: {
+                        int shader = name(names,in.readInt());
+                        String source = readString(in,strings);
+                        start = System.nanoTime();
+                        gl.glShaderSource(shader,source);
+                        break;
+                    }
+                    case OP_TEX_PARAMETERI: {
+                        int target = in.readInt(), pname = in.readInt(), param = in.readInt();
+                        start = System.nanoTime();
+                        gl.glTexParameteri(target,pname,param);
+                        break;
+                    }
+                    case OP_TEX_IMAGE_2D: {
+                        int target = in.readInt(), level = in.readInt(), border = in.readInt(), width = in.readInt(), height = in.readInt();
+                        Bitmap bitmap = null;
+                        if (width>0&&height>0) {
+                            int[] pixels = new int[width*height];
+                            for (int i=0; i<pixels.length; i++)
+                                pixels[i] = in.readInt();
+                            bitmap = Bitmap.createBitmap(pixels,width,height,Bitmap.Config.ARGB_8888);
+                        }
+                        start = System.nanoTime();
+                        gl.texImage2D(target,level,bitmap,border);
+                        break;
+                    }
+                    case OP_UNIFORM_1F: {
+                        int location = location(uniformLocations,currentProgram,in.readInt());
+                        float x = in.readFloat();
+                        start = System.nanoTime();
+                        gl.glUniform1f(location,x);
+                        break;
+                    }
+                    case OP_UNIFORM_3FV:
+                    case OP_UNIFORM_4FV: {
+                        int location = location(uniformLocations,currentProgram,in.readInt()), count = in.readInt();
+                        float[] values = readFloats(in);
+                        start = System.nanoTime();
+                        if (op==OP_UNIFORM_3FV)
+                            gl.glUniform3fv(location,count,values,0);
+                        else
+                            gl.glUniform4fv(location,count,values,0);
+                        break;
+                    }
+                    case OP_UNIFORM_MATRIX_4FV: {
+                        int location = location(uniformLocations,currentProgram,in.readInt()), count = in.readInt();
+                        boolean transpose = in.readBoolean();
+                        float[] values = readFloats(in);
+                        start = System.nanoTime();
+                        gl.glUniformMatrix4fv(location,count,transpose,values,0);
+                        break;
+                    }
+                    case OP_USE_PROGRAM: {
+                        currentProgram = in.readInt();
+                        int program = name(names,currentProgram);
+                        start = System.nanoTime();
+                        gl.glUseProgram(program);
+                        break;
+                    }
+                    case OP_VERTEX_ATTRIB_POINTER_CLIENT: {
+                        int index = location(attribLocations,currentProgram,in.readInt()), size = in.readInt(), type = in.readInt();
+                        boolean normalized = in.readBoolean();
+                        int stride = in.readInt(), arrayIndex = in.readInt();
+                        Buffer ptr;
+                        if (arrayIndex>=0)
+                            ptr = clientArrays.get(arrayIndex);
+                        else {
+                            ptr = readBuffer(in);
+                            if (ptr!=null)
+                                clientArrays.add(ptr);
+                        }
+                        start = System.nanoTime();
+                        gl.glVertexAttribPointer(index,size,type,normalized,stride,ptr);
+                        break;
+                    }
+                    case OP_VERTEX_ATTRIB_POINTER_OFFSET: {
+                        int index = location(attribLocations,currentProgram,in.readInt()), size = in.readInt(), type = in.readInt();
+                        boolean normalized = in.readBoolean();
+                        int stride = in.readInt(), offset = in.readInt();
+                        start = System.nanoTime();
+                        gl.glVertexAttribPointer(index,size,type,normalized,stride,offset);
+                        break;
+                    }
+                    case OP_VIEWPORT: {
+                        int x = in.readInt(), y = in.readInt(), width = in.readInt(), height = in.readInt();
+                        start = System.nanoTime();
+                        gl.glViewport(x,y,width,height);
+                        break;
+                    }
+                    case OP_DELETE_BUFFERS:
+                    case OP_DELETE_TEXTURES: {
+                        int n = in.readInt();
+                        int[] deleted = new int[n];
+                        for (int i=0; i<n; i++)
+                            deleted[i] = name(op==OP_DELETE_BUFFERS?bufferNames:textureNames,in.readInt());
+                        start = System.nanoTime();
+                        if (op==OP_DELETE_BUFFERS)
+                            gl.glDeleteBuffers(n,deleted,0);
+                        else
+                            gl.glDeleteTextures(n,deleted,0);
+                        break;
+                    }
+                    case OP_DELETE_PROGRAM: {
+                        int program = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glDeleteProgram(program);
+                        break;
+                    }
+                    case OP_DELETE_SHADER: {
+                        int shader = name(names,in.readInt());
+                        start = System.nanoTime();
+                        gl.glDeleteShader(shader);
+                        break;
+                    }
+                    default:
+                        return false;
+                }
+                long nanos = System.nanoTime()-start;
+                totalNanos += nanos;
+                add(callCounts,CALL_NAMES[op],1);
+                add(callNanos,CALL_NAMES[op],nanos);
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of calls per call name in the last replay, sorted by name.
+     */
+
+    synchronized public Map<String,Long> getCallCounts() {
+        return toMap(callCounts);
+    }
+
+    /**
+     * @return The execution time of the calls in nanoseconds per call name in the last replay, sorted by name.
+     */
+
+    synchronized public Map<String,Long> getCallNanos() {
+        return toMap(callNanos);
+    }
+
+    /**
+     * @return The number of calls in the last replay.
+     */
+
+    synchronized public long getNumberOfCalls() {
+        long sum = 0;
+        for (long[] count : callCounts.values())
+            sum += count[0];
+        return sum;
+    }
+
+    /**
+     * @return The total execution time of the calls in nanoseconds in the last replay (without the time to decode the captured frame).
+     */
+
+    synchronized public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The size of the uncompressed captured frame in bytes.
+     */
+
+    public int getFrameSize() {
+        return frame.length;
+    }
+
+    /**
+     * @return A table with the number of calls and their execution times in the last replay.
+     */
+
+    @Override
+    synchronized public String toString() {
+        StringBuilder table = new StringBuilder(String.format("%-28s %10s %12s %10s%n","call","count","total [us]","avg [ns]"));
+        Map<String,Long> nanos = getCallNanos();
+        for (Map.Entry<String,Long> entry : getCallCounts().entrySet()) {
+            long count = entry.getValue(), time = nanos.get(entry.getKey());
+            table.append(String.format("%-28s %10d %12.1f %10d%n",entry.getKey(),count,time/1000.0,time/count));
+        }
+        table.append(String.format("%-28s %10d %12.1f%n","total",getNumberOfCalls(),totalNanos/1000.0));
+        return table.toString();
+    }
+
+    private static int name(HashMap<Integer,Integer> names, int captured) {
+        Integer name = names.get(captured);
+        return name!=null ? name : captured;   // name 0 and names not created in the frame are passed unchanged
+    }
+
+    private static long key(int program, int location) {
+        return ((long)program<<32)|(location&0xFFFFFFFFL);
+    }
+
+    private static int location(HashMap<Long,Integer> locations, int program, int captured) {
+        Integer location = locations.get(key(program,captured));
+        return location!=null ? location : captured;   // -1 and locations not queried in the frame are passed unchanged
+    }
+
+    private static String readString(DataInputStream in, ArrayList<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index>=0) return strings.get(index);
+        String string = in.readUTF();
+        strings.add(string);
+        return string;
+    }
+
+    private static float[] readFloats(DataInputStream in) throws IOException {
+        float[] values = new float[in.readInt()];
+        for (int i=0; i<values.length; i++)
+            values[i] = in.readFloat();
+        return values;
+    }
+
+    /**
+     * Reads a captured buffer into a direct buffer in native byte order (as used by the library to pass data to OpenGL).
+     */
+
+    private static Buffer readBuffer(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        if (type==BUFFER_NULL) return null;
+        int n = in.readInt();
+        switch (type) {
+            case BUFFER_FLOAT: {
+                FloatBuffer buffer = ByteBuffer.allocateDirect(4*n).order(ByteOrder.nativeOrder()).asFloatBuffer();
+                for (int i=0; i<n; i++) buffer.put(in.readFloat());
+                buffer.position(0);
+                return buffer;
+            }
+            case BUFFER_BYTE: {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(n).order(ByteOrder.nativeOrder());
+                for (int i=0; i<n; i++) buffer.put(in.readByte());
+                buffer.position(0);
+                return buffer;
+            }
+            case BUFFER_SHORT: {
+                ShortBuffer buffer = ByteBuffer.allocateDirect(2*n).order(ByteOrder.nativeOrder()).asShortBuffer();
+                for (int i=0; i<n; i++) buffer.put(in.readShort());
+                buffer.position(0);
+                return buffer;
+            }
+            case BUFFER_INT: {
+                IntBuffer buffer = ByteBuffer.allocateDirect(4*n).order(ByteOrder.nativeOrder()).asIntBuffer();
+                for (int i=0; i<n; i++) buffer.put(in.readInt());
+                buffer.position(0);
+                return buffer;
+            }
+        }
+        throw new IOException("unknown buffer type "+type);
+    }
+
+    private static void add(HashMap<String,long[]> map, String name, long value) {
+        long[] sum = map.get(name);
+        if (sum==null)
+            map.put(name,sum=new long[1]);
+        sum[0] += value;
+    }
+
+    private static TreeMap<String,Long> toMap(HashMap<String,long[]> map) {
+        TreeMap<String,Long> result = new TreeMap<>();
+        for (Map.Entry<String,long[]> entry : map.entrySet())
+            result.put(entry.getKey(),entry.getValue()[0]);
+        return result;
+    }
+
+}
@@ -121,6 +121,17 @@ public class GLLineCV {
         return point2.clone();
     }
 
+    /**
+     * Get a single coordinate of an end point of the line without copying the 'point1' or 'point2' attribute.
+     * @param pointNo The number of the end point (1 or 2).
+     * @param dimension The dimension of the coordinate (0 = x, 1 = y, 2 = z).
+     * @return The coordinate value.
+     */
+
+    public float getPointCoordinate(int pointNo, int dimension) {
+        return pointNo==1 ? point1[dimension] : point2[dimension];
+    }
+
     /**
      * Sets the color of the line as a copy of the parameter array.
      * @param color The color to be set (RGBA).
@@ -0,0 +1,223 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.graphics.Bitmap;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Class for reports on the memory used by shapes, broken down into these categories:
+ * <UL>
+ * <LI>TRIANGLE_OBJECTS: Java heap for the GLTriangleCV and GLLineCV objects of the shapes and their bounding volume hierarchies (estimated from the object layout).
+ * <LI>DIRECT_BUFFERS: Direct (native) memory of the buffers that pass the vertex attributes to the graphics hardware.
+ * <LI>GPU_BUFFERS: Graphics memory of the vertex buffer objects.
+ * <LI>GPU_TEXTURES: Graphics memory of the textures (uncompressed, without mipmaps).
+ * <LI>BITMAPS: Memory of the Bitmap objects referenced by the shapes and of the bitmaps cached by class <I>TextureBitmapsCV</I>, each bitmap counted once.
+ * </UL>
+ * Reports are returned by <I>GLShapeCV.getMemoryReport()</I> for single shapes, by <I>getReport()</I> for collections of shapes
+ * and by <I>GLSurfaceViewCV.getMemoryReport()</I> for all shapes of a view (which also maintains high-water marks).
+ * A report is computed from the sizes of the arrays and buffers of the shapes without traversing their triangles,
+ * i.e. it is cheap enough to be requested periodically, e.g. every second.
+ * @see GLShapeCV#getMemoryReport()
+ * @see GLSurfaceViewCV#getMemoryReport()
+ * @see GLSurfaceViewCV#getMemoryHighWaterMarks()
+ */
+
+public class GLMemoryReportCV {
+
+    public static final int TRIANGLE_OBJECTS = 0;
+
+    public static final int DIRECT_BUFFERS = 1;
+
+    public static final int GPU_BUFFERS = 2;
+
+    public static final int GPU_TEXTURES = 3;
+
+    public static final int BITMAPS = 4;
+
+    public static final int NUMBER_OF_CATEGORIES = 5;
+
+    private static final String[] CATEGORY_NAMES = { "triangle objects", "direct buffers", "GPU buffers", "GPU textures", "bitmaps" };
+
+    /**
+     * Estimated heap sizes of the objects (object header of 8 bytes, references of 4 bytes, aligned to 8 bytes).
+     * A triangle consists of the GLTriangleCV object and its vertices (float[3][3]);
+     * its colors or uv coordinates are added depending on the coloring type of the shape.
+     */
+
+    static final int TRIANGLE_BYTES = 32+96, UNIFORM_COLOR_BYTES = 32, VERTEX_COLORS_BYTES = 120, UV_COORDINATES_BYTES = 40,
+                     LINE_BYTES = 24+2*24+32, REFERENCE_BYTES = 4, ARRAY_BYTES = 16;
+
+    /** The bitmaps cached by class TextureBitmapsCV (registered by TextureBitmapsCV.get()). */
+
+    private static final Set<Bitmap> cachedBitmaps = Collections.newSetFromMap(new IdentityHashMap<Bitmap,Boolean>());
+
+    private final long[] bytes = new long[NUMBER_OF_CATEGORIES];
+
+    private long totalBytes;
+
+    private int numberOfShapes;
+
+    GLMemoryReportCV() {
+    }
+
+    /**
+     * Reports the memory used by a collection of shapes. Bitmaps shared by several shapes and the bitmaps cached by class TextureBitmapsCV are counted once.
+     * @param shapes The shapes.
+     * @return The memory report of the shapes.
+     */
+
+    public static GLMemoryReportCV getReport(Collection<GLShapeCV> shapes) {
+        GLMemoryReportCV report = new GLMemoryReportCV();
+        Set<Bitmap> bitmaps = Collections.newSetFromMap(new IdentityHashMap<Bitmap,Boolean>());
+        for (GLShapeCV shape : shapes) {
+            report.addWithoutBitmaps(shape.getMemoryReport());
+            shape.addTextureBitmaps(bitmaps);
+        }
+        getCachedBitmaps(bitmaps);
+        for (Bitmap bitmap : bitmaps)
+            report.add(BITMAPS,bitmapBytes(bitmap));
+        return report;
+    }
+
+    /**
+     * @return A copy of this report.
+     */
+
+    public GLMemoryReportCV copy() {
+        GLMemoryReportCV copy = new GLMemoryReportCV();
+        copy.max(this);
+        return copy;
+    }
+
+    /**
+     * Adds bytes to a category.
+     */
+
+    void add(int category, long bytes) {
+        this.bytes[category] += bytes;
+        totalBytes += bytes;
+    }
+
+    /**
+     * Adds the bytes of another report in all categories except BITMAPS (bitmaps may be shared between shapes and are counted separately).
+     */
+
+    void addWithoutBitmaps(GLMemoryReportCV report) {
+        for (int i=0; i<NUMBER_OF_CATEGORIES; i++)
+            if (i!=BITMAPS)
+                add(i,report.bytes[i]);
+        numberOfShapes += report.numberOfShapes;
+    }
+
+    /**
+     * Raises the values of this report to the values of another report where they are smaller (to maintain high-water marks).
+     */
+
+    void max(GLMemoryReportCV report) {
+        for (int i=0; i<NUMBER_OF_CATEGORIES; i++)
+            bytes[i] = Math.max(bytes[i],report.bytes[i]);
+        totalBytes = Math.max(totalBytes,report.totalBytes);
+        numberOfShapes = Math.max(numberOfShapes,report.numberOfShapes);
+    }
+
+    void setNumberOfShapes(int numberOfShapes) {
+        this.numberOfShapes = numberOfShapes;
+    }
+
+    /**
+     * Registers a bitmap cached by class TextureBitmapsCV.
+     */
+
+    static void addCachedBitmap(Bitmap bitmap) {
+        if (bitmap==null) return;
+        synchronized (cachedBitmaps) {
+            cachedBitmaps.add(bitmap);
+        }
+    }
+
+    /**
+     * Adds the cached bitmaps to a set of bitmaps.
+     */
+
+    static void getCachedBitmaps(Set<Bitmap> bitmaps) {
+        synchronized (cachedBitmaps) {
+            bitmaps.addAll(cachedBitmaps);
+        }
+    }
+
+    /**
+     * @return The number of bytes of a bitmap (0 if the bitmap is null).
+     */
+
+    static long bitmapBytes(Bitmap bitmap) {
+        if (bitmap==null) return 0;
+        return (long)bitmap.getRowBytes()*bitmap.getHeight();
+    }
+
+    /**
+     * @param category The category (TRIANGLE_OBJECTS, DIRECT_BUFFERS, GPU_BUFFERS, GPU_TEXTURES, BITMAPS).
+     * @return The number of bytes in the category or -1 if the category is not valid.
+     */
+
+    public long getBytes(int category) {
+        if (category<0||category>=NUMBER_OF_CATEGORIES) return -1;
+        return bytes[category];
+    }
+
+    /**
+     * @return The number of bytes in all categories.
+     * For a report of high-water marks, the highest total reached (which may be smaller than the sum of the high-water marks of the categories).
+     */
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The number of bytes of graphics memory, i.e. in the categories GPU_BUFFERS and GPU_TEXTURES.
+     */
+
+    public long getGpuBytes() {
+        return bytes[GPU_BUFFERS]+bytes[GPU_TEXTURES];
+    }
+
+    /**
+     * @return The number of shapes covered by the report.
+     */
+
+    public int getNumberOfShapes() {
+        return numberOfShapes;
+    }
+
+    /**
+     * @param category The category (TRIANGLE_OBJECTS, DIRECT_BUFFERS, GPU_BUFFERS, GPU_TEXTURES, BITMAPS).
+     * @return The name of the category or null if the category is not valid.
+     */
+
+    public static String getCategoryName(int category) {
+        if (category<0||category>=NUMBER_OF_CATEGORIES) return null;
+        return CATEGORY_NAMES[category];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(numberOfShapes+" shapes:");
+        for (int i=0; i<NUMBER_OF_CATEGORIES; i++)
+            report.append(String.format(" %s %.1f KB,",CATEGORY_NAMES[i],bytes[i]/1024.0));
+        report.append(String.format(" total %.1f KB",totalBytes/1024.0));
+        return report.toString();
+    }
+
+}
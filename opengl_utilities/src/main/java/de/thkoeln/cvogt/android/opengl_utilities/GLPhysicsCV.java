@@ -0,0 +1,496 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+/**
+ * Class for physics-based animations of shapes, i.e. motions resulting from forces: springs, friction ("fling"), pendulums, and gravity.
+ * <P>
+ * A simulation holds a fixed number of bodies. Each body is associated with a shape and has a position (the center of the shape), a velocity, and a mass.
+ * The state of all bodies and the parameters of the forces acting on them are kept in packed arrays of primitive values.
+ * The forces of a body can be combined:
+ * <UL>
+ * <LI>gravity: a uniform acceleration, common for all bodies (<I>setGravity()</I>), switched on or off per body
+ * <LI>spring: a force towards an anchor point, proportional to the distance from this point, with a damping proportional to the velocity
+ * <LI>friction: a deceleration proportional to the velocity, e.g. for a shape that has been flung and slides to a stop
+ * <LI>pendulum: the body is held at a constant distance from a pivot point (by a massless rod)
+ * </UL>
+ * Optionally, the bodies bounce off a horizontal floor.
+ * <P>
+ * The simulation advances all bodies in one loop with a fixed time step (semi-implicit Euler integration:
+ * first the velocity is updated from the acceleration, then the position from the new velocity; the rod of a pendulum is a constraint on the position).
+ * The results thus depend only on the number of steps and not on the frame times, i.e. the simulation is deterministic.
+ * In <I>update()</I>, as many steps are executed as fit into the time since the last frame (the remainder is carried over to the next frame),
+ * and the shapes are placed at positions interpolated linearly between the last two steps, such that the motions appear smooth
+ * also if the frame rate is not a multiple of the step rate.
+ * <P>
+ * A simulation is typically driven by the animation scheduler of a renderer (see <I>GLAnimationSchedulerCV.start(Updatable)</I>).
+ * The simulation modifies only the translations of the shapes.
+ * <BR>
+ * @see GLAnimationSchedulerCV
+ */
+
+public class GLPhysicsCV implements GLAnimationSchedulerCV.Updatable {
+
+    /** The maximum number of steps executed by one call of update(). If more steps would be due (e.g. after a long pause), the simulation falls behind. */
+
+    public static final int MAX_STEPS_PER_UPDATE = 16;
+
+    /** The number of bodies. */
+
+    private final int capacity;
+
+    /** The length of a time step (ns). */
+
+    private final long stepNanos;
+
+    /** The length of a time step (s). */
+
+    private final float dt;
+
+    /** The shapes of the bodies (null = no body). */
+
+    private final GLShapeCV[] shapes;
+
+    /** One plus the highest number of a body, i.e. the bodies to be simulated. */
+
+    private int bodiesInUse;
+
+    /** The positions after the last step, 3 values per body. */
+
+    private final float[] positions;
+
+    /** The positions after the last but one step (for the interpolation), 3 values per body. */
+
+    private final float[] previousPositions;
+
+    /** The velocities (units/s), 3 values per body. */
+
+    private final float[] velocities;
+
+    /** The inverse masses. */
+
+    private final float[] inverseMasses;
+
+    /** The radii of the bodies (for the collisions with the floor). */
+
+    private final float[] radii;
+
+    /** Specifies for the bodies whether they are subject to gravity. */
+
+    private final boolean[] gravityEnabled;
+
+    /** The anchor points of the springs, 3 values per body. */
+
+    private final float[] springAnchors;
+
+    /** The stiffnesses of the springs (0 = no spring). */
+
+    private final float[] springStiffnesses;
+
+    /** The damping coefficients of the springs. */
+
+    private final float[] springDampings;
+
+    /** The friction coefficients (1/s, 0 = no friction). */
+
+    private final float[] frictions;
+
+    /** The pivot points of the pendulums, 3 values per body. */
+
+    private final float[] pendulumPivots;
+
+    /** The lengths of the rods of the pendulums (0 = no pendulum). */
+
+    private final float[] pendulumLengths;
+
+    /** The gravity acceleration (units/s^2). */
+
+    private final float[] gravity = { 0, -9.81f, 0 };
+
+    /** Specifies whether there is a floor. */
+
+    private boolean floorEnabled;
+
+    /** The y coordinate of the floor. */
+
+    private float floorY;
+
+    /** The fraction of the vertical velocity kept when a body bounces off the floor. */
+
+    private float floorRestitution;
+
+    /** The time of the last call of update() (ns, -1 = no call yet). */
+
+    private long lastUpdateNanos = -1;
+
+    /** The time not yet simulated (ns, less than one step). */
+
+    private long accumulatedNanos;
+
+    /** The number of steps executed so far. */
+
+    private long steps;
+
+    /**
+     * Makes a simulation.
+     * @param capacity The maximum number of bodies (at least 1).
+     * @param stepMillis The length of a time step (ms, at least 0.1).
+     */
+
+    public GLPhysicsCV(int capacity, float stepMillis) {
+        this.capacity = Math.max(capacity,1);
+        stepNanos = (long) (Math.max(stepMillis,0.1f)*1000000);
+        dt = stepNanos/1e9f;
+        shapes = new GLShapeCV[this.capacity];
+        positions = new float[3*this.capacity];
+        previousPositions = new float[3*this.capacity];
+        velocities = new float[3*this.capacity];
+        inverseMasses = new float[this.capacity];
+        radii = new float[this.capacity];
+        gravityEnabled = new boolean[this.capacity];
+        springAnchors = new float[3*this.capacity];
+        springStiffnesses = new float[this.capacity];
+        springDampings = new float[this.capacity];
+        frictions = new float[this.capacity];
+        pendulumPivots = new float[3*this.capacity];
+        pendulumLengths = new float[this.capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public float getStepMillis() {
+        return stepNanos/1e6f;
+    }
+
+    /**
+     * @return The number of steps executed so far.
+     */
+
+    synchronized public long getNumberOfSteps() {
+        return steps;
+    }
+
+    /**
+     * @param body The number of a body.
+     * @return The shape of the body (or null if there is no such body).
+     */
+
+    synchronized public GLShapeCV getShape(int body) {
+        if (body<0||body>=capacity) return null;
+        return shapes[body];
+    }
+
+    /**
+     * Adds a body for a shape. The current translation of the shape is taken as the position of the body.
+     * Initially, the body is at rest, is subject to gravity, and no other forces act on it.
+     * Its radius is the radius of the bounding sphere of the shape, multiplied by the largest scaling factor.
+     * @param shape The shape.
+     * @param mass The mass of the body (&gt; 0).
+     * @return The number of the body (or -1 if a parameter is not valid or the maximum number of bodies has been reached).
+     */
+
+    synchronized public int addBody(GLShapeCV shape, float mass) {
+        if (shape==null||mass<=0) return -1;
+        int body = 0;
+        while (body<capacity&&shapes[body]!=null)
+            body++;
+        if (body==capacity) return -1;
+        shapes[body] = shape;
+        bodiesInUse = Math.max(bodiesInUse,body+1);
+        float[] trans = shape.getTrans();
+        for (int i=0; i<3; i++) {
+            positions[3*body+i] = previousPositions[3*body+i] = trans[i];
+            velocities[3*body+i] = 0;
+        }
+        inverseMasses[body] = 1/mass;
+        float[] sphere = shape.getBoundingSphere();
+        radii[body] = sphere==null ? 0 : sphere[3]*Math.max(Math.abs(shape.getScaleX()),Math.max(Math.abs(shape.getScaleY()),Math.abs(shape.getScaleZ())));
+        gravityEnabled[body] = true;
+        springStiffnesses[body] = springDampings[body] = frictions[body] = pendulumLengths[body] = 0;
+        return body;
+    }
+
+    /**
+     * Removes a body. The shape stays at its current position.
+     * @param body The number of the body.
+     * @return The shape of the body (or null if there is no such body).
+     */
+
+    synchronized public GLShapeCV removeBody(int body) {
+        GLShapeCV shape = getShape(body);
+        if (shape==null) return null;
+        shapes[body] = null;
+        while (bodiesInUse>0&&shapes[bodiesInUse-1]==null)
+            bodiesInUse--;
+        return shape;
+    }
+
+    /**
+     * Sets the velocity of a body, e.g. the initial velocity of a fling.
+     * @param body The number of the body.
+     * @param velocity The velocity (units/s).
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLPhysicsCV setVelocity(int body, float[] velocity) {
+        if (getShape(body)==null||velocity==null||velocity.length!=3) return null;
+        System.arraycopy(velocity,0,velocities,3*body,3);
+        return this;
+    }
+
+    /**
+     * Sets the radius of a body, i.e. the distance from its center at which it touches the floor.
+     * @param body The number of the body.
+     * @param radius The radius (&gt;= 0).
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLPhysicsCV setRadius(int body, float radius) {
+        if (getShape(body)==null||radius<0) return null;
+        radii[body] = radius;
+        return this;
+    }
+
+    /**
+     * Specifies whether a body is subject to gravity.
+     * @param body The number of the body.
+     * @param enabled true if gravity shall act on the body.
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if the body is not valid).
+     */
+
+    synchronized public GLPhysicsCV setGravityEnabled(int body, boolean enabled) {
+        if (getShape(body)==null) return null;
+        gravityEnabled[body] = enabled;
+        return this;
+    }
+
+    /**
+     * Attaches a body to a spring.
+     * @param body The number of the body.
+     * @param anchor The anchor point of the spring, i.e. the rest position of the body.
+     * @param stiffness The stiffness of the spring (force per unit of distance, 0 = remove the spring).
+     * @param damping The damping of the spring (force per unit of velocity).
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLPhysicsCV setSpring(int body, float[] anchor, float stiffness, float damping) {
+        if (getShape(body)==null||anchor==null||anchor.length!=3||stiffness<0||damping<0) return null;
+        System.arraycopy(anchor,0,springAnchors,3*body,3);
+        springStiffnesses[body] = stiffness;
+        springDampings[body] = damping;
+        return this;
+    }
+
+    /**
+     * Sets the friction of a body, i.e. a deceleration proportional to its velocity.
+     * Without other forces, a body with the velocity v slides a distance of v/friction until it stops.
+     * @param body The number of the body.
+     * @param friction The friction coefficient (1/s, 0 = no friction).
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLPhysicsCV setFriction(int body, float friction) {
+        if (getShape(body)==null||friction<0) return null;
+        frictions[body] = friction;
+        return this;
+    }
+
+    /**
+     * Attaches a body to a pendulum rod. The length of the rod is the current distance of the body from the pivot point.
+     * @param body The number of the body.
+     * @param pivot The pivot point of the pendulum (null = remove the rod).
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if a parameter is not valid).
+     */
+
+    synchronized public GLPhysicsCV setPendulum(int body, float[] pivot) {
+        if (getShape(body)==null||(pivot!=null&&pivot.length!=3)) return null;
+        if (pivot==null) {
+            pendulumLengths[body] = 0;
+            return this;
+        }
+        float dx = positions[3*body]-pivot[0], dy = positions[3*body+1]-pivot[1], dz = positions[3*body+2]-pivot[2];
+        float length = (float) Math.sqrt(dx*dx+dy*dy+dz*dz);
+        if (length==0) return null;
+        System.arraycopy(pivot,0,pendulumPivots,3*body,3);
+        pendulumLengths[body] = length;
+        return this;
+    }
+
+    /**
+     * Sets the gravity acceleration for all bodies (default: 9.81 units/s^2 in the negative y direction).
+     * @param gravity The acceleration vector.
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained (or null if the parameter is not valid).
+     */
+
+    synchronized public GLPhysicsCV setGravity(float[] gravity) {
+        if (gravity==null||gravity.length!=3) return null;
+        System.arraycopy(gravity,0,this.gravity,0,3);
+        return this;
+    }
+
+    /**
+     * Sets a horizontal floor off which the bodies bounce.
+     * @param y The y coordinate of the floor.
+     * @param restitution The fraction of the vertical velocity kept when a body bounces (between 0 and 1).
+     * @return The simulation itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public GLPhysicsCV setFloor(float y, float restitution) {
+        floorEnabled = true;
+        floorY = y;
+        floorRestitution = Math.min(Math.max(restitution,0),1);
+        return this;
+    }
+
+    synchronized public GLPhysicsCV removeFloor() {
+        floorEnabled = false;
+        return this;
+    }
+
+    /**
+     * Gets the position of a body after the last step (not interpolated).
+     * @param body The number of the body.
+     * @param result Array of length 3 to store the position.
+     * @return false if a parameter is not valid, true otherwise.
+     */
+
+    synchronized public boolean getPosition(int body, float[] result) {
+        if (getShape(body)==null||result==null||result.length!=3) return false;
+        System.arraycopy(positions,3*body,result,0,3);
+        return true;
+    }
+
+    /**
+     * Gets the velocity of a body after the last step.
+     * @param body The number of the body.
+     * @param result Array of length 3 to store the velocity.
+     * @return false if a parameter is not valid, true otherwise.
+     */
+
+    synchronized public boolean getVelocity(int body, float[] result) {
+        if (getShape(body)==null||result==null||result.length!=3) return false;
+        System.arraycopy(velocities,3*body,result,0,3);
+        return true;
+    }
+
+    /**
+     * Executes the steps due since the last call and places the shapes at the interpolated positions.
+     * The first call only sets the start time.
+     * Is called by the animation scheduler of the renderer (or directly by an application) once per frame.
+     * @param frameTimeNanos The frame time (ns).
+     */
+
+    synchronized public void update(long frameTimeNanos) {
+        if (lastUpdateNanos>=0)
+            accumulatedNanos += frameTimeNanos-lastUpdateNanos;
+        lastUpdateNanos = frameTimeNanos;
+        long due = accumulatedNanos/stepNanos;
+        accumulatedNanos -= due*stepNanos;
+        // after a long pause, the steps beyond the maximum are dropped (without iterating over them)
+        for (long i=0; i<Math.min(due,MAX_STEPS_PER_UPDATE); i++)
+            step();
+        float alpha = (float) accumulatedNanos/stepNanos;
+        for (int body=0; body<bodiesInUse; body++) {
+            GLShapeCV shape = shapes[body];
+            if (shape==null) continue;
+            int p = 3*body;
+            synchronized (shape) {
+                for (int i=0; i<3; i++)
+                    shape.writeTrans(i,previousPositions[p+i]+alpha*(positions[p+i]-previousPositions[p+i]));
+                shape.invalidateModelMatrix();
+            }
+        }
+    }
+
+    /**
+     * Executes a given number of steps without updating the shapes, e.g. to let a scene settle before it is shown or to test the simulation.
+     * @param number The number of steps.
+     */
+
+    synchronized public void step(int number) {
+        for (int i=0; i<number; i++)
+            step();
+    }
+
+    /**
+     * Executes one step for all bodies (semi-implicit Euler).
+     */
+
+    private void step() {
+        float gx = gravity[0], gy = gravity[1], gz = gravity[2];
+        for (int body=0; body<bodiesInUse; body++) {
+            if (shapes[body]==null) continue;
+            int p = 3*body;
+            float x = positions[p], y = positions[p+1], z = positions[p+2];
+            float vx = velocities[p], vy = velocities[p+1], vz = velocities[p+2];
+            previousPositions[p] = x;
+            previousPositions[p+1] = y;
+            previousPositions[p+2] = z;
+            // accelerations
+            float ax = 0, ay = 0, az = 0;
+            if (gravityEnabled[body]) {
+                ax += gx;
+                ay += gy;
+                az += gz;
+            }
+            float stiffness = springStiffnesses[body], damping = springDampings[body];
+            if (stiffness>0||damping>0) {
+                float inverseMass = inverseMasses[body];
+                ax += (-stiffness*(x-springAnchors[p])-damping*vx)*inverseMass;
+                ay += (-stiffness*(y-springAnchors[p+1])-damping*vy)*inverseMass;
+                az += (-stiffness*(z-springAnchors[p+2])-damping*vz)*inverseMass;
+            }
+            float friction = frictions[body];
+            if (friction>0) {
+                ax -= friction*vx;
+                ay -= friction*vy;
+                az -= friction*vz;
+            }
+            // integration: first the velocity, then the position with the new velocity
+            vx += ax*dt;
+            vy += ay*dt;
+            vz += az*dt;
+            x += vx*dt;
+            y += vy*dt;
+            z += vz*dt;
+            // constraints
+            float length = pendulumLengths[body];
+            if (length>0) {
+                // project the position onto the sphere around the pivot and derive the velocity from the corrected position
+                float dx = x-pendulumPivots[p], dy = y-pendulumPivots[p+1], dz = z-pendulumPivots[p+2];
+                float distance = (float) Math.sqrt(dx*dx+dy*dy+dz*dz);
+                if (distance>0) {
+                    float factor = length/distance;
+                    x = pendulumPivots[p]+dx*factor;
+                    y = pendulumPivots[p+1]+dy*factor;
+                    z = pendulumPivots[p+2]+dz*factor;
+                    vx = (x-previousPositions[p])/dt;
+                    vy = (y-previousPositions[p+1])/dt;
+                    vz = (z-previousPositions[p+2])/dt;
+                }
+            }
+            if (floorEnabled&&y-radii[body]<floorY) {
+                y = floorY+radii[body];
+                if (vy<0)
+                    vy = -vy*floorRestitution;
+            }
+            positions[p] = x;
+            positions[p+1] = y;
+            positions[p+2] = z;
+            velocities[p] = vx;
+            velocities[p+1] = vy;
+            velocities[p+2] = vz;
+        }
+        steps++;
+    }
+
+}
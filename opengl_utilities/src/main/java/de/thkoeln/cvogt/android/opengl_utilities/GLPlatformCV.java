@@ -21,6 +21,34 @@ public class GLPlatformCV {
 
     // TODO Hierhin alles Plattformnahe, auch Füllen der Puffer etc. (siehe Kommentare in OpenGLShape)
 
+    /**
+     * The backend through which all OpenGL calls of the library are made (see setBackend()).
+     */
+
+    private static volatile GLBackendCV backend = new GLES20BackendCV();
+
+    /**
+     * Sets the backend through which the library makes its OpenGL calls. By default, this is an object of class <I>GLES20BackendCV</I>
+     * that calls the OpenGL functions of the device.
+     * <BR>
+     * The backend should be set before the first shape is drawn, e.g. in the onCreate() method of the activity
+     * or before a renderer is used without a surface view.
+     * @param backend The new backend (if null, the default backend is set).
+     * @see GLBackendCV
+     */
+
+    public static void setBackend(GLBackendCV backend) {
+        GLPlatformCV.backend = backend!=null ? backend : new GLES20BackendCV();
+    }
+
+    /**
+     * @return The backend through which the library makes its OpenGL calls.
+     */
+
+    public static GLBackendCV getBackend() {
+        return backend;
+    }
+
     /** Constant specifying the coloring / texturing type: undefined */
     public static final int COLORING_UNDEF = 0;
 
@@ -114,20 +142,151 @@ public class GLPlatformCV {
                     "  gl_FragColor = texture2D( sTexture, vTexCoord );" +
                     "}";
 
+    /**
+     * OpenGL ES code: declaration of the vertex position for vertex shaders assembled by vertexShaderCode().
+     * The function modelPosition() delivers the position of the vertex in model coordinates.
+     */
+
+    public static String vertexShaderPositionCode =
+            "attribute vec4 aPosition;" +
+            "vec4 modelPosition() {" +
+            "  return aPosition;" +
+            "}";
+
+    /**
+     * OpenGL ES code: declaration of the vertex position for shapes with vertex groups (see GLShapeCV.defineVertexGroup()).
+     * The function modelPosition() applies the local transformation matrix of the group of the vertex,
+     * i.e. the entry of the matrix palette 'uGroupMatrices' selected by the attribute 'aGroup'.
+     */
+
+    public static String vertexShaderVertexGroupsCode =
+            "attribute vec4 aPosition;" +
+            "attribute float aGroup;" +         // index of the vertex group
+            "uniform mat4 uGroupMatrices["+GLShapeCV.MAX_VERTEX_GROUPS+"];" +
+            "vec4 modelPosition() {" +
+            "  return uGroupMatrices[int(aGroup+0.5)]*aPosition;" +
+            "}";
+
+    /**
+     * OpenGL ES code: transformation of the vertex position by the MVP matrix for vertex shaders assembled by vertexShaderCode().
+     */
+
+    public static String vertexShaderMVPCode =
+            "uniform mat4 uMVPMatrix;" +
+            "vec4 clipPosition() {" +
+            "  return uMVPMatrix * modelPosition();" +
+            "}";
+
+    /**
+     * OpenGL ES code: transformation of the vertex position for shapes with a motion evaluated on the graphics hardware (see class GLShaderMotionCV).
+     * The uniforms except uVPMatrix and uTime are set only once when the motion starts.
+     * The function motionWorldPosition() calculates the world coordinates of the vertex at time 'uTime'.
+     */
+
+    public static String vertexShaderMotionCode =
+            "uniform mat4 uVPMatrix;" +         // view projection matrix (instead of the MVP matrix)
+            "uniform mat4 uBaseMatrix;" +       // rotation matrix * scaling matrix of the shape at the start of the motion
+            "uniform float uTime;" +            // time since the start of the motion (ms), reduced by GLShaderMotionCV.getReducedTime()
+            "uniform vec4 uTiming;" +           // start delay, duration, repeat count (-1 = infinite), reverse (1 = yes)
+            "uniform vec4 uPathParams;" +       // path type (see GLShaderMotionCV.PATH_XXX), angle of a spiral path
+            "uniform vec3 uPathPoints[4];" +    // points defining the path (see GLShaderMotionCV.pathPoints)
+            "uniform vec4 uRotation;" +         // normalized rotation axis, rotation angle to traverse
+            "vec3 rotateVector(vec3 v, vec3 k, float angle) {" +
+            "  float a = radians(angle);" +
+            "  return v*cos(a)+cross(k,v)*sin(a)+k*dot(k,v)*(1.0-cos(a));" +
+            "}" +
+            "float motionFraction() {" +
+            "  if (uTiming.y<=0.0) return 1.0;" +
+            "  float p = max(uTime-uTiming.x,0.0)/uTiming.y;" +
+            "  float it = floor(p);" +
+            "  float f = p-it;" +
+            "  if (uTiming.z>=0.0&&it>uTiming.z) { it = uTiming.z; f = 1.0; }" +
+            "  if (uTiming.w>0.5&&mod(it,2.0)>0.5) f = 1.0-f;" +
+            "  return f;" +
+            "}" +
+            "vec3 motionPosition(float f) {" +
+            "  if (uPathParams.x<0.5) return uPathPoints[0];" +
+            "  if (uPathParams.x<1.5) return mix(uPathPoints[0],uPathPoints[3],f);" +
+            "  if (uPathParams.x<2.5) return rotateVector(uPathPoints[0]-uPathPoints[1],uPathPoints[2],f*uPathParams.y)+uPathPoints[1]+f*uPathPoints[3];" +
+            "  float g = 1.0-f;" +
+            "  return g*g*g*uPathPoints[0]+3.0*g*g*f*uPathPoints[1]+3.0*g*f*f*uPathPoints[2]+f*f*f*uPathPoints[3];" +
+            "}" +
+            "vec4 motionWorldPosition() {" +
+            "  float f = motionFraction();" +
+            "  vec3 local = (uBaseMatrix*modelPosition()).xyz;" +
+            "  return vec4(rotateVector(local,uRotation.xyz,f*uRotation.w)+motionPosition(f),1.0);" +
+            "}" +
+            "vec4 clipPosition() {" +
+            "  return uVPMatrix * motionWorldPosition();" +
+            "}";
+
+    /**
+     * OpenGL ES code: main function of vertex shaders for colored shapes assembled by vertexShaderCode().
+     */
+
+    public static String vertexShaderVaryingColorMain =
+            "attribute vec4 aColor;" +
+            "varying vec4 vColor;" +
+            "void main() {" +
+            "  vColor = aColor;" +
+            "  gl_Position = clipPosition();" +
+            "}";
+
+    /**
+     * OpenGL ES code: main function of vertex shaders for textured shapes assembled by vertexShaderCode().
+     */
+
+    public static String vertexShaderTexturedMain =
+            "attribute vec2 aTexCoord;" +
+            "varying vec2 vTexCoord;" +
+            "void main() {" +
+            "  gl_Position = clipPosition();" +
+            "  vTexCoord = aTexCoord;" +
+            "}";
+
+    /**
+     * Gets the vertex shader code for a shape.
+     * @param coloringType The coloring type of the shape (COLORING_UNIFORM, COLORING_VARYING, COLORING_TEXTURED).
+     * @param shaderMotion true if the shape has a motion evaluated on the graphics hardware (see class GLShaderMotionCV).
+     * @param vertexGroups true if the shape has vertex groups with local transformation matrices (see GLShapeCV.defineVertexGroup()).
+     * @return The code (null if the coloring type is not valid).
+     */
+
+    public static String vertexShaderCode(int coloringType, boolean shaderMotion, boolean vertexGroups) {
+        boolean textured;
+        switch (coloringType) {
+            case COLORING_UNIFORM:
+            case COLORING_VARYING:
+                if (!shaderMotion&&!vertexGroups) return vertexShaderVaryingColor;
+                textured = false;
+                break;
+            case COLORING_TEXTURED:
+                if (!shaderMotion&&!vertexGroups) return vertexShaderTextured;
+                textured = true;
+                break;
+            default:
+                return null;
+        }
+        return (vertexGroups ? vertexShaderVertexGroupsCode : vertexShaderPositionCode)
+                + (shaderMotion ? vertexShaderMotionCode : vertexShaderMVPCode)
+                + (textured ? vertexShaderTexturedMain : vertexShaderVaryingColorMain);
+    }
+
     /**
      * Auxiliary method to compile shader code
      */
 
     public static int loadShader(int type, String shaderCode) {
-        int shader = GLES20.glCreateShader(type);
-        GLES20.glShaderSource(shader, shaderCode);
-        GLES20.glCompileShader(shader);
+        GLBackendCV gl = backend;
+        int shader = gl.glCreateShader(type);
+        gl.glShaderSource(shader, shaderCode);
+        gl.glCompileShader(shader);
         /*
         // debug output
         final int[] compileStatus = new int[1];
-        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+        gl.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
         if (compileStatus[0]==0)
-            Log.v("GLDEMO",">>> Compile error: "+GLES20.glGetShaderInfoLog(shader));
+            Log.v("GLDEMO",">>> Compile error: "+gl.glGetShaderInfoLog(shader));
           else
             Log.v("GLDEMO",">>> Compilation sucessful");
         */
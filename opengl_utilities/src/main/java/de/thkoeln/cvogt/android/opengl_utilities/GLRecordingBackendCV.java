@@ -0,0 +1,555 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Backend that records the OpenGL calls of the library: It counts the calls by the names of the methods,
+ * counts the draw calls and the vertices drawn, the bytes uploaded into buffer objects and textures,
+ * the bytes read from vertex attribute arrays in client memory (which the driver copies anew for each draw call)
+ * and the bytes of uniform values, and it tracks the bound state (current program, bound array buffer and texture,
+ * enabled capabilities and vertex attribute arrays), the sizes of the buffer objects and the programs, shaders and textures
+ * that have been created and not deleted yet (e.g. to detect leaking OpenGL objects).
+ * <P>
+ * If a target backend is passed to the constructor, all calls are forwarded to this backend, e.g. to measure an app on a device:
+ * <I>GLPlatformCV.setBackend(new GLRecordingBackendCV(new GLES20BackendCV()))</I>.
+ * Without a target backend, the calls are only recorded: The backend hands out names for shaders, programs, buffers and textures,
+ * reports successful compilation and linking and assigns locations to the attributes and uniforms by their names.
+ * This allows to run the render path of the library without a GPU, e.g. in unit tests on a plain JVM.
+ * <P>
+ * Like the OpenGL functions, the methods of the backend may only be called by the render thread;
+ * the counters and the state should be read when no frame is being drawn.
+ * <I>reset()</I> sets the counters back to zero but keeps the state.
+ * @see GLBackendCV
+ */
+
+public class GLRecordingBackendCV implements GLBackendCV {
+
+    /** The maximum number of vertex attribute arrays that is tracked. */
+
+    public static final int MAX_VERTEX_ATTRIBS = 16;
+
+    private final GLBackendCV target;
+
+    // counters
+
+    private final HashMap<String,long[]> callCounts = new HashMap<>();
+
+    private long drawCalls, verticesDrawn, bufferBytesUploaded, textureBytesUploaded, clientArrayBytes, uniformBytes;
+
+    // state
+
+    private int nextName = 1;
+
+    private int currentProgram, boundArrayBuffer, boundTexture;
+
+    private int[] enabledCaps = new int[4];
+
+    private int numberOfEnabledCaps;
+
+    private final boolean[] attribEnabled = new boolean[MAX_VERTEX_ATTRIBS];
+
+    /** Bytes per vertex of the attribute arrays in client memory (0 for arrays in buffer objects). */
+
+    private final int[] attribClientBytes = new int[MAX_VERTEX_ATTRIBS];
+
+    /** Sizes of the buffer objects (bytes) by their names. */
+
+    private final HashMap<Integer,Long> bufferSizes = new HashMap<>();
+
+    /** Names of the programs, shaders and textures that have been created and not deleted yet. */
+
+    private final HashSet<Integer> programs = new HashSet<>(), shaders = new HashSet<>(), textures = new HashSet<>();
+
+    /** Locations of the attributes and uniforms by name (only if there is no target backend). */
+
+    private final HashMap<String,Integer> attribLocations = new HashMap<>(), uniformLocations = new HashMap<>();
+
+    /**
+     * Constructor for a backend that only records the calls (without a GPU).
+     */
+
+    public GLRecordingBackendCV() {
+        this(null);
+    }
+
+    /**
+     * Constructor for a backend that records the calls and forwards them to another backend.
+     * @param target The backend to which the calls are forwarded (null = none).
+     */
+
+    public GLRecordingBackendCV(GLBackendCV target) {
+        this.target = target;
+    }
+
+    /**
+     * @return The backend to which the calls are forwarded (null if there is none).
+     */
+
+    public GLBackendCV getTarget() {
+        return target;
+    }
+
+    /**
+     * Sets all counters back to zero. The state (bound objects, enabled arrays, sizes of the buffer objects) is kept.
+     */
+
+    public void reset() {
+        callCounts.clear();
+        drawCalls = verticesDrawn = bufferBytesUploaded = textureBytesUploaded = clientArrayBytes = uniformBytes = 0;
+    }
+
+    /**
+     * @param name The name of a method of this interface, e.g. "glDrawArrays".
+     * @return The number of calls of this method since the last reset.
+     */
+
+    public long getCallCount(String name) {
+        long[] count = callCounts.get(name);
+        return count==null ? 0 : count[0];
+    }
+
+    /**
+     * @return The numbers of calls since the last reset by the names of the methods (sorted by name).
+     */
+
+    public Map<String,Long> getCallCounts() {
+        TreeMap<String,Long> result = new TreeMap<>();
+        for (Map.Entry<String,long[]> entry : callCounts.entrySet())
+            result.put(entry.getKey(),entry.getValue()[0]);
+        return result;
+    }
+
+    /**
+     * @return The total number of calls since the last reset.
+     */
+
+    public long getTotalCalls() {
+        long total = 0;
+        for (long[] count : callCounts.values())
+            total += count[0];
+        return total;
+    }
+
+    /** @return The number of calls of glDrawArrays() since the last reset. */
+
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    /** @return The number of vertices passed to glDrawArrays() since the last reset. */
+
+    public long getVerticesDrawn() {
+        return verticesDrawn;
+    }
+
+    /** @return The number of bytes passed to glBufferData() and glBufferSubData() since the last reset. */
+
+    public long getBufferBytesUploaded() {
+        return bufferBytesUploaded;
+    }
+
+    /** @return The number of bytes of the bitmaps passed to texImage2D() since the last reset. */
+
+    public long getTextureBytesUploaded() {
+        return textureBytesUploaded;
+    }
+
+    /** @return The number of bytes read from vertex attribute arrays in client memory by glDrawArrays() since the last reset. */
+
+    public long getClientArrayBytes() {
+        return clientArrayBytes;
+    }
+
+    /** @return The number of bytes passed to glUniform*() since the last reset. */
+
+    public long getUniformBytes() {
+        return uniformBytes;
+    }
+
+    /** @return The number of buffer objects with storage. */
+
+    public int getNumberOfBuffers() {
+        return bufferSizes.size();
+    }
+
+    /** @return The total size of the storage of all buffer objects (bytes). */
+
+    public long getBufferMemory() {
+        long total = 0;
+        for (long size : bufferSizes.values())
+            total += size;
+        return total;
+    }
+
+    /** @return The number of programs that have been created and not deleted yet. */
+
+    public int getNumberOfPrograms() {
+        return programs.size();
+    }
+
+    /** @return The number of shaders that have been created and not deleted yet. */
+
+    public int getNumberOfShaders() {
+        return shaders.size();
+    }
+
+    /** @return The number of textures that have been generated and not deleted yet. */
+
+    public int getNumberOfTextures() {
+        return textures.size();
+    }
+
+    /** @return The program set by the last call of glUseProgram(). */
+
+    public int getCurrentProgram() {
+        return currentProgram;
+    }
+
+    /** @return The buffer object bound to GL_ARRAY_BUFFER. */
+
+    public int getBoundArrayBuffer() {
+        return boundArrayBuffer;
+    }
+
+    /** @return The texture bound to GL_TEXTURE_2D. */
+
+    public int getBoundTexture() {
+        return boundTexture;
+    }
+
+    /**
+     * @param cap A capability, e.g. GLES20.GL_DEPTH_TEST.
+     * @return true if the capability has been enabled by glEnable().
+     */
+
+    public boolean isEnabled(int cap) {
+        for (int i=0; i<numberOfEnabledCaps; i++)
+            if (enabledCaps[i]==cap) return true;
+        return false;
+    }
+
+    /**
+     * @param index The index of a vertex attribute array.
+     * @return true if the array is enabled.
+     */
+
+    public boolean isVertexAttribArrayEnabled(int index) {
+        return index>=0&&index<MAX_VERTEX_ATTRIBS&&attribEnabled[index];
+    }
+
+    private void count(String name) {
+        long[] count = callCounts.get(name);
+        if (count==null)
+            callCounts.put(name,count=new long[1]);
+        count[0]++;
+    }
+
+    private int newName() {
+        return nextName++;
+    }
+
+    private static int location(HashMap<String,Integer> locations, String name) {
+        Integer location = locations.get(name);
+        if (location==null)
+            locations.put(name,location=locations.size());
+        return location;
+    }
+
+    private static int bytesPerValue(int type) {
+        switch (type) {
+            case GLES20.GL_UNSIGNED_BYTE: return 1;
+            case GLES20.GL_UNSIGNED_SHORT: return 2;
+            default: return 4;
+        }
+    }
+
+    public void glAttachShader(int program, int shader) {
+        count("glAttachShader");
+        if (target!=null) target.glAttachShader(program, shader);
+    }
+
+    public void glBindBuffer(int target, int buffer) {
+        count("glBindBuffer");
+        if (target==GLES20.GL_ARRAY_BUFFER)
+            boundArrayBuffer = buffer;
+        if (this.target!=null) this.target.glBindBuffer(target, buffer);
+    }
+
+    public void glBindTexture(int target, int texture) {
+        count("glBindTexture");
+        if (target==GLES20.GL_TEXTURE_2D)
+            boundTexture = texture;
+        if (this.target!=null) this.target.glBindTexture(target, texture);
+    }
+
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        count("glBufferData");
+        bufferBytesUploaded += size;
+        if (target==GLES20.GL_ARRAY_BUFFER&&boundArrayBuffer!=0)
+            bufferSizes.put(boundArrayBuffer,(long)size);
+        if (this.target!=null) this.target.glBufferData(target, size, data, usage);
+    }
+
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        count("glBufferSubData");
+        bufferBytesUploaded += size;
+        if (this.target!=null) this.target.glBufferSubData(target, offset, size, data);
+    }
+
+    public void glClear(int mask) {
+        count("glClear");
+        if (target!=null) target.glClear(mask);
+    }
+
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        count("glClearColor");
+        if (target!=null) target.glClearColor(red, green, blue, alpha);
+    }
+
+    public void glCompileShader(int shader) {
+        count("glCompileShader");
+        if (target!=null) target.glCompileShader(shader);
+    }
+
+    public int glCreateProgram() {
+        count("glCreateProgram");
+        int program = target!=null ? target.glCreateProgram() : newName();
+        programs.add(program);
+        return program;
+    }
+
+    public int glCreateShader(int type) {
+        count("glCreateShader");
+        int shader = target!=null ? target.glCreateShader(type) : newName();
+        shaders.add(shader);
+        return shader;
+    }
+
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        count("glDeleteBuffers");
+        for (int i=0; i<n; i++) {
+            bufferSizes.remove(buffers[offset+i]);
+            if (boundArrayBuffer==buffers[offset+i])
+                boundArrayBuffer = 0;
+        }
+        if (target!=null) target.glDeleteBuffers(n, buffers, offset);
+    }
+
+    public void glDeleteProgram(int program) {
+        count("glDeleteProgram");
+        programs.remove(program);
+        if (target!=null) target.glDeleteProgram(program);
+    }
+
+    public void glDeleteShader(int shader) {
+        count("glDeleteShader");
+        shaders.remove(shader);
+        if (target!=null) target.glDeleteShader(shader);
+    }
+
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        count("glDeleteTextures");
+        for (int i=0; i<n; i++) {
+            this.textures.remove(textures[offset+i]);
+            if (boundTexture==textures[offset+i])
+                boundTexture = 0;
+        }
+        if (target!=null) target.glDeleteTextures(n, textures, offset);
+    }
+
+    public void glDepthFunc(int func) {
+        count("glDepthFunc");
+        if (target!=null) target.glDepthFunc(func);
+    }
+
+    public void glDepthMask(boolean flag) {
+        count("glDepthMask");
+        if (target!=null) target.glDepthMask(flag);
+    }
+
+    public void glDisableVertexAttribArray(int index) {
+        count("glDisableVertexAttribArray");
+        if (index>=0&&index<MAX_VERTEX_ATTRIBS)
+            attribEnabled[index] = false;
+        if (target!=null) target.glDisableVertexAttribArray(index);
+    }
+
+    public void glDrawArrays(int mode, int first, int count) {
+        count("glDrawArrays");
+        drawCalls++;
+        verticesDrawn += count;
+        for (int i=0; i<MAX_VERTEX_ATTRIBS; i++)
+            if (attribEnabled[i])
+                clientArrayBytes += (long)count*attribClientBytes[i];
+        if (target!=null) target.glDrawArrays(mode, first, count);
+    }
+
+    public void glEnable(int cap) {
+        count("glEnable");
+        if (!isEnabled(cap)) {
+            if (numberOfEnabledCaps==enabledCaps.length) {
+                int[] newCaps = new int[2*enabledCaps.length];
+                System.arraycopy(enabledCaps,0,newCaps,0,numberOfEnabledCaps);
+                enabledCaps = newCaps;
+            }
+            enabledCaps[numberOfEnabledCaps++] = cap;
+        }
+        if (target!=null) target.glEnable(cap);
+    }
+
+    public void glEnableVertexAttribArray(int index) {
+        count("glEnableVertexAttribArray");
+        if (index>=0&&index<MAX_VERTEX_ATTRIBS)
+            attribEnabled[index] = true;
+        if (target!=null) target.glEnableVertexAttribArray(index);
+    }
+
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        count("glGenBuffers");
+        if (target!=null)
+            target.glGenBuffers(n, buffers, offset);
+        else
+            for (int i=0; i<n; i++)
+                buffers[offset+i] = newName();
+    }
+
+    public void glGenTextures(int n, int[] textures, int offset) {
+        count("glGenTextures");
+        if (target!=null)
+            target.glGenTextures(n, textures, offset);
+        else
+            for (int i=0; i<n; i++)
+                textures[offset+i] = newName();
+        for (int i=0; i<n; i++)
+            this.textures.add(textures[offset+i]);
+    }
+
+    public int glGetAttribLocation(int program, String name) {
+        count("glGetAttribLocation");
+        return target!=null ? target.glGetAttribLocation(program, name) : location(attribLocations,name);
+    }
+
+    public String glGetProgramInfoLog(int program) {
+        count("glGetProgramInfoLog");
+        return target!=null ? target.glGetProgramInfoLog(program) : "";
+    }
+
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        count("glGetProgramiv");
+        if (target!=null)
+            target.glGetProgramiv(program, pname, params, offset);
+        else
+            params[offset] = pname==GLES20.GL_LINK_STATUS ? GLES20.GL_TRUE : 0;
+    }
+
+    public String glGetShaderInfoLog(int shader) {
+        count("glGetShaderInfoLog");
+        return target!=null ? target.glGetShaderInfoLog(shader) : "";
+    }
+
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        count("glGetShaderiv");
+        if (target!=null)
+            target.glGetShaderiv(shader, pname, params, offset);
+        else
+            params[offset] = pname==GLES20.GL_COMPILE_STATUS ? GLES20.GL_TRUE : 0;
+    }
+
+    public int glGetUniformLocation(int program, String name) {
+        count("glGetUniformLocation");
+        return target!=null ? target.glGetUniformLocation(program, name) : location(uniformLocations,name);
+    }
+
+    public void glLineWidth(float width) {
+        count("glLineWidth");
+        if (target!=null) target.glLineWidth(width);
+    }
+
+    public void glLinkProgram(int program) {
+        count("glLinkProgram");
+        if (target!=null) target.glLinkProgram(program);
+    }
+
+    public void glShaderSource(int shader, String string) {
+        count("glShaderSource");
+        if (target!=null) target.glShaderSource(shader, string);
+    }
+
+    public void glTexParameteri(int target, int pname, int param) {
+        count("glTexParameteri");
+        if (this.target!=null) this.target.glTexParameteri(target, pname, param);
+    }
+
+    public void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        count("texImage2D");
+        if (bitmap!=null)
+            textureBytesUploaded += (long)bitmap.getRowBytes()*bitmap.getHeight();
+        if (this.target!=null) this.target.texImage2D(target, level, bitmap, border);
+    }
+
+    public void glUniform1f(int location, float x) {
+        count("glUniform1f");
+        uniformBytes += 4;
+        if (target!=null) target.glUniform1f(location, x);
+    }
+
+    public void glUniform3fv(int location, int count, float[] v, int offset) {
+        count("glUniform3fv");
+        uniformBytes += 12L*count;
+        if (target!=null) target.glUniform3fv(location, count, v, offset);
+    }
+
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        count("glUniform4fv");
+        uniformBytes += 16L*count;
+        if (target!=null) target.glUniform4fv(location, count, v, offset);
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        count("glUniformMatrix4fv");
+        uniformBytes += 64L*count;
+        if (target!=null) target.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    public void glUseProgram(int program) {
+        count("glUseProgram");
+        currentProgram = program;
+        if (target!=null) target.glUseProgram(program);
+    }
+
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        count("glVertexAttribPointer");
+        if (indx>=0&&indx<MAX_VERTEX_ATTRIBS)
+            attribClientBytes[indx] = stride>0 ? stride : size*bytesPerValue(type);
+        if (target!=null) target.glVertexAttribPointer(indx, size, type, normalized, stride, ptr);
+    }
+
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset) {
+        count("glVertexAttribPointer");
+        if (indx>=0&&indx<MAX_VERTEX_ATTRIBS)
+            attribClientBytes[indx] = 0;
+        if (target!=null) target.glVertexAttribPointer(indx, size, type, normalized, stride, offset);
+    }
+
+    public void glViewport(int x, int y, int width, int height) {
+        count("glViewport");
+        if (target!=null) target.glViewport(x, y, width, height);
+    }
+
+}
@@ -12,8 +12,14 @@ package de.thkoeln.cvogt.android.opengl_utilities;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 import android.opengl.Matrix;
+import android.util.Log;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -98,6 +104,40 @@ public class GLRendererCV implements GLSurfaceView.Renderer {
 
     private final float[] viewProjectionMatrix = new float[16];
 
+    /**
+     * The scheduler that advances the animations of the shapes (objects of class GLAnimationCV) at the start of each frame.
+     */
+
+    private final GLAnimationSchedulerCV animationScheduler = new GLAnimationSchedulerCV();
+
+    /**
+     * The size of the viewport as set by onSurfaceChanged().
+     */
+
+    private int viewportWidth, viewportHeight;
+
+    /**
+     * The stream to which the next frame drawn shall be written by a GLFrameCaptureCV object (null if no capture is pending).
+     */
+
+    private OutputStream captureStream;
+
+    /**
+     * Specifies whether the renderer has drawn its first frame.
+     */
+
+    private boolean firstFrameDrawn;
+
+    {
+        // shapes are regarded as visible if their bounding spheres intersect the view frustum
+        animationScheduler.setVisibilityTest(new GLAnimationSchedulerCV.VisibilityTest() {
+            @Override
+            public boolean isVisible(GLShapeCV shape) {
+                return shape.isInView(viewProjectionMatrix);
+            }
+        });
+    }
+
     /**
      * @param surfaceView The surface view to which this renderer shall be attached.
      */
@@ -106,6 +146,14 @@ public class GLRendererCV implements GLSurfaceView.Renderer {
         this.surfaceView = surfaceView;
     }
 
+    /**
+     * Get the animation scheduler of the renderer.
+     */
+
+    public GLAnimationSchedulerCV getAnimationScheduler() {
+        return animationScheduler;
+    }
+
     /**
      * Get a copy of the current view projection matrix.
      */
@@ -131,29 +179,136 @@ public class GLRendererCV implements GLSurfaceView.Renderer {
 
     /**
      * Method called by the runtime system when the surface view shall been drawn, i.e. its shapes shall be rendered.
+     * Before the shapes are drawn, the animations of the shapes are advanced by the animation scheduler.
      */
 
     @Override
     synchronized public void onDrawFrame(GL10 gl10) {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT|GLES20.GL_DEPTH_BUFFER_BIT);  // clear the buffers before drawing the shapes
-        GLES20.glClearColor(0.0f, 0.0f, 0.0f, 0.0f); // set background color: black
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);  // such that fragments in the front ...
-        GLES20.glDepthFunc(GLES20.GL_LESS);     // ... hide fragments in the back
-        GLES20.glDepthMask( true );
-        // draw the shapes based on the current view projection matrix
-        ArrayList<GLShapeCV> shapesToRender = surfaceView.getShapesToRender();
-        // start = (new Date()).getTime();
-        // long start = System.nanoTime();
-        for (GLShapeCV shape : shapesToRender) {
-            if (!shape.isCompiled()) {
-                shape.initOpenGLProgram();
-                shape.prepareTextures();
+        // advance the animations of the shapes to the current frame time
+        animationScheduler.advance();
+        drawShapes(surfaceView.getShapesToRender());
+    }
+
+    /**
+     * Draws a list of shapes with the current view projection matrix at the current frame time of the animation scheduler.
+     * Compiles the OpenGL programs of shapes that have not been compiled yet.
+     * <BR>
+     * Called by onDrawFrame() after the animations have been advanced.
+     * Can also be called directly to render shapes without a surface view, e.g. to measure the rendering of a scene headlessly
+     * (in this case, onSurfaceChanged() must have been called before to set the projection matrix).
+     * @param shapesToRender The shapes to be drawn.
+     */
+
+    synchronized public void drawShapes(List<GLShapeCV> shapesToRender) {
+        if (captureStream!=null) {
+            captureFrame(shapesToRender);
+            return;
+        }
+        // the first frame is traced as a span of the startup (see GLTraceCV)
+        boolean firstFrame = !firstFrameDrawn;
+        if (firstFrame)
+            GLTraceCV.begin("GLRendererCV.firstFrame");
+        try {
+            GLBackendCV gl = GLPlatformCV.getBackend();
+            gl.glClear(GLES20.GL_COLOR_BUFFER_BIT|GLES20.GL_DEPTH_BUFFER_BIT);  // clear the buffers before drawing the shapes
+            gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f); // set background color: black
+            gl.glEnable(GLES20.GL_DEPTH_TEST);  // such that fragments in the front ...
+            gl.glDepthFunc(GLES20.GL_LESS);     // ... hide fragments in the back
+            gl.glDepthMask( true );
+            // draw the shapes based on the current view projection matrix
+            // start = (new Date()).getTime();
+            // long start = System.nanoTime();
+            for (GLShapeCV shape : shapesToRender) {
+                if (!shape.isCompiled()) {
+                    shape.initOpenGLProgram();
+                    shape.prepareTextures();
+                }
+                shape.draw(viewProjectionMatrix,animationScheduler.getFrameTimeNanos());
+            }
+            // duration = (new Date()).getTime() - start;
+            // long duration = System.nanoTime() - start;
+            // Log.v("GLDEMO",">>> Draw "+duration+" ns");
+        } finally {
+            if (firstFrame) {
+                firstFrameDrawn = true;
+                GLTraceCV.end();
+            }
+        }
+    }
+
+    /**
+     * Requests to capture the OpenGL calls of the next frame drawn into a stream (in the format of class <I>GLFrameCaptureCV</I>).
+     * The captured frame can be re-executed without the app by class <I>GLFrameReplayCV</I>, e.g. to analyze the calls of a frame on a desktop JVM
+     * or to measure their execution times on different devices.
+     * <BR>
+     * To make the captured frame self-contained, the creation of the existing OpenGL programs, buffer objects and textures of all shapes
+     * is recorded at the start of the frame (with the current contents of the buffers and textures), but the objects are not created anew.
+     * The uniforms that are usually passed only once are passed again in the captured frame.
+     * @param out The stream to which the captured frame shall be written. The stream is closed after the frame has been written.
+     */
+
+    synchronized public void captureNextFrame(OutputStream out) {
+        captureStream = out;
+    }
+
+    /**
+     * Requests to capture the OpenGL calls of the next frame drawn into a file.
+     * @param file The file to which the captured frame shall be written.
+     * @return false if the file cannot be opened for writing, true otherwise.
+     * @see #captureNextFrame(OutputStream)
+     */
+
+    synchronized public boolean captureNextFrame(File file) {
+        try {
+            captureNextFrame(new FileOutputStream(file));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if a capture has been requested by captureNextFrame() that has not been executed yet.
+     */
+
+    synchronized public boolean isCapturePending() {
+        return captureStream!=null;
+    }
+
+    /**
+     * Auxiliary method to draw a frame with a capture backend that forwards the calls to the current backend.
+     */
+
+    synchronized private void captureFrame(List<GLShapeCV> shapesToRender) {
+        OutputStream out = captureStream;
+        captureStream = null;
+        try {
+            GLBackendCV backend = GLPlatformCV.getBackend();
+            GLFrameCaptureCV capture = new GLFrameCaptureCV(backend);
+            GLPlatformCV.setBackend(capture);
+            try {
+                capture.glViewport(0, 0, viewportWidth, viewportHeight);
+                for (GLShapeCV shape : shapesToRender)
+                    shape.recordOpenGLObjects(capture);
+                drawShapes(shapesToRender);
+            } finally {
+                GLPlatformCV.setBackend(backend);
+            }
+            byte[] frame = capture.finish();
+            if (frame!=null) {
+                out.write(frame);
+                Log.v("GLDEMO","Frame captured: "+capture.getNumberOfCalls()+" calls, "+frame.length+" bytes");
+            } else
+                Log.v("GLDEMO","Frame capture failed");
+        } catch (IOException e) {
+            Log.v("GLDEMO","Frame capture failed: "+e.getMessage());
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.v("GLDEMO","Frame capture failed: "+e.getMessage());
             }
-            shape.draw(viewProjectionMatrix);
         }
-        // duration = (new Date()).getTime() - start;
-        // long duration = System.nanoTime() - start;
-        // Log.v("GLDEMO",">>> Draw "+duration+" ns");
     }
 
     /**
@@ -189,7 +344,9 @@ public class GLRendererCV implements GLSurfaceView.Renderer {
 
     @Override
     public void onSurfaceChanged(GL10 gl10, int width, int height) {
-        GLES20.glViewport(0, 0, width, height);
+        GLPlatformCV.getBackend().glViewport(0, 0, width, height);
+        viewportWidth = width;
+        viewportHeight = height;
         float ratio = (float) width / height;
         Matrix.frustumM(projectionMatrix, 0, -ratio, +ratio, -1, 1, frustumNear, frustumFar);
         updateViewProjectionMatrix();
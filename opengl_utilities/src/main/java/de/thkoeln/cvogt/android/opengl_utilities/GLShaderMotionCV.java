@@ -0,0 +1,499 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+/**
+ * Class to define motions of shapes that are evaluated by the vertex shader, i.e. on the graphics hardware.
+ * <P>
+ * A motion is a closed-form function of time: a path (direct line, spiral or arc around an axis, cubic Bezier curve)
+ * combined with a rotation around an axis in world space.
+ * Its parameters are passed to the OpenGL program of the shape only once;
+ * afterwards, the renderer passes only the current time to the program in each frame
+ * and the vertex shader calculates the transformation of the vertices (see GLPlatformCV.vertexShaderMotionCode).
+ * By this, shapes with such a motion do not require any calculations on the CPU per frame.
+ * <P>
+ * The timing follows the semantics of the animators and animations of this package (duration, start delay, repeat count, reverse mode)
+ * with a linear time interpolation.
+ * The motion starts when the shape is drawn for the first time after the motion has been set.
+ * At this time, the translation, rotation, and scaling of the shape are taken as the start pose of the motion.
+ * <P>
+ * The methods <I>getFraction()</I>, <I>getPosition()</I>, <I>getRotationAngle()</I>, and <I>getModelMatrix()</I>
+ * are a CPU reference implementation of the calculations in the vertex shader,
+ * e.g. for picking (see GLShapeCV.getCurrentModelMatrix()) and for tests.
+ * <P>
+ * Motions are typically made by the <I>setShaderMotionXxx()</I> methods of class <I>GLAnimatorFactoryCV</I>.
+ * <BR>
+ * @see GLShapeCV#setShaderMotion(GLShaderMotionCV)
+ * @see GLAnimatorFactoryCV
+ */
+
+public class GLShaderMotionCV {
+
+    /** Path type: no path, i.e. the shape stays at its start position. */
+
+    public static final int PATH_NONE = 0;
+
+    /** Path type: direct line from the start position to a target position. */
+
+    public static final int PATH_LINEAR = 1;
+
+    /** Path type: spiral around an axis (an arc if the height of the spiral is zero). */
+
+    public static final int PATH_SPIRAL = 2;
+
+    /** Path type: cubic Bezier curve from the start position to a target position (quadratic curves are converted to cubic ones). */
+
+    public static final int PATH_BEZIER = 3;
+
+    /** The type of the path (PATH_NONE, PATH_LINEAR, PATH_SPIRAL, PATH_BEZIER). */
+
+    private final int pathType;
+
+    /**
+     * The points defining the path, i.e. four points with three coordinates each (the uniform 'uPathPoints' of the vertex shader).
+     * Point 0 is always the start position (set when the motion starts).
+     * PATH_LINEAR: point 3 = target position.
+     * PATH_SPIRAL: point 1 = first axis point, point 2 = normalized axis vector, point 3 = axis vector with the length of the spiral height.
+     * PATH_BEZIER: points 1 and 2 = control points, point 3 = target position.
+     */
+
+    private final float[] pathPoints = new float[12];
+
+    /** The angle to traverse on a spiral path (degrees). */
+
+    private float pathAngle;
+
+    /** Specifies whether a quadratic Bezier curve with control point 1 shall be converted to a cubic curve when the start position is known. */
+
+    private boolean quadraticBezier;
+
+    /** The normalized axis (positions 0-2) and the angle to traverse (position 3, degrees) of the rotation. */
+
+    private final float[] rotation = new float[4];
+
+    /** The duration of one iteration of the motion (ms). */
+
+    private int duration;
+
+    /** The start delay of the motion (ms). */
+
+    private int startDelay;
+
+    /** The number of times the motion shall be repeated (GLAnimationCV.INFINITE = endless). */
+
+    private int repeatCount;
+
+    /** Specifies whether every second iteration shall run backwards. */
+
+    private boolean reverse;
+
+    /**
+     * The product of the rotation matrix and the scaling matrix of the shape when the motion starts
+     * (the uniform 'uBaseMatrix' of the vertex shader).
+     */
+
+    private final float[] baseMatrix = new float[16];
+
+    /** Specifies whether the motion has been started, i.e. whether the start pose has been set. */
+
+    private boolean started;
+
+    /**
+     * The frame time (ns) at which the motion has been started by the shape, i.e. at which the shape has been drawn first with this motion
+     * (-1 = not yet started by a shape), and the rotation matrix of the shape at this time.
+     * Kept here (under the monitor of the motion) such that the render thread can start the motion without the monitor of the shape.
+     */
+
+    private long startTimeNanos = -1;
+
+    private final float[] startRotationMatrix = new float[16];
+
+    /** Scratch array for the columns of the matrices calculated by getModelMatrix() and getRotationMatrix() (to avoid allocations). */
+
+    private final float[] columnScratch = new float[3];
+
+    /**
+     * Makes a motion with a given path type. The path parameters are set by the methods setXxxPath().
+     * @param pathType The type of the path.
+     * @param duration The duration of one iteration of the motion (ms).
+     */
+
+    GLShaderMotionCV(int pathType, int duration) {
+        this.pathType = pathType;
+        this.duration = Math.max(duration,0);
+    }
+
+    /**
+     * Sets the target of a linear path.
+     */
+
+    void setLinearPath(float[] target) {
+        System.arraycopy(target,0,pathPoints,9,3);
+    }
+
+    /**
+     * Sets the parameters of a spiral path. For details see GLAnimatorFactoryCV.addAnimatorSpiralPath().
+     */
+
+    void setSpiralPath(float[] axisPoint1, float[] axisPoint2, float turns, float height) {
+        System.arraycopy(axisPoint1,0,pathPoints,3,3);
+        float dist = GraphicsUtilsCV.distance(axisPoint1,axisPoint2);
+        if (dist!=0)
+            for (int i=0; i<3; i++) {
+                pathPoints[6+i] = (axisPoint2[i]-axisPoint1[i])/dist;
+                pathPoints[9+i] = (axisPoint2[i]-axisPoint1[i])*height/dist;
+            }
+        pathAngle = turns*360;
+    }
+
+    /**
+     * Sets the parameters of a Bezier path.
+     * @param control1 The (first) control point.
+     * @param control2 The second control point (null for a quadratic curve).
+     * @param target The target position.
+     */
+
+    void setBezierPath(float[] control1, float[] control2, float[] target) {
+        System.arraycopy(control1,0,pathPoints,3,3);
+        if (control2!=null)
+            System.arraycopy(control2,0,pathPoints,6,3);
+        quadraticBezier = control2==null;
+        System.arraycopy(target,0,pathPoints,9,3);
+    }
+
+    /**
+     * Sets the rotation to be combined with the path.
+     * @param angleToTraverse The rotation angle to traverse (degrees).
+     * @param axis The rotation axis in world space.
+     * @return The motion itself, such that calls of methods of this kind can be daisy chained (or null if the axis is not valid).
+     */
+
+    public synchronized GLShaderMotionCV setRotation(float angleToTraverse, float[] axis) {
+        if (axis==null||axis.length!=3) return null;
+        float length = (float) Math.sqrt(axis[0]*axis[0]+axis[1]*axis[1]+axis[2]*axis[2]);
+        if (length==0) return null;
+        for (int i=0; i<3; i++)
+            rotation[i] = axis[i]/length;
+        rotation[3] = angleToTraverse;
+        return this;
+    }
+
+    public synchronized GLShaderMotionCV setStartDelay(int startDelay) {
+        this.startDelay = Math.max(startDelay,0);
+        return this;
+    }
+
+    public synchronized int getStartDelay() {
+        return startDelay;
+    }
+
+    public synchronized GLShaderMotionCV setRepeatCount(int repeatCount) {
+        this.repeatCount = repeatCount<0 ? GLAnimationCV.INFINITE : repeatCount;
+        return this;
+    }
+
+    public synchronized int getRepeatCount() {
+        return repeatCount;
+    }
+
+    public synchronized GLShaderMotionCV setReverse(boolean reverse) {
+        this.reverse = reverse;
+        return this;
+    }
+
+    public synchronized boolean isReverse() {
+        return reverse;
+    }
+
+    public synchronized int getDuration() {
+        return duration;
+    }
+
+    public int getPathType() {
+        return pathType;
+    }
+
+    /**
+     * Sets the start pose of the motion. Called by the shape when it is drawn for the first time with this motion.
+     * @param trans The translation of the shape (length 3).
+     * @param rotationMatrix The rotation matrix of the shape (length 16).
+     * @param scale The scaling factors of the shape (length 3).
+     */
+
+    synchronized void start(float[] trans, float[] rotationMatrix, float[] scale) {
+        System.arraycopy(trans,0,pathPoints,0,3);
+        if (pathType==PATH_BEZIER&&quadraticBezier) {
+            // elevate the quadratic curve (start, control, target) to a cubic curve
+            for (int i=0; i<3; i++) {
+                float control = pathPoints[3+i];
+                pathPoints[3+i] = trans[i]+2f/3f*(control-trans[i]);
+                pathPoints[6+i] = pathPoints[9+i]+2f/3f*(control-pathPoints[9+i]);
+            }
+            quadraticBezier = false;
+        }
+        for (int col=0; col<3; col++)
+            for (int row=0; row<3; row++)
+                baseMatrix[4*col+row] = rotationMatrix[4*col+row]*scale[col];
+        for (int i=0; i<3; i++)
+            baseMatrix[12+i] = baseMatrix[4*i+3] = 0;
+        baseMatrix[15] = 1;
+        started = true;
+    }
+
+    /**
+     * Starts the motion at a frame time, i.e. sets the start pose (see start(float[],float[],float[])) and keeps the start time and the rotation matrix.
+     * Called by the shape when it is drawn for the first time with this motion.
+     * @param trans The translation of the shape (length 3).
+     * @param rotationMatrix The rotation matrix of the shape (length 16).
+     * @param scale The scaling factors of the shape (length 3).
+     * @param startTimeNanos The frame time (ns).
+     * @return false if the motion has already been started by a shape (then nothing is changed), true otherwise.
+     */
+
+    synchronized boolean start(float[] trans, float[] rotationMatrix, float[] scale, long startTimeNanos) {
+        if (this.startTimeNanos>=0) return false;
+        start(trans,rotationMatrix,scale);
+        System.arraycopy(rotationMatrix,0,startRotationMatrix,0,16);
+        this.startTimeNanos = startTimeNanos;
+        return true;
+    }
+
+    /**
+     * Resets the motion such that it is started again when the shape is drawn next (called when the motion is set for a shape).
+     */
+
+    synchronized void reset() {
+        started = false;
+        startTimeNanos = -1;
+    }
+
+    synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @return The frame time (ns) at which the motion has been started by a shape (-1 if it has not been started yet).
+     */
+
+    synchronized long getStartTime() {
+        return startTimeNanos;
+    }
+
+    /**
+     * Calculates the reduced time since the start of the motion (see getReducedTime()) for a frame time.
+     * @param frameTimeNanos The frame time (ns).
+     * @return The reduced time (ms); 0 if the motion has not been started by a shape yet.
+     */
+
+    synchronized float getReducedTimeAtFrame(long frameTimeNanos) {
+        if (startTimeNanos<0) return 0;
+        return getReducedTime(frameTimeNanos-startTimeNanos);
+    }
+
+    /**
+     * Copies the uniform values for the vertex shader into the parameter arrays.
+     * @param base Array of length 16 for 'uBaseMatrix'.
+     * @param timing Array of length 4 for 'uTiming' (start delay, duration, repeat count, reverse).
+     * @param pathParams Array of length 4 for 'uPathParams' (path type, spiral angle).
+     * @param points Array of length 12 for 'uPathPoints'.
+     * @param rot Array of length 4 for 'uRotation'.
+     */
+
+    synchronized void getUniforms(float[] base, float[] timing, float[] pathParams, float[] points, float[] rot) {
+        System.arraycopy(baseMatrix,0,base,0,16);
+        timing[0] = startDelay;
+        timing[1] = duration;
+        timing[2] = repeatCount;
+        timing[3] = reverse ? 1 : 0;
+        pathParams[0] = pathType;
+        pathParams[1] = pathAngle;
+        pathParams[2] = pathParams[3] = 0;
+        System.arraycopy(pathPoints,0,points,0,12);
+        System.arraycopy(rotation,0,rot,0,4);
+    }
+
+    /**
+     * Calculates the fraction of the current iteration of the motion (CPU reference of 'motionFraction()' in the vertex shader).
+     * @param time The time since the start of the motion (ms).
+     * @return The fraction (between 0 and 1).
+     */
+
+    public synchronized float getFraction(float time) {
+        float playTime = Math.max(time-startDelay,0);
+        if (duration<=0) return 1;
+        playTime /= duration;
+        float iteration = (float) Math.floor(playTime);
+        float fraction = playTime-iteration;
+        if (repeatCount>=0&&iteration>repeatCount) {
+            iteration = repeatCount;
+            fraction = 1;
+        }
+        if (reverse&&iteration%2>0.5f)
+            fraction = 1-fraction;
+        return fraction;
+    }
+
+    /**
+     * Calculates the time to be passed to the vertex shader ('uTime') and to getFraction() for a given time since the start of the motion.
+     * The time is reduced modulo the period of the motion (one iteration or, in reverse mode, two iterations)
+     * and bounded by the end of the motion if it is not repeated endlessly. This yields the same fraction but keeps the value small,
+     * such that its float representation does not lose precision after a long run time.
+     * @param nanos The time since the start of the motion (ns).
+     * @return The reduced time (ms).
+     */
+
+    public synchronized float getReducedTime(long nanos) {
+        double time = nanos/1e6;
+        if (duration<=0||time<=startDelay) return (float) Math.min(time,startDelay);
+        double playTime = time-startDelay;
+        if (repeatCount>=0&&playTime>=(repeatCount+1.0)*duration)
+            return (float) (startDelay+(repeatCount+1.0)*duration);
+        double period = reverse ? 2.0*duration : duration;
+        return (float) (startDelay+playTime%period);
+    }
+
+    /**
+     * Calculates the position of the shape for a given fraction (CPU reference of 'motionPosition()' in the vertex shader).
+     * The motion must have been started.
+     * @param fraction The fraction.
+     * @param result Array of length 3 to store the position.
+     */
+
+    public synchronized void getPosition(float fraction, float[] result) {
+        evaluatePath(pathType,pathPoints,0,pathAngle,fraction,result,0);
+    }
+
+    /**
+     * Calculates the position on a path for a given fraction.
+     * Used by the motions and by the bulk animations (class GLBulkAnimationsCV) that store the paths of many shapes in one array.
+     * @param pathType The type of the path (PATH_NONE, PATH_LINEAR, PATH_SPIRAL, PATH_BEZIER).
+     * @param points Array with the four points defining the path (see 'pathPoints').
+     * @param offset The position of the points in 'points'.
+     * @param pathAngle The angle to traverse on a spiral path (degrees).
+     * @param fraction The fraction.
+     * @param result Array to store the position.
+     * @param resultOffset The position in 'result' at which the position shall be stored.
+     */
+
+    static void evaluatePath(int pathType, float[] points, int offset, float pathAngle, float fraction, float[] result, int resultOffset) {
+        float f = fraction;
+        switch (pathType) {
+            case PATH_LINEAR:
+                for (int i=0; i<3; i++)
+                    result[resultOffset+i] = points[offset+i]+f*(points[offset+9+i]-points[offset+i]);
+                break;
+            case PATH_SPIRAL:
+                for (int i=0; i<3; i++)
+                    result[resultOffset+i] = points[offset+i]-points[offset+3+i];
+                rotateVector(result,resultOffset,points[offset+6],points[offset+7],points[offset+8],f*pathAngle);
+                for (int i=0; i<3; i++)
+                    result[resultOffset+i] += points[offset+3+i]+f*points[offset+9+i];
+                break;
+            case PATH_BEZIER:
+                float g = 1-f;
+                float b0 = g*g*g, b1 = 3*g*g*f, b2 = 3*g*f*f, b3 = f*f*f;
+                for (int i=0; i<3; i++)
+                    result[resultOffset+i] = b0*points[offset+i]+b1*points[offset+3+i]+b2*points[offset+6+i]+b3*points[offset+9+i];
+                break;
+            default:
+                for (int i=0; i<3; i++)
+                    result[resultOffset+i] = points[offset+i];
+        }
+    }
+
+    /**
+     * Calculates the rotation angle for a given fraction.
+     * @param fraction The fraction.
+     * @return The angle (degrees) by which the shape is rotated around the rotation axis, relative to its start orientation.
+     */
+
+    public synchronized float getRotationAngle(float fraction) {
+        return fraction*rotation[3];
+    }
+
+    /**
+     * Calculates the model matrix of the shape at a given time (CPU reference of 'motionWorldPosition()' in the vertex shader).
+     * The motion must have been started.
+     * @param time The time since the start of the motion (ms).
+     * @param result Array of length 16 to store the model matrix.
+     */
+
+    public synchronized void getModelMatrix(float time, float[] result) {
+        float f = getFraction(time);
+        float[] column = columnScratch;
+        for (int col=0; col<3; col++) {
+            for (int row=0; row<3; row++)
+                column[row] = baseMatrix[4*col+row];
+            rotateVector(column,0,rotation[0],rotation[1],rotation[2],getRotationAngle(f));
+            for (int row=0; row<3; row++)
+                result[4*col+row] = column[row];
+            result[4*col+3] = 0;
+        }
+        getPosition(f,column);
+        for (int i=0; i<3; i++)
+            result[12+i] = column[i];
+        result[15] = 1;
+    }
+
+    /**
+     * Calculates the rotation matrix of the shape at a given time, i.e. the product of the motion rotation and the start rotation.
+     * @param time The time since the start of the motion (ms).
+     * @param startRotationMatrix The rotation matrix of the shape when the motion started.
+     * @param result Array of length 16 to store the rotation matrix.
+     */
+
+    synchronized void getRotationMatrix(float time, float[] startRotationMatrix, float[] result) {
+        float angle = getRotationAngle(getFraction(time));
+        float[] column = columnScratch;
+        for (int col=0; col<3; col++) {
+            for (int row=0; row<3; row++)
+                column[row] = startRotationMatrix[4*col+row];
+            rotateVector(column,0,rotation[0],rotation[1],rotation[2],angle);
+            for (int row=0; row<3; row++)
+                result[4*col+row] = column[row];
+            result[4*col+3] = 0;
+        }
+        result[12] = result[13] = result[14] = 0;
+        result[15] = 1;
+    }
+
+    /**
+     * Calculates the rotation matrix of the shape at a given time from the rotation matrix of the shape when it has started the motion.
+     * @param time The time since the start of the motion (ms).
+     * @param result Array of length 16 to store the rotation matrix.
+     */
+
+    synchronized void getRotationMatrix(float time, float[] result) {
+        getRotationMatrix(time,startRotationMatrix,result);
+    }
+
+    /**
+     * Rotates a vector around a normalized axis (Rodrigues' rotation formula, right-hand rule as for Matrix.setRotateM()).
+     * @param v Array with the vector, will be overwritten by the result.
+     * @param offset The position of the vector in 'v'.
+     * @param kx The x coordinate of the axis.
+     * @param ky The y coordinate of the axis.
+     * @param kz The z coordinate of the axis.
+     * @param angle The rotation angle (degrees).
+     */
+
+    private static void rotateVector(float[] v, int offset, float kx, float ky, float kz, float angle) {
+        if (angle==0) return;
+        double a = Math.toRadians(angle);
+        float c = (float) Math.cos(a);
+        float s = (float) Math.sin(a);
+        float x = v[offset], y = v[offset+1], z = v[offset+2];
+        float dot = kx*x+ky*y+kz*z;
+        v[offset] = x*c+(ky*z-kz*y)*s+kx*dot*(1-c);
+        v[offset+1] = y*c+(kz*x-kx*z)*s+ky*dot*(1-c);
+        v[offset+2] = z*c+(kx*y-ky*x)*s+kz*dot*(1-c);
+    }
+
+}
@@ -13,14 +13,22 @@ import android.animation.Animator;
 import android.animation.AnimatorSet;
 import android.graphics.Bitmap;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
 import android.opengl.Matrix;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to define shapes, i.e. 2D or 3D objects, that can be rendered by a renderer of class <I>GLRendererCV</I> on a view of class <I>GLSurfaceViewCV</I>.
@@ -60,6 +68,17 @@ public class GLShapeCV {
 
     private String id;
 
+    /** Counter for the serial numbers of the shapes. */
+
+    private static final AtomicInteger nextSerialNumber = new AtomicInteger();
+
+    /**
+     * The serial number of the shape, i.e. the number of shapes created before it (modulo 2^31).
+     * Unlike the ID, it is unique and does not change; used e.g. to distribute the shapes among the frames (see GLAnimationSchedulerCV.setOffscreenPolicy()).
+     */
+
+    private final int serialNumber = nextSerialNumber.getAndIncrement()&Integer.MAX_VALUE;
+
     /** The surface view to which the shape is currently attached. */
 
     private GLSurfaceViewCV surfaceView;
@@ -85,17 +104,37 @@ public class GLShapeCV {
 
     private Bitmap[] textureBitmaps;
 
-    /** IDs of the textures. Only valid if the triangles are textured, i.e. not colored. */
+    /**
+     * IDs of the textures, created by prepareTextures() on the render thread for the bitmaps in 'preparedTextureBitmaps'.
+     * Only valid if the triangles are textured, i.e. not colored.
+     */
 
     private int[] textureNames;
 
+    /** The texture bitmaps for which the textures 'textureNames' have been created (null = none). Written only by the render thread. */
+
+    private volatile Bitmap[] preparedTextureBitmaps;
+
     /**
-     * Bitmaps specifying the uv coordinates for the triangle textures if the triangles a textured.
-     * The array is initialized by the constructor from the uv coordinates of the triangles.
-     * Only valid if the triangles are textured, i.e. not colored.
+     * Numbers of the vertex attributes whose buffers are maintained separately (see attributes 'validElementsInBuffers' and 'drawStates').
+     * The buffers with the group numbers (ATTRIB_TRIANGLE_GROUPS and ATTRIB_LINE_GROUPS) are rewritten completely (see updateVertexGroupBuffers()).
      */
 
-    private float uvCoordinates[];
+    private static final int ATTRIB_TRIANGLE_POSITIONS = 0, ATTRIB_TRIANGLE_COLORS = 1, ATTRIB_UV_COORDINATES = 2,
+                             ATTRIB_LINE_POSITIONS = 3, ATTRIB_LINE_COLORS = 4, ATTRIB_TRIANGLE_GROUPS = 5, ATTRIB_LINE_GROUPS = 6,
+                             NUMBER_OF_ATTRIBS = 7;
+
+    /**
+     * Dirty tracking for the buffers that pass the vertex attributes to the graphics hardware.
+     * validElementsInBuffers[a] is the number of triangles resp. lines whose values are up to date
+     * in the buffer for attribute a (a = ATTRIB_TRIANGLE_POSITIONS etc.).
+     * An attribute is dirty if this number is smaller than the number of triangles resp. lines.
+     * Hence, appending triangles or lines makes only the new elements dirty
+     * while a modification of existing elements (e.g. by moveCenterTo()) sets the value for the affected attributes to 0.
+     * The method updateBuffers() will then rewrite only the dirty parts of the buffers.
+     */
+
+    private int[] validElementsInBuffers = new int[5];
 
     /** The lines belonging to this shape. The vertex coordinates of these lines are specified with respect to the "model coordinate system" ("local coordinate system") of this shape.
      * <BR>
@@ -114,15 +153,116 @@ public class GLShapeCV {
 
     private float lineWidth;
 
+    /**
+     * The axis-aligned bounding box of the shape in model coordinates,
+     * i.e. the minimum x, y, and z coordinates of all triangle and line vertices at positions 0, 1, and 2
+     * and the maximum x, y, and z coordinates at positions 3, 4, and 5.
+     * The box is extended incrementally when triangles or lines are added and moved when the center of the shape is moved.
+     * It is recomputed from all vertices only if a vertex on its boundary has been changed (see attribute 'boundingVolumesValid').
+     * If the shape has no vertices, the minimum values are larger than the maximum values.
+     */
+
+    private float[] boundingBox;
+
+    /**
+     * A bounding sphere of the shape in model coordinates, i.e. the center at positions 0, 1, and 2 and the radius at position 3.
+     * When vertices are added, the sphere is grown incrementally such that it encloses the new vertices.
+     * It is therefore not necessarily the minimal enclosing sphere but is recomputed together with the bounding box.
+     */
+
+    private float[] boundingSphere;
+
+    /**
+     * Specifies whether the attributes 'boundingBox' and 'boundingSphere' are up to date.
+     * If not, they will be recomputed from the vertices of the triangles and lines when they are queried next.
+     */
+
+    private boolean boundingVolumesValid;
+
+    /**
+     * A bounding volume hierarchy over the triangles of the shape in model coordinates, used for intersection and distance queries with other shapes.
+     * Built by getTriangleBVH() when it is needed first, reset to null when the triangles are changed.
+     */
+
+    private GLTriangleBVHCV triangleBVH;
+
     /**
      * The model matrix specifying the translation, rotation, and scaling operations that map the model coordinates of the triangle vertices to world coordinates.
      * It thus "places the shape into the real world".
      * The model matrix is automatically calculated from the scaling matrix (attribute scalingMatrix),
      * the rotation matrix (attribute rotationMatrix), and the translation matrix (attribute translationMatrix),
+     * <BR>
+     * The matrix is composed lazily: Methods that modify the scaling, rotation, or translation only set 'modelMatrixIsDirty'
+     * (see invalidateModelMatrix()), and the matrix is composed when it is read next (see validateModelMatrix()).
+     * The render thread does not read this attribute but composes its own copy from the factors published in 'publishedModelMatrices'.
+     * Hence, e.g. an animator that sets the translation several times between two frames causes at most one composition per frame.
      */
 
     private float[] modelMatrix;
 
+    /** Specifies whether the model matrix must be composed again before it is read. */
+
+    private boolean modelMatrixIsDirty;
+
+    /**
+     * Triple buffer to pass the model matrix to the render thread without locking.
+     * Each time the scaling, rotation, or translation of the shape has been modified (under the monitor of the shape, see invalidateModelMatrix()),
+     * the factors of the model matrix are copied into the "back" buffer (index 'modelMatrixBackIndex')
+     * which is then exchanged atomically with the "middle" buffer and marked as fresh ('modelMatrixMiddle').
+     * When draw() is called, the render thread exchanges its "front" buffer (index 'modelMatrixFrontIndex') with the middle buffer if the latter is fresh
+     * and composes the model matrix from the factors in the front buffer. Hence, threads that modify the shape (e.g. the UI thread running animators)
+     * and the render thread never block each other on the model matrix, the render thread always reads the latest complete pose,
+     * and the model matrix is composed by the render thread only once per published pose.
+     * <BR>
+     * Each buffer holds the composed model matrix at positions 0 to 15 (written only by the render thread)
+     * and the factors at the positions PUBLISHED_XXX (written only by the threads that modify the shape).
+     */
+
+    private final float[][] publishedModelMatrices = new float[3][PUBLISHED_MODEL_MATRIX_LENGTH];
+
+    /**
+     * Positions of the factors in the buffers of 'publishedModelMatrices': the translation (3 values), the scaling factors (3 values),
+     * the type of the rotation (0 = a rotation matrix with 16 values, 1 = an orientation quaternion with 4 values) and the rotation itself.
+     */
+
+    private static final int PUBLISHED_TRANS = 16, PUBLISHED_SCALE = 19, PUBLISHED_ROTATION_TYPE = 22, PUBLISHED_ROTATION = 23,
+                             PUBLISHED_MODEL_MATRIX_LENGTH = 39;
+
+    /** Index of the back buffer of 'publishedModelMatrices' (accessed only under the monitor of the shape). */
+
+    private int modelMatrixBackIndex = 0;
+
+    /** Index of the middle buffer of 'publishedModelMatrices', combined with the flag MODEL_MATRIX_FRESH. */
+
+    private final AtomicInteger modelMatrixMiddle = new AtomicInteger(1);
+
+    /** Index of the front buffer of 'publishedModelMatrices' (accessed only by the render thread). */
+
+    private int modelMatrixFrontIndex = 2;
+
+    /** Flag in 'modelMatrixMiddle' indicating that the middle buffer holds a pose not yet read by the render thread. */
+
+    private static final int MODEL_MATRIX_FRESH = 4;
+
+    /**
+     * The index of the buffer of 'publishedModelMatrices' published last (bits 0 and 1) and the number of publications (higher bits).
+     * Allows other threads to read the published orientation without the monitor of the shape (see getPublishedOrientation()).
+     */
+
+    private final AtomicInteger modelMatrixLatest = new AtomicInteger();
+
+    private int modelMatrixPublications;
+
+    /**
+     * Packed array of model matrices of a store of bulk animations (class GLBulkAnimationsCV) that holds this shape
+     * and the position of the model matrix of this shape in this array (null if the shape is not in such a store).
+     * If set, the shape is drawn with this matrix instead of its own model matrix.
+     */
+
+    private float[] bulkModelMatrices;
+
+    private int bulkModelMatrixOffset;
+
     /**
      * The scaling matrix (a float array of length 16, as required by OpenGL).
      * The scaling factor for the x dimension is stored at position 0,
@@ -140,6 +280,24 @@ public class GLShapeCV {
 
     private float[] rotationMatrix;
 
+    /**
+     * The orientation of the shape as a unit quaternion (x, y, z, w - see GraphicsUtilsCV.quaternionFromAxisAngle()).
+     * It represents the same rotation as the rotation matrix. Methods that get a quaternion (e.g. setOrientation() called by the rotation animators)
+     * write only the orientation, methods that get a matrix write only the rotation matrix.
+     * The other representation is derived when it is needed next, i.e. the rotation matrix when the model matrix is rebuilt
+     * and the orientation when a quaternion is to be composed with it or to be read.
+     */
+
+    private final float[] orientation = { 0, 0, 0, 1 };
+
+    /** Specify whether the rotation matrix and the orientation, respectively, are up to date (at least one of them is always up to date). */
+
+    private boolean rotationMatrixIsValid = true, orientationIsValid = true;
+
+    /** Scratch array to compose rotations with the orientation (to avoid allocations). */
+
+    private final float[] orientationScratch = new float[4];
+
     /**
      * The translation matrix (a float array of length 16, as required by OpenGL).
      * The translation value for the x dimension is stored at position 12,
@@ -154,17 +312,116 @@ public class GLShapeCV {
 
     private ArrayList<Animator> animators;
 
+    /**
+     * The animator set in which the animators have been started by startAnimators() (null if they have not been started)
+     * and the looper of the thread that has started them, i.e. the thread on which they must be paused, resumed, and cancelled.
+     */
+
+    private AnimatorSet startedAnimators;
+
+    private Looper animatorsLooper;
+
+    /**
+     * The animations to be applied to the shape. In contrast to the animators, these animations are advanced in the render loop
+     * by the animation scheduler of the renderer (see classes GLAnimationCV and GLAnimationSchedulerCV).
+     */
+
+    private ArrayList<GLAnimationCV> animations;
+
+    /**
+     * The motion of the shape that is evaluated by the vertex shader (null = none).
+     * While such a motion is set, the vertex shader calculates the world coordinates of the vertices
+     * instead of applying the model matrix.
+     */
+
+    private GLShaderMotionCV shaderMotion;
+
+    /**
+     * Specifies whether the uniforms describing the shader motion 'drawShaderMotion' have been passed to the OpenGL program.
+     * Accessed only by the render thread.
+     */
+
+    private boolean shaderMotionUniformsSet;
+
+    /** The shader motion drawn in the last frame (null = none). Accessed only by the render thread. */
+
+    private GLShaderMotionCV drawShaderMotion;
+
+    /** Specifies whether the OpenGL program has been built with the vertex shader for shader motions. */
+
+    private boolean programHasShaderMotion;
+
+    /**
+     * Maximum number of vertex groups of a shape, i.e. number of matrices in the matrix palette of the vertex shader.
+     * Group 0 is the default group of all vertices that have not been assigned to a named group; its matrix is always the identity.
+     */
+
+    public static final int MAX_VERTEX_GROUPS = 8;
+
+    /**
+     * The names of the vertex groups of the shape (see defineVertexGroup()); the index in the list is the group number.
+     * Entry 0 (the default group) is null. The attribute is null if no vertex group has been defined.
+     */
+
+    private ArrayList<String> vertexGroupNames;
+
+    /** The group numbers of the triangles (null if no vertex group has been defined). */
+
+    private int[] triangleGroups;
+
+    /** The group numbers of the lines (null if no vertex group has been defined). */
+
+    private int[] lineGroups;
+
+    /**
+     * The matrix palette, i.e. the local transformation matrices of the vertex groups (MAX_VERTEX_GROUPS matrices with 16 values each).
+     * In the vertex shader, the matrix of the group of a vertex is applied before the model matrix resp. the shader motion.
+     */
+
+    private float[] vertexGroupMatrices;
+
+    /**
+     * Specifies whether the matrix palette published last (see 'drawGroupMatrices') has been passed to the OpenGL program.
+     * Accessed only by the render thread.
+     */
+
+    private boolean vertexGroupMatricesSet;
+
+    /** Specifies whether the buffers with the group numbers must be rewritten by updateBuffers(). */
+
+    private boolean vertexGroupBuffersStale;
+
+    /** Buffer with the group numbers of the triangle vertices (one value per vertex). */
+
+    private FloatBuffer triangleGroupsBuffer;
+
+    /** Buffer with the group numbers of the line end points (one value per point). */
+
+    private FloatBuffer lineGroupsBuffer;
+
+    /** Specifies whether the OpenGL program has been built with the vertex shader for vertex groups. */
+
+    private boolean programHasVertexGroups;
+
+    /** The frame time (ns) passed to the last call of draw(). */
+
+    private volatile long lastFrameTimeNanos;
+
     /** The ID of the OpenGL ES program to draw this shape. */
 
     private int openGLprogram;
 
+    /** The coloring type for which the OpenGL program has been built. */
+
+    private int programColoringType;
+
     /**
      * Information whether the OpenGL program has been compiled.
      * If not, the renderer will compile the program in its onDrawFrame() method,
      * i.e. call the initOpenGLProgram() method of this shape.
      */
 
-    private boolean isCompiled;
+    private volatile boolean isCompiled;
 
     /** The Open GL ES vertex shader codes. */
 
@@ -181,6 +438,124 @@ public class GLShapeCV {
 
     private FloatBuffer triangleVerticesBuffer;
 
+    /**
+     * The maximum number of ranges of entries of a buffer that are uploaded separately by the next call of draw() (see class DrawState).
+     * If more ranges have been modified, the two ranges with the smallest gap between them are merged into one range.
+     */
+
+    private static final int MAX_DIRTY_VERTEX_RANGES = 8;
+
+    /**
+     * Record of the state of the shape that is needed to draw it.
+     * Records are published by the threads that modify the shape and taken by the render thread (see attribute 'drawStates').
+     * The buffers with the vertex attributes are not copied but referenced; a record specifies which of them must be uploaded
+     * to the vertex buffer objects completely ('bufferRewritten') or in ranges of entries ('ranges').
+     * Range i of attribute a starts at entry ranges[a][2*i] and ends before entry ranges[a][2*i+1].
+     * The ranges are sorted, disjoint and not adjacent. The arrays have room for one more range than allowed, which is merged immediately.
+     * The changes of a record are accumulated until the render thread has taken it.
+     */
+
+    private static final class DrawState {
+        long version;
+        int coloringType, numberOfTriangles, numberOfLines;
+        float lineWidth;
+        GLShaderMotionCV shaderMotion;
+        boolean hasVertexGroups;
+        float[] bulkModelMatrices;
+        int bulkModelMatrixOffset;
+        Bitmap[] textureBitmaps;
+        final FloatBuffer[] buffers = new FloatBuffer[NUMBER_OF_ATTRIBS];
+        final boolean[] bufferRewritten = new boolean[NUMBER_OF_ATTRIBS];
+        final int[][] ranges = new int[NUMBER_OF_ATTRIBS][2*MAX_DIRTY_VERTEX_RANGES+2];
+        final int[] numberOfRanges = new int[NUMBER_OF_ATTRIBS];
+        float[] vertexGroupMatrices;
+        boolean vertexGroupMatricesModified;
+
+        /** Forgets the changes of the record after the render thread has taken it. */
+
+        void clearChanges() {
+            Arrays.fill(bufferRewritten,false);
+            Arrays.fill(numberOfRanges,0);
+            vertexGroupMatricesModified = false;
+        }
+    }
+
+    /**
+     * Triple buffer of records of the state needed to draw the shape (see class DrawState), handed over to the render thread without locking
+     * in the same way as the pose of the shape (see 'publishedModelMatrices'): The modifying threads fill the back record (while holding the monitor of the shape)
+     * and exchange it with the middle record (see publishDrawState()), draw() exchanges the middle record with the front record if it is new (see acquireDrawState()).
+     * A new middle record that has not been taken yet is taken back by the next modification (see modifyDrawState()), such that its changes accumulate.
+     * <BR>
+     * The vertex attributes are uploaded to vertex buffer objects by the render thread; the draw calls do not read client memory.
+     * A buffer referenced by a taken record is not modified until the render thread has uploaded it ('uploadedDrawStateVersion');
+     * a modification in the meantime is written into a copy of the buffer (see prepareBufferForWriting()).
+     */
+
+    private final DrawState[] drawStates = { new DrawState(), new DrawState(), new DrawState() };
+
+    /** Index of the back record in 'drawStates' (accessed by the modifying threads, i.e. while holding the monitor of the shape). */
+
+    private int drawStateBackIndex = 0;
+
+    /** Index of the middle record in 'drawStates', combined with the flag DRAW_STATE_FRESH if the record has not been taken by the render thread yet. */
+
+    private final AtomicInteger drawStateMiddle = new AtomicInteger(1);
+
+    /** Index of the front record in 'drawStates' (accessed only by the render thread). */
+
+    private int drawStateFrontIndex = 2;
+
+    private static final int DRAW_STATE_FRESH = 4;
+
+    /** Specifies whether the back record has been modified since the last call of publishDrawState(). */
+
+    private boolean drawStateModified;
+
+    /** The version of the last published record (i.e. the number of publications). */
+
+    private long drawStateVersion;
+
+    /** The buffers that the last published record requests to upload (null entries for attributes without changes). */
+
+    private final FloatBuffer[] publishedUploadBuffers = new FloatBuffer[NUMBER_OF_ATTRIBS];
+
+    /** The buffers that the render thread may be uploading, i.e. the buffers to upload in the record with the version 'inFlightDrawStateVersion'. */
+
+    private final FloatBuffer[] inFlightBuffers = new FloatBuffer[NUMBER_OF_ATTRIBS];
+
+    private long inFlightDrawStateVersion;
+
+    /** The version of the last record whose buffers the render thread has uploaded. */
+
+    private volatile long uploadedDrawStateVersion;
+
+    /**
+     * IDs of the OpenGL vertex buffer objects that hold the vertex attributes on the graphics hardware (0 = not yet created),
+     * their sizes in bytes, and their total size. Created and filled by the render thread (see acquireDrawState()).
+     */
+
+    private final int[] vbos = new int[NUMBER_OF_ATTRIBS], vboBytes = new int[NUMBER_OF_ATTRIBS];
+
+    private volatile long gpuBufferBytes;
+
+    /**
+     * Views of the buffers from which the vertex buffer objects have been filled last, and these buffers themselves.
+     * The views are used by the render thread to set the positions for the uploads, such that the buffers shared with the modifying threads are not changed.
+     */
+
+    private final FloatBuffer[] drawBuffers = new FloatBuffer[NUMBER_OF_ATTRIBS], drawBufferSources = new FloatBuffer[NUMBER_OF_ATTRIBS];
+
+    /**
+     * Index from the triangle IDs to the positions of the corresponding triangles in the 'triangles' array.
+     * As different triangles can have the same ID (e.g. in shapes built by GLShapeFactoryCV.joinShapes()),
+     * each ID is mapped to an int array whose entry 0 holds the number n of triangles with this ID
+     * and whose entries 1 to n hold their positions in ascending order.
+     * The position of a triangle in 'triangles' also determines the position of its vertex coordinates in 'triangleVerticesBuffer'.
+     * The index is built on demand and discarded when triangles are added.
+     */
+
+    private HashMap<String,int[]> triangleIndex;
+
     /**
      * Buffer to pass the line coordinates of the lines to the graphics hardware.
      * Only valid if the shape has lines, i.e. the 'lines' attribute is not null.
@@ -190,7 +565,7 @@ public class GLShapeCV {
 
     /**
      * Buffer to pass the color values of the triangles to the graphics hardware.
-     * The buffer is initialized by the method setModelMatrixAndBuffers() from the color values of the triangles
+     * The buffer is initialized by the method updateBuffers() from the color values
      * and used by the draw() method.
      * Only valid if the shape has triangles, i.e. the 'triangles' attribute is not null.
      */
@@ -206,7 +581,7 @@ public class GLShapeCV {
 
     /**
      * Buffer to pass the color values of the lines to the graphics hardware.
-     * The buffer is initialized by the method setModelMatrixAndBuffers() from the color values of the triangles
+     * The buffer is initialized by the method updateBuffers() from the color values
      * and used by the draw() method.
      * Only valid if the shape has lines, i.e. the 'lines' attribute is not null.
      */
@@ -253,48 +628,65 @@ public class GLShapeCV {
 
     public GLShapeCV(String id, GLTriangleCV triangles[], GLLineCV[] lines, float lineWidth) {
 
-        this.id = new String(id);
+        GLTraceCV.begin("GLShapeCV.construct");
 
-        // prepare the matrices, the rotation axis and the rotation angle
+        try {
 
-        modelMatrix = new float[16];
-        scalingMatrix = new float[16];
-        rotationMatrix = new float[16];
-        translationMatrix = new float[16];
-        Matrix.setIdentityM(modelMatrix,0);
-        Matrix.setIdentityM(scalingMatrix,0);
-        Matrix.setIdentityM(rotationMatrix,0);
-        Matrix.setIdentityM(translationMatrix,0);
+            this.id = new String(id);
 
-        // set the triangles building this shape
+            // prepare the matrices, the rotation axis and the rotation angle
 
-        if (triangles!=null) {
-            this.triangles = new GLTriangleCV[triangles.length];
-            for (int i = 0; i < triangles.length; i++)
-                if (triangles[i] != null)
-                    this.triangles[i] = triangles[i].clone();
-        }
-        colorArrayOfTriangles = null;
+            modelMatrix = new float[16];
+            scalingMatrix = new float[16];
+            rotationMatrix = new float[16];
+            translationMatrix = new float[16];
+            Matrix.setIdentityM(modelMatrix,0);
+            Matrix.setIdentityM(scalingMatrix,0);
+            Matrix.setIdentityM(rotationMatrix,0);
+            Matrix.setIdentityM(translationMatrix,0);
 
-        // set the lines building this shape
+            // set the triangles building this shape
 
-        if (lines!=null) {
-            this.lines = new GLLineCV[lines.length];
-            for (int i = 0; i < lines.length; i++)
-                if (lines[i] != null)
-                    this.lines[i] = lines[i].clone();
-        }
+            if (triangles!=null) {
+                this.triangles = new GLTriangleCV[triangles.length];
+                for (int i = 0; i < triangles.length; i++)
+                    if (triangles[i] != null)
+                        this.triangles[i] = triangles[i].clone();
+            }
 
-        this.lineWidth = lineWidth;
+            // set the lines building this shape
+
+            if (lines!=null) {
+                this.lines = new GLLineCV[lines.length];
+                for (int i = 0; i < lines.length; i++)
+                    if (lines[i] != null)
+                        this.lines[i] = lines[i].clone();
+            }
+
+            this.lineWidth = lineWidth;
+
+            // prepare the bounding volumes of the shape
+
+            boundingBox = new float[6];
+            boundingSphere = new float[4];
+            recomputeBoundingVolumes();
+
+            // prepare the list of animators
+
+            animators = new ArrayList<Animator>();
+            animations = new ArrayList<GLAnimationCV>();
 
-        // prepare the list of animators
+            // set the model matrix from the scaling, translation, and rotation attributes
 
-        animators = new ArrayList<Animator>();
+            invalidateModelMatrix();
 
-        // set the model matrix from the scaling, translation, and rotation attributes
-        // and the buffers from which the coordinates and color values will be transferred to the hardware
+            // set the buffers from which the coordinates and color values will be transferred to the hardware
 
-        setModelMatrixAndBuffers();
+            updateBuffers();
+
+        } finally {
+            GLTraceCV.end();
+        }
 
     }
 
@@ -305,51 +697,92 @@ public class GLShapeCV {
      */
 
     synchronized public GLShapeCV copy(String id) {
-        return new GLShapeCV(id,triangles,lines,lineWidth);
+        GLShapeCV copy = new GLShapeCV(id,triangles,lines,lineWidth);
+        if (vertexGroupNames!=null) {
+            copy.vertexGroupNames = new ArrayList<String>(vertexGroupNames);
+            copy.triangleGroups = triangleGroups.clone();
+            copy.lineGroups = lineGroups.clone();
+            copy.vertexGroupMatrices = vertexGroupMatrices.clone();
+            copy.vertexGroupBuffersStale = true;
+            copy.modifyDrawState().vertexGroupMatricesModified = true;
+            copy.updateBuffers();
+        }
+        return copy;
     }
 
     /**
-     * Internal auxiliary method to set the model matrix and the buffers based on the triangles and lines of this shape.
+     * Internal auxiliary method to update the buffers based on the triangles and lines of this shape.
      * Must be called when the set of triangles or lines is initialized or modified.
+     * Only the dirty parts of the buffers are rewritten, i.e. the values of the triangles and lines
+     * that have been added or modified since the last call (see attribute 'validElementsInBuffers').
+     * Existing buffers are reused if their capacity is sufficient.
+     * Finally, the new state is published for the render thread (see attribute 'drawStates').
      */
 
-    synchronized private void setModelMatrixAndBuffers() {
-
-        // build the ModelMatrix 'modelMatrix' from the scaling, translation, and rotation matrix attributes.
-
-        buildModelMatrix();
-
-        // prepare the buffers with the vertex coordinates
+    synchronized private void updateBuffers() {
+        GLTraceCV.begin("GLShapeCV.updateBuffers");
+        try {
+            modifyDrawState();
+            writeBuffers();
+            publishDrawState();
+        } finally {
+            GLTraceCV.end();
+        }
+    }
 
-        final int BYTES_PER_FLOAT = 4;
+    /**
+     * Auxiliary method for updateBuffers(): Rewrites the dirty parts of the buffers.
+     */
 
-        if (triangles!=null) {
-            float[] triangleCoordinates = coordinateArrayFromTriangles();
-            ByteBuffer bbTri = ByteBuffer.allocateDirect(triangleCoordinates.length * BYTES_PER_FLOAT);
-            bbTri.order(ByteOrder.nativeOrder());
-            triangleVerticesBuffer = bbTri.asFloatBuffer();
-            triangleVerticesBuffer.put(triangleCoordinates);
-            triangleVerticesBuffer.position(0);
-        }
+    synchronized private void writeBuffers() {
 
-        if (lines!=null) {
-            float[] linesCoordinates = coordinateArrayFromLines();
-            ByteBuffer bbLin = ByteBuffer.allocateDirect(linesCoordinates.length * BYTES_PER_FLOAT);
-            bbLin.order(ByteOrder.nativeOrder());
-            lineEndsBuffer = bbLin.asFloatBuffer();
-            lineEndsBuffer.put(linesCoordinates);
-            lineEndsBuffer.position(0);
-        }
+        triangleBVH = null;
 
         // determine the coloring type:
         // - if there exist triangles: the coloring type of the first triangle (assuming that all triangles have the same coloring type)
         // - if there exist lines but no triangles: COLORING_UNIFORM
         // (note that the current version of this class draws no lines if there exist textured triangles.)
+        // If the coloring type changes, the colors resp. uv coordinates must be written anew.
 
+        int newColoringType;
         if (triangles!=null)
-            coloringType = triangles[0].getColoringType();
+            newColoringType = triangles[0].getColoringType();
         else
-            coloringType = GLPlatformCV.COLORING_UNIFORM;
+            newColoringType = GLPlatformCV.COLORING_UNIFORM;
+        if (newColoringType!=coloringType) {
+            validElementsInBuffers[ATTRIB_TRIANGLE_COLORS] = 0;
+            validElementsInBuffers[ATTRIB_UV_COORDINATES] = 0;
+            validElementsInBuffers[ATTRIB_LINE_COLORS] = 0;
+            coloringType = newColoringType;
+        }
+
+        // update the buffer with the vertex coordinates of the triangles
+
+        if (triangles!=null) {
+            int valid = validElementsInBuffers[ATTRIB_TRIANGLE_POSITIONS];
+            if (valid<triangles.length) {
+                triangleVerticesBuffer = prepareBufferForWriting(ATTRIB_TRIANGLE_POSITIONS,triangleVerticesBuffer,valid*9,triangles.length*9);
+                for (int t=valid;t<triangles.length;t++)
+                    for (int v=0;v<3;v++)
+                        for (int d=0;d<3;d++)
+                            triangleVerticesBuffer.put(t*9+v*3+d,triangles[t].getVertexCoordinate(v,d));
+                validElementsInBuffers[ATTRIB_TRIANGLE_POSITIONS] = triangles.length;
+            }
+        }
+
+        // update the buffer with the vertex coordinates of the lines
+
+        if (lines!=null) {
+            int valid = validElementsInBuffers[ATTRIB_LINE_POSITIONS];
+            if (valid<lines.length) {
+                lineEndsBuffer = prepareBufferForWriting(ATTRIB_LINE_POSITIONS,lineEndsBuffer,valid*6,lines.length*6);
+                for (int l=valid;l<lines.length;l++)
+                    for (int p=0;p<2;p++)
+                        for (int d=0;d<3;d++)
+                            lineEndsBuffer.put(l*6+p*3+d,lines[l].getPointCoordinate(p+1,d));
+                validElementsInBuffers[ATTRIB_LINE_POSITIONS] = lines.length;
+            }
+        }
 
         if (triangles!=null) {
             // set colors or textures for the triangles
@@ -357,30 +790,34 @@ public class GLShapeCV {
                 case GLPlatformCV.COLORING_UNIFORM:
                     // TODO: Hier auf Basis des Codes von GLPlatformCV.vertexShaderUniform programmieren, sobald dieser funktioniert
                 case GLPlatformCV.COLORING_VARYING:
-                    float[] triangleColors = colorArrayFromTriangles();
-                    ByteBuffer bbColTriangles = ByteBuffer.allocateDirect(triangleColors.length * BYTES_PER_FLOAT);
-                    bbColTriangles.order(ByteOrder.nativeOrder());  // native byte order of the device
-                    triangleColorsBuffer = bbColTriangles.asFloatBuffer();
-                    triangleColorsBuffer.put(triangleColors);
-                    triangleColorsBuffer.position(0);  // set read index to the first buffer element
+                    int valid = validElementsInBuffers[ATTRIB_TRIANGLE_COLORS];
+                    if (valid<triangles.length) {
+                        triangleColorsBuffer = prepareBufferForWriting(ATTRIB_TRIANGLE_COLORS,triangleColorsBuffer,valid*12,triangles.length*12);
+                        for (int t=valid;t<triangles.length;t++)    // all new triangles
+                            for (int v=0;v<3;v++) {    // all vertices of a triangle
+                                float[] color = triangles[t].getVertexColor(v);
+                                for (int k=0;k<4;k++)    // RGBA values of a vertex
+                                    triangleColorsBuffer.put(t*12+v*4+k,color[k]);
+                            }
+                        validElementsInBuffers[ATTRIB_TRIANGLE_COLORS] = triangles.length;
+                    }
                     break;
                 case GLPlatformCV.COLORING_TEXTURED:
-                    int uvIndex = 0;
-                    uvCoordinates = new float[triangles.length * 6];
-                    for (GLTriangleCV triangle : triangles) {
-                        float[] uvCoordinatesTriangle = triangle.getUvCoordinates();
-                        for (int i = 0; i < 6; i++)
-                            uvCoordinates[uvIndex++] = uvCoordinatesTriangle[i];
+                    valid = validElementsInBuffers[ATTRIB_UV_COORDINATES];
+                    if (valid<triangles.length) {
+                        uvBuffer = prepareBufferForWriting(ATTRIB_UV_COORDINATES,uvBuffer,valid*6,triangles.length*6);
+                        for (int t=valid;t<triangles.length;t++) {
+                            float[] uvCoordinatesTriangle = triangles[t].getUvCoordinates();
+                            for (int i=0;i<6;i++)
+                                uvBuffer.put(t*6+i,uvCoordinatesTriangle[i]);
+                        }
+                        validElementsInBuffers[ATTRIB_UV_COORDINATES] = triangles.length;
+                    }
+                    if (textureBitmaps==null||textureBitmaps.length!=triangles.length) {
+                        textureBitmaps = new Bitmap[triangles.length];
+                        for (int i = 0; i < triangles.length; i++)
+                            textureBitmaps[i] = triangles[i].getTexture();
                     }
-                    ByteBuffer bbUV = ByteBuffer.allocateDirect(uvCoordinates.length * BYTES_PER_FLOAT);
-                    bbUV.order(ByteOrder.nativeOrder());
-                    uvBuffer = bbUV.asFloatBuffer();
-                    uvBuffer.put(uvCoordinates);
-                    uvBuffer.position(0);
-                    textureBitmaps = new Bitmap[triangles.length];
-                    for (int i = 0; i < triangles.length; i++)
-                        textureBitmaps[i] = triangles[i].getTexture();
-                    textureNames = new int[textureBitmaps.length];
                     break;
             }
 
@@ -388,43 +825,359 @@ public class GLShapeCV {
 
         if (lines!=null&&coloringType!=GLPlatformCV.COLORING_TEXTURED) {
             // set colors for the lines
-            float[] lineColors = colorArrayFromLines();
-            ByteBuffer bbColLines = ByteBuffer.allocateDirect(lineColors.length * BYTES_PER_FLOAT);
-            bbColLines.order(ByteOrder.nativeOrder());
-            lineColorsBuffer = bbColLines.asFloatBuffer();
-            lineColorsBuffer.put(lineColors);
-            // for (int i=0; i<lineColors.length/4; i++)
-            //     Log.v("DEMO","--------- "+lineColors[i*4]+" "+lineColors[i*4+1]+" "+lineColors[i*4+2]+" "+lineColors[i*4+3]+" ");
-            lineColorsBuffer.position(0);
+            int valid = validElementsInBuffers[ATTRIB_LINE_COLORS];
+            if (valid<lines.length) {
+                lineColorsBuffer = prepareBufferForWriting(ATTRIB_LINE_COLORS,lineColorsBuffer,valid*8,lines.length*8);
+                for (int l=valid;l<lines.length;l++) {
+                    float[] color = lines[l].getColor();
+                    for (int k=0;k<4;k++) {    // RGBA values of a line
+                        lineColorsBuffer.put(l*8+k,color[k]);      // first end point
+                        lineColorsBuffer.put(l*8+4+k,color[k]);    // second end point
+                    }
+                }
+                validElementsInBuffers[ATTRIB_LINE_COLORS] = lines.length;
+            }
         }
 
+        // update the buffers with the group numbers of the vertices (only for shapes with vertex groups)
+
+        if (vertexGroupNames!=null)
+            updateVertexGroupBuffers();
+
         // long duration = System.nanoTime() - start;
         // Log.v("GLDEMO",">>> Put buffers: "+duration+" ns");
         // Log.v("GLDEMO",">>> Put Buffers: "+duration/1000000+" ms");
 
     }
 
+    /**
+     * Internal auxiliary method to update the buffers with the group numbers of the triangle and line vertices.
+     * Triangles and lines that have been added since the last call are assigned to the default group 0.
+     * As the buffers hold only one value per vertex, they are rewritten completely if anything has changed.
+     */
+
+    synchronized private void updateVertexGroupBuffers() {
+        int numberOfTriangles = triangles!=null?triangles.length:0;
+        int numberOfLines = lines!=null?lines.length:0;
+        if (triangleGroups.length!=numberOfTriangles) {
+            triangleGroups = Arrays.copyOf(triangleGroups,numberOfTriangles);
+            vertexGroupBuffersStale = true;
+        }
+        if (lineGroups.length!=numberOfLines) {
+            lineGroups = Arrays.copyOf(lineGroups,numberOfLines);
+            vertexGroupBuffersStale = true;
+        }
+        if (!vertexGroupBuffersStale) return;
+        triangleGroupsBuffer = prepareBufferForWriting(ATTRIB_TRIANGLE_GROUPS,triangleGroupsBuffer,0,numberOfTriangles*3);
+        for (int t=0;t<numberOfTriangles;t++)
+            for (int v=0;v<3;v++)
+                triangleGroupsBuffer.put(t*3+v,triangleGroups[t]);
+        lineGroupsBuffer = prepareBufferForWriting(ATTRIB_LINE_GROUPS,lineGroupsBuffer,0,numberOfLines*2);
+        for (int l=0;l<numberOfLines;l++)
+            for (int p=0;p<2;p++)
+                lineGroupsBuffer.put(l*2+p,lineGroups[l]);
+        vertexGroupBuffersStale = false;
+    }
+
+    /**
+     * Auxiliary method to get a direct buffer that can hold a required number of float values.
+     * If the capacity of the given buffer is sufficient, this buffer itself is returned.
+     * Otherwise, a new buffer is allocated and the valid values of the old buffer are copied into it.
+     * A new buffer for a non-empty old buffer gets some additional capacity such that a sequence of appends
+     * (e.g. by GLShapeFactoryCV.joinShapes()) does not lead to a reallocation each time.
+     * The position and the limit of the old buffer are not changed, as the buffer may be read by the render thread at the same time.
+     * @param buffer The old buffer (may be null).
+     * @param validFloats The number of valid values at the beginning of the old buffer that shall be preserved.
+     * @param requiredFloats The number of values that the buffer must be able to hold.
+     * @return The buffer to be used; its position is 0.
+     */
+
+    private static FloatBuffer ensureBufferCapacity(FloatBuffer buffer, int validFloats, int requiredFloats) {
+        if (buffer!=null&&buffer.capacity()>=requiredFloats)
+            return buffer;
+        int capacity = requiredFloats;
+        if (buffer!=null&&buffer.capacity()>0)
+            capacity = Math.max(requiredFloats,buffer.capacity()*3/2);
+        return copyOfBuffer(buffer,validFloats,capacity);
+    }
+
+    /**
+     * Auxiliary method to allocate a direct buffer and to copy the first values of another buffer into it.
+     * The position and the limit of the other buffer are not changed.
+     * @param buffer The buffer to copy from (may be null).
+     * @param validFloats The number of values at the beginning of 'buffer' to be copied.
+     * @param capacity The capacity of the new buffer.
+     * @return The new buffer; its position is 0.
+     */
+
+    private static FloatBuffer copyOfBuffer(FloatBuffer buffer, int validFloats, int capacity) {
+        final int BYTES_PER_FLOAT = 4;
+        ByteBuffer bb = ByteBuffer.allocateDirect(capacity*BYTES_PER_FLOAT);
+        bb.order(ByteOrder.nativeOrder());  // native byte order of the device
+        FloatBuffer newBuffer = bb.asFloatBuffer();
+        if (buffer!=null&&validFloats>0) {
+            FloatBuffer source = buffer.duplicate();
+            source.position(0);
+            source.limit(validFloats);
+            newBuffer.put(source);
+        }
+        newBuffer.position(0);  // set read index to the first buffer element
+        return newBuffer;
+    }
+
+    /**
+     * Auxiliary method to get a buffer into which the entries of a vertex attribute from 'from' to 'to' (exclusive) can be written,
+     * and to mark these entries as to be uploaded by the render thread in the back record of 'drawStates'.
+     * If the render thread may still be uploading the given buffer (see attribute 'inFlightBuffers'), a copy of the buffer is returned.
+     * If the capacity of the buffer is not sufficient, a larger buffer is returned which must be uploaded completely.
+     * @param attrib The number of the vertex attribute (ATTRIB_TRIANGLE_POSITIONS etc.).
+     * @param buffer The current buffer of the attribute (may be null).
+     * @param from The index of the first entry to be written; the entries before it are preserved.
+     * @param to The index after the last entry to be written.
+     * @return The buffer to be written and to be assigned to the attribute of the shape.
+     */
+
+    synchronized private FloatBuffer prepareBufferForWriting(int attrib, FloatBuffer buffer, int from, int to) {
+        DrawState state = modifyDrawState();
+        if (buffer!=null&&buffer==inFlightBuffers[attrib]&&uploadedDrawStateVersion<inFlightDrawStateVersion)
+            buffer = copyOfBuffer(buffer,buffer.capacity(),buffer.capacity());
+        FloatBuffer result = ensureBufferCapacity(buffer,from,to);
+        if (result!=buffer) {
+            state.bufferRewritten[attrib] = true;
+            state.numberOfRanges[attrib] = 0;
+        } else if (from<to)
+            markBufferDirty(state,attrib,from,to);
+        return result;
+    }
+
+    /**
+     * Auxiliary method to get the back record of 'drawStates' in order to modify it.
+     * At the first modification after a publication, a new middle record that has not been taken by the render thread yet is taken back,
+     * such that the render thread never sees a record that is being modified and the changes accumulate.
+     * If the render thread has already taken it, the buffers that it requests to upload are remembered as 'inFlightBuffers'.
+     * @return The back record.
+     */
+
+    synchronized private DrawState modifyDrawState() {
+        if (!drawStateModified) {
+            int middle = drawStateMiddle.get();
+            if ((middle&DRAW_STATE_FRESH)!=0&&drawStateMiddle.compareAndSet(middle,drawStateBackIndex))
+                drawStateBackIndex = middle&3;
+            else {
+                inFlightDrawStateVersion = drawStateVersion;
+                System.arraycopy(publishedUploadBuffers,0,inFlightBuffers,0,NUMBER_OF_ATTRIBS);
+            }
+            drawStateModified = true;
+        }
+        return drawStates[drawStateBackIndex];
+    }
+
+    /**
+     * Auxiliary method to publish the back record of 'drawStates' for the render thread after it has been modified (see modifyDrawState()):
+     * Writes the current state of the shape into the record and exchanges it with the middle record.
+     */
+
+    synchronized private void publishDrawState() {
+        if (!drawStateModified) return;
+        DrawState state = drawStates[drawStateBackIndex];
+        state.version = ++drawStateVersion;
+        state.coloringType = coloringType;
+        state.numberOfTriangles = triangles!=null ? triangles.length : 0;
+        state.numberOfLines = lines!=null&&coloringType!=GLPlatformCV.COLORING_TEXTURED ? lines.length : 0;
+        state.lineWidth = lineWidth;
+        state.shaderMotion = shaderMotion;
+        state.hasVertexGroups = vertexGroupNames!=null;
+        state.bulkModelMatrices = bulkModelMatrices;
+        state.bulkModelMatrixOffset = bulkModelMatrixOffset;
+        state.textureBitmaps = coloringType==GLPlatformCV.COLORING_TEXTURED ? textureBitmaps : null;
+        for (int a=0; a<NUMBER_OF_ATTRIBS; a++) {
+            state.buffers[a] = getAttribBuffer(a);
+            publishedUploadBuffers[a] = state.bufferRewritten[a]||state.numberOfRanges[a]>0 ? state.buffers[a] : null;
+        }
+        if (state.vertexGroupMatricesModified&&vertexGroupMatrices!=null) {
+            if (state.vertexGroupMatrices==null)
+                state.vertexGroupMatrices = new float[16*MAX_VERTEX_GROUPS];
+            System.arraycopy(vertexGroupMatrices,0,state.vertexGroupMatrices,0,16*MAX_VERTEX_GROUPS);
+        }
+        drawStateBackIndex = drawStateMiddle.getAndSet(drawStateBackIndex|DRAW_STATE_FRESH)&3;
+        drawStates[drawStateBackIndex].clearChanges();
+        drawStateModified = false;
+    }
+
+    /**
+     * Auxiliary method to request that all buffers and the matrix palette are uploaded again by the render thread,
+     * e.g. for a new OpenGL context.
+     */
+
+    synchronized private void requestFullUpload() {
+        DrawState state = modifyDrawState();
+        for (int a=0; a<NUMBER_OF_ATTRIBS; a++) {
+            state.bufferRewritten[a] = true;
+            state.numberOfRanges[a] = 0;
+        }
+        state.vertexGroupMatricesModified = true;
+        publishDrawState();
+    }
+
+    /**
+     * @param attrib The number of a vertex attribute (ATTRIB_TRIANGLE_POSITIONS etc.).
+     * @return The buffer of the attribute (may be null).
+     */
+
+    synchronized private FloatBuffer getAttribBuffer(int attrib) {
+        switch (attrib) {
+            case ATTRIB_TRIANGLE_POSITIONS: return triangleVerticesBuffer;
+            case ATTRIB_TRIANGLE_COLORS: return triangleColorsBuffer;
+            case ATTRIB_UV_COORDINATES: return uvBuffer;
+            case ATTRIB_LINE_POSITIONS: return lineEndsBuffer;
+            case ATTRIB_LINE_COLORS: return lineColorsBuffer;
+            case ATTRIB_TRIANGLE_GROUPS: return triangleGroupsBuffer;
+            case ATTRIB_LINE_GROUPS: return lineGroupsBuffer;
+        }
+        return null;
+    }
+
+    /**
+     * Auxiliary method for draw(): Takes the latest published record of 'drawStates' if it is new
+     * and uploads the modified vertex attributes to the vertex buffer objects (creating them if necessary).
+     * A buffer is uploaded completely if it has been rebuilt; otherwise only the modified ranges of its entries are uploaded.
+     * Must only be called by the render thread.
+     * @return The front record, which remains unchanged until the next call of this method.
+     */
+
+    private DrawState acquireDrawState() {
+        int middle = drawStateMiddle.get();
+        if ((middle&DRAW_STATE_FRESH)==0||!drawStateMiddle.compareAndSet(middle,drawStateFrontIndex))
+            return drawStates[drawStateFrontIndex];
+        drawStateFrontIndex = middle&3;
+        DrawState state = drawStates[drawStateFrontIndex];
+        final int BYTES_PER_FLOAT = 4;
+        GLBackendCV gl = GLPlatformCV.getBackend();
+        boolean bound = false;
+        for (int a=0; a<NUMBER_OF_ATTRIBS; a++) {
+            FloatBuffer source = state.buffers[a];
+            if (source==null||source.capacity()==0||!state.bufferRewritten[a]&&state.numberOfRanges[a]==0) continue;
+            if (source!=drawBufferSources[a]) {
+                drawBuffers[a] = source.duplicate();
+                drawBufferSources[a] = source;
+            }
+            FloatBuffer data = drawBuffers[a];
+            if (vbos[a]==0) {
+                gl.glGenBuffers(1, vbos, a);
+                vboBytes[a] = 0;
+            }
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[a]);
+            bound = true;
+            int bytes = data.capacity()*BYTES_PER_FLOAT;
+            if (state.bufferRewritten[a]||vboBytes[a]!=bytes) {
+                data.clear();
+                gl.glBufferData(GLES20.GL_ARRAY_BUFFER, bytes, data, GLES20.GL_DYNAMIC_DRAW);
+                gpuBufferBytes += bytes-vboBytes[a];
+                vboBytes[a] = bytes;
+            } else
+                for (int i=0; i<state.numberOfRanges[a]; i++) {
+                    int from = state.ranges[a][2*i], to = state.ranges[a][2*i+1];
+                    data.position(from);
+                    gl.glBufferSubData(GLES20.GL_ARRAY_BUFFER, from*BYTES_PER_FLOAT, (to-from)*BYTES_PER_FLOAT, data);
+                }
+        }
+        if (bound)
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        if (state.vertexGroupMatricesModified&&state.vertexGroupMatrices!=null) {
+            if (drawGroupMatrices==null)
+                drawGroupMatrices = new float[16*MAX_VERTEX_GROUPS];
+            System.arraycopy(state.vertexGroupMatrices,0,drawGroupMatrices,0,16*MAX_VERTEX_GROUPS);
+            vertexGroupMatricesSet = false;
+        }
+        uploadedDrawStateVersion = state.version;
+        return state;
+    }
+
     /**
      * To set the shaders and to compile and link the OpenGL program from these shader coders.
      * This method will be called from the onSurfaceCreated() method of the renderer that shall render the shade.
      * An earlier call (esp. from the shape constructor) will lead to an OpenGL link and/or compile error.
      * For textured shapes, always to be called together with initOpenGLProgram().
+     * Must be called by the render thread.
+     */
+
+    public void initOpenGLProgram() {
+        GLTraceCV.begin("GLShapeCV.initOpenGLProgram");
+        try {
+            compileOpenGLProgram();
+        } finally {
+            GLTraceCV.end();
+        }
+    }
+
+    /**
+     * Auxiliary method for initOpenGLProgram(): Sets the shaders and compiles and links the OpenGL program in a new OpenGL context,
+     * i.e. forgets the names of the program, the vertex buffer objects and the textures of an earlier context (which have been deleted together with this context).
+     */
+
+    private void compileOpenGLProgram() {
+
+        // a new OpenGL context requires new vertex buffer objects, filled with the complete buffers
+
+        openGLprogram = 0;
+        Arrays.fill(vbos,0);
+        Arrays.fill(vboBytes,0);
+        gpuBufferBytes = 0;
+        textureNames = null;
+        preparedTextureBitmaps = null;
+        requestFullUpload();
+        linkOpenGLProgram(acquireDrawState());
+
+    }
+
+    /**
+     * Auxiliary method for draw(): Rebuilds the OpenGL program in the current OpenGL context after the coloring type has changed
+     * or a shader motion or vertex groups have been set or removed.
+     * Deletes the old program; the vertex buffer objects are kept.
+     * @param state The published state of the shape to be drawn.
+     */
+
+    private void rebuildOpenGLProgram(DrawState state) {
+        GLTraceCV.begin("GLShapeCV.rebuildOpenGLProgram");
+        try {
+            if (openGLprogram!=0)
+                GLPlatformCV.getBackend().glDeleteProgram(openGLprogram);
+            openGLprogram = 0;
+            linkOpenGLProgram(state);
+        } finally {
+            GLTraceCV.end();
+        }
+    }
+
+    /**
+     * Auxiliary method for compileOpenGLProgram() and rebuildOpenGLProgram(): Sets the shaders and compiles and links the OpenGL program.
+     * @param state The published state of the shape to be drawn.
      */
 
-    synchronized public void initOpenGLProgram() {
+    private void linkOpenGLProgram(DrawState state) {
 
-        switch (coloringType) {
+        GLBackendCV gl = GLPlatformCV.getBackend();
+
+        // a new program requires the uniforms of a shader motion and the matrix palette to be passed again
+
+        shaderMotionUniformsSet = false;
+        programHasShaderMotion = state.shaderMotion!=null;
+        vertexGroupMatricesSet = false;
+        programHasVertexGroups = state.hasVertexGroups;
+        programColoringType = state.coloringType;
+
+        switch (programColoringType) {
             case GLPlatformCV.COLORING_UNIFORM:
                 // TODO: Hier Code von GLPlatformCV.vertexShaderUniformColor zuweisen, sobald er funktioniert
                 // vertexShaderCode = GLPlatformCV.vertexShaderUniformColor;
                 // fragmentShaderCode = GLPlatformCV.fragmentShaderUniformColor;
                 // break;
             case GLPlatformCV.COLORING_VARYING:
-                vertexShaderCode = GLPlatformCV.vertexShaderVaryingColor;
+                vertexShaderCode = GLPlatformCV.vertexShaderCode(programColoringType,programHasShaderMotion,programHasVertexGroups);
                 fragmentShaderCode = GLPlatformCV.fragmentShaderVaryingColor;
                 break;
             case GLPlatformCV.COLORING_TEXTURED:
-                vertexShaderCode = GLPlatformCV.vertexShaderTextured;
+                vertexShaderCode = GLPlatformCV.vertexShaderCode(programColoringType,programHasShaderMotion,programHasVertexGroups);
                 fragmentShaderCode = GLPlatformCV.fragmentShaderTextured;
                 break;
             default:
@@ -438,49 +1191,184 @@ public class GLShapeCV {
 
         // create the program
 
-        openGLprogram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(openGLprogram, vertexShader);
-        GLES20.glAttachShader(openGLprogram, fragmentShader);
-        GLES20.glLinkProgram(openGLprogram);
+        openGLprogram = gl.glCreateProgram();
+        gl.glAttachShader(openGLprogram, vertexShader);
+        gl.glAttachShader(openGLprogram, fragmentShader);
+        gl.glLinkProgram(openGLprogram);
+
+        // the shaders are not needed anymore after linking (they are deleted together with the program)
+
+        gl.glDeleteShader(vertexShader);
+        gl.glDeleteShader(fragmentShader);
 
         // debug information to see if the OpenGL code has been linked successfully
         final int[] linkStatus = new int[1];
-        GLES20.glGetProgramiv(openGLprogram, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        gl.glGetProgramiv(openGLprogram, GLES20.GL_LINK_STATUS, linkStatus, 0);
         if (linkStatus[0]==1) {
             // Log.v("GLDEMO", ">>> Linking successful");
             isCompiled = true;
         }
         else {
-            // Log.v("GLDEMO2", ">>> Linking error: " + GLES20.glGetProgramInfoLog(openGLprogram));
+            // Log.v("GLDEMO2", ">>> Linking error: " + gl.glGetProgramInfoLog(openGLprogram));
         }
 
     }
 
     /**
      * To prepare the textures (only for textured shapes). Always to be called together with initOpenGLProgram().
+     * Must be called by the render thread.
+     */
+
+    public void prepareTextures() {
+        prepareTextures(drawStates[drawStateFrontIndex]);
+    }
+
+    /**
+     * Auxiliary method for prepareTextures() and draw(): Creates the textures for the texture bitmaps of the published state of the shape
+     * if they have not been created yet. Textures created for other bitmaps before are deleted.
+     * @param state The published state of the shape to be drawn.
+     */
+
+    private void prepareTextures(DrawState state) {
+
+        GLBackendCV gl = GLPlatformCV.getBackend();
+
+        Bitmap[] bitmaps = state.textureBitmaps;
+        if (bitmaps==preparedTextureBitmaps) return;
+        if (textureNames!=null)
+            gl.glDeleteTextures(textureNames.length, textureNames, 0);
+        textureNames = null;
+        preparedTextureBitmaps = bitmaps;
+
+        if (bitmaps!=null) {
+            GLTraceCV.begin("GLShapeCV.prepareTextures");
+            try {
+                textureNames = new int[bitmaps.length];
+                gl.glGenTextures(textureNames.length, textureNames, 0);
+                for (int i = 0; i < bitmaps.length; i++) {
+                    gl.glBindTexture(GLES20.GL_TEXTURE_2D, textureNames[i]);
+                    for (int j = 0; j < TEXTURE_PARAMETERS.length; j += 2)
+                        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, TEXTURE_PARAMETERS[j], TEXTURE_PARAMETERS[j+1]);
+                    gl.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmaps[i], 0);
+                }
+            } finally {
+                GLTraceCV.end();
+            }
+        }
+
+    }
+
+    /**
+     * The parameters of the textures as pairs of parameter names and values (see prepareTextures()).
      */
 
-    synchronized public void prepareTextures() {
+    private static final int[] TEXTURE_PARAMETERS = {
+            GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR,
+            GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR,
+            GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE,
+            GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE };
+
+    /**
+     * Records the existing OpenGL objects of the shape (the program, the vertex buffer objects and the textures) in a frame capture,
+     * without creating them anew, such that the captured frame is self-contained (see <I>GLRendererCV.captureNextFrame()</I>).
+     * The vertex buffer objects are recorded with the current contents of the buffers of the shape
+     * (modifications not uploaded yet are uploaded again by the next call of draw()).
+     * The uniforms that are passed to the program only once are passed again by the next call of draw().
+     * Objects that have not been created yet are not recorded; they are created by draw() within the captured frame.
+     * Must be called by the render thread.
+     * @param capture The capture backend.
+     */
+
+    void recordOpenGLObjects(GLFrameCaptureCV capture) {
+        final int BYTES_PER_FLOAT = 4;
+        if (openGLprogram!=0) {
+            capture.recordProgram(openGLprogram,vertexShaderCode,fragmentShaderCode);
+            shaderMotionUniformsSet = false;
+            vertexGroupMatricesSet = false;
+        }
+        synchronized (this) {
+            for (int a=0; a<NUMBER_OF_ATTRIBS; a++) {
+                FloatBuffer buffer = getAttribBuffer(a);
+                if (vbos[a]==0||vboBytes[a]==0||buffer==null) continue;
+                FloatBuffer data = buffer.duplicate();
+                data.clear();
+                capture.recordArrayBuffer(vbos[a],data,Math.min(vboBytes[a],data.capacity()*BYTES_PER_FLOAT));
+            }
+        }
+        Bitmap[] bitmaps = preparedTextureBitmaps;
+        if (bitmaps!=null&&textureNames!=null)
+            for (int i=0; i<textureNames.length; i++)
+                if (textureNames[i]!=0)
+                    capture.recordTexture(textureNames[i],bitmaps[i],TEXTURE_PARAMETERS);
+    }
+
+    /**
+     * Reports the memory used by the shape (see class <I>GLMemoryReportCV</I> for the categories).
+     * The method does not traverse the triangles of the shape; hence it can be called periodically.
+     * @return The memory report of the shape.
+     */
 
-        if (coloringType==GLPlatformCV.COLORING_TEXTURED) {
-            GLES20.glGenTextures(textureNames.length, textureNames, 0);
-            for (int i = 0; i < textureBitmaps.length; i++) {
-                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureNames[i]);
-                GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
-                GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
-                GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-                GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-                GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmaps[i], 0);
+    synchronized public GLMemoryReportCV getMemoryReport() {
+        final int BYTES_PER_FLOAT = 4;
+        GLMemoryReportCV report = new GLMemoryReportCV();
+        report.setNumberOfShapes(1);
+        // triangle and line objects
+        if (triangles!=null) {
+            int bytesPerTriangle = GLMemoryReportCV.TRIANGLE_BYTES+GLMemoryReportCV.REFERENCE_BYTES;
+            switch (coloringType) {
+                case GLPlatformCV.COLORING_UNIFORM: bytesPerTriangle += GLMemoryReportCV.UNIFORM_COLOR_BYTES; break;
+                case GLPlatformCV.COLORING_VARYING: bytesPerTriangle += GLMemoryReportCV.VERTEX_COLORS_BYTES; break;
+                case GLPlatformCV.COLORING_TEXTURED: bytesPerTriangle += GLMemoryReportCV.UV_COORDINATES_BYTES; break;
             }
+            report.add(GLMemoryReportCV.TRIANGLE_OBJECTS,GLMemoryReportCV.ARRAY_BYTES+(long)triangles.length*bytesPerTriangle);
+        }
+        if (lines!=null)
+            report.add(GLMemoryReportCV.TRIANGLE_OBJECTS,GLMemoryReportCV.ARRAY_BYTES+(long)lines.length*(GLMemoryReportCV.LINE_BYTES+GLMemoryReportCV.REFERENCE_BYTES));
+        if (triangleBVH!=null)
+            report.add(GLMemoryReportCV.TRIANGLE_OBJECTS,triangleBVH.getMemoryBytes());
+        // buffers to pass the vertex attributes to the graphics hardware
+        for (FloatBuffer buffer : new FloatBuffer[] { triangleVerticesBuffer, triangleColorsBuffer, uvBuffer, lineEndsBuffer, lineColorsBuffer, triangleGroupsBuffer, lineGroupsBuffer })
+            if (buffer!=null)
+                report.add(GLMemoryReportCV.DIRECT_BUFFERS,(long)buffer.capacity()*BYTES_PER_FLOAT);
+        report.add(GLMemoryReportCV.GPU_BUFFERS,gpuBufferBytes);
+        // textures (one per triangle) and bitmaps (counted once)
+        if (textureBitmaps!=null) {
+            Set<Bitmap> bitmaps = Collections.newSetFromMap(new IdentityHashMap<Bitmap,Boolean>());
+            addTextureBitmaps(bitmaps);
+            for (Bitmap bitmap : bitmaps)
+                report.add(GLMemoryReportCV.BITMAPS,GLMemoryReportCV.bitmapBytes(bitmap));
         }
+        Bitmap[] preparedBitmaps = preparedTextureBitmaps;
+        if (preparedBitmaps!=null)
+            for (Bitmap bitmap : preparedBitmaps)
+                report.add(GLMemoryReportCV.GPU_TEXTURES,bitmap!=null?4L*bitmap.getWidth()*bitmap.getHeight():0);
+        return report;
+    }
+
+    /**
+     * @return The serial number of the shape (see attribute 'serialNumber').
+     */
 
+    int getSerialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * Adds the texture bitmaps of the shape to a set.
+     */
+
+    synchronized void addTextureBitmaps(Set<Bitmap> bitmaps) {
+        if (textureBitmaps==null) return;
+        for (Bitmap bitmap : textureBitmaps)
+            if (bitmap!=null)
+                bitmaps.add(bitmap);
     }
 
     synchronized public String getId() {
         return id;
     }
 
-    synchronized public boolean isCompiled() {
+    public boolean isCompiled() {
         return isCompiled;
     }
 
@@ -560,8 +1448,10 @@ public class GLShapeCV {
                 triangles = (GLTriangleCV[]) newTriangles.clone();
               else
                 triangles = newTriangles;
-            colorArrayOfTriangles = null;
-            setModelMatrixAndBuffers();
+            triangleIndex = null;
+            for (GLTriangleCV triangle : triangles)
+                extendBoundingVolumes(triangle);
+            updateBuffers();
             return;
         }
         GLTriangleCV[] newTriangleAttribute = new GLTriangleCV[triangles.length+newTriangles.length];
@@ -573,13 +1463,19 @@ public class GLShapeCV {
               else
                 newTriangleAttribute[triangles.length+i] = newTriangles[i];
         triangles = newTriangleAttribute;
-        colorArrayOfTriangles = null;
-        setModelMatrixAndBuffers();
+        triangleIndex = null;
+        for (GLTriangleCV triangle : newTriangles)
+            extendBoundingVolumes(triangle);
+        updateBuffers();
     }
 
     /**
      * Sets the values of a vertex of a triangle of the shape.
-     * If multiple vertices shall be set, the method setTriangleVertices() should be used in order to avoid multiple costly updates of the shape buffers.
+     * If several triangles have the given ID, only the first of them is modified.
+     * <BR>
+     * The triangle is found by an index from the triangle IDs to the triangle positions,
+     * and the new coordinates are written directly into the buffer that passes the vertex coordinates to the graphics hardware.
+     * Only the modified parts of this buffer will be uploaded again by the next call of draw().
      * @param triangleID The ID of the triangle.
      * @param vertexNo The number of the triangle vertex (0, 1, or 2).
      * @param values the new coordinate values of the triangle vertex (x, y, and z).
@@ -587,29 +1483,145 @@ public class GLShapeCV {
      */
 
     synchronized public boolean setTriangleVertex(String triangleID, int vertexNo, float[] values) {
-        for (GLTriangleCV triangle : triangles)
-            if (triangle.getId().equals(triangleID)) {
-                if (!triangle.setVertex(vertexNo,values)) return false;
-                setModelMatrixAndBuffers();
-                return true;
-            }
-        return false;
+        if (vertexNo<0||vertexNo>2||values==null||values.length!=3) return false;
+        int[] positions = getTriangleIndex().get(triangleID);
+        if (positions==null) return false;
+        setTriangleVertex(positions[1],vertexNo,values);
+        publishDrawState();
+        return true;
     }
 
     /**
      * Sets the values of some triangle vertices of a shape.
+     * If several triangles have the same ID, all of them are modified.
+     * <BR>
+     * For notes on the implementation, see setTriangleVertex().
+     * The costs of a call are proportional to the number of modified vertices, not to the total number of vertices of the shape.
+     * The next call of draw() uploads the modified parts of the vertex buffer in at most eight ranges, nearby ranges being merged;
+     * hence the uploaded data may include unmodified vertices between modified ones.
      * @param triangleIDs The IDs of the affected triangles.
      * @param vertexNos vertexNos[i] = the number of the vertex of triangle[i] that shall be set (0, 1, or 2).
      * @param values values[i][] = the new coordinate values for this vertex (x, y, and z).
      */
 
     synchronized public void setTriangleVertices(String[] triangleIDs, int[] vertexNos, float[][] values) {
-        for (int i=0;i<triangleIDs.length;i++)
-            for (GLTriangleCV triangle : triangles)
-                if (triangle.getId().equals(triangleIDs[i])) {
-                    triangle.setVertex(vertexNos[i], values[i]);
-                }
-        setModelMatrixAndBuffers();
+        HashMap<String,int[]> index = getTriangleIndex();
+        for (int i=0;i<triangleIDs.length;i++) {
+            if (vertexNos[i]<0||vertexNos[i]>2||values[i]==null||values[i].length!=3) continue;
+            int[] positions = index.get(triangleIDs[i]);
+            if (positions==null) continue;
+            for (int j=1;j<=positions[0];j++)
+                setTriangleVertex(positions[j],vertexNos[i],values[i]);
+        }
+        publishDrawState();
+    }
+
+    /**
+     * Auxiliary method to set a vertex of the triangle at a given position of the 'triangles' array.
+     * The method updates the triangle, the bounding volumes, and the corresponding entries of 'triangleVerticesBuffer'.
+     * @param position The position of the triangle.
+     * @param vertexNo The number of the triangle vertex (0, 1, or 2).
+     * @param values The new coordinate values of the triangle vertex (x, y, and z).
+     */
+
+    synchronized private void setTriangleVertex(int position, int vertexNo, float[] values) {
+        GLTriangleCV triangle = triangles[position];
+        boolean onBoundary = isOnBoundingBox(triangle,vertexNo);
+        if (!triangle.setVertex(vertexNo,values)) return;
+        updateBoundingVolumes(onBoundary,triangle,vertexNo);
+        triangleBVH = null;
+        int bufferIndex = position*9+vertexNo*3;
+        triangleVerticesBuffer = prepareBufferForWriting(ATTRIB_TRIANGLE_POSITIONS,triangleVerticesBuffer,bufferIndex,bufferIndex+3);
+        for (int i=0;i<3;i++)
+            triangleVerticesBuffer.put(bufferIndex+i,values[i]);
+    }
+
+    /**
+     * Auxiliary method to get the index from the triangle IDs to the triangle positions (see attribute 'triangleIndex').
+     * The index is built if it does not exist.
+     * @return The index (an empty index if the shape has no triangles).
+     */
+
+    synchronized private HashMap<String,int[]> getTriangleIndex() {
+        if (triangleIndex!=null)
+            return triangleIndex;
+        triangleIndex = new HashMap<>();
+        if (triangles==null)
+            return triangleIndex;
+        // count the triangles per ID
+        for (GLTriangleCV triangle : triangles) {
+            int[] count = triangleIndex.get(triangle.getId());
+            if (count==null)
+                triangleIndex.put(triangle.getId(),new int[]{1});
+              else
+                count[0]++;
+        }
+        // allocate the position arrays and fill them (entry 0 serves as fill counter)
+        for (Map.Entry<String,int[]> entry : triangleIndex.entrySet())
+            entry.setValue(new int[entry.getValue()[0]+1]);
+        for (int i=0;i<triangles.length;i++) {
+            int[] positions = triangleIndex.get(triangles[i].getId());
+            positions[++positions[0]] = i;
+        }
+        return triangleIndex;
+    }
+
+    /**
+     * Auxiliary method to add a range to the ranges of entries of a buffer that must be uploaded to the graphics hardware by the render thread
+     * (see class DrawState). The range is merged with overlapping and adjacent ranges. If the maximum number of ranges is exceeded,
+     * the two neighboring ranges with the smallest gap between them are merged.
+     * @param state The record in which the range is marked (the back record of 'drawStates').
+     * @param attrib The number of the vertex attribute (ATTRIB_TRIANGLE_POSITIONS etc.).
+     * @param from The index of the first modified entry.
+     * @param to The index after the last modified entry.
+     */
+
+    private static void markBufferDirty(DrawState state, int attrib, int from, int to) {
+        int[] ranges = state.ranges[attrib];
+        int n = state.numberOfRanges[attrib];
+        // find the first range that ends at or after 'from'
+        int i = 0;
+        while (i<n&&ranges[2*i+1]<from)
+            i++;
+        if (i<n&&ranges[2*i]<=to) {
+            // merge the new range with range i and the following ranges it reaches
+            ranges[2*i] = Math.min(ranges[2*i],from);
+            int j = i;
+            while (j+1<n&&ranges[2*(j+1)]<=to)
+                j++;
+            ranges[2*i+1] = Math.max(ranges[2*j+1],to);
+            System.arraycopy(ranges,2*(j+1),ranges,2*(i+1),2*(n-j-1));
+            state.numberOfRanges[attrib] = n-(j-i);
+            return;
+        }
+        // insert the new range before range i
+        System.arraycopy(ranges,2*i,ranges,2*i+2,2*(n-i));
+        ranges[2*i] = from;
+        ranges[2*i+1] = to;
+        n++;
+        if (n>MAX_DIRTY_VERTEX_RANGES) {
+            int smallest = 0;
+            for (int k=1; k<n-1; k++)
+                if (ranges[2*k+2]-ranges[2*k+1]<ranges[2*smallest+2]-ranges[2*smallest+1])
+                    smallest = k;
+            ranges[2*smallest+1] = ranges[2*smallest+3];
+            System.arraycopy(ranges,2*smallest+4,ranges,2*smallest+2,2*(n-smallest-2));
+            n--;
+        }
+        state.numberOfRanges[attrib] = n;
+    }
+
+    /**
+     * Auxiliary method for tests: Returns the ranges of 'triangleVerticesBuffer' entries that will be uploaded by the next call of draw(),
+     * i.e. the ranges in the published record that has not been taken by the render thread yet.
+     * @return The ranges as pairs of the first entry and the entry after the last entry (an empty array if there is no such record).
+     */
+
+    synchronized int[] getDirtyVertexRanges() {
+        int middle = drawStateMiddle.get();
+        if ((middle&DRAW_STATE_FRESH)==0) return new int[0];
+        DrawState state = drawStates[middle&3];
+        return Arrays.copyOf(state.ranges[ATTRIB_TRIANGLE_POSITIONS],2*state.numberOfRanges[ATTRIB_TRIANGLE_POSITIONS]);
     }
 
     /**
@@ -622,14 +1634,12 @@ public class GLShapeCV {
      */
 
     public synchronized void setTriangleVertexBufferEntry(int index, float value) {
-        try {
-            triangleVerticesBuffer.position(index);
-            triangleVerticesBuffer.put(value);
-            triangleVerticesBuffer.position(0);
-        } catch (Exception e) {}
+        if (triangleVerticesBuffer==null||index<0||index>=triangleVerticesBuffer.capacity()) return;
+        triangleVerticesBuffer = prepareBufferForWriting(ATTRIB_TRIANGLE_POSITIONS,triangleVerticesBuffer,index,index+1);
+        triangleVerticesBuffer.put(index,value);
+        publishDrawState();
     }
 
-
     /**
      * Gets an array with copies of all lines of the shape.
      * @return The array with the lines.
@@ -676,7 +1686,9 @@ public class GLShapeCV {
         if (lines==null) {
             lines = newLines;
             lineWidth = 10;
-            setModelMatrixAndBuffers();
+            for (GLLineCV line : lines)
+                extendBoundingVolumes(line);
+            updateBuffers();
             return;
         }
         GLLineCV[] newLinesAttribute = new GLLineCV[lines.length+newLines.length];
@@ -685,7 +1697,9 @@ public class GLShapeCV {
         for (int i=0; i<newLines.length; i++)
             newLinesAttribute[lines.length+i] = newLines[i];
         lines = newLinesAttribute;
-        setModelMatrixAndBuffers();
+        for (GLLineCV line : newLines)
+            extendBoundingVolumes(line);
+        updateBuffers();
     }
 
     /**
@@ -695,6 +1709,8 @@ public class GLShapeCV {
     synchronized void setLineWidth(float lineWidth) {
         if (lineWidth<=0) return;
         this.lineWidth = lineWidth;
+        modifyDrawState();
+        publishDrawState();
     }
 
     /**
@@ -728,7 +1744,18 @@ public class GLShapeCV {
         if (lines!=null)
             for (GLLineCV line: lines)
                 line.translate(-transX,-transY,-transZ);
-        setModelMatrixAndBuffers();
+        if (boundingBox[0]<=boundingBox[3]) {
+            // the bounding volumes are moved together with the vertices
+            float[] trans = { transX, transY, transZ };
+            for (int i=0;i<3;i++) {
+                boundingBox[i] -= trans[i];
+                boundingBox[i+3] -= trans[i];
+                boundingSphere[i] -= trans[i];
+            }
+        }
+        validElementsInBuffers[ATTRIB_TRIANGLE_POSITIONS] = 0;
+        validElementsInBuffers[ATTRIB_LINE_POSITIONS] = 0;
+        updateBuffers();
     }
 
     /**
@@ -776,31 +1803,175 @@ public class GLShapeCV {
 
     synchronized private float getIntrinsicSize(int dimension) {
         if (dimension<0||dimension>2) return -1;
-        float min=Float.MAX_VALUE, max=Float.MIN_VALUE;
-        if (triangles!=null) {
-            for (GLTriangleCV triangle : triangles) {
-                float[][] vertices = triangle.getVertices();
-                for (int i = 0; i < 3; i++) {
-                    if (vertices[i][dimension] < min)
-                        min = vertices[i][dimension];
-                    if (vertices[i][dimension] > max)
-                        max = vertices[i][dimension];
-                }
-            }
+        if (!boundingVolumesValid)
+            recomputeBoundingVolumes();
+        if (boundingBox[0]>boundingBox[3]) return 0;   // shape without vertices
+        return boundingBox[dimension+3]-boundingBox[dimension];
+    }
+
+    /**
+     * Gets the axis-aligned bounding box of the shape, i.e. the smallest cuboid with faces parallel to the coordinate planes
+     * that encloses all triangle and line vertices.
+     * The values refer to the local coordinate system (model coordinate system),
+     * i.e. disregard the transformations specified by the model matrix.
+     * <BR>
+     * The box is maintained incrementally by the methods that modify the triangles and lines of the shape.
+     * Note that modifications of triangles or lines that bypass these methods (e.g. changes of triangles obtained by getTrianglesNoCopy())
+     * are not noticed.
+     * @return An array of length 6 with the minimum x, y, and z coordinates at positions 0, 1, and 2
+     * and the maximum x, y, and z coordinates at positions 3, 4, and 5 (or null if the shape has no vertices).
+     */
+
+    synchronized public float[] getBoundingBox() {
+        if (!boundingVolumesValid)
+            recomputeBoundingVolumes();
+        if (boundingBox[0]>boundingBox[3]) return null;
+        return boundingBox.clone();
+    }
+
+    /**
+     * Gets a sphere that encloses all triangle and line vertices of the shape.
+     * The values refer to the local coordinate system (model coordinate system),
+     * i.e. disregard the transformations specified by the model matrix.
+     * The sphere is not necessarily the smallest enclosing sphere.
+     * For notes on its maintenance, see getBoundingBox().
+     * @return An array of length 4 with the x, y, and z coordinates of the center at positions 0, 1, and 2 and the radius at position 3
+     * (or null if the shape has no vertices).
+     */
+
+    synchronized public float[] getBoundingSphere() {
+        if (!boundingVolumesValid)
+            recomputeBoundingVolumes();
+        if (boundingBox[0]>boundingBox[3]) return null;
+        return boundingSphere.clone();
+    }
+
+    /**
+     * Auxiliary method to recompute the bounding box and the bounding sphere from all vertices of the triangles and lines.
+     * The center of the sphere is placed into the center of the box.
+     */
+
+    synchronized private void recomputeBoundingVolumes() {
+        for (int i=0;i<3;i++) {
+            boundingBox[i] = Float.MAX_VALUE;
+            boundingBox[i+3] = -Float.MAX_VALUE;
         }
-        if (lines!=null) {
-            for (int i=0;i<lines.length;i++) {
-                if (lines[i].getPoint1()[dimension]<min)
-                    min = lines[i].getPoint1()[dimension];
-                if (lines[i].getPoint1()[dimension]>max)
-                    max = lines[i].getPoint1()[dimension];
-                if (lines[i].getPoint2()[dimension]<min)
-                    min = lines[i].getPoint1()[dimension];
-                if (lines[i].getPoint2()[dimension]>max)
-                    max = lines[i].getPoint2()[dimension];
+        if (triangles!=null)
+            for (GLTriangleCV triangle : triangles)
+                if (triangle!=null)
+                    for (int v=0;v<3;v++)
+                        extendBoundingBox(triangle.getVertexCoordinate(v,0),triangle.getVertexCoordinate(v,1),triangle.getVertexCoordinate(v,2));
+        if (lines!=null)
+            for (GLLineCV line : lines)
+                if (line!=null)
+                    for (int p=1;p<=2;p++)
+                        extendBoundingBox(line.getPointCoordinate(p,0),line.getPointCoordinate(p,1),line.getPointCoordinate(p,2));
+        boundingSphere[3] = 0;
+        if (boundingBox[0]<=boundingBox[3]) {
+            for (int i=0;i<3;i++)
+                boundingSphere[i] = (boundingBox[i]+boundingBox[i+3])/2;
+            float maxSquaredDistance = 0;
+            if (triangles!=null)
+                for (GLTriangleCV triangle : triangles)
+                    if (triangle!=null)
+                        for (int v=0;v<3;v++)
+                            maxSquaredDistance = Math.max(maxSquaredDistance,squaredDistanceFromSphereCenter(triangle.getVertexCoordinate(v,0),triangle.getVertexCoordinate(v,1),triangle.getVertexCoordinate(v,2)));
+            if (lines!=null)
+                for (GLLineCV line : lines)
+                    if (line!=null)
+                        for (int p=1;p<=2;p++)
+                            maxSquaredDistance = Math.max(maxSquaredDistance,squaredDistanceFromSphereCenter(line.getPointCoordinate(p,0),line.getPointCoordinate(p,1),line.getPointCoordinate(p,2)));
+            boundingSphere[3] = (float) Math.sqrt(maxSquaredDistance);
+        }
+        boundingVolumesValid = true;
+    }
+
+    /** Auxiliary method to extend the bounding volumes by the vertices of a triangle. */
+
+    synchronized private void extendBoundingVolumes(GLTriangleCV triangle) {
+        if (triangle==null) return;
+        for (int v=0;v<3;v++)
+            extendBoundingVolumes(triangle.getVertexCoordinate(v,0),triangle.getVertexCoordinate(v,1),triangle.getVertexCoordinate(v,2));
+    }
+
+    /** Auxiliary method to extend the bounding volumes by the end points of a line. */
+
+    synchronized private void extendBoundingVolumes(GLLineCV line) {
+        if (line==null) return;
+        for (int p=1;p<=2;p++)
+            extendBoundingVolumes(line.getPointCoordinate(p,0),line.getPointCoordinate(p,1),line.getPointCoordinate(p,2));
+    }
+
+    /**
+     * Auxiliary method to extend the bounding box and the bounding sphere such that they enclose a point.
+     * If the point lies outside the sphere, the sphere is grown to the smallest sphere enclosing the old sphere and the point.
+     * Nothing is done if the bounding volumes are not valid anyway.
+     */
+
+    synchronized private void extendBoundingVolumes(float x, float y, float z) {
+        if (!boundingVolumesValid) return;
+        if (boundingBox[0]>boundingBox[3]) {
+            // first point
+            boundingSphere[0] = x;
+            boundingSphere[1] = y;
+            boundingSphere[2] = z;
+            boundingSphere[3] = 0;
+        } else {
+            float distance = (float) Math.sqrt(squaredDistanceFromSphereCenter(x,y,z));
+            if (distance>boundingSphere[3]) {
+                float newRadius = (boundingSphere[3]+distance)/2;
+                float shift = (newRadius-boundingSphere[3])/distance;
+                boundingSphere[0] += (x-boundingSphere[0])*shift;
+                boundingSphere[1] += (y-boundingSphere[1])*shift;
+                boundingSphere[2] += (z-boundingSphere[2])*shift;
+                boundingSphere[3] = newRadius;
             }
         }
-        return max-min;
+        extendBoundingBox(x,y,z);
+    }
+
+    /** Auxiliary method to extend the bounding box such that it encloses a point. */
+
+    synchronized private void extendBoundingBox(float x, float y, float z) {
+        if (x<boundingBox[0]) boundingBox[0] = x;
+        if (y<boundingBox[1]) boundingBox[1] = y;
+        if (z<boundingBox[2]) boundingBox[2] = z;
+        if (x>boundingBox[3]) boundingBox[3] = x;
+        if (y>boundingBox[4]) boundingBox[4] = y;
+        if (z>boundingBox[5]) boundingBox[5] = z;
+    }
+
+    /** Auxiliary method to get the squared distance of a point from the center of the bounding sphere. */
+
+    synchronized private float squaredDistanceFromSphereCenter(float x, float y, float z) {
+        float dx = x-boundingSphere[0], dy = y-boundingSphere[1], dz = z-boundingSphere[2];
+        return dx*dx+dy*dy+dz*dz;
+    }
+
+    /** Auxiliary method to check if a triangle vertex lies on the boundary of the bounding box, i.e. if the box might shrink when the vertex is moved. */
+
+    synchronized private boolean isOnBoundingBox(GLTriangleCV triangle, int vertexNo) {
+        for (int i=0;i<3;i++) {
+            float coord = triangle.getVertexCoordinate(vertexNo,i);
+            if (coord<=boundingBox[i]||coord>=boundingBox[i+3])
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Auxiliary method to update the bounding volumes after a triangle vertex has been changed.
+     * @param wasOnBoundary Specifies whether the old vertex had been on the boundary of the bounding box.
+     * If so, the box might shrink and is therefore invalidated. Otherwise, it is just extended by the new vertex.
+     * @param triangle The triangle.
+     * @param vertexNo The number of the changed vertex.
+     */
+
+    synchronized private void updateBoundingVolumes(boolean wasOnBoundary, GLTriangleCV triangle, int vertexNo) {
+        if (wasOnBoundary)
+            boundingVolumesValid = false;
+          else
+            extendBoundingVolumes(triangle.getVertexCoordinate(vertexNo,0),triangle.getVertexCoordinate(vertexNo,1),triangle.getVertexCoordinate(vertexNo,2));
     }
 
     /**
@@ -810,7 +1981,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setScaleX(float scaleX) {
         scalingMatrix[0] = scaleX;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -825,7 +1996,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setScaleY(float scaleY) {
         scalingMatrix[5] = scaleY;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -840,7 +2011,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setScaleZ(float scaleZ) {
         scalingMatrix[10] = scaleZ;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -857,7 +2028,7 @@ public class GLShapeCV {
         scalingMatrix[0] = scaleX;
         scalingMatrix[5] = scaleY;
         scalingMatrix[10] = scaleZ;
-        buildModelMatrix();
+        invalidateModelMatrix();
         // Log.v("GLDEMO","setScale: "+scaleX+" "+scaleY+" "+scaleZ);
         return this;
     }
@@ -924,8 +2095,9 @@ public class GLShapeCV {
         rotationMatrix[11] = rotationMatrix[12] = rotationMatrix[13] = rotationMatrix[14] = 0.0f;
         rotationMatrix[15] = 1.0f; */
 
-        rotationMatrix = GraphicsUtilsCV.rotationMatrixFromEulerAngles(eulerX,eulerY,eulerZ);
-        buildModelMatrix();
+        GraphicsUtilsCV.rotationMatrixFromEulerAngles(eulerX,eulerY,eulerZ,rotationMatrix,0);
+        rotationMatrixWritten();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -957,8 +2129,9 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setRotation(float rotAngle, float rotAxisX, float rotAxisY, float rotAxisZ) {
         Matrix.setRotateM(rotationMatrix,0,rotAngle,rotAxisX,rotAxisY,rotAxisZ);
+        rotationMatrixWritten();
         // Log.v("GLDEMO",rotAngle+" "+rotAxis[0]+" "+rotAxis[1]+" "+rotAxis[2]);
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -1012,12 +2185,14 @@ public class GLShapeCV {
      */
 
     synchronized public GLShapeCV setRotationMatrix(float[] rotationMatrix, boolean matrixCheck) {
-        if (matrixCheck&&!GraphicsUtilsCV.is4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(rotationMatrix,4,4))) {
+        if (rotationMatrix==null||rotationMatrix.length!=16) return null;
+        if (matrixCheck&&!GraphicsUtilsCV.is4x4RotationMatrix(rotationMatrix)) {
             Log.v("GLDEMO","Error "+id+": This is no rotation matrix!");
             return null;
         }
-        this.rotationMatrix = rotationMatrix.clone();
-        buildModelMatrix();
+        System.arraycopy(rotationMatrix,0,this.rotationMatrix,0,16);
+        rotationMatrixWritten();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -1027,7 +2202,10 @@ public class GLShapeCV {
      */
 
     synchronized public float[] getRotAxis() {
-        return GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(rotationMatrix,4,4));
+        float[] result = new float[3];
+        validateRotationMatrix();
+        GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(rotationMatrix,result);
+        return result;
     }
 
     /**
@@ -1036,7 +2214,8 @@ public class GLShapeCV {
      */
 
     synchronized public float getRotAngle() {
-        return GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(GraphicsUtilsCV.matrixFromArray(rotationMatrix,4,4));
+        validateRotationMatrix();
+        return GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(rotationMatrix);
     }
 
     /**
@@ -1045,9 +2224,95 @@ public class GLShapeCV {
      */
 
     synchronized public float[] getRotationMatrix() {
+        validateRotationMatrix();
         return rotationMatrix.clone();
     }
 
+    /**
+     * Sets the orientation of the shape as a quaternion (x, y, z, w - see GraphicsUtilsCV.quaternionFromAxisAngle()).
+     * The rotation matrix is derived from the quaternion when the model matrix is rebuilt.
+     * This method is primarily to be used by the rotation animators (see e.g. GLAnimatorFactoryCV.addAnimatorRot()).
+     * @param quaternion The quaternion (an array of length 4, need not be normalized).
+     * @return The shape itself, such that calls of methods of this kind can be daisy chained
+     * (null if the parameter is not valid, i.e. null or an array with length not equal 4 or a quaternion of length 0).
+     */
+
+    synchronized public GLShapeCV setOrientation(float[] quaternion) {
+        if (quaternion==null||quaternion.length!=4||
+                (quaternion[0]==0&&quaternion[1]==0&&quaternion[2]==0&&quaternion[3]==0)) return null;
+        writeOrientation(quaternion);
+        invalidateModelMatrix();
+        return this;
+    }
+
+    /**
+     * Gets a copy of the orientation of the shape as a unit quaternion (x, y, z, w - see GraphicsUtilsCV.quaternionFromAxisAngle()).
+     * @return The copy of the quaternion.
+     */
+
+    synchronized public float[] getOrientation() {
+        float[] result = new float[4];
+        getOrientation(result,0);
+        return result;
+    }
+
+    /**
+     * Writes the orientation of the shape as a unit quaternion into an array (without allocating memory).
+     * @param result Array to which the quaternion is written (x, y, z, w).
+     * @param offset The position in 'result' at which the quaternion shall be written.
+     */
+
+    synchronized public void getOrientation(float[] result, int offset) {
+        validateOrientation();
+        System.arraycopy(orientation,0,result,offset,4);
+    }
+
+    /**
+     * To be called when the rotation matrix has been written: The orientation must be derived from it again when it is needed.
+     */
+
+    private void rotationMatrixWritten() {
+        rotationMatrixIsValid = true;
+        orientationIsValid = false;
+    }
+
+    /**
+     * Derives the rotation matrix from the orientation if the orientation has been set since the matrix was last derived.
+     */
+
+    private void validateRotationMatrix() {
+        if (rotationMatrixIsValid) return;
+        GraphicsUtilsCV.rotationMatrixFromQuaternion(orientation,0,rotationMatrix,0);
+        rotationMatrixIsValid = true;
+    }
+
+    /**
+     * Derives the orientation from the rotation matrix if the matrix has been set since the orientation was last derived.
+     */
+
+    private void validateOrientation() {
+        if (orientationIsValid) return;
+        GraphicsUtilsCV.quaternionFromRotationMatrix(rotationMatrix,0,orientation,0);
+        orientationIsValid = true;
+    }
+
+    /**
+     * Adds a rotation around an axis of the model coordinate system to the current rotation
+     * (see addRotationAroundOwnXAxis()), composing the quaternions instead of multiplying matrices.
+     */
+
+    private GLShapeCV addRotationAroundOwnAxis(float angle, float axisX, float axisY, float axisZ) {
+        validateOrientation();
+        GraphicsUtilsCV.quaternionFromAxisAngle(angle,axisX,axisY,axisZ,orientationScratch,0);
+        // rotating around the axis of the shape first and then by the orientation
+        // equals rotating by the orientation first and then around the rotated axis
+        GraphicsUtilsCV.quaternionMultiply(orientation,0,orientationScratch,0,orientation,0);
+        GraphicsUtilsCV.quaternionNormalize(orientation,0);
+        rotationMatrixIsValid = false;
+        invalidateModelMatrix();
+        return this;
+    }
+
     /**
      * Adds a rotation around the shape's own x axis to the current rotation,
      * i.e. takes the current orientation of the shape in world space and lets it flip ("pitch") up or down.
@@ -1057,13 +2322,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV addRotationAroundOwnXAxis(float angle) {
         if (angle==0) return this;
-        float[] xAxis = {1, 0, 0, 0};
-        Matrix.multiplyMV(xAxis, 0, rotationMatrix, 0, xAxis, 0);
-        float[] extraRotMatrix = new float[16];
-        Matrix.setRotateM(extraRotMatrix, 0, angle, xAxis[0], xAxis[1], xAxis[2]);
-        Matrix.multiplyMM(rotationMatrix, 0, extraRotMatrix, 0, rotationMatrix, 0);
-        buildModelMatrix();
-        return this;
+        return addRotationAroundOwnAxis(angle,1,0,0);
     }
 
     /**
@@ -1075,13 +2334,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV addRotationAroundOwnYAxis(float angle) {
         if (angle==0) return this;
-        float[] yAxis = {0, 1, 0, 0};
-        Matrix.multiplyMV(yAxis, 0, rotationMatrix, 0, yAxis, 0);
-        float[] extraRotMatrix = new float[16];
-        Matrix.setRotateM(extraRotMatrix, 0, angle, yAxis[0], yAxis[1], yAxis[2]);
-        Matrix.multiplyMM(rotationMatrix, 0, extraRotMatrix, 0, rotationMatrix, 0);
-        buildModelMatrix();
-        return this;
+        return addRotationAroundOwnAxis(angle,0,1,0);
     }
 
     /**
@@ -1093,13 +2346,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV addRotationAroundOwnZAxis(float angle) {
         if (angle==0) return this;
-        float[] zAxis = {0, 0, 1, 0};
-        Matrix.multiplyMV(zAxis, 0, rotationMatrix, 0, zAxis, 0);
-        float[] extraRotMatrix = new float[16];
-        Matrix.setRotateM(extraRotMatrix, 0, angle, zAxis[0], zAxis[1], zAxis[2]);
-        Matrix.multiplyMM(rotationMatrix, 0, extraRotMatrix, 0, rotationMatrix, 0);
-        buildModelMatrix();
-        return this;
+        return addRotationAroundOwnAxis(angle,0,0,1);
     }
 
     /**
@@ -1110,7 +2357,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setTransX(float transX) {
         translationMatrix[12] = transX;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -1126,7 +2373,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setTransY(float transY) {
         translationMatrix[13] = transY;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -1142,7 +2389,7 @@ public class GLShapeCV {
 
     synchronized public GLShapeCV setTransZ(float transZ) {
         translationMatrix[14] = transZ;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -1162,7 +2409,7 @@ public class GLShapeCV {
         translationMatrix[12] = transX;
         translationMatrix[13] = transY;
         translationMatrix[14] = transZ;
-        buildModelMatrix();
+        invalidateModelMatrix();
         return this;
     }
 
@@ -1190,6 +2437,74 @@ public class GLShapeCV {
         return result;
     }
 
+    /**
+     * Writes a translation value without updating the model matrix.
+     * To be called by animations of class GLAnimationCV, i.e. by the animation scheduler,
+     * which holds the monitor of the shape and invalidates the model matrix once after all animations of the shape have been advanced.
+     * @param dimension The dimension (0 = x, 1 = y, 2 = z).
+     * @param value The new translation value.
+     */
+
+    void writeTrans(int dimension, float value) {
+        translationMatrix[12+dimension] = value;
+    }
+
+    /**
+     * Writes a scaling factor without updating the model matrix - see writeTrans().
+     * @param dimension The dimension (0 = x, 1 = y, 2 = z).
+     * @param value The new scaling factor.
+     */
+
+    void writeScale(int dimension, float value) {
+        scalingMatrix[5*dimension] = value;
+    }
+
+    /**
+     * Copies values into the rotation matrix without checking them and without updating the model matrix - see writeTrans().
+     * @param rotationMatrix The values for the rotation matrix (an array of length 16).
+     */
+
+    void writeRotationMatrix(float[] rotationMatrix) {
+        writeRotationMatrix(rotationMatrix,0);
+    }
+
+    /**
+     * Writes the rotation matrix from a given position of an array without updating the model matrix - see writeTrans().
+     */
+
+    void writeRotationMatrix(float[] values, int offset) {
+        System.arraycopy(values,offset,this.rotationMatrix,0,16);
+        rotationMatrixWritten();
+    }
+
+    /**
+     * Writes the orientation as a quaternion without updating the model matrix - see writeTrans().
+     * The quaternion is normalized; a quaternion of length 0 is ignored.
+     * @param quaternion The quaternion (an array of length 4).
+     */
+
+    void writeOrientation(float[] quaternion) {
+        System.arraycopy(quaternion,0,orientationScratch,0,4);
+        if (!GraphicsUtilsCV.quaternionNormalize(orientationScratch,0)) return;
+        System.arraycopy(orientationScratch,0,orientation,0,4);
+        orientationIsValid = true;
+        rotationMatrixIsValid = false;
+    }
+
+    /**
+     * Sets the packed array of model matrices from which the model matrix of the shape shall be taken by draw().
+     * To be called by stores of bulk animations (class GLBulkAnimationsCV) when the shape is added to or removed from the store.
+     * @param matrices The array of model matrices (null = use the own model matrix of the shape).
+     * @param offset The position of the model matrix of the shape in the array.
+     */
+
+    synchronized void setBulkModelMatrix(float[] matrices, int offset) {
+        bulkModelMatrices = matrices;
+        bulkModelMatrixOffset = offset;
+        modifyDrawState();
+        publishDrawState();
+    }
+
     /**
      * Method to align the shape with a given vector,
      * i.e. to rotate it such that its x, y, or z axis lies in parallel with the vector.
@@ -1202,6 +2517,10 @@ public class GLShapeCV {
         return alignWith(axisToAlign,vector,false,0);
     }
 
+    /** Scratch arrays for the alignWith() methods (to avoid allocations when shapes are aligned in every frame, e.g. by path animators). */
+
+    private final float[] alignScratch = new float[9], alignRotationMatrix = new float[16];
+
     /**
      * Method to align the shape with a given vector,
      * i.e. to rotate it such that its x, y, or z axis lies in parallel with the vector.
@@ -1219,15 +2538,16 @@ public class GLShapeCV {
         if (vector==null||vector.length!=3||
                 (vector[0]==0&&vector[1]==0&&vector[2]==0)
                 || axisToAlign<0 || axisToAlign>2) return null;
-        float[] axisToAlignVector = new float[3];
-        axisToAlignVector[axisToAlign] = 1;
-        float[] vectorNormalized = GraphicsUtilsCV.getNormalizedCopy(vector);
-        float[] rotAxis = GraphicsUtilsCV.crossProduct(axisToAlignVector,vectorNormalized);
-        float rotAngle = (float)(180*Math.acos(GraphicsUtilsCV.dotProduct(axisToAlignVector,vectorNormalized))/Math.PI);
+        // alignVectors: axis to align at positions 0-2, normalized vector at positions 3-5, rotation axis at positions 6-8
+        float[] alignVectors = alignScratch;
+        Arrays.fill(alignVectors,0,3,0);
+        alignVectors[axisToAlign] = 1;
+        GraphicsUtilsCV.normalize(vector,0,alignVectors,3);
+        GraphicsUtilsCV.crossProduct(alignVectors,0,alignVectors,3,alignVectors,6);
+        float rotAngle = (float)(180*Math.acos(GraphicsUtilsCV.dotProduct(alignVectors,0,alignVectors,3))/Math.PI);
         if (!GraphicsUtilsCV.valuesEqual(rotAngle,0,0.0001)) {
-            float[] rotMatrix = new float[16];
-            Matrix.setRotateM(rotMatrix, 0, rotAngle, rotAxis[0], rotAxis[1], rotAxis[2]);
-            setRotationMatrix(rotMatrix);
+            Matrix.setRotateM(alignRotationMatrix, 0, rotAngle, alignVectors[6], alignVectors[7], alignVectors[8]);
+            setRotationMatrix(alignRotationMatrix);
         }
         if (flip)
             switch (axisToAlign) {
@@ -1259,15 +2579,16 @@ public class GLShapeCV {
         if (vector==null||vector.length!=3||
                 (vector[0]==0&&vector[1]==0&&vector[2]==0)
                 || axisToAlign<0 || axisToAlign>2) return null;
-        float[] axisToAlignVector = new float[3];
-        axisToAlignVector[axisToAlign] = 1;
-        float[] vectorNormalized = GraphicsUtilsCV.getNormalizedCopy(vector);
-        float[] rotAxis = GraphicsUtilsCV.crossProduct(axisToAlignVector,vectorNormalized);
-        float rotAngle = (float)(180*Math.acos(GraphicsUtilsCV.dotProduct(axisToAlignVector,vectorNormalized)/Math.PI));
+        // alignVectors: axis to align at positions 0-2, normalized vector at positions 3-5, rotation axis at positions 6-8
+        float[] alignVectors = alignScratch;
+        Arrays.fill(alignVectors,0,3,0);
+        alignVectors[axisToAlign] = 1;
+        GraphicsUtilsCV.normalize(vector,0,alignVectors,3);
+        GraphicsUtilsCV.crossProduct(alignVectors,0,alignVectors,3,alignVectors,6);
+        float rotAngle = (float)(180*Math.acos(GraphicsUtilsCV.dotProduct(alignVectors,0,alignVectors,3)/Math.PI));
         if (!GraphicsUtilsCV.valuesEqual(rotAngle,0,0.0001)) {
-            float[] rotMatrix = new float[16];
-            Matrix.setRotateM(rotMatrix, 0, rotAngle, rotAxis[0], rotAxis[1], rotAxis[2]);
-            setRotationMatrix(rotMatrix);
+            Matrix.setRotateM(alignRotationMatrix, 0, rotAngle, alignVectors[6], alignVectors[7], alignVectors[8]);
+            setRotationMatrix(alignRotationMatrix);
         }
         addRotationAroundOwnXAxis(extraRotX);
         addRotationAroundOwnYAxis(extraRotY);
@@ -1299,13 +2620,16 @@ public class GLShapeCV {
     }
 
     /**
-     * Method to align the shape with another shape by copying the rotation matrix of that shape.
+     * Method to align the shape with another shape by copying the orientation of that shape.
+     * The orientation is read as published for the render thread (see getPublishedOrientation()), i.e. without the monitor of the other shape.
      * @return The shape itself, such that calls of methods of this kind can be daisy chained (or null if the parameter is null).
      */
 
     synchronized public GLShapeCV alignWith(GLShapeCV shapeToAlignWith) {
         if (shapeToAlignWith==null) return null;
-        setRotationMatrix(shapeToAlignWith.getRotationMatrix());
+        float[] quaternion = new float[4];
+        shapeToAlignWith.getPublishedOrientation(quaternion,0);
+        setOrientation(quaternion);
         return this;
     }
 
@@ -1343,15 +2667,441 @@ public class GLShapeCV {
     }
 
     /**
-     * Builds the model matrix (i.e. the 'modelMatrix' attribute) from the scaling, rotation, and translation matrix attributes of the shape.
-     * For details, see the note in the introductory text on the order of transformation operations.
+     * Sets a motion of the shape that shall be evaluated by the vertex shader, i.e. on the graphics hardware.
+     * The motion starts when the shape is drawn the next time, taking the current translation, rotation, and scaling of the shape as its start pose.
+     * While the motion is set, the translation, rotation, and scaling attributes of the shape are not applied when the shape is drawn.
+     * <BR>
+     * If another motion has been set before and has already started, the pose reached by this motion
+     * is written into the translation and rotation attributes of the shape, i.e. the shape stays where it is.
+     * @param motion The motion (null = no motion, i.e. the model matrix will be applied again).
+     * @return The shape itself, such that calls of methods of this kind can be daisy chained.
+     * @see GLShaderMotionCV
+     */
+
+    synchronized public GLShapeCV setShaderMotion(GLShaderMotionCV motion) {
+        if (shaderMotion!=null&&shaderMotion.getStartTime()>=0) {
+            float time = shaderMotion.getReducedTimeAtFrame(lastFrameTimeNanos);
+            float[] position = new float[3];
+            shaderMotion.getPosition(shaderMotion.getFraction(time),position);
+            for (int i=0; i<3; i++)
+                translationMatrix[12+i] = position[i];
+            shaderMotion.getRotationMatrix(time,rotationMatrix);
+            rotationMatrixWritten();
+            invalidateModelMatrix();
+        }
+        shaderMotion = motion;
+        if (motion!=null)
+            motion.reset();
+        modifyDrawState();
+        publishDrawState();
+        return this;
+    }
+
+    synchronized public GLShaderMotionCV getShaderMotion() {
+        return shaderMotion;
+    }
+
+    /**
+     * Defines a vertex group, i.e. a named set of triangles and lines of the shape that has its own local transformation matrix.
+     * The matrices of all groups form a small matrix palette that is applied by the vertex shader:
+     * Each vertex is first transformed by the matrix of its group and then by the model matrix (resp. the shader motion) of the shape.
+     * Moving parts of a shape, e.g. the wings of a bird or the propeller of an airplane, can thus be animated
+     * by updating a single matrix per frame (see GLAnimationCV.vertexGroupMatrix() and GLAnimatorFactoryCV.addAnimationVertexGroupRot())
+     * instead of rewriting the vertex coordinates.
+     * <BR>
+     * The matrix of a new group is the identity. Triangles and lines that are not assigned to any named group belong to the default group 0.
+     * If a group with the given name already exists, the triangles and lines are added to this group.
+     * A shape can have at most MAX_VERTEX_GROUPS-1 named groups.
+     * <BR>
+     * Note that the bounding volumes of the shape (see getBoundingBox()) refer to the untransformed vertices.
+     * @param name The name of the group.
+     * @param firstTriangle The index of the first triangle of the group.
+     * @param numberOfTriangles The number of triangles of the group (may be 0).
+     * @param firstLine The index of the first line of the group.
+     * @param numberOfLines The number of lines of the group (may be 0).
+     * @return The number of the group (-1 if the parameters are not valid or if the maximum number of groups has been reached).
+     */
+
+    synchronized public int defineVertexGroup(String name, int firstTriangle, int numberOfTriangles, int firstLine, int numberOfLines) {
+        int trianglesInShape = triangles!=null?triangles.length:0;
+        int linesInShape = lines!=null?lines.length:0;
+        if (name==null||numberOfTriangles<0||numberOfLines<0) return -1;
+        if (numberOfTriangles>0&&(firstTriangle<0||firstTriangle+numberOfTriangles>trianglesInShape)) return -1;
+        if (numberOfLines>0&&(firstLine<0||firstLine+numberOfLines>linesInShape)) return -1;
+        int group = getVertexGroup(name);
+        if (group<0) {
+            if (vertexGroupNames!=null&&vertexGroupNames.size()>=MAX_VERTEX_GROUPS) return -1;
+            if (vertexGroupNames==null) {
+                vertexGroupNames = new ArrayList<String>();
+                vertexGroupNames.add(null);
+                triangleGroups = new int[trianglesInShape];
+                lineGroups = new int[linesInShape];
+                vertexGroupMatrices = new float[16*MAX_VERTEX_GROUPS];
+                for (int i=0;i<MAX_VERTEX_GROUPS;i++)
+                    for (int j=0;j<4;j++)
+                        vertexGroupMatrices[16*i+5*j] = 1;
+            }
+            vertexGroupNames.add(name);
+            group = vertexGroupNames.size()-1;
+        }
+        for (int i=firstTriangle;i<firstTriangle+numberOfTriangles;i++)
+            triangleGroups[i] = group;
+        for (int i=firstLine;i<firstLine+numberOfLines;i++)
+            lineGroups[i] = group;
+        vertexGroupBuffersStale = true;
+        modifyDrawState().vertexGroupMatricesModified = true;
+        updateBuffers();
+        return group;
+    }
+
+    /**
+     * Gets the number of a vertex group.
+     * @param name The name of the group.
+     * @return The number of the group (-1 if the shape has no group with this name).
+     */
+
+    synchronized public int getVertexGroup(String name) {
+        if (vertexGroupNames==null||name==null) return -1;
+        for (int i=1;i<vertexGroupNames.size();i++)
+            if (vertexGroupNames.get(i).equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Gets the names of the vertex groups of the shape.
+     * @return An array with the names of the groups 1, 2, ... (an empty array if no group has been defined).
+     */
+
+    synchronized public String[] getVertexGroupNames() {
+        if (vertexGroupNames==null) return new String[0];
+        String[] result = new String[vertexGroupNames.size()-1];
+        for (int i=0;i<result.length;i++)
+            result[i] = vertexGroupNames.get(i+1);
+        return result;
+    }
+
+    /**
+     * Sets the local transformation matrix of a vertex group (see defineVertexGroup()).
+     * @param name The name of the group.
+     * @param matrix The matrix (array of length 16 in the column-major order of android.opengl.Matrix).
+     * @return The shape itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public GLShapeCV setVertexGroupMatrix(String name, float[] matrix) {
+        if (matrix==null||matrix.length!=16) return this;
+        writeVertexGroupMatrix(getVertexGroup(name),matrix);
+        return this;
+    }
+
+    /**
+     * Sets the local transformation matrix of a vertex group (see defineVertexGroup()) to a rotation around an axis through a pivot point.
+     * @param name The name of the group.
+     * @param angle The rotation angle (degrees).
+     * @param axis The direction of the rotation axis (array of length 3).
+     * @param pivot A point on the rotation axis in model coordinates (array of length 3).
+     * @return The shape itself, such that calls of methods of this kind can be daisy chained.
+     */
+
+    synchronized public GLShapeCV setVertexGroupRotation(String name, float angle, float[] axis, float[] pivot) {
+        if (axis==null||axis.length!=3||pivot==null||pivot.length!=3) return this;
+        float[] matrix = new float[16];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(angle,axis,pivot,matrix);
+        writeVertexGroupMatrix(getVertexGroup(name),matrix);
+        return this;
+    }
+
+    /**
+     * Gets the local transformation matrix of a vertex group.
+     * @param name The name of the group.
+     * @return A copy of the matrix (null if the shape has no group with this name).
+     */
+
+    synchronized public float[] getVertexGroupMatrix(String name) {
+        int group = getVertexGroup(name);
+        if (group<0) return null;
+        return Arrays.copyOfRange(vertexGroupMatrices,16*group,16*group+16);
+    }
+
+    /**
+     * Writes the local transformation matrix of a vertex group without further checks.
+     * To be called by the animation scheduler via GLAnimationCV.vertexGroupMatrix().
+     * @param group The number of the group (invalid numbers and the default group 0 are ignored).
+     * @param matrix The matrix (array of length 16).
+     */
+
+    synchronized void writeVertexGroupMatrix(int group, float[] matrix) {
+        if (vertexGroupNames==null||group<=0||group>=vertexGroupNames.size()) return;
+        System.arraycopy(matrix,0,vertexGroupMatrices,16*group,16);
+        modifyDrawState().vertexGroupMatricesModified = true;
+        publishDrawState();
+    }
+
+    /**
+     * Gets the model matrix as currently applied when the shape is drawn,
+     * i.e. the model matrix calculated from the shader motion at the time of the last frame if a shader motion is set
+     * (see GLShaderMotionCV.getModelMatrix()) or a copy of the 'modelMatrix' attribute otherwise.
+     * The method can be used e.g. to pick shapes in world space.
+     * @return The model matrix.
+     */
+
+    synchronized public float[] getCurrentModelMatrix() {
+        float[] result = new float[16];
+        if (shaderMotion!=null&&shaderMotion.getStartTime()>=0)
+            shaderMotion.getModelMatrix(shaderMotion.getReducedTimeAtFrame(lastFrameTimeNanos),result);
+          else {
+            validateModelMatrix();
+            System.arraycopy(modelMatrix,0,result,0,16);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the current model matrix of the shape into an array.
+     * The matrix is taken from the store of bulk animations or the shader motion of the shape, if any,
+     * or from the 'modelMatrix' attribute otherwise (after composing it if it is outdated).
+     * @param result Array of length 16 to store the matrix.
+     */
+
+    synchronized void getCurrentModelMatrix(float[] result) {
+        if (bulkModelMatrices!=null)
+            System.arraycopy(bulkModelMatrices,bulkModelMatrixOffset,result,0,16);
+        else if (shaderMotion!=null&&shaderMotion.getStartTime()>=0)
+            shaderMotion.getModelMatrix(shaderMotion.getReducedTimeAtFrame(lastFrameTimeNanos),result);
+        else {
+            validateModelMatrix();
+            System.arraycopy(modelMatrix,0,result,0,16);
+        }
+    }
+
+    /**
+     * Gets the bounding volume hierarchy over the triangles of the shape (see class GLTriangleBVHCV).
+     * It is built when it is needed first and cached until the triangles of the shape are changed.
+     * @return The BVH.
+     */
+
+    synchronized GLTriangleBVHCV getTriangleBVH() {
+        if (triangleBVH==null)
+            triangleBVH = new GLTriangleBVHCV(triangles);
+        return triangleBVH;
+    }
+
+    /**
+     * Checks whether the triangles of this shape intersect the triangles of another shape, both placed into the world by their current model matrices.
+     * For details, see class GLTriangleBVHCV.
+     * @param other The other shape.
+     * @return true if some triangles intersect; false if not or if one of the shapes has no triangles or 'other' is null.
+     */
+
+    public boolean intersects(GLShapeCV other) {
+        if (other==null) return false;
+        float[] modelMatrix1 = new float[16], modelMatrix2 = new float[16];
+        GLTriangleBVHCV bvh1 = getTriangleBVHAndModelMatrix(modelMatrix1);
+        GLTriangleBVHCV bvh2 = other.getTriangleBVHAndModelMatrix(modelMatrix2);
+        return GLTriangleBVHCV.intersect(bvh1,modelMatrix1,bvh2,modelMatrix2,null);
+    }
+
+    /**
+     * Gets the contact points of the triangles of this shape and another shape, both placed into the world by their current model matrices,
+     * i.e. the points where edges of the triangles of one shape pass through triangles of the other shape.
+     * For details, see class GLTriangleBVHCV.
+     * @param other The other shape.
+     * @return The contact points in world coordinates (an empty array if the shapes do not intersect) or null if 'other' is null.
+     */
+
+    public float[][] getContactPoints(GLShapeCV other) {
+        if (other==null) return null;
+        float[] modelMatrix1 = new float[16], modelMatrix2 = new float[16];
+        GLTriangleBVHCV bvh1 = getTriangleBVHAndModelMatrix(modelMatrix1);
+        GLTriangleBVHCV bvh2 = other.getTriangleBVHAndModelMatrix(modelMatrix2);
+        ArrayList<float[]> contactPoints = new ArrayList<float[]>();
+        GLTriangleBVHCV.intersect(bvh1,modelMatrix1,bvh2,modelMatrix2,contactPoints);
+        return contactPoints.toArray(new float[contactPoints.size()][]);
+    }
+
+    /**
+     * Calculates the distance between the triangles of this shape and the triangles of another shape, both placed into the world by their current model matrices.
+     * For details, see class GLTriangleBVHCV.
+     * @param other The other shape.
+     * @param closestPoints Array of length 6 to store the closest points of this shape and of the other shape in world coordinates (or null).
+     * @return The distance (0 if the shapes intersect) or -1 if one of the shapes has no triangles or a parameter is not correct.
+     */
+
+    public float distanceTo(GLShapeCV other, float[] closestPoints) {
+        if (other==null||(closestPoints!=null&&closestPoints.length<6)) return -1;
+        float[] modelMatrix1 = new float[16], modelMatrix2 = new float[16];
+        GLTriangleBVHCV bvh1 = getTriangleBVHAndModelMatrix(modelMatrix1);
+        GLTriangleBVHCV bvh2 = other.getTriangleBVHAndModelMatrix(modelMatrix2);
+        return GLTriangleBVHCV.distance(bvh1,modelMatrix1,bvh2,modelMatrix2,closestPoints);
+    }
+
+    /**
+     * Auxiliary method to get the BVH and the current model matrix of the shape consistently, i.e. under the monitor of the shape.
+     * The queries themselves are then run without holding the monitors of the two shapes (the BVH is not modified after it has been built).
+     */
+
+    synchronized private GLTriangleBVHCV getTriangleBVHAndModelMatrix(float[] modelMatrix) {
+        getCurrentModelMatrix(modelMatrix);
+        return getTriangleBVH();
+    }
+
+    /** Scratch array for getWorldBoundingBox(). */
+
+    private float[] worldBoundingBoxMatrix;
+
+    /**
+     * Calculates an axis-aligned bounding box of the shape in world coordinates,
+     * i.e. the smallest axis-aligned box enclosing the bounding box of the shape (see getBoundingBox()) transformed by the current model matrix.
+     * The current model matrix is taken from the store of bulk animations or the shader motion of the shape, if any (see getCurrentModelMatrix(float[])),
+     * or calculated directly from the scaling, rotation, and translation of the shape otherwise (such that it is up to date also during animations).
+     * The method does not allocate memory (except for shapes with a shader motion) and is thus suited to be called for many shapes in every frame,
+     * e.g. by the broad phase of a collision detection (see GLCollisionDetectorCV).
+     * @param result Array to store the minimum x, y, and z coordinates and the maximum x, y, and z coordinates.
+     * @param offset The position in 'result' at which the six values shall be stored.
+     * @return false if the shape has no vertices (then 'result' is not modified), true otherwise.
+     */
+
+    synchronized boolean getWorldBoundingBox(float[] result, int offset) {
+        if (!boundingVolumesValid)
+            recomputeBoundingVolumes();
+        if (boundingBox[0]>boundingBox[3]) return false;
+        if (worldBoundingBoxMatrix==null)
+            worldBoundingBoxMatrix = new float[16];
+        float[] m = worldBoundingBoxMatrix;
+        getCurrentModelMatrix(m);
+        for (int row=0; row<3; row++) {
+            float center = m[12+row], extent = 0;
+            for (int col=0; col<3; col++) {
+                float value = m[4*col+row];
+                center += value*(boundingBox[col]+boundingBox[col+3])/2;
+                extent += Math.abs(value)*(boundingBox[col+3]-boundingBox[col])/2;
+            }
+            result[offset+row] = center-extent;
+            result[offset+3+row] = center+extent;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the model matrix as outdated, i.e. to be composed again when it is read next (see validateModelMatrix()),
+     * and publishes the new pose for the render thread (see publishModelMatrix()).
+     * To be called whenever the scaling, rotation, or translation of the shape has been modified.
+     */
+
+    synchronized void invalidateModelMatrix() {
+        modelMatrixIsDirty = true;
+        publishModelMatrix();
+    }
+
+    /**
+     * Composes the model matrix (i.e. the 'modelMatrix' attribute) from the scaling, rotation, and translation matrix attributes of the shape
+     * - but only if one of these attributes has been modified since the matrix was composed last.
+     * For details, see the note in the introductory text on the order of transformation operations and composeModelMatrix().
+     */
+
+    synchronized private void validateModelMatrix() {
+        if (!modelMatrixIsDirty) return;
+        validateRotationMatrix();
+        composeModelMatrix(rotationMatrix,0,scalingMatrix[0],scalingMatrix[5],scalingMatrix[10],
+                translationMatrix[12],translationMatrix[13],translationMatrix[14],modelMatrix,0);
+        modelMatrixIsDirty = false;
+    }
+
+    /**
+     * Publishes the pose of the shape for the render thread, i.e. copies the factors of the model matrix into the back buffer of the triple buffer
+     * and exchanges the back buffer with the middle buffer (see attribute 'publishedModelMatrices').
+     * The rotation is published in the representation that is currently valid; the model matrix itself is composed by the render thread.
      */
 
-    synchronized private void buildModelMatrix() {
-        Matrix.setIdentityM(modelMatrix,0);
-        Matrix.multiplyMM(modelMatrix, 0, scalingMatrix, 0, modelMatrix, 0);
-        Matrix.multiplyMM(modelMatrix, 0, rotationMatrix, 0, modelMatrix, 0);
-        Matrix.multiplyMM(modelMatrix, 0, translationMatrix, 0, modelMatrix, 0);
+    synchronized private void publishModelMatrix() {
+        float[] buffer = publishedModelMatrices[modelMatrixBackIndex];
+        for (int i=0; i<3; i++) {
+            buffer[PUBLISHED_TRANS+i] = translationMatrix[12+i];
+            buffer[PUBLISHED_SCALE+i] = scalingMatrix[5*i];
+        }
+        if (rotationMatrixIsValid) {
+            buffer[PUBLISHED_ROTATION_TYPE] = 0;
+            System.arraycopy(rotationMatrix,0,buffer,PUBLISHED_ROTATION,16);
+        } else {
+            buffer[PUBLISHED_ROTATION_TYPE] = 1;
+            System.arraycopy(orientation,0,buffer,PUBLISHED_ROTATION,4);
+        }
+        int published = modelMatrixBackIndex;
+        modelMatrixBackIndex = modelMatrixMiddle.getAndSet(published|MODEL_MATRIX_FRESH)&3;
+        modelMatrixLatest.getAndSet((++modelMatrixPublications<<2)|published);
+    }
+
+    /**
+     * Writes the orientation of the shape as published last for the render thread (see publishModelMatrix()) into an array,
+     * without the monitor of the shape. Can be called by any thread, e.g. to align a shape with another shape
+     * while the other shape is being modified by its own animators.
+     * <BR>
+     * The published buffer is read like a sequence lock: The read is repeated if another pose has been published in the meantime,
+     * as the buffer might then have been reused for a later pose.
+     * @param result Array to which the quaternion is written (x, y, z, w).
+     * @param offset The position in 'result' at which the quaternion shall be written.
+     */
+
+    void getPublishedOrientation(float[] result, int offset) {
+        int latest;
+        do {
+            latest = modelMatrixLatest.get();
+            float[] buffer = publishedModelMatrices[latest&3];
+            if (buffer[PUBLISHED_ROTATION_TYPE]!=0)
+                System.arraycopy(buffer,PUBLISHED_ROTATION,result,offset,4);
+            else
+                GraphicsUtilsCV.quaternionFromRotationMatrix(buffer,PUBLISHED_ROTATION,result,offset);
+        } while (!modelMatrixLatest.compareAndSet(latest,latest));
+    }
+
+    /**
+     * Gets the latest published model matrix without locking (see attribute 'publishedModelMatrices').
+     * If a new pose has been published since the last call, the front buffer is exchanged with the middle buffer
+     * and the model matrix is composed from the factors in the new front buffer.
+     * Must only be called by the render thread, i.e. from draw().
+     * @return The front buffer of the triple buffer with the model matrix at positions 0 to 15;
+     * it remains unchanged until the next call of this method.
+     */
+
+    private float[] acquireModelMatrix() {
+        if ((modelMatrixMiddle.get()&MODEL_MATRIX_FRESH)!=0) {
+            modelMatrixFrontIndex = modelMatrixMiddle.getAndSet(modelMatrixFrontIndex)&3;
+            float[] buffer = publishedModelMatrices[modelMatrixFrontIndex];
+            float[] rotation = buffer;
+            int rotationOffset = PUBLISHED_ROTATION;
+            if (buffer[PUBLISHED_ROTATION_TYPE]!=0) {
+                GraphicsUtilsCV.rotationMatrixFromQuaternion(buffer,PUBLISHED_ROTATION,drawRotationMatrix,0);
+                rotation = drawRotationMatrix;
+                rotationOffset = 0;
+            }
+            composeModelMatrix(rotation,rotationOffset,buffer[PUBLISHED_SCALE],buffer[PUBLISHED_SCALE+1],buffer[PUBLISHED_SCALE+2],
+                    buffer[PUBLISHED_TRANS],buffer[PUBLISHED_TRANS+1],buffer[PUBLISHED_TRANS+2],buffer,0);
+        }
+        return publishedModelMatrices[modelMatrixFrontIndex];
+    }
+
+    /**
+     * Composes a model matrix, i.e. the product translation matrix * rotation matrix * scaling matrix.
+     * The product is calculated in closed form, i.e. without generic matrix multiplications:
+     * As the scaling matrix is a diagonal matrix and the translation matrix differs from the identity only in its last column,
+     * each element of the model matrix is an element of the rotation matrix multiplied by a scaling factor,
+     * plus a translation value for the upper three rows.
+     * @param rotation Array with the rotation matrix (16 values).
+     * @param rotationOffset The position of the rotation matrix in 'rotation'.
+     * @param result Array to store the model matrix (16 values); must not overlap with the rotation matrix.
+     * @param resultOffset The position of the model matrix in 'result'.
+     */
+
+    private static void composeModelMatrix(float[] rotation, int rotationOffset, float scaleX, float scaleY, float scaleZ,
+                                           float transX, float transY, float transZ, float[] result, int resultOffset) {
+        for (int col=0; col<4; col++) {
+            float scale = col==0 ? scaleX : col==1 ? scaleY : col==2 ? scaleZ : 1;
+            float bottom = rotation[rotationOffset+4*col+3]*scale;
+            result[resultOffset+4*col] = rotation[rotationOffset+4*col]*scale+transX*bottom;
+            result[resultOffset+4*col+1] = rotation[rotationOffset+4*col+1]*scale+transY*bottom;
+            result[resultOffset+4*col+2] = rotation[rotationOffset+4*col+2]*scale+transZ*bottom;
+            result[resultOffset+4*col+3] = bottom;
+        }
     }
 
     /**
@@ -1399,11 +3149,17 @@ public class GLShapeCV {
     }
 
     /**
-     * Starts the animators associated with the shape.
+     * Starts the animators associated with the shape
+     * and passes its animations to the animation scheduler of the renderer of its surface view.
      * This method will called from the addShape() method of an GLSurfaceViewCV object, i.e. when the shape is added to a surface view.
      */
 
     synchronized public void startAnimators() {
+        if (!animations.isEmpty()&&surfaceView!=null&&surfaceView.getRenderer()!=null) {
+            GLAnimationSchedulerCV scheduler = surfaceView.getRenderer().getAnimationScheduler();
+            for (GLAnimationCV animation: animations)
+                scheduler.start(animation);
+        }
         if (animators==null||animators.isEmpty()) return;
         // Log.v("DEMO","start animators: "+animators.size());
         AnimatorSet animset = new AnimatorSet();
@@ -1413,15 +3169,170 @@ public class GLShapeCV {
             animarray[i++] = animator;
         animset.playTogether(animarray);
         animset.start();
+        startedAnimators = animset;
+        animatorsLooper = Looper.myLooper();
+    }
+
+    /**
+     * Stops the animators and animations of the shape, i.e. cancels the animators started by startAnimators()
+     * and the animations (objects of class GLAnimationCV) of the shape.
+     * The shape keeps its current pose, end actions are not executed.
+     * This method will called from the removeShape() and clearShapes() methods of an GLSurfaceViewCV object, i.e. when the shape is removed from a surface view.
+     * The animators and animations will be started again when the shape is added to a surface view again.
+     */
+
+    synchronized public void stopAnimators() {
+        for (GLAnimationCV animation: animations)
+            animation.cancel();
+        final AnimatorSet animset = startedAnimators;
+        startedAnimators = null;
+        if (animset!=null)
+            runOnAnimatorsLooper(new Runnable() {
+                @Override
+                public void run() {
+                    animset.cancel();
+                }
+            });
+    }
+
+    /**
+     * Pauses the animators started by startAnimators(), e.g. when the surface view is paused.
+     * (The animations of class GLAnimationCV are paused by the animation scheduler of the renderer.)
+     */
+
+    synchronized public void pauseAnimators() {
+        final AnimatorSet animset = startedAnimators;
+        if (animset!=null)
+            runOnAnimatorsLooper(new Runnable() {
+                @Override
+                public void run() {
+                    animset.pause();
+                }
+            });
+    }
+
+    /**
+     * Resumes the animators paused by pauseAnimators().
+     */
+
+    synchronized public void resumeAnimators() {
+        final AnimatorSet animset = startedAnimators;
+        if (animset!=null)
+            runOnAnimatorsLooper(new Runnable() {
+                @Override
+                public void run() {
+                    animset.resume();
+                }
+            });
+    }
+
+    /**
+     * Auxiliary method to run an action on the thread that has started the animators
+     * (Android animators may only be controlled from this thread, but shapes may e.g. be removed by end actions running on the render thread).
+     */
+
+    private void runOnAnimatorsLooper(Runnable action) {
+        if (animatorsLooper==null||Looper.myLooper()==animatorsLooper)
+            action.run();
+        else
+            new Handler(animatorsLooper).post(action);
+    }
+
+    /**
+     * Checks whether the shape is in the view of the camera, i.e. whether its bounding sphere in world coordinates intersects the view frustum.
+     * Used by the animation scheduler to decide how to advance the animations of shapes outside the view (see GLAnimationSchedulerCV.setOffscreenPolicy()).
+     * The check is conservative: Shapes without vertices and shapes whose model matrices are not calculated on the CPU
+     * (shapes with a shader motion or in a store of bulk animations) are regarded as visible.
+     * @param vpMatrix The view/projection matrix of the renderer.
+     * @return false if the shape is outside the view, true otherwise.
+     */
+
+    synchronized boolean isInView(float[] vpMatrix) {
+        if (shaderMotion!=null||bulkModelMatrices!=null) return true;
+        if (!boundingVolumesValid)
+            recomputeBoundingVolumes();
+        if (boundingBox[0]>boundingBox[3]) return true;
+        validateModelMatrix();
+        float maxScale = 0;
+        for (int col=0; col<3; col++) {
+            float m0 = modelMatrix[4*col], m1 = modelMatrix[4*col+1], m2 = modelMatrix[4*col+2];
+            maxScale = Math.max(maxScale,m0*m0+m1*m1+m2*m2);
+        }
+        float cx = boundingSphere[0], cy = boundingSphere[1], cz = boundingSphere[2];
+        return GraphicsUtilsCV.sphereIntersectsFrustum(vpMatrix,
+                modelMatrix[0]*cx+modelMatrix[4]*cy+modelMatrix[8]*cz+modelMatrix[12],
+                modelMatrix[1]*cx+modelMatrix[5]*cy+modelMatrix[9]*cz+modelMatrix[13],
+                modelMatrix[2]*cx+modelMatrix[6]*cy+modelMatrix[10]*cz+modelMatrix[14],
+                boundingSphere[3]*(float)Math.sqrt(maxScale));
+    }
+
+    /**
+     * Add an animation to the list of animations, i.e. of animations that are advanced in the render loop.
+     * <BR>
+     * Like an animator, the animation will not be started immediately but from the addShape() method of an GLSurfaceViewCV object,
+     * i.e. when the shape is added to a surface view.
+     * <BR>
+     * N.B.: If an animation is added to the shape after the shape has already been added to a surface view,
+     * the animation must be started explicitly by calling start() of the animation scheduler of the renderer.
+     * @param animation The animation to be added.
+     */
+
+    synchronized public void addAnimation(GLAnimationCV animation) {
+        animations.add(animation);
+    }
+
+    /**
+     * Get the animations of the shape.
+     * @return A copy of the list of animations.
+     */
+
+    synchronized public ArrayList<GLAnimationCV> getAnimations() {
+        return new ArrayList<GLAnimationCV>(animations);
+    }
+
+    /**
+     * The method to be called by a renderer to draw the shape.
+     * The view/projection matrix passed by the renderer is multiplied with the model matrix of the shape.
+     * The current system time is taken as the frame time (see draw(float[],long)).
+     * @param vpMatrix The view/projection matrix to be passed by the renderer.
+     */
+
+    public void draw(float[] vpMatrix) {
+        draw(vpMatrix,System.nanoTime());
     }
 
+    /**
+     * Scratch arrays of draw(), accessed only by the render thread:
+     * MVP matrix, matrix palette of the vertex groups, start pose and uniforms of the shader motion.
+     * The MVP matrix is valid for the view/projection matrix in 'drawVPMatrix' and the published model matrix 'drawMVPModelMatrix'
+     * (i.e. the front buffer of the triple buffer, which is replaced when a new pose has been published).
+     * 'drawRotationMatrix' holds the rotation matrix derived from a published quaternion (see acquireModelMatrix()).
+     */
+
+    private final float[] drawMVPMatrix = new float[16], drawVPMatrix = new float[16], drawRotationMatrix = new float[16];
+    private float[] drawMVPModelMatrix;
+    private boolean drawMVPMatrixValid;
+    private float[] drawGroupMatrices;
+    private float[] drawMotionTrans, drawMotionScale;
+    private float[] drawMotionBase, drawMotionTiming, drawMotionPathParams, drawMotionPathPoints, drawMotionRotation;
+
     /**
      * The method to be called by a renderer to draw the shape.
      * The view/projection matrix passed by the renderer is multiplied with the model matrix of the shape.
+     * If a shader motion is set, the view/projection matrix and the time since the start of the motion
+     * are passed to the vertex shader instead, which calculates the world coordinates itself.
+     * <BR>
+     * The method does not take the monitor of the shape, i.e. it neither waits for the threads that modify the shape nor blocks them:
+     * The model matrix and the state needed to draw the shape are taken from the records published by these threads
+     * (see attributes 'publishedModelMatrices' and 'drawStates'). The modified vertex attributes are uploaded to vertex buffer objects
+     * from which the draw calls read the vertex data.
+     * <BR>
+     * The method must be called only by the render thread.
      * @param vpMatrix The view/projection matrix to be passed by the renderer.
+     * @param frameTimeNanos The time of the frame to be drawn (ns, as delivered by the clock of the animation scheduler of the renderer).
      */
 
-    synchronized public void draw(float[] vpMatrix) {    // Gesamtdauer für einen Würfel mit Kantenlinien: ca. 40-60 Mikrosek. (Zeitmessung 8.6.22)
+    public void draw(float[] vpMatrix, long frameTimeNanos) {    // Gesamtdauer für einen Würfel mit Kantenlinien: ca. 40-60 Mikrosek. (Zeitmessung 8.6.22)
 
         // Log.v("GLDEMO",">>>>> draw "+id);
 
@@ -1430,83 +3341,183 @@ public class GLShapeCV {
         final int COORDS_PER_VERTEX = 3;  // coordinates (3 = three-dimensional space)
         final int COLORS_PER_VERTEX = 4;  // number of color values per vertex (4 = RGBA)
         final int BYTES_PER_FLOAT = 4;
-        final int triangleVertexCount = triangles!=null?triangles.length*3:0;    // total number of triangle vertices
-        final int lineVertexCount = lines!=null?lines.length*2:0;    // total number of lines vertices
+
+        // the backend for the OpenGL calls
+
+        final GLBackendCV gl = GLPlatformCV.getBackend();
+
+        // take the latest published state of the shape and pass its modified vertex attributes to the graphics hardware
+
+        lastFrameTimeNanos = frameTimeNanos;
+        final DrawState state = acquireDrawState();
+        final float[] modelMatrix = acquireModelMatrix();
+
+        // rebuild the program if the coloring type has changed or a shader motion or vertex groups have been set or removed
+
+        if (state.coloringType!=programColoringType||(state.shaderMotion!=null)!=programHasShaderMotion||state.hasVertexGroups!=programHasVertexGroups)
+            rebuildOpenGLProgram(state);
+
+        // create the textures if the texture bitmaps have changed
+
+        if (state.textureBitmaps!=preparedTextureBitmaps)
+            prepareTextures(state);
 
         // use the program defined in the constructor
 
-        GLES20.glUseProgram(openGLprogram);    // ca. 2 Mikrosek. (Zeitmessung 8.6.22)
+        final int program = openGLprogram;
+        gl.glUseProgram(program);    // ca. 2 Mikrosek. (Zeitmessung 8.6.22)
+
+        final GLShaderMotionCV motion = state.shaderMotion;
+        if (motion!=drawShaderMotion) {
+            drawShaderMotion = motion;
+            shaderMotionUniformsSet = false;
+        }
+
+        if (motion!=null) {
 
-        // calculate the MVP matrix from the model matrix of the shape and the view/projection matrix from the renderes
+            // start the shader motion with the published pose of the shape (only once)
 
-        // float[] mvpMatrix = new float[16];
+            if (drawMotionBase==null) {
+                drawMotionTrans = new float[3];
+                drawMotionScale = new float[3];
+                drawMotionBase = new float[16];
+                drawMotionTiming = new float[4];
+                drawMotionPathParams = new float[4];
+                drawMotionPathPoints = new float[12];
+                drawMotionRotation = new float[4];
+            }
+            if (motion.getStartTime()<0) {
+                System.arraycopy(modelMatrix,PUBLISHED_TRANS,drawMotionTrans,0,3);
+                System.arraycopy(modelMatrix,PUBLISHED_SCALE,drawMotionScale,0,3);
+                if (modelMatrix[PUBLISHED_ROTATION_TYPE]==0)   // otherwise, the rotation matrix has been derived from the quaternion by acquireModelMatrix()
+                    System.arraycopy(modelMatrix,PUBLISHED_ROTATION,drawRotationMatrix,0,16);
+                if (motion.start(drawMotionTrans,drawRotationMatrix,drawMotionScale,frameTimeNanos))
+                    shaderMotionUniformsSet = false;
+            }
 
-        float[] mvpMatrix = new float[16];     // diese und die nächste Zeile: ca. 2 Mikrosek. (Zeitmessung 8.6.22)
+            // pass the parameters of the shader motion (only once), the view/projection matrix and the time since the start of the motion to the program
+
+            if (!shaderMotionUniformsSet) {
+                motion.getUniforms(drawMotionBase,drawMotionTiming,drawMotionPathParams,drawMotionPathPoints,drawMotionRotation);
+                gl.glUniformMatrix4fv(gl.glGetUniformLocation(program, "uBaseMatrix"), 1, false, drawMotionBase, 0);
+                gl.glUniform4fv(gl.glGetUniformLocation(program, "uTiming"), 1, drawMotionTiming, 0);
+                gl.glUniform4fv(gl.glGetUniformLocation(program, "uPathParams"), 1, drawMotionPathParams, 0);
+                gl.glUniform3fv(gl.glGetUniformLocation(program, "uPathPoints"), 4, drawMotionPathPoints, 0);
+                gl.glUniform4fv(gl.glGetUniformLocation(program, "uRotation"), 1, drawMotionRotation, 0);
+                shaderMotionUniformsSet = true;
+            }
+            gl.glUniformMatrix4fv(gl.glGetUniformLocation(program, "uVPMatrix"), 1, false, vpMatrix, 0);
+            gl.glUniform1f(gl.glGetUniformLocation(program, "uTime"), motion.getReducedTimeAtFrame(frameTimeNanos));   // small value to keep the float precision in the shader
+            drawMVPMatrixValid = false;
+
+        } else {
+
+            // calculate the MVP matrix from the latest published model matrix of the shape
+            // (or its matrix in the packed array of a store of bulk animations) and the view/projection matrix from the renderer
+
+            // - the multiplication is skipped if neither the model matrix nor the view/projection matrix have changed since the last frame
+
+            if (state.bulkModelMatrices!=null) {
+                Matrix.multiplyMM(drawMVPMatrix, 0, vpMatrix, 0, state.bulkModelMatrices, state.bulkModelMatrixOffset);
+                drawMVPMatrixValid = false;
+            } else {
+                boolean vpMatrixChanged = false;
+                for (int i=0; i<16; i++)
+                    if (drawVPMatrix[i]!=vpMatrix[i]) {
+                        vpMatrixChanged = true;
+                        drawVPMatrix[i] = vpMatrix[i];
+                    }
+                if (!drawMVPMatrixValid||modelMatrix!=drawMVPModelMatrix||vpMatrixChanged) {
+                    Matrix.multiplyMM(drawMVPMatrix, 0, vpMatrix, 0, modelMatrix, 0);
+                    drawMVPModelMatrix = modelMatrix;
+                    drawMVPMatrixValid = true;
+                }
+            }
 
-        Matrix.multiplyMM(mvpMatrix, 0, vpMatrix, 0, modelMatrix, 0);
+            // pass the MVP matrix to the program        // die nächsten 4 Operationen: ca. 4-5 Mikrosek. (Zeitmessung 8.6.22)
 
-        // pass the MVP matrix to the program        // die nächsten 4 Operationen: ca. 4-5 Mikrosek. (Zeitmessung 8.6.22)
+            int mMVPMatrixHandle = gl.glGetUniformLocation(program, "uMVPMatrix");
+            gl.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, drawMVPMatrix, 0);
 
-        int mMVPMatrixHandle = GLES20.glGetUniformLocation(openGLprogram, "uMVPMatrix");
-        GLES20.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, mvpMatrix, 0);
+        }
 
         // get and activate a handle for the aPosition attribute of the vertex shader (coordinates of the vertices)
 
-        int positionHandle = GLES20.glGetAttribLocation(openGLprogram, "aPosition");
-        GLES20.glEnableVertexAttribArray(positionHandle);
+        int positionHandle = gl.glGetAttribLocation(program, "aPosition");
+        gl.glEnableVertexAttribArray(positionHandle);
+
+        // pass the matrix palette of the vertex groups to the program (only if it has been modified) and activate the aGroup attribute
+
+        int groupHandle = -1;
+        if (state.hasVertexGroups) {
+            if (!vertexGroupMatricesSet&&drawGroupMatrices!=null) {
+                gl.glUniformMatrix4fv(gl.glGetUniformLocation(program, "uGroupMatrices"), MAX_VERTEX_GROUPS, false, drawGroupMatrices, 0);
+                vertexGroupMatricesSet = true;
+            }
+            groupHandle = gl.glGetAttribLocation(program, "aGroup");
+            gl.glEnableVertexAttribArray(groupHandle);
+        }
+
+        final int triangleVertexCount = state.numberOfTriangles*3;    // total number of triangle vertices
+        final int lineVertexCount = state.numberOfLines*2;    // total number of lines vertices
 
         // draw the triangles
 
         // long start = System.nanoTime();
 
-        if (triangles!=null&&triangles.length>0) {     // Zeichnen der 12 Dreiecke eines Würfels: ca. 8-10 Mikrosek. (Zeitmessung 8.6.22)
-                                                       // zum Vergleich: Zeichen von 96000 Dreiecken: ca. 2 Millisek.
-            // connect the 'vertexBuffer' attribute containing the triangle vertex coordinates with the aPosition attribute
-            // = pass the triangle coordinates to the graphics hardware
+        if (triangleVertexCount>0) {     // Zeichnen der 12 Dreiecke eines Würfels: ca. 8-10 Mikrosek. (Zeitmessung 8.6.22)
+                                         // zum Vergleich: Zeichen von 96000 Dreiecken: ca. 2 Millisek.
+            // connect the vertex buffer objects containing the vertex attributes of the triangles with the attributes of the vertex shader
 
-            GLES20.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX,
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_TRIANGLE_POSITIONS]);
+            gl.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX,
                     GLES20.GL_FLOAT, false,
-                    0, triangleVerticesBuffer);
+                    0, 0);
+            if (groupHandle>=0) {
+                gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_TRIANGLE_GROUPS]);
+                gl.glVertexAttribPointer(groupHandle, 1, GLES20.GL_FLOAT, false, 0, 0);
+            }
 
-            switch (coloringType) {
+            switch (state.coloringType) {
 
                 case GLPlatformCV.COLORING_UNIFORM:
                     // TODO: Hier auf Basis des Codes von GLPlatformCV.vertexShaderUniform programmieren, sobald dieser funktioniert
                     // Dann auch den Fall berücksichtigen, dass alle Triangles jeweils eine einheitliche Farbe haben, diese Farben aber unterschiedlich sind
-                    // colorHandle = GLES20.glGetUniformLocation(openGLprogram, "vColor");  // für einfarbige Würfel
-                    // GLES20.glUniform4fv(colorHandle, 1, colorArray, 0);
+                    // colorHandle = gl.glGetUniformLocation(openGLprogram, "vColor");  // für einfarbige Würfel
+                    // gl.glUniform4fv(colorHandle, 1, colorArray, 0);
                     // break;
                 case GLPlatformCV.COLORING_VARYING:
-                    int colorHandle = GLES20.glGetAttribLocation(openGLprogram, "aColor");
-                    GLES20.glVertexAttribPointer(colorHandle, COLORS_PER_VERTEX, GLES20.GL_FLOAT, false, COLORS_PER_VERTEX*BYTES_PER_FLOAT, triangleColorsBuffer);
-                    GLES20.glEnableVertexAttribArray(colorHandle);
+                    int colorHandle = gl.glGetAttribLocation(program, "aColor");
+                    gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_TRIANGLE_COLORS]);
+                    gl.glVertexAttribPointer(colorHandle, COLORS_PER_VERTEX, GLES20.GL_FLOAT, false, COLORS_PER_VERTEX*BYTES_PER_FLOAT, 0);
+                    gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+                    gl.glEnableVertexAttribArray(colorHandle);
                     // draw the shape
                          // long start = System.nanoTime();
-                    GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, triangleVertexCount);
+                    gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, triangleVertexCount);
                          // long duration = System.nanoTime() - start;
                          // Log.v("GLDEMO",">>> "+triangles.length+" triangles "+(duration/1000)+" microsec");
                     // deactivate the attribute arrays
-                    GLES20.glDisableVertexAttribArray(positionHandle);
-                    GLES20.glDisableVertexAttribArray(colorHandle);
+                    gl.glDisableVertexAttribArray(positionHandle);
+                    gl.glDisableVertexAttribArray(colorHandle);
                     break;
                 case GLPlatformCV.COLORING_TEXTURED:
-                    int textureHandle = GLES20.glGetAttribLocation(openGLprogram, "aTexCoord");
-                    // buffer for the uv coordinates
-                    ByteBuffer bbUV = ByteBuffer.allocateDirect(uvCoordinates.length * BYTES_PER_FLOAT);
-                    bbUV.order(ByteOrder.nativeOrder());
-                    uvBuffer = bbUV.asFloatBuffer();
-                    uvBuffer.put(uvCoordinates);
-                    uvBuffer.position(0);
-                    GLES20.glVertexAttribPointer(textureHandle, 2, GLES20.GL_FLOAT, false, 2*BYTES_PER_FLOAT, uvBuffer);
-                    GLES20.glEnableVertexAttribArray(textureHandle);
-                    for (int i = 0; i < triangles.length; i++) {   // draw the triangles one by one, setting the texture anew for each individual triangle
-                        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureNames[i]);
-                        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 3 * i, 3);
+                    int textureHandle = gl.glGetAttribLocation(program, "aTexCoord");
+                    gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_UV_COORDINATES]);
+                    gl.glVertexAttribPointer(textureHandle, 2, GLES20.GL_FLOAT, false, 2*BYTES_PER_FLOAT, 0);
+                    gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+                    gl.glEnableVertexAttribArray(textureHandle);
+                    int numberOfTextures = textureNames!=null ? Math.min(textureNames.length,triangleVertexCount/3) : 0;
+                    for (int i = 0; i < numberOfTextures; i++) {   // draw the triangles one by one, setting the texture anew for each individual triangle
+                        gl.glBindTexture(GLES20.GL_TEXTURE_2D, textureNames[i]);
+                        gl.glDrawArrays(GLES20.GL_TRIANGLES, 3 * i, 3);
                     }
                     // disable the vertex array
-                    GLES20.glDisableVertexAttribArray(positionHandle);
-                    GLES20.glDisableVertexAttribArray(textureHandle);
+                    gl.glDisableVertexAttribArray(positionHandle);
+                    gl.glDisableVertexAttribArray(textureHandle);
                     break;
+                default:
+                    gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
             }
 
         }
@@ -1514,85 +3525,35 @@ public class GLShapeCV {
         // long duration = System.nanoTime() - start;
         // Log.v("GLDEMO",">>> "+triangles.length+" triangles "+duration+" ns");
 
-        // draw the lines
-
-        // if (coloringType==GLPlatformCV.COLORING_TEXTURED) return;  // Current version of this class: Lines only for colored triangles.
+        // draw the lines (current version of this class: lines only for colored triangles, see publishDrawState())
 
-        if (lines!=null) {        // Zeichnen der Kantenlinien eines Würfels: ca. 7-10 Mikrosek. (Zeitmessung 8.6.22)
-            // positionHandle = GLES20.glGetAttribLocation(openGLprogram, "aPosition");
-            GLES20.glDisableVertexAttribArray(positionHandle);
-            GLES20.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX,
+        if (lineVertexCount>0) {        // Zeichnen der Kantenlinien eines Würfels: ca. 7-10 Mikrosek. (Zeitmessung 8.6.22)
+            // positionHandle = gl.glGetAttribLocation(openGLprogram, "aPosition");
+            gl.glDisableVertexAttribArray(positionHandle);
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_LINE_POSITIONS]);
+            gl.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX,
                     GLES20.GL_FLOAT, false,
-                    0, lineEndsBuffer);
-            GLES20.glEnableVertexAttribArray(positionHandle);
-            int colorHandle = GLES20.glGetAttribLocation(openGLprogram, "aColor");
-            GLES20.glDisableVertexAttribArray(colorHandle);
-            GLES20.glVertexAttribPointer(colorHandle, COLORS_PER_VERTEX, GLES20.GL_FLOAT, false, COLORS_PER_VERTEX*BYTES_PER_FLOAT, lineColorsBuffer);
-            GLES20.glEnableVertexAttribArray(colorHandle);
-            GLES20.glLineWidth(lineWidth);
-            GLES20.glDrawArrays(GLES20.GL_LINES, 0, lineVertexCount);
-            GLES20.glDisableVertexAttribArray(positionHandle);
-            GLES20.glDisableVertexAttribArray(colorHandle);
-        }
-
-    }
-
-    /** Auxiliary method to get a one-dimensional float array with the vertex coordinates of the triangles */
-
-    synchronized private float[] coordinateArrayFromTriangles() {
-        float coordinateArray[] = new float[triangles.length*9];
-        for (int triangleNo = 0; triangleNo<this.triangles.length; triangleNo++) {
-            float[] coordsCurrentTriangle = this.triangles[triangleNo].getVertexCoordinates();
-            for (int i=0; i<9; i++)
-                coordinateArray[triangleNo*9+i] = coordsCurrentTriangle[i];
-        }
-        return coordinateArray;
-    }
-
-    /** Auxiliary method to get a one-dimensional float array with the vertex coordinates of the lines */
-
-    synchronized private float[] coordinateArrayFromLines() {
-        float coordinateArray[] = new float[lines.length*6];
-        for (int lineNo = 0; lineNo<this.lines.length; lineNo++) {
-            for (int i = 0; i < 3; i++)
-                coordinateArray[lineNo * 6 + i] = this.lines[lineNo].getPoint1()[i];
-            for (int i = 0; i < 3; i++)
-                coordinateArray[lineNo * 6 + 3 + i] = this.lines[lineNo].getPoint2()[i];
+                    0, 0);
+            gl.glEnableVertexAttribArray(positionHandle);
+            int colorHandle = gl.glGetAttribLocation(program, "aColor");
+            gl.glDisableVertexAttribArray(colorHandle);
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_LINE_COLORS]);
+            gl.glVertexAttribPointer(colorHandle, COLORS_PER_VERTEX, GLES20.GL_FLOAT, false, COLORS_PER_VERTEX*BYTES_PER_FLOAT, 0);
+            gl.glEnableVertexAttribArray(colorHandle);
+            if (groupHandle>=0) {
+                gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbos[ATTRIB_LINE_GROUPS]);
+                gl.glVertexAttribPointer(groupHandle, 1, GLES20.GL_FLOAT, false, 0, 0);
+            }
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            gl.glLineWidth(state.lineWidth);
+            gl.glDrawArrays(GLES20.GL_LINES, 0, lineVertexCount);
+            gl.glDisableVertexAttribArray(positionHandle);
+            gl.glDisableVertexAttribArray(colorHandle);
         }
-        return coordinateArray;
-    }
-
-    /** Auxiliary variable that specifies the colors of all triangles */
 
-    private float[] colorArrayOfTriangles;
+        if (groupHandle>=0)
+            gl.glDisableVertexAttribArray(groupHandle);
 
-    /** Auxiliary method to get a one-dimensional float array with the vertex colors of the triangles */
-
-    synchronized private float[] colorArrayFromTriangles() {
-        if (colorArrayOfTriangles!=null)
-            return colorArrayOfTriangles;
-        colorArrayOfTriangles = new float[triangles.length*12];
-        for (int i = 0; i < triangles.length; i++)      // all triangles
-            for (int j = 0; j < 3; j++)    // all vertices of a triangle
-                for (int k = 0; k < 4; k++) {   // RGBA values of a vertex
-                    colorArrayOfTriangles[i * 12 + j * 4 + k] = triangles[i].getVertexColor(j)[k];
-                }
-        return colorArrayOfTriangles;
-    }
-
-    /** Auxiliary method to get a one-dimensional float array with the colors of the lines */
-
-    synchronized private float[] colorArrayFromLines() {
-        float colorArray[] = new float[lines.length * 8];
-        for (int i = 0; i < lines.length; i++) {      // all lines
-            for (int j = 0; j < 4; j++) {   // RGBA values of a line
-                colorArray[i * 8 + j] = lines[i].getColor()[j];  // first end point
-                colorArray[i * 8 + 4 + j] = lines[i].getColor()[j];  // second end point
-            }
-        }
-        return colorArray;
     }
 
-    // TODO colorArrayFromLines()
-
 }
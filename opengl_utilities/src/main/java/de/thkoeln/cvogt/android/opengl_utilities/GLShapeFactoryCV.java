@@ -1307,8 +1307,9 @@ public class GLShapeFactoryCV {
 
     /**
      * Makes a shape in the form of a propeller plane that points into the x direction.
-     * The propeller of the airplane is optionally animated. The animation will start at once.
-     * @param animDuration If >0 the propeller will be animated for 'animDuration' milliseconds.
+     * The propeller of the airplane is optionally animated. It is a vertex group of the shape named "Propeller"
+     * (see GLShapeCV.defineVertexGroup()) that is rotated by an animation of the shape, i.e. the animation will start when the shape is added to a surface view.
+     * @param animDuration If >0 the propeller will be animated for about 'animDuration' milliseconds.
      * @param animSpeed The speed of the animation, i.e. the number of animation steps per second.
      * @return The new shape.
      **/
@@ -1407,43 +1408,25 @@ public class GLShapeFactoryCV {
         translationArray[10][2] = 1f;
         translationArray[11][1] = -1.75f;
         translationArray[11][2] = -1f;
-        GLShapeCV airplane = GLShapeFactoryCV.joinShapes(id,airplaneParts,scalingArray,rotationArray,translationArray,0);
-        int sleepTime = 1000/animSpeed;
-        (new Thread() {
-            public void run() {
-                int angle = 0;
-                long startTime = System.currentTimeMillis();
-                int propellersOffset = (airplaneParts[0].getNumberOfTriangles()+airplaneParts[1].getNumberOfTriangles())*9;
-                float[] propellerTriangleCoordinates = new float[airplaneParts[2].getNumberOfTriangles()*9];
-                int index=0;
-                for (GLTriangleCV propellerTriangle : airplaneParts[2].getTriangles()) {
-                    float[] triangleCoords = propellerTriangle.getVertexCoordinates();
-                    for (int j=0;j<9;j++)
-                        propellerTriangleCoordinates[index++] = triangleCoords[j];
-                }
-                while ((System.currentTimeMillis()-startTime)<animDuration) {
-                    try {
-                        Thread.currentThread().sleep(sleepTime);
-                    } catch (Exception e) {}
-                    double sin = Math.sin(angle), cos = Math.cos(angle);
-                    for (int i=0;i<propellerTriangleCoordinates.length;i++) {
-                       switch (i%3) {
-                           case 0: break;
-                           case 1: airplane.setTriangleVertexBufferEntry(propellersOffset+i,(float)(propellerTriangleCoordinates[i]*cos-propellerTriangleCoordinates[i+1]*sin)); break;
-                           case 2: airplane.setTriangleVertexBufferEntry(propellersOffset+i,(float)(propellerTriangleCoordinates[i-1]*sin+propellerTriangleCoordinates[i]*cos)); break;
-                       }
-                    }
-                    angle = (angle+10)%360;
-                }
-            }
-        }).start();
+        String[] vertexGroupNames = new String[airplaneParts.length];
+        vertexGroupNames[2] = "Propeller";
+        GLShapeCV airplane = GLShapeFactoryCV.joinShapes(id,airplaneParts,scalingArray,rotationArray,translationArray,0,vertexGroupNames);
+        if (airplane!=null&&animDuration>0) {
+            // one turn of the propeller takes 36 animation steps
+            int turnDuration = 36*(animSpeed>0?1000/animSpeed:100);
+            float[] axis = { 1, 0, 0 };
+            GLAnimatorFactoryCV.addAnimationVertexGroupRot(airplane,"Propeller",axis,translationArray[2],0,360,
+                    turnDuration,Math.max(animDuration/turnDuration-1,0),false);
+        }
         return airplane;
     }
 
     /**
      * Makes a shape in the form of a bird that points with its beak into the x direction.
-     * The bird is optionally animated, i.e. will move its wings, tail, and beak. The animation will start at once.
-     * @param animDuration If >0 the bird will be animated for 'animDuration' milliseconds.
+     * The bird is optionally animated, i.e. will move its wings, tail, and beak.
+     * These parts are vertex groups of the shape (named "Wing1", "Wing2", "Tail", "BeakUpper", and "BeakLower", see GLShapeCV.defineVertexGroup())
+     * that are rotated by animations of the shape, i.e. the animation will start when the shape is added to a surface view.
+     * @param animDuration If >0 the bird will be animated for about 'animDuration' milliseconds.
      * @param animSpeed The speed of the animation, i.e. the number of animation steps per second.
      * @return The new shape.
      **/
@@ -1487,40 +1470,30 @@ public class GLShapeFactoryCV {
         translationArray[5][0] = 2f;
         translationArray[5][1] = 0.7f;
         translationArray[5][2] = 0.2f;
-        bird = GLShapeFactoryCV.joinShapes(id,shapes,scalingArray, rotationArray,translationArray,10);
-        // TODO Thread-Erzeugung und -Start in eine GLAnimatorFactory-Methode auslagern, dabei stärkere Parametrisierung
-        (new Thread() {
-            public void run() {
-                long startTime = System.currentTimeMillis();
-                float wingTailTipYAdd = 0;
-                float stepWingsTail = 0.3f;
-                float beakTipYAdd = 0;
-                float stepBeak = 0.05f;
-                int wings2Offset = shapes[0].getNumberOfTriangles()*9;
-                int beakUpperOffset = 0;
-                for (int i=0;i<6;i++)
-                    beakUpperOffset += shapes[i].getNumberOfTriangles()*9;
-                int beakLowerOffset = beakUpperOffset + shapes[6].getNumberOfTriangles()*9;
-                int tailOffset = beakLowerOffset+shapes[7].getNumberOfTriangles()*9;
-                int sleepTime = 100;
-                if (animSpeed>0) sleepTime = 1000/animSpeed;
-                while ((System.currentTimeMillis()-startTime)<animDuration) {
-                    try {
-                        Thread.currentThread().sleep(sleepTime);
-                    } catch (Exception e) {}
-                    bird.setTriangleVertexBufferEntry(7,wingTailTipYAdd);
-                    bird.setTriangleVertexBufferEntry(wings2Offset+7,wingTailTipYAdd);
-                    bird.setTriangleVertexBufferEntry(tailOffset+4,tailtipY+wingTailTipYAdd);
-                    bird.setTriangleVertexBufferEntry(tailOffset+7,tailtipY+wingTailTipYAdd);
-                    bird.setTriangleVertexBufferEntry(beakUpperOffset+1,beakY+beakTipYAdd);
-                    bird.setTriangleVertexBufferEntry(beakLowerOffset+1,beakY-beakTipYAdd);
-                    wingTailTipYAdd += stepWingsTail;
-                    if (wingTailTipYAdd>1.25f||wingTailTipYAdd<-1.25f) stepWingsTail=-stepWingsTail;
-                    beakTipYAdd += stepBeak;
-                    if (beakTipYAdd<=0||beakTipYAdd>=0.3) stepBeak=-stepBeak;
-                }
-            }
-        }).start();
+        String[] vertexGroupNames = { "Wing1", "Wing2", null, null, null, null, "BeakUpper", "BeakLower", "Tail" };
+        bird = GLShapeFactoryCV.joinShapes(id,shapes,scalingArray,rotationArray,translationArray,10,vertexGroupNames);
+        if (bird!=null&&animDuration>0) {
+            // wings and tail: the tips move up and down by 1.25 units in steps of 0.3,
+            // beak: the tips open and close by 0.3 units in steps of 0.05
+            int stepDuration = animSpeed>0?1000/animSpeed:100;
+            int wingsTailDuration = (int)(2.5f/0.3f*stepDuration);
+            int beakDuration = 6*stepDuration;
+            int wingsTailRepeat = Math.max(animDuration/wingsTailDuration-1,0);
+            int beakRepeat = Math.max(animDuration/beakDuration-1,0);
+            float wingAngle = (float) Math.toDegrees(Math.atan2(1.25,2));     // wing tips at a distance of 2 from the body axis
+            float tailAngle = (float) Math.toDegrees(Math.atan2(1.25,1.5));   // tail tips at a distance of 1.5 from the tail root
+            float beakAngle = (float) Math.toDegrees(Math.atan2(0.3,1));      // beak tips at a distance of 1 from the beak root
+            float[] xAxis = { 1, 0, 0 };
+            float[] zAxis = { 0, 0, 1 };
+            float[] wingPivot = { 0, 0, 0 };
+            float[] tailPivot = { -2f, 0, 0 };
+            float[] beakPivot = { 2f, beakY, 0 };
+            GLAnimatorFactoryCV.addAnimationVertexGroupRot(bird,"Wing1",xAxis,wingPivot,-wingAngle,wingAngle,wingsTailDuration,wingsTailRepeat,true);
+            GLAnimatorFactoryCV.addAnimationVertexGroupRot(bird,"Wing2",xAxis,wingPivot,wingAngle,-wingAngle,wingsTailDuration,wingsTailRepeat,true);
+            GLAnimatorFactoryCV.addAnimationVertexGroupRot(bird,"Tail",zAxis,tailPivot,tailAngle,-tailAngle,wingsTailDuration,wingsTailRepeat,true);
+            GLAnimatorFactoryCV.addAnimationVertexGroupRot(bird,"BeakUpper",zAxis,beakPivot,0,beakAngle,beakDuration,beakRepeat,true);
+            GLAnimatorFactoryCV.addAnimationVertexGroupRot(bird,"BeakLower",zAxis,beakPivot,0,-beakAngle,beakDuration,beakRepeat,true);
+        }
         return bird;
     }
 
@@ -1609,21 +1582,26 @@ public class GLShapeFactoryCV {
                                        float shape2_rotAngleX, float shape2_rotAngleY, float shape2_rotAngleZ,
                                        float shape2_transX, float shape2_transY, float shape2_transZ,
                                        float moveCenterTo_X, float moveCenterTo_Y, float moveCenterTo_Z) {
-        GLShapeCV newShape = new GLShapeCV(id,shape1.getTriangles(),shape1.getLines(),shape1.getLineWidth());
-        GLTriangleCV[] triangles2 = shape2.getTriangles();
-        if (triangles2!=null) {
-            for (GLTriangleCV triangle : triangles2)
-                triangle.transform(shape2_scaleX, shape2_scaleY, shape2_scaleZ, shape2_rotAngleX, shape2_rotAngleY, shape2_rotAngleZ, shape2_transX, shape2_transY, shape2_transZ);
-            newShape.addTriangles(triangles2);
-        }
-        GLLineCV[] lines2 = shape2.getLines();
-        if (lines2!=null) {
-            for (GLLineCV line : lines2)
-                line.transform(shape2_scaleX, shape2_scaleY, shape2_scaleZ, shape2_rotAngleX, shape2_rotAngleY, shape2_rotAngleZ, shape2_transX, shape2_transY, shape2_transZ);
-            newShape.addLines(lines2);
+        GLTraceCV.begin("GLShapeFactoryCV.joinShapes");
+        try {
+            GLShapeCV newShape = new GLShapeCV(id,shape1.getTriangles(),shape1.getLines(),shape1.getLineWidth());
+            GLTriangleCV[] triangles2 = shape2.getTriangles();
+            if (triangles2!=null) {
+                for (GLTriangleCV triangle : triangles2)
+                    triangle.transform(shape2_scaleX, shape2_scaleY, shape2_scaleZ, shape2_rotAngleX, shape2_rotAngleY, shape2_rotAngleZ, shape2_transX, shape2_transY, shape2_transZ);
+                newShape.addTriangles(triangles2);
+            }
+            GLLineCV[] lines2 = shape2.getLines();
+            if (lines2!=null) {
+                for (GLLineCV line : lines2)
+                    line.transform(shape2_scaleX, shape2_scaleY, shape2_scaleZ, shape2_rotAngleX, shape2_rotAngleY, shape2_rotAngleZ, shape2_transX, shape2_transY, shape2_transZ);
+                newShape.addLines(lines2);
+            }
+            newShape.moveCenterTo(moveCenterTo_X,moveCenterTo_Y,moveCenterTo_Z);
+            return newShape;
+        } finally {
+            GLTraceCV.end();
         }
-        newShape.moveCenterTo(moveCenterTo_X,moveCenterTo_Y,moveCenterTo_Z);
-        return newShape;
     }
 
     /**
@@ -1698,13 +1676,40 @@ public class GLShapeFactoryCV {
                                        float[][] rotation,
                                        float[][] translation,
                                        float lineWidth) {
+        return joinShapes(id,shapes,scaling,rotation,translation,lineWidth,null);
+    }
+
+    /**
+     * Joins shapes, i.e. builds a new shape from the triangles and lines of existing shapes (see above),
+     * and defines a vertex group for each of these shapes for which a group name is specified (see GLShapeCV.defineVertexGroup()).
+     * The triangles and lines of such a component can then be moved relative to the rest of the new shape
+     * by setting the local transformation matrix of its group, e.g. by an animation made by GLAnimatorFactoryCV.addAnimationVertexGroupRot().
+     * @param id The ID of the new shape.
+     * @param shapes The shapes to be joined.
+     * @param scaling The respective scaling factors for the shapes (see above).
+     * @param rotation The respective rotation angles for the shapes (see above).
+     * @param translation The respective translation values for the shapes (see above).
+     * @param lineWidth The width of all lines in the new shape.
+     * @param vertexGroupNames The names of the vertex groups for the shapes (array of length n where n is the number of shapes).
+     * If vertexGroupNames[i] is null, shape i is assigned to the default group. The parameter may be null, i.e. no groups are defined.
+     * @return The new shape or null if a parameter is not valid.
+     */
+
+    public static GLShapeCV joinShapes(String id, GLShapeCV[] shapes,
+                                       float[][] scaling,
+                                       float[][] rotation,
+                                       float[][] translation,
+                                       float lineWidth,
+                                       String[] vertexGroupNames) {
 
-        // long start = System.nanoTime();
+        GLTraceCV.begin("GLShapeFactoryCV.joinShapes");
 
         GLShapeCV joinedShape = null;
         try {
             joinedShape = new GLShapeCV(id,null);
             for (int i=0;i<shapes.length;i++) {
+                int firstTriangle = joinedShape.getNumberOfTriangles();
+                int firstLine = joinedShape.getNumberOfLines();
                 GLTriangleCV[] triangles = shapes[i].getTriangles();
                 if (triangles != null) {
                     for (GLTriangleCV triangle : triangles)
@@ -1721,15 +1726,19 @@ public class GLShapeFactoryCV {
                                 translation[i][0], translation[i][1], translation[i][2]);
                     joinedShape.addLines(lines);
                 }
+                if (vertexGroupNames!=null&&vertexGroupNames[i]!=null)
+                    joinedShape.defineVertexGroup(vertexGroupNames[i],
+                            firstTriangle,joinedShape.getNumberOfTriangles()-firstTriangle,
+                            firstLine,joinedShape.getNumberOfLines()-firstLine);
                 // Log.v("GLDEMO","---- "+shapes[i].getId()+" "+joinedShape.getTriangles().length);
             }
             joinedShape.setLineWidth(lineWidth);
         } catch (Exception e) {
             Log.e("GLDEMO",e.getMessage());
-            return null; }
-
-        // long duration = System.nanoTime() - start;
-        // Log.v("GLDEMO",">>> joinShapes: "+duration/1000000+" ms");
+            return null;
+        } finally {
+            GLTraceCV.end();
+        }
 
         return joinedShape;
     }
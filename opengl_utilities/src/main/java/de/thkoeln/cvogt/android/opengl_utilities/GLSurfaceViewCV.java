@@ -38,6 +38,10 @@ public class GLSurfaceViewCV extends GLSurfaceView {
 
     private GLRendererCV renderer;
 
+    /** The maximum values of the memory reports returned by getMemoryReport(). */
+
+    private GLMemoryReportCV memoryHighWaterMarks = new GLMemoryReportCV();
+
     /**
      * With this constructor, the render mode of the view will be set to GLSurfaceView.RENDERMODE_WHEN_DIRTY,
      * i.e. animations controlled by the associated thread will NOT become effective.
@@ -121,24 +125,92 @@ public class GLSurfaceViewCV extends GLSurfaceView {
     }
 
     /**
-     * Remove a shape from the list of shapes to render.
-     * @return A copy of 'shapesToRender', i.e. the list of shapes to be rendered.
+     * Reports the memory used by the shapes of the view (see class <I>GLMemoryReportCV</I> for the categories)
+     * and updates the high-water marks of the view. The report is cheap enough to be requested periodically, e.g. every second.
+     * @return The memory report of the shapes.
+     */
+
+    synchronized public GLMemoryReportCV getMemoryReport() {
+        GLMemoryReportCV report = GLMemoryReportCV.getReport(shapesToRender);
+        memoryHighWaterMarks.max(report);
+        return report;
+    }
+
+    /**
+     * Get the high-water marks of the memory reports, i.e. the maximum values per category and the maximum total
+     * of all reports returned by getMemoryReport() since the view has been created or the high-water marks have been reset.
+     * @return A report with the high-water marks.
+     */
+
+    synchronized public GLMemoryReportCV getMemoryHighWaterMarks() {
+        return memoryHighWaterMarks.copy();
+    }
+
+    /**
+     * Reset the high-water marks of the memory reports.
+     */
+
+    synchronized public void resetMemoryHighWaterMarks() {
+        memoryHighWaterMarks = new GLMemoryReportCV();
+    }
+
+    /**
+     * Remove a shape from the list of shapes to render. This will also stop the animators and animations of the shape.
+     * @param shape The shape to be removed.
      */
 
     synchronized public void removeShape(GLShapeCV shape) {
-        shapesToRender.remove(shape);
+        if (shapesToRender.remove(shape)) {
+            shape.stopAnimators();
+            shape.setSurfaceView(null);
+        }
     }
 
     /**
-     * Empty the list of the shapes to be rendered.
+     * Empty the list of the shapes to be rendered. This will also stop the animators and animations of the shapes.
      */
 
     synchronized public void clearShapes() {
-        for (GLShapeCV shape: shapesToRender)
+        for (GLShapeCV shape: shapesToRender) {
+            shape.stopAnimators();
             shape.setSurfaceView(null);
+        }
         shapesToRender.clear();
     }
 
+    /**
+     * Pauses the rendering thread (see GLSurfaceView.onPause()) and the animations of the shapes,
+     * i.e. the animation scheduler of the renderer and the animators of the shapes.
+     * To be called from the onPause() method of the activity.
+     */
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        synchronized (this) {
+            if (renderer!=null)
+                renderer.getAnimationScheduler().pause();
+            for (GLShapeCV shape: shapesToRender)
+                shape.pauseAnimators();
+        }
+    }
+
+    /**
+     * Resumes the rendering thread (see GLSurfaceView.onResume()) and the animations of the shapes.
+     * To be called from the onResume() method of the activity.
+     */
+
+    @Override
+    public void onResume() {
+        synchronized (this) {
+            if (renderer!=null)
+                renderer.getAnimationScheduler().resume();
+            for (GLShapeCV shape: shapesToRender)
+                shape.resumeAnimators();
+        }
+        super.onResume();
+    }
+
     /**
      * Display the x, y, and z axes (for testing purposes).
      */
@@ -0,0 +1,300 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Class for opt-in tracing of the costly steps of building and showing a scene, esp. at the start of an app.
+ * The library marks these steps as spans:
+ * <UL>
+ * <LI>"GLShapeCV.construct": construction of a shape (incl. the buffers, i.e. including the nested span "GLShapeCV.updateBuffers"),
+ * <LI>"GLShapeCV.updateBuffers": building the buffers that pass the vertex attributes to the graphics hardware,
+ * <LI>"GLShapeFactoryCV.joinShapes": joining shapes,
+ * <LI>"GLShapeCV.initOpenGLProgram": compiling and linking the OpenGL program of a shape,
+ * <LI>"GLShapeCV.rebuildOpenGLProgram": rebuilding the OpenGL program of a shape after a shader motion or vertex groups have been set or removed,
+ * <LI>"TextureBitmapsCV.decode": decoding a texture bitmap from a resource,
+ * <LI>"GLShapeCV.prepareTextures": uploading the textures of a shape,
+ * <LI>"GLRendererCV.firstFrame": the first frame drawn by a renderer (incl. the compilation of the programs and the first upload of the buffers).
+ * </UL>
+ * Tracing is disabled by default; then the spans cost only the check of a flag.
+ * If it is enabled by <I>setEnabled(true)</I>, the spans are passed to a sink and their durations are summarized per span name.
+ * The default sink is <I>android.os.Trace</I>, i.e. the spans appear in system traces (Perfetto, systrace).
+ * Other sinks can be set by <I>setSink()</I>, e.g. for unit tests on a JVM, or null to only summarize the spans.
+ * The summary, sorted by cost, is returned by <I>getTopCosts()</I>.
+ * <P>
+ * Spans are nested per thread, i.e. each <I>end()</I> ends the span most recently begun by the same thread.
+ * Code that shall be traced should call <I>end()</I> in a finally block.
+ * A span is ended and passed to the sink it has been begun with even if the tracing has been disabled or the sink has been changed in the meantime.
+ */
+
+public class GLTraceCV {
+
+    /**
+     * Interface for the sinks of the spans. The methods are called in the thread that begins and ends the span.
+     */
+
+    public interface Sink {
+        void beginSection(String name);
+        void endSection();
+    }
+
+    /**
+     * The sink that passes the spans to <I>android.os.Trace</I>.
+     */
+
+    public static final Sink ANDROID_TRACE = new Sink() {
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+    };
+
+    /**
+     * Summary of the spans with the same name.
+     */
+
+    public static class Summary {
+
+        private final String name;
+
+        private long count, totalNanos, selfNanos, maxNanos;
+
+        private Summary(String name) {
+            this.name = name;
+        }
+
+        /** @return The name of the spans. */
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return The number of the spans. */
+
+        public long getCount() {
+            return count;
+        }
+
+        /** @return The total duration of the spans in nanoseconds, including nested spans. */
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** @return The total duration of the spans in nanoseconds, excluding nested spans. */
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        /** @return The maximum duration of a span in nanoseconds, including nested spans. */
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        private Summary copy() {
+            Summary copy = new Summary(name);
+            copy.count = count;
+            copy.totalNanos = totalNanos;
+            copy.selfNanos = selfNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-32s %6d %10.2f %10.2f %10.2f",name,count,selfNanos/1e6,totalNanos/1e6,maxNanos/1e6);
+        }
+
+    }
+
+    /**
+     * A span that has been begun and not ended yet.
+     */
+
+    private static class OpenSpan {
+        String name;
+        Sink sink;
+        long start;
+        long nestedNanos;
+    }
+
+    private static volatile boolean enabled;
+
+    /** Specifies whether the tracing has ever been enabled, i.e. whether there can be open spans. */
+
+    private static volatile boolean wasEnabled;
+
+    private static volatile Sink sink = ANDROID_TRACE;
+
+    /** The summaries by span name (guarded by itself). */
+
+    private static final HashMap<String,Summary> summaries = new HashMap<>();
+
+    /** The open spans of each thread. */
+
+    private static final ThreadLocal<ArrayList<OpenSpan>> openSpans = new ThreadLocal<ArrayList<OpenSpan>>() {
+        @Override
+        protected ArrayList<OpenSpan> initialValue() {
+            return new ArrayList<>();
+        }
+    };
+
+    /**
+     * Enables or disables the tracing. To trace the startup of an app, the tracing should be enabled before the scene is built (e.g. in onCreate() of the activity).
+     * @param enabled true to enable the tracing.
+     */
+
+    public static void setEnabled(boolean enabled) {
+        if (enabled)
+            wasEnabled = true;
+        GLTraceCV.enabled = enabled;
+    }
+
+    /**
+     * @return true if the tracing is enabled.
+     */
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the sink to which the spans are passed.
+     * @param sink The sink or null if the spans shall only be summarized.
+     */
+
+    public static void setSink(Sink sink) {
+        GLTraceCV.sink = sink;
+    }
+
+    /**
+     * @return The sink to which the spans are passed (null if there is none).
+     */
+
+    public static Sink getSink() {
+        return sink;
+    }
+
+    /**
+     * Begins a span in the current thread (if the tracing is enabled).
+     * @param name The name of the span.
+     */
+
+    public static void begin(String name) {
+        if (!enabled) return;
+        OpenSpan span = new OpenSpan();
+        span.name = name;
+        span.sink = sink;
+        if (span.sink!=null)
+            span.sink.beginSection(name);
+        openSpans.get().add(span);
+        span.start = System.nanoTime();
+    }
+
+    /**
+     * Ends the span most recently begun in the current thread (if there is such a span, also if the tracing has been disabled after the span has been begun).
+     */
+
+    public static void end() {
+        if (!wasEnabled) return;
+        long end = System.nanoTime();
+        ArrayList<OpenSpan> spans = openSpans.get();
+        if (spans.isEmpty()) return;
+        OpenSpan span = spans.remove(spans.size()-1);
+        long nanos = end-span.start;
+        if (!spans.isEmpty())
+            spans.get(spans.size()-1).nestedNanos += nanos;
+        if (span.sink!=null)
+            span.sink.endSection();
+        synchronized (summaries) {
+            Summary summary = summaries.get(span.name);
+            if (summary==null)
+                summaries.put(span.name,summary=new Summary(span.name));
+            summary.count++;
+            summary.totalNanos += nanos;
+            summary.selfNanos += nanos-span.nestedNanos;
+            summary.maxNanos = Math.max(summary.maxNanos,nanos);
+        }
+    }
+
+    /**
+     * Removes all summaries and the open spans of the current thread.
+     */
+
+    public static void reset() {
+        synchronized (summaries) {
+            summaries.clear();
+        }
+        openSpans.get().clear();
+    }
+
+    /**
+     * Get the summary of the spans with a name.
+     * @param name The name of the spans.
+     * @return A copy of the summary or null if no span with this name has been ended since the last reset.
+     */
+
+    public static Summary getSummary(String name) {
+        synchronized (summaries) {
+            Summary summary = summaries.get(name);
+            return summary!=null ? summary.copy() : null;
+        }
+    }
+
+    /**
+     * Get the summaries of the most costly spans, i.e. the spans with the highest durations excluding nested spans.
+     * @param n The maximum number of summaries to be returned.
+     * @return Copies of the summaries, sorted by decreasing duration (excluding nested spans).
+     */
+
+    public static ArrayList<Summary> getTopCosts(int n) {
+        ArrayList<Summary> result = new ArrayList<>();
+        synchronized (summaries) {
+            for (Summary summary : summaries.values())
+                result.add(summary.copy());
+        }
+        Collections.sort(result, new Comparator<Summary>() {
+            @Override
+            public int compare(Summary summary1, Summary summary2) {
+                return Long.compare(summary2.selfNanos,summary1.selfNanos);
+            }
+        });
+        while (result.size()>Math.max(n,0))
+            result.remove(result.size()-1);
+        return result;
+    }
+
+    /**
+     * Get a table of the most costly spans (see getTopCosts()), e.g. to be logged at the end of the startup of an app.
+     * @param n The maximum number of spans to be listed.
+     * @return The table with the name, the number, the duration excluding nested spans (self), the duration including nested spans (total)
+     * and the maximum duration of the spans (in ms).
+     */
+
+    public static String getTopCostsTable(int n) {
+        StringBuilder table = new StringBuilder(String.format("%-32s %6s %10s %10s %10s%n","span","count","self [ms]","total [ms]","max [ms]"));
+        for (Summary summary : getTopCosts(n))
+            table.append(summary).append(String.format("%n"));
+        return table.toString();
+    }
+
+}
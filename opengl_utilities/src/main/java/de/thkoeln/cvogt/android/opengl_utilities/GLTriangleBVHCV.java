@@ -0,0 +1,628 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class for bounding volume hierarchies (BVHs) over the triangles of shapes and for intersection and distance queries between two shapes
+ * (the "narrow phase" of a collision detection, to be run e.g. for the pairs found by GLCollisionDetectorCV).
+ * <P>
+ * A BVH is a binary tree of axis-aligned boxes in model coordinates: The root box encloses all triangles of a shape,
+ * each inner node is split into two children by the median of the triangle centers along the longest axis, and the leaves hold at most four triangles.
+ * The BVH of a shape is built when it is needed first and cached by the shape until its triangles are changed (see GLShapeCV.getTriangleBVH()).
+ * It can thus be used for any placement of the shape in the world.
+ * <P>
+ * A query traverses the BVHs of both shapes simultaneously, with the boxes of the nodes transformed into world coordinates by the current model matrices
+ * (see GLShapeCV.getCurrentModelMatrix(float[])). Only the triangles of pairs of leaves with overlapping (resp. near) boxes are compared.
+ * For meshes with thousands of triangles, this is orders of magnitude faster than comparing all pairs of triangles.
+ * <P>
+ * Two triangles are considered to intersect if an edge of one of them passes through the other or if their distance is at most EPSILON
+ * (the latter covers touching and coplanar triangles). The contact points of an intersection are the points where the edges pass through the other triangles.
+ * <P>
+ * Notes: Only the triangles of the shapes are considered, not their lines.
+ * Vertex groups with own transformation matrices (see GLShapeCV.defineVertexGroup()) are considered in their original position.
+ * <BR>
+ * @see GLShapeCV#intersects(GLShapeCV)
+ * @see GLShapeCV#getContactPoints(GLShapeCV)
+ * @see GLShapeCV#distanceTo(GLShapeCV, float[])
+ */
+
+public class GLTriangleBVHCV {
+
+    /** The maximum number of triangles in a leaf. */
+
+    public static final int MAX_TRIANGLES_PER_LEAF = 4;
+
+    /** Distance up to which two triangles are considered to intersect. */
+
+    public static final float EPSILON = 1e-5f;
+
+    /** The vertex coordinates of the triangles in model coordinates, 9 values per triangle, ordered such that the triangles of each leaf are contiguous. */
+
+    private final float[] vertices;
+
+    /** The number of triangles. */
+
+    private final int numberOfTriangles;
+
+    /** The boxes of the nodes in model coordinates, 6 values per node (minimum x, y, z, maximum x, y, z). Node 0 is the root. */
+
+    private float[] nodeBoxes;
+
+    /** For leaves: the number of the first triangle of the leaf. For inner nodes: the number of the first child (the second child follows directly). */
+
+    private int[] nodeFirst;
+
+    /** For leaves: the number of triangles of the leaf (> 0). For inner nodes: 0. */
+
+    private int[] nodeCounts;
+
+    /** The number of nodes. */
+
+    private int numberOfNodes;
+
+    /**
+     * Builds a BVH.
+     * @param triangles The triangles (null entries are ignored).
+     */
+
+    GLTriangleBVHCV(GLTriangleCV[] triangles) {
+        int count = 0;
+        if (triangles!=null)
+            for (GLTriangleCV triangle : triangles)
+                if (triangle!=null) count++;
+        numberOfTriangles = count;
+        float[] unsorted = new float[9*count];
+        float[] centers = new float[3*count];
+        int[] order = new int[count];
+        count = 0;
+        if (triangles!=null)
+            for (GLTriangleCV triangle : triangles) {
+                if (triangle==null) continue;
+                for (int v=0; v<3; v++)
+                    for (int d=0; d<3; d++) {
+                        unsorted[9*count+3*v+d] = triangle.getVertexCoordinate(v,d);
+                        centers[3*count+d] += unsorted[9*count+3*v+d]/3;
+                    }
+                order[count] = count;
+                count++;
+            }
+        int maxNodes = Math.max(1,2*numberOfTriangles);
+        nodeBoxes = new float[6*maxNodes];
+        nodeFirst = new int[maxNodes];
+        nodeCounts = new int[maxNodes];
+        numberOfNodes = 1;
+        build(0,0,numberOfTriangles,unsorted,centers,order);
+        vertices = new float[9*numberOfTriangles];
+        for (int t=0; t<numberOfTriangles; t++)
+            System.arraycopy(unsorted,9*order[t],vertices,9*t,9);
+    }
+
+    /**
+     * @return The number of triangles in the BVH.
+     */
+
+    public int getNumberOfTriangles() {
+        return numberOfTriangles;
+    }
+
+    /**
+     * @return The number of nodes of the BVH.
+     */
+
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /**
+     * @return The estimated number of bytes of the arrays of the BVH.
+     */
+
+    public int getMemoryBytes() {
+        return 4*(vertices.length+nodeBoxes.length+nodeFirst.length+nodeCounts.length)+4*GLMemoryReportCV.ARRAY_BYTES;
+    }
+
+    /**
+     * Auxiliary method to build the subtree for a range of triangles.
+     * @param node The number of the root node of the subtree.
+     * @param from The first position of the range in 'order'.
+     * @param to The position after the range in 'order'.
+     * @param unsorted The vertex coordinates of the triangles in their original order.
+     * @param centers The centers of the triangles in their original order.
+     * @param order The numbers of the triangles, to be reordered such that the triangles of each node are contiguous.
+     */
+
+    private void build(int node, int from, int to, float[] unsorted, float[] centers, int[] order) {
+        float[] box = nodeBoxes;
+        for (int d=0; d<3; d++) {
+            box[6*node+d] = Float.MAX_VALUE;
+            box[6*node+3+d] = -Float.MAX_VALUE;
+        }
+        float[] centerBox = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for (int i=from; i<to; i++) {
+            int t = order[i];
+            for (int d=0; d<3; d++) {
+                for (int v=0; v<3; v++) {
+                    float value = unsorted[9*t+3*v+d];
+                    if (value<box[6*node+d]) box[6*node+d] = value;
+                    if (value>box[6*node+3+d]) box[6*node+3+d] = value;
+                }
+                centerBox[d] = Math.min(centerBox[d],centers[3*t+d]);
+                centerBox[3+d] = Math.max(centerBox[3+d],centers[3*t+d]);
+            }
+        }
+        int axis = 0;
+        for (int d=1; d<3; d++)
+            if (centerBox[3+d]-centerBox[d]>centerBox[3+axis]-centerBox[axis])
+                axis = d;
+        if (to-from<=MAX_TRIANGLES_PER_LEAF||centerBox[3+axis]<=centerBox[axis]) {
+            // leaf (also if the centers of all triangles coincide)
+            nodeFirst[node] = from;
+            nodeCounts[node] = to-from;
+            return;
+        }
+        int middle = (from+to)/2;
+        select(order,centers,axis,from,to-1,middle);
+        int first = numberOfNodes;
+        numberOfNodes += 2;
+        nodeFirst[node] = first;
+        nodeCounts[node] = 0;
+        build(first,from,middle,unsorted,centers,order);
+        build(first+1,middle,to,unsorted,centers,order);
+    }
+
+    /**
+     * Auxiliary method to reorder a range of triangles such that the triangle with the k-th smallest center coordinate along an axis is at position k,
+     * all triangles before k have smaller or equal coordinates, and all triangles after k have larger or equal coordinates ("quickselect").
+     */
+
+    private static void select(int[] order, float[] centers, int axis, int left, int right, int k) {
+        while (left<right) {
+            float pivot = centers[3*order[(left+right)>>>1]+axis];
+            int i = left, j = right;
+            while (i<=j) {
+                while (centers[3*order[i]+axis]<pivot) i++;
+                while (centers[3*order[j]+axis]>pivot) j--;
+                if (i<=j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k<=j) right = j;
+              else if (k>=i) left = i;
+              else return;
+        }
+    }
+
+    /**
+     * Checks whether the triangles of two BVHs intersect when they are placed into the world by two model matrices.
+     * @param bvh1 The first BVH.
+     * @param modelMatrix1 The model matrix for the first BVH.
+     * @param bvh2 The second BVH.
+     * @param modelMatrix2 The model matrix for the second BVH.
+     * @param contactPoints List to which the contact points shall be added (in world coordinates).
+     * If null, the method returns as soon as an intersection has been found.
+     * @return true if some triangles intersect.
+     */
+
+    static boolean intersect(GLTriangleBVHCV bvh1, float[] modelMatrix1, GLTriangleBVHCV bvh2, float[] modelMatrix2, ArrayList<float[]> contactPoints) {
+        return intersect(bvh1,modelMatrix1,bvh2,modelMatrix2,contactPoints,null);
+    }
+
+    /**
+     * Variant of intersect() that counts the work done by the query, e.g. to compare it with the work of a brute-force test of all pairs of triangles.
+     * @param statistics Array of length 2 (or null): The number of the visited pairs of nodes is added to entry 0,
+     * the number of the tested pairs of triangles to entry 1.
+     */
+
+    static boolean intersect(GLTriangleBVHCV bvh1, float[] modelMatrix1, GLTriangleBVHCV bvh2, float[] modelMatrix2, ArrayList<float[]> contactPoints, int[] statistics) {
+        if (bvh1.numberOfTriangles==0||bvh2.numberOfTriangles==0) return false;
+        float[] box1 = new float[6], box2 = new float[6];
+        float[] triangle1 = new float[9], triangle2 = new float[9];
+        float[] point = new float[3], point2 = new float[3], closest = new float[6];
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = 0;
+        boolean found = false;
+        while (top>0) {
+            int node2 = stack[--top], node1 = stack[--top];
+            if (statistics!=null) statistics[0]++;
+            bvh1.worldBox(node1,modelMatrix1,box1);
+            bvh2.worldBox(node2,modelMatrix2,box2);
+            if (boxDistance(box1,box2)>EPSILON) continue;
+            boolean leaf1 = bvh1.nodeCounts[node1]>0, leaf2 = bvh2.nodeCounts[node2]>0;
+            if (leaf1&&leaf2) {
+                for (int t1=bvh1.nodeFirst[node1]; t1<bvh1.nodeFirst[node1]+bvh1.nodeCounts[node1]; t1++) {
+                    transformTriangle(bvh1.vertices,t1,modelMatrix1,triangle1);
+                    for (int t2=bvh2.nodeFirst[node2]; t2<bvh2.nodeFirst[node2]+bvh2.nodeCounts[node2]; t2++) {
+                        transformTriangle(bvh2.vertices,t2,modelMatrix2,triangle2);
+                        if (statistics!=null) statistics[1]++;
+                        if (trianglesIntersect(triangle1,triangle2,contactPoints,point,closest,point2)) {
+                            if (contactPoints==null) return true;
+                            found = true;
+                        }
+                    }
+                }
+                continue;
+            }
+            if (top+4>stack.length)
+                stack = Arrays.copyOf(stack,2*stack.length);
+            if (leaf2||(!leaf1&&extent(box1)>=extent(box2))) {
+                int first = bvh1.nodeFirst[node1];
+                stack[top++] = first;
+                stack[top++] = node2;
+                stack[top++] = first+1;
+                stack[top++] = node2;
+            } else {
+                int first = bvh2.nodeFirst[node2];
+                stack[top++] = node1;
+                stack[top++] = first;
+                stack[top++] = node1;
+                stack[top++] = first+1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Calculates the distance between the triangles of two BVHs when they are placed into the world by two model matrices.
+     * The nodes of the BVHs are visited nearest first, and pairs of nodes that cannot be nearer than the nearest triangles found so far are skipped.
+     * @param bvh1 The first BVH.
+     * @param modelMatrix1 The model matrix for the first BVH.
+     * @param bvh2 The second BVH.
+     * @param modelMatrix2 The model matrix for the second BVH.
+     * @param closestPoints Array of length 6 to store the closest points of the first and of the second BVH (in world coordinates) or null.
+     * @return The distance (0 if the triangles intersect) or -1 if one of the BVHs has no triangles.
+     */
+
+    static float distance(GLTriangleBVHCV bvh1, float[] modelMatrix1, GLTriangleBVHCV bvh2, float[] modelMatrix2, float[] closestPoints) {
+        if (bvh1.numberOfTriangles==0||bvh2.numberOfTriangles==0) return -1;
+        float[] box1 = new float[6], box2 = new float[6], childBox1 = new float[6], childBox2 = new float[6];
+        float[] triangle1 = new float[9], triangle2 = new float[9];
+        float[] closest = new float[6], point = new float[3], point2 = new float[3];
+        int[] stack = new int[64];
+        float best = Float.MAX_VALUE;
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = 0;
+        while (top>0) {
+            int node2 = stack[--top], node1 = stack[--top];
+            bvh1.worldBox(node1,modelMatrix1,box1);
+            bvh2.worldBox(node2,modelMatrix2,box2);
+            if (boxDistance(box1,box2)>=best) continue;
+            boolean leaf1 = bvh1.nodeCounts[node1]>0, leaf2 = bvh2.nodeCounts[node2]>0;
+            if (leaf1&&leaf2) {
+                for (int t1=bvh1.nodeFirst[node1]; t1<bvh1.nodeFirst[node1]+bvh1.nodeCounts[node1]; t1++) {
+                    transformTriangle(bvh1.vertices,t1,modelMatrix1,triangle1);
+                    for (int t2=bvh2.nodeFirst[node2]; t2<bvh2.nodeFirst[node2]+bvh2.nodeCounts[node2]; t2++) {
+                        transformTriangle(bvh2.vertices,t2,modelMatrix2,triangle2);
+                        float distance = triangleDistance(triangle1,triangle2,closest,point,point2);
+                        if (distance<best) {
+                            best = distance;
+                            if (closestPoints!=null)
+                                System.arraycopy(closest,0,closestPoints,0,6);
+                            if (best==0) return 0;
+                        }
+                    }
+                }
+                continue;
+            }
+            if (top+4>stack.length)
+                stack = Arrays.copyOf(stack,2*stack.length);
+            // push the two child pairs such that the nearer pair is visited first
+            int c1n1, c1n2, c2n1, c2n2;
+            if (leaf2||(!leaf1&&extent(box1)>=extent(box2))) {
+                c1n1 = bvh1.nodeFirst[node1];
+                c2n1 = c1n1+1;
+                c1n2 = c2n2 = node2;
+                bvh1.worldBox(c1n1,modelMatrix1,childBox1);
+                bvh1.worldBox(c2n1,modelMatrix1,childBox2);
+                float d1 = boxDistance(childBox1,box2), d2 = boxDistance(childBox2,box2);
+                if (d1<d2) {
+                    stack[top++] = c2n1; stack[top++] = c2n2;
+                    stack[top++] = c1n1; stack[top++] = c1n2;
+                } else {
+                    stack[top++] = c1n1; stack[top++] = c1n2;
+                    stack[top++] = c2n1; stack[top++] = c2n2;
+                }
+            } else {
+                c1n2 = bvh2.nodeFirst[node2];
+                c2n2 = c1n2+1;
+                c1n1 = c2n1 = node1;
+                bvh2.worldBox(c1n2,modelMatrix2,childBox1);
+                bvh2.worldBox(c2n2,modelMatrix2,childBox2);
+                float d1 = boxDistance(box1,childBox1), d2 = boxDistance(box1,childBox2);
+                if (d1<d2) {
+                    stack[top++] = c2n1; stack[top++] = c2n2;
+                    stack[top++] = c1n1; stack[top++] = c1n2;
+                } else {
+                    stack[top++] = c1n1; stack[top++] = c1n2;
+                    stack[top++] = c2n1; stack[top++] = c2n2;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Auxiliary method to calculate the axis-aligned box in world coordinates that encloses the box of a node transformed by a model matrix.
+     */
+
+    private void worldBox(int node, float[] modelMatrix, float[] result) {
+        for (int row=0; row<3; row++) {
+            float center = modelMatrix[12+row], extent = 0;
+            for (int col=0; col<3; col++) {
+                float value = modelMatrix[4*col+row];
+                center += value*(nodeBoxes[6*node+col]+nodeBoxes[6*node+3+col])/2;
+                extent += Math.abs(value)*(nodeBoxes[6*node+3+col]-nodeBoxes[6*node+col])/2;
+            }
+            result[row] = center-extent;
+            result[3+row] = center+extent;
+        }
+    }
+
+    /** Auxiliary method to get the largest edge length of a box. */
+
+    private static float extent(float[] box) {
+        return Math.max(box[3]-box[0],Math.max(box[4]-box[1],box[5]-box[2]));
+    }
+
+    /** Auxiliary method to get the distance between two boxes (0 if they overlap). */
+
+    private static float boxDistance(float[] box1, float[] box2) {
+        float sum = 0;
+        for (int d=0; d<3; d++) {
+            float gap = Math.max(box1[d]-box2[3+d],box2[d]-box1[3+d]);
+            if (gap>0) sum += gap*gap;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /** Auxiliary method to transform the vertices of a triangle by a model matrix. */
+
+    static void transformTriangle(float[] vertices, int triangle, float[] modelMatrix, float[] result) {
+        for (int v=0; v<3; v++) {
+            float x = vertices[9*triangle+3*v], y = vertices[9*triangle+3*v+1], z = vertices[9*triangle+3*v+2];
+            for (int row=0; row<3; row++)
+                result[3*v+row] = modelMatrix[row]*x+modelMatrix[4+row]*y+modelMatrix[8+row]*z+modelMatrix[12+row];
+        }
+    }
+
+    /**
+     * Checks whether two triangles intersect, i.e. whether an edge of one of them passes through the other one or their distance is at most EPSILON.
+     * @param triangle1 The vertex coordinates of the first triangle (9 values).
+     * @param triangle2 The vertex coordinates of the second triangle (9 values).
+     * @param contactPoints List to which the contact points shall be added (or null).
+     * @param point Scratch array of length 3.
+     * @param closest Scratch array of length 6.
+     * @return true if the triangles intersect.
+     */
+
+    static boolean trianglesIntersect(float[] triangle1, float[] triangle2, ArrayList<float[]> contactPoints, float[] point, float[] closest) {
+        return trianglesIntersect(triangle1,triangle2,contactPoints,point,closest,new float[3]);
+    }
+
+    /**
+     * Variant of trianglesIntersect() with an additional scratch array of length 3 passed by the caller.
+     */
+
+    private static boolean trianglesIntersect(float[] triangle1, float[] triangle2, ArrayList<float[]> contactPoints, float[] point, float[] closest, float[] point2) {
+        boolean found = false;
+        for (int pass=0; pass<2; pass++) {
+            float[] edges = pass==0 ? triangle1 : triangle2, other = pass==0 ? triangle2 : triangle1;
+            for (int e=0; e<3; e++)
+                if (segmentIntersectsTriangle(edges,3*e,3*((e+1)%3),other,point)) {
+                    if (contactPoints==null) return true;
+                    contactPoints.add(point.clone());
+                    found = true;
+                }
+        }
+        if (found) return true;
+        if (triangleDistance(triangle1,triangle2,closest,point,point2)>EPSILON) return false;
+        if (contactPoints!=null)
+            contactPoints.add(new float[] { (closest[0]+closest[3])/2, (closest[1]+closest[4])/2, (closest[2]+closest[5])/2 });
+        return true;
+    }
+
+    /**
+     * Calculates the distance between two triangles and their closest points.
+     * If an edge of one triangle passes through the other triangle, the distance is 0 and both closest points are the point where the edge passes through.
+     * Otherwise, the closest points are found among the pairs of edges and the pairs of a vertex and the other triangle.
+     * @param triangle1 The vertex coordinates of the first triangle (9 values).
+     * @param triangle2 The vertex coordinates of the second triangle (9 values).
+     * @param closest Array of length 6 to store the closest points of the first and of the second triangle.
+     * @return The distance.
+     */
+
+    static float triangleDistance(float[] triangle1, float[] triangle2, float[] closest) {
+        return triangleDistance(triangle1,triangle2,closest,new float[3],new float[3]);
+    }
+
+    /**
+     * Variant of triangleDistance() with scratch arrays of length 3 passed by the caller.
+     */
+
+    private static float triangleDistance(float[] triangle1, float[] triangle2, float[] closest, float[] point, float[] point2) {
+        for (int pass=0; pass<2; pass++) {
+            float[] edges = pass==0 ? triangle1 : triangle2, other = pass==0 ? triangle2 : triangle1;
+            for (int e=0; e<3; e++)
+                if (segmentIntersectsTriangle(edges,3*e,3*((e+1)%3),other,point)) {
+                    System.arraycopy(point,0,closest,0,3);
+                    System.arraycopy(point,0,closest,3,3);
+                    return 0;
+                }
+        }
+        float best = Float.MAX_VALUE;
+        for (int e1=0; e1<3; e1++)
+            for (int e2=0; e2<3; e2++) {
+                float squared = closestPointsOfSegments(triangle1,3*e1,3*((e1+1)%3),triangle2,3*e2,3*((e2+1)%3),point,point2);
+                if (squared<best) {
+                    best = squared;
+                    System.arraycopy(point,0,closest,0,3);
+                    System.arraycopy(point2,0,closest,3,3);
+                }
+            }
+        for (int pass=0; pass<2; pass++) {
+            float[] vertices = pass==0 ? triangle1 : triangle2, other = pass==0 ? triangle2 : triangle1;
+            for (int v=0; v<3; v++) {
+                float squared = closestPointOnTriangle(vertices,3*v,other,point);
+                if (squared<best) {
+                    best = squared;
+                    System.arraycopy(vertices,3*v,closest,3*pass,3);
+                    System.arraycopy(point,0,closest,3-3*pass,3);
+                }
+            }
+        }
+        return (float) Math.sqrt(best);
+    }
+
+    /**
+     * Checks whether a segment passes through a triangle (Möller-Trumbore test). Segments parallel to the triangle are not considered.
+     * @param segment Array with the end points of the segment.
+     * @param start The position of the first end point in 'segment'.
+     * @param end The position of the second end point in 'segment'.
+     * @param triangle The vertex coordinates of the triangle (9 values).
+     * @param result Array of length 3 to store the intersection point.
+     * @return true if the segment passes through the triangle.
+     */
+
+    private static boolean segmentIntersectsTriangle(float[] segment, int start, int end, float[] triangle, float[] result) {
+        float dx = segment[end]-segment[start], dy = segment[end+1]-segment[start+1], dz = segment[end+2]-segment[start+2];
+        float e1x = triangle[3]-triangle[0], e1y = triangle[4]-triangle[1], e1z = triangle[5]-triangle[2];
+        float e2x = triangle[6]-triangle[0], e2y = triangle[7]-triangle[1], e2z = triangle[8]-triangle[2];
+        float px = dy*e2z-dz*e2y, py = dz*e2x-dx*e2z, pz = dx*e2y-dy*e2x;
+        float det = e1x*px+e1y*py+e1z*pz;
+        float scale = (Math.abs(dx)+Math.abs(dy)+Math.abs(dz))*(Math.abs(e1x)+Math.abs(e1y)+Math.abs(e1z))*(Math.abs(e2x)+Math.abs(e2y)+Math.abs(e2z));
+        if (Math.abs(det)<=1e-7f*scale) return false;
+        float inv = 1/det;
+        float sx = segment[start]-triangle[0], sy = segment[start+1]-triangle[1], sz = segment[start+2]-triangle[2];
+        float u = (sx*px+sy*py+sz*pz)*inv;
+        if (u<0||u>1) return false;
+        float qx = sy*e1z-sz*e1y, qy = sz*e1x-sx*e1z, qz = sx*e1y-sy*e1x;
+        float v = (dx*qx+dy*qy+dz*qz)*inv;
+        if (v<0||u+v>1) return false;
+        float t = (e2x*qx+e2y*qy+e2z*qz)*inv;
+        if (t<0||t>1) return false;
+        result[0] = segment[start]+t*dx;
+        result[1] = segment[start+1]+t*dy;
+        result[2] = segment[start+2]+t*dz;
+        return true;
+    }
+
+    /**
+     * Calculates the point of a triangle that is closest to a given point (following C. Ericson, Real-Time Collision Detection, 5.1.5).
+     * @param points Array with the point.
+     * @param offset The position of the point in 'points'.
+     * @param triangle The vertex coordinates of the triangle (9 values).
+     * @param result Array of length 3 to store the closest point.
+     * @return The squared distance between the point and the closest point.
+     */
+
+    private static float closestPointOnTriangle(float[] points, int offset, float[] triangle, float[] result) {
+        float px = points[offset], py = points[offset+1], pz = points[offset+2];
+        float abx = triangle[3]-triangle[0], aby = triangle[4]-triangle[1], abz = triangle[5]-triangle[2];
+        float acx = triangle[6]-triangle[0], acy = triangle[7]-triangle[1], acz = triangle[8]-triangle[2];
+        float apx = px-triangle[0], apy = py-triangle[1], apz = pz-triangle[2];
+        float d1 = abx*apx+aby*apy+abz*apz, d2 = acx*apx+acy*apy+acz*apz;
+        float v, w;
+        if (d1<=0&&d2<=0) {
+            v = 0; w = 0;
+        } else {
+            float bpx = px-triangle[3], bpy = py-triangle[4], bpz = pz-triangle[5];
+            float d3 = abx*bpx+aby*bpy+abz*bpz, d4 = acx*bpx+acy*bpy+acz*bpz;
+            float cpx = px-triangle[6], cpy = py-triangle[7], cpz = pz-triangle[8];
+            float d5 = abx*cpx+aby*cpy+abz*cpz, d6 = acx*cpx+acy*cpy+acz*cpz;
+            float vc = d1*d4-d3*d2, vb = d5*d2-d1*d6, va = d3*d6-d5*d4;
+            if (d3>=0&&d4<=d3) {
+                v = 1; w = 0;
+            } else if (d6>=0&&d5<=d6) {
+                v = 0; w = 1;
+            } else if (vc<=0&&d1>=0&&d3<=0) {
+                v = d1/(d1-d3); w = 0;
+            } else if (vb<=0&&d2>=0&&d6<=0) {
+                v = 0; w = d2/(d2-d6);
+            } else if (va<=0&&(d4-d3)>=0&&(d5-d6)>=0) {
+                w = (d4-d3)/((d4-d3)+(d5-d6)); v = 1-w;
+            } else {
+                float denom = 1/(va+vb+vc);
+                v = vb*denom; w = vc*denom;
+            }
+        }
+        result[0] = triangle[0]+abx*v+acx*w;
+        result[1] = triangle[1]+aby*v+acy*w;
+        result[2] = triangle[2]+abz*v+acz*w;
+        float dx = px-result[0], dy = py-result[1], dz = pz-result[2];
+        return dx*dx+dy*dy+dz*dz;
+    }
+
+    /**
+     * Calculates the closest points of two segments (following C. Ericson, Real-Time Collision Detection, 5.1.9).
+     * @param segment1 Array with the end points of the first segment.
+     * @param start1 The position of the first end point in 'segment1'.
+     * @param end1 The position of the second end point in 'segment1'.
+     * @param segment2 Array with the end points of the second segment.
+     * @param start2 The position of the first end point in 'segment2'.
+     * @param end2 The position of the second end point in 'segment2'.
+     * @param result1 Array of length 3 to store the closest point on the first segment.
+     * @param result2 Array of length 3 to store the closest point on the second segment.
+     * @return The squared distance between the closest points.
+     */
+
+    private static float closestPointsOfSegments(float[] segment1, int start1, int end1, float[] segment2, int start2, int end2, float[] result1, float[] result2) {
+        float d1x = segment1[end1]-segment1[start1], d1y = segment1[end1+1]-segment1[start1+1], d1z = segment1[end1+2]-segment1[start1+2];
+        float d2x = segment2[end2]-segment2[start2], d2y = segment2[end2+1]-segment2[start2+1], d2z = segment2[end2+2]-segment2[start2+2];
+        float rx = segment1[start1]-segment2[start2], ry = segment1[start1+1]-segment2[start2+1], rz = segment1[start1+2]-segment2[start2+2];
+        float a = d1x*d1x+d1y*d1y+d1z*d1z, e = d2x*d2x+d2y*d2y+d2z*d2z, f = d2x*rx+d2y*ry+d2z*rz;
+        float s, t;
+        if (a<=1e-12f&&e<=1e-12f) {
+            s = 0; t = 0;
+        } else if (a<=1e-12f) {
+            s = 0;
+            t = clamp(f/e);
+        } else {
+            float c = d1x*rx+d1y*ry+d1z*rz;
+            if (e<=1e-12f) {
+                t = 0;
+                s = clamp(-c/a);
+            } else {
+                float b = d1x*d2x+d1y*d2y+d1z*d2z;
+                float denom = a*e-b*b;
+                s = denom>0 ? clamp((b*f-c*e)/denom) : 0;
+                t = (b*s+f)/e;
+                if (t<0) {
+                    t = 0;
+                    s = clamp(-c/a);
+                } else if (t>1) {
+                    t = 1;
+                    s = clamp((b-c)/a);
+                }
+            }
+        }
+        result1[0] = segment1[start1]+d1x*s;
+        result1[1] = segment1[start1+1]+d1y*s;
+        result1[2] = segment1[start1+2]+d1z*s;
+        result2[0] = segment2[start2]+d2x*t;
+        result2[1] = segment2[start2+1]+d2y*t;
+        result2[2] = segment2[start2+2]+d2z*t;
+        float dx = result1[0]-result2[0], dy = result1[1]-result2[1], dz = result1[2]-result2[2];
+        return dx*dx+dy*dy+dz*dz;
+    }
+
+    private static float clamp(float value) {
+        return value<0 ? 0 : (value>1 ? 1 : value);
+    }
+
+}
@@ -284,6 +284,17 @@ public class GLTriangleCV {
         return coordinatesToReturn;
     }
 
+    /**
+     * Get a single vertex coordinate of the triangle without copying the 'vertices' attribute.
+     * @param vertexNo The number of the vertex (0, 1, or 2).
+     * @param dimension The dimension of the coordinate (0 = x, 1 = y, 2 = z).
+     * @return The coordinate value.
+     */
+
+    public float getVertexCoordinate(int vertexNo, int dimension) {
+        return vertices[vertexNo][dimension];
+    }
+
     /**
      * Get the coloring type of the triangle.
      * @return The coloring type of the triangle:
@@ -58,6 +58,18 @@ public class GraphicsUtilsCV {
             return (float)Math.sqrt(vector[0]*vector[0]+vector[1]*vector[1]+vector[2]*vector[2]);
     }
 
+    /** Method to calculate the length of a vector in 3D space that is stored in an array at a given offset.
+     * The method does not allocate memory and does not check its parameters.
+     * @param vector Array with the x, y, and z components of the vector at positions offset, offset+1, and offset+2.
+     * @param offset The position of the x component.
+     * @return The length of the vector.
+     */
+
+    public static float vectorLength(float[] vector, int offset) {
+        float x = vector[offset], y = vector[offset+1], z = vector[offset+2];
+        return (float)Math.sqrt(x*x+y*y+z*z);
+    }
+
     /** Method to determine the vector between two points in 3D space.
      *
      * @param p1 The first point: Array of length 3 with the (x,y,z) coordinates (in this order).
@@ -69,12 +81,30 @@ public class GraphicsUtilsCV {
     public static float[] vectorBetweenPoints(float[] p1, float[] p2) {
         if (p1==null||p1.length!=3||p2==null||p2.length!=3) return null;
         float result[] = new float[3];
-        result[0] = p2[0]-p1[0];
-        result[1] = p2[1]-p1[1];
-        result[2] = p2[2]-p1[2];
+        vectorBetweenPoints(p1,0,p2,0,result,0);
         return result;
     }
 
+    /** Method to determine the vector between two points in 3D space, writing the result into a given array.
+     * Like all methods of this class with offset parameters, the method does not allocate memory
+     * and does not check its parameters (apart from the checks done by the Java runtime),
+     * i.e. it is intended for frequent calls e.g. in every frame of an animation or to fill vertex buffers.
+     * The result array may be one of the parameter arrays.
+     * @param p1 Array with the first point (x, y, and z coordinate at positions offset1, offset1+1, and offset1+2).
+     * @param offset1 The position of the first point in 'p1'.
+     * @param p2 Array with the second point.
+     * @param offset2 The position of the second point in 'p2'.
+     * @param result Array to which the vector from p1 to p2 is written.
+     * @param resultOffset The position in 'result' at which the vector shall be written.
+     */
+
+    public static void vectorBetweenPoints(float[] p1, int offset1, float[] p2, int offset2, float[] result, int resultOffset) {
+        float x = p2[offset2]-p1[offset1], y = p2[offset2+1]-p1[offset1+1], z = p2[offset2+2]-p1[offset1+2];
+        result[resultOffset] = x;
+        result[resultOffset+1] = y;
+        result[resultOffset+2] = z;
+    }
+
     /** Method to calculate the distance between two points in 3D space.
      *
      * @param p1 The first point: Array of length 3 with the (x,y,z) coordinates (in this order).
@@ -85,7 +115,20 @@ public class GraphicsUtilsCV {
 
     public static float distance(float[] p1, float[] p2) {
         if (p1==null||p1.length!=3||p2==null||p2.length!=3) return -1;
-        return vectorLength(vectorBetweenPoints(p1,p2));
+        return distance(p1,0,p2,0);
+    }
+
+    /** Method to calculate the distance between two points in 3D space without allocating memory.
+     * @param p1 Array with the first point (x, y, and z coordinate at positions offset1, offset1+1, and offset1+2).
+     * @param offset1 The position of the first point in 'p1'.
+     * @param p2 Array with the second point.
+     * @param offset2 The position of the second point in 'p2'.
+     * @return The distance between the points.
+     */
+
+    public static float distance(float[] p1, int offset1, float[] p2, int offset2) {
+        float dx = p2[offset2]-p1[offset1], dy = p2[offset2+1]-p1[offset1+1], dz = p2[offset2+2]-p1[offset1+2];
+        return (float)Math.sqrt(dx*dx+dy*dy+dz*dz);
     }
 
     /** Method that returns a random point in 3D space.
@@ -137,11 +180,26 @@ public class GraphicsUtilsCV {
     public static float[] homogeneousCoordsForPoint(float[] coordinates) {
         if (coordinates==null||coordinates.length!=3) return null;
         float result[] = new float[4];
-        for (int i=0; i<3; i++) result[i] = coordinates[i];
-        result[3] = 1;
+        homogeneousCoords(coordinates,0,1,result,0);
         return result;
     }
 
+    /** Method to write the homogeneous coordinate representation of a point or vector in 3D space into a given array without allocating memory.
+     * @param coordinates Array with the x, y, and z coordinates at positions offset, offset+1, and offset+2.
+     * @param offset The position of the x coordinate in 'coordinates'.
+     * @param w The fourth coordinate (1 for a point, 0 for a vector).
+     * @param result Array to which the four coordinates are written (may be 'coordinates').
+     * @param resultOffset The position in 'result' at which the coordinates shall be written.
+     */
+
+    public static void homogeneousCoords(float[] coordinates, int offset, float w, float[] result, int resultOffset) {
+        float x = coordinates[offset], y = coordinates[offset+1], z = coordinates[offset+2];
+        result[resultOffset] = x;
+        result[resultOffset+1] = y;
+        result[resultOffset+2] = z;
+        result[resultOffset+3] = w;
+    }
+
     /** Method to get the homogeneous coordinate representation of a vector in 3D space.
      * @param coordinates The x, y, and z coordinates of the vector (must be an array of length 3).
      * @return The homogeneous coordinate representation of the vector,
@@ -153,8 +211,7 @@ public class GraphicsUtilsCV {
     public static float[] homogeneousCoordsForVector(float[] coordinates) {
         if (coordinates==null||coordinates.length!=3) return null;
         float result[] = new float[4];
-        for (int i=0; i<3; i++) result[i] = coordinates[i];
-        result[3] = 0;
+        homogeneousCoords(coordinates,0,0,result,0);
         return result;
     }
 
@@ -181,13 +238,24 @@ public class GraphicsUtilsCV {
     public static float[] midpoint(float[] p1, float[] p2) {
         if (p1==null||p1.length!=3||p2==null||p2.length!=3) return null;
         float[] result = new float[3];
-        for (int i=0;i<3;i++) {
-            result[i] = p1[i] + (p2[i] - p1[i]) / 2;
-            // Log.v("GLDEMO",i+": "+p1[i]+" "+p2[i]+" "+result[i]);
-        }
+        midpoint(p1,0,p2,0,result,0);
         return result;
     }
 
+    /** Method to calculate the midpoint between two points in 3D space without allocating memory.
+     * @param p1 Array with the first point (x, y, and z coordinate at positions offset1, offset1+1, and offset1+2).
+     * @param offset1 The position of the first point in 'p1'.
+     * @param p2 Array with the second point.
+     * @param offset2 The position of the second point in 'p2'.
+     * @param result Array to which the midpoint is written (may be one of the parameter arrays).
+     * @param resultOffset The position in 'result' at which the midpoint shall be written.
+     */
+
+    public static void midpoint(float[] p1, int offset1, float[] p2, int offset2, float[] result, int resultOffset) {
+        for (int i=0;i<3;i++)
+            result[resultOffset+i] = p1[offset1+i] + (p2[offset2+i] - p1[offset1+i]) / 2;
+    }
+
     /** Method to calculate a number of points in 3D space that lie equidistantly between two end points.
      * @param endpoint1 The first end point: Array of length 3 with the (x,y,z) coordinates (in this order).
      * @param endpoint2 The second end point: Array of length 3 with the (x,y,z) coordinates (in this order).
@@ -201,12 +269,41 @@ public class GraphicsUtilsCV {
 
     public static float[][] pointsInLine(float[] endpoint1, float[] endpoint2, int numberOfPoints) {
         if (endpoint1==null||endpoint1.length!=3||endpoint2==null||endpoint2.length!=3||numberOfPoints<2) return null;
-        float[][] result = new float[numberOfPoints][3];
+        float[] flat = new float[3*numberOfPoints];
+        pointsInLine(endpoint1,endpoint2,numberOfPoints,flat,0,3);
+        return pointsFromFlatArray(flat,numberOfPoints);
+    }
+
+    /** Method to calculate a number of points in 3D space that lie equidistantly between two end points,
+     * writing them into a flat array (e.g. an array from which a vertex buffer is filled).
+     * @param endpoint1 The first end point: Array of length 3 with the (x,y,z) coordinates (in this order).
+     * @param endpoint2 The second end point: Array of length 3 with the (x,y,z) coordinates (in this order).
+     * @param numberOfPoints The number of points to be calculated (>1).
+     * @param result Array to which the x, y, and z coordinates of the points are written, the first point being endpoint1 and the last point endpoint2.
+     * @param offset The position in 'result' at which the coordinates of the first point shall be written.
+     * @param stride The distance between the positions of two consecutive points in 'result' (>=3, e.g. 3 for a tightly packed array).
+     * @return false if one of the parameters is not valid (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean pointsInLine(float[] endpoint1, float[] endpoint2, int numberOfPoints, float[] result, int offset, int stride) {
+        if (endpoint1==null||endpoint1.length!=3||endpoint2==null||endpoint2.length!=3||numberOfPoints<2||stride<3
+                ||result==null||offset<0||offset+stride*(numberOfPoints-1)+3>result.length) return false;
         for (int i=0; i<numberOfPoints; i++)
             if (i<numberOfPoints-1)
-                for (int j=0; j<3; j++) result[i][j] = endpoint1[j]+(endpoint2[j]-endpoint1[j])/(numberOfPoints-1)*i;
+                for (int j=0; j<3; j++) result[offset+stride*i+j] = endpoint1[j]+(endpoint2[j]-endpoint1[j])/(numberOfPoints-1)*i;
             else
-                result[i] = endpoint2.clone();
+                System.arraycopy(endpoint2,0,result,offset+stride*i,3);
+        return true;
+    }
+
+    /** Auxiliary method to copy points from a tightly packed flat array into a two-dimensional array (as returned by the older methods of this class).
+     */
+
+    private static float[][] pointsFromFlatArray(float[] flat, int numberOfPoints) {
+        int dimensions = flat.length/numberOfPoints;
+        float[][] result = new float[numberOfPoints][dimensions];
+        for (int i=0; i<numberOfPoints; i++)
+            System.arraycopy(flat,dimensions*i,result[i],0,dimensions);
         return result;
     }
 
@@ -227,6 +324,23 @@ public class GraphicsUtilsCV {
         return true;
     }
 
+    /** Method to normalize a vector in 3D space without allocating memory.
+     * @param vector Array with the x, y, and z components of the vector at positions offset, offset+1, and offset+2.
+     * @param offset The position of the x component in 'vector'.
+     * @param result Array to which the normalized vector is written (may be 'vector').
+     * @param resultOffset The position in 'result' at which the normalized vector shall be written.
+     * @return false if the length of the vector is zero or very close to zero (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean normalize(float[] vector, int offset, float[] result, int resultOffset) {
+        float length = vectorLength(vector,offset);
+        if (length<1E-9f) return false;
+        result[resultOffset] = vector[offset]/length;
+        result[resultOffset+1] = vector[offset+1]/length;
+        result[resultOffset+2] = vector[offset+2]/length;
+        return true;
+    }
+
     /** Method to get a normalized copy of a vector in 3D space.
      *
      * @param vector The vector to normalize.
@@ -237,11 +351,7 @@ public class GraphicsUtilsCV {
     public static float[] getNormalizedCopy(float[] vector) {
         if (vector==null||vector.length!=3) return null;
         float[] result = new float[3];
-        float length = vectorLength(vector);
-        if (length<1E-9f) return null;
-        result[0] = vector[0]/length;
-        result[1] = vector[1]/length;
-        result[2] = vector[2]/length;
+        if (!normalize(vector,0,result,0)) return null;
         return result;
     }
 
@@ -257,6 +367,18 @@ public class GraphicsUtilsCV {
         return vec1[0]*vec2[0]+vec1[1]*vec2[1]+vec1[2]*vec2[2];
     }
 
+    /** Method to calculate the dot product of two vectors in 3D space that are stored in arrays at given offsets.
+     * @param vec1 Array with the first vector (x, y, and z components at positions offset1, offset1+1, and offset1+2).
+     * @param offset1 The position of the first vector in 'vec1'.
+     * @param vec2 Array with the second vector.
+     * @param offset2 The position of the second vector in 'vec2'.
+     * @return The dot product.
+     */
+
+    public static float dotProduct(float[] vec1, int offset1, float[] vec2, int offset2) {
+        return vec1[offset1]*vec2[offset2]+vec1[offset1+1]*vec2[offset2+1]+vec1[offset1+2]*vec2[offset2+2];
+    }
+
     /** Method to calculate the cross product of two vectors in 3D space,
      *  i.e. a vector that is perpendicular to the plane spanned by the two vectors.
      * @param vec1 The first vector.
@@ -268,12 +390,28 @@ public class GraphicsUtilsCV {
     public static float[] crossProduct(float[] vec1, float[] vec2) {
         if (vec1==null||vec1.length!=3||vec2==null||vec2.length!=3) return null;
         float result[] = new float[3];
-        result[0] = vec1[1]*vec2[2]-vec1[2]*vec2[1];
-        result[1] = vec1[2]*vec2[0]-vec1[0]*vec2[2];
-        result[2] = vec1[0]*vec2[1]-vec1[1]*vec2[0];
+        crossProduct(vec1,0,vec2,0,result,0);
         return result;
     }
 
+    /** Method to calculate the cross product of two vectors in 3D space without allocating memory.
+     * @param vec1 Array with the first vector (x, y, and z components at positions offset1, offset1+1, and offset1+2).
+     * @param offset1 The position of the first vector in 'vec1'.
+     * @param vec2 Array with the second vector.
+     * @param offset2 The position of the second vector in 'vec2'.
+     * @param result Array to which the cross product is written (may be one of the parameter arrays).
+     * @param resultOffset The position in 'result' at which the cross product shall be written.
+     */
+
+    public static void crossProduct(float[] vec1, int offset1, float[] vec2, int offset2, float[] result, int resultOffset) {
+        float x = vec1[offset1+1]*vec2[offset2+2]-vec1[offset1+2]*vec2[offset2+1];
+        float y = vec1[offset1+2]*vec2[offset2]-vec1[offset1]*vec2[offset2+2];
+        float z = vec1[offset1]*vec2[offset2+1]-vec1[offset1+1]*vec2[offset2];
+        result[resultOffset] = x;
+        result[resultOffset+1] = y;
+        result[resultOffset+2] = z;
+    }
+
     /** Method to check if two double values are nearly equal,
      * i.e. if their difference is smaller than 1E-6.
      * @param f1 The first value.
@@ -333,6 +471,25 @@ public class GraphicsUtilsCV {
         return isIdentity(matrixFromArray(m3,4,4));
     }
 
+    /** Method to check if an array of length 16 holds a 4x4 rotation matrix (in the column-major order of OpenGL).
+     * In contrast to is4x4RotationMatrix(float[][]), the method does not allocate memory.
+     * @param matrix The matrix.
+     * @return true iff the matrix is a rotation matrix, i.e. its columns are orthonormal.
+     */
+
+    public static boolean is4x4RotationMatrix(float[] matrix) {
+        if (matrix==null||matrix.length!=16) return false;
+        for (int i=0; i<4; i++)
+            for (int j=i; j<4; j++) {
+                // element (i,j) of transpose(matrix)*matrix, i.e. the dot product of columns i and j
+                double dot = 0;
+                for (int k=0; k<4; k++)
+                    dot += matrix[4*i+k]*matrix[4*j+k];
+                if (!valuesEqual(dot,i==j?1.0:0.0)) return false;
+            }
+        return true;
+    }
+
     /** Method to transform a two-dimensional matrix into a one-dimensional array,
      * copying its columns one after the other
      * (needed e.g. to transform a scaling, rotation or transformation matrix
@@ -384,6 +541,24 @@ public class GraphicsUtilsCV {
         // Matrix.setRotateEulerM(rotationMatrix,0,eulerX,eulerY,eulerZ);
         // THE IMPLEMENTATION OF THE METHOD Matrix.setRotateEulerM() IS BUGGY (AS OF 18.9.22), DOES NOT ROTATE CORRECTLY AROUND THE Y AXIS.
 
+        float[] rotationMatrix = new float[16];
+        rotationMatrixFromEulerAngles(eulerX,eulerY,eulerZ,rotationMatrix,0);
+        return rotationMatrix;
+
+    }
+
+    /**
+     * Method to calculate a rotation matrix from three Euler angles (see rotationMatrixFromEulerAngles(float,float,float)),
+     * writing the matrix into a given array without allocating memory.
+     * @param eulerX The Euler angle in the x dimension.
+     * @param eulerY The Euler angle in the y dimension.
+     * @param eulerZ The Euler angle in the z dimension.
+     * @param rotationMatrix Array to which the 4x4 rotation matrix is written (16 values in column-major order).
+     * @param offset The position in 'rotationMatrix' at which the matrix shall be written.
+     */
+
+    public static void rotationMatrixFromEulerAngles(float eulerX, float eulerY, float eulerZ, float[] rotationMatrix, int offset) {
+
         float cosX = (float) Math.cos(Math.PI*eulerX/180.0);
         float sinX = (float) Math.sin(Math.PI*eulerX/180.0);
         float cosY = (float) Math.cos(Math.PI*eulerY/180.0);
@@ -391,24 +566,313 @@ public class GraphicsUtilsCV {
         float cosZ = (float) Math.cos(Math.PI*eulerZ/180.0);
         float sinZ = (float) Math.sin(Math.PI*eulerZ/180.0);
 
-        float[] rotationMatrix = new float[16];
+        rotationMatrix[offset] = cosY * cosZ;
+        rotationMatrix[offset+1] = sinY*sinX - cosY*sinZ*cosX;
+        rotationMatrix[offset+2] = cosY*sinZ*sinX + sinY*cosX;
+        rotationMatrix[offset+3] = 0.0f;
+        rotationMatrix[offset+4] = sinZ;
+        rotationMatrix[offset+5] = cosZ*cosX;
+        rotationMatrix[offset+6] = -cosZ*sinX;
+        rotationMatrix[offset+7] = 0.0f;
+        rotationMatrix[offset+8] = -sinY*cosZ;
+        rotationMatrix[offset+9] = sinY*sinZ*cosX + cosY*sinX;
+        rotationMatrix[offset+10] = -sinY*sinZ*sinX + cosY*cosX;
+        rotationMatrix[offset+11] = rotationMatrix[offset+12] = rotationMatrix[offset+13] = rotationMatrix[offset+14] = 0.0f;
+        rotationMatrix[offset+15] = 1.0f;
 
-        rotationMatrix[0] = cosY * cosZ;
-        rotationMatrix[1] = sinY*sinX - cosY*sinZ*cosX;
-        rotationMatrix[2] = cosY*sinZ*sinX + sinY*cosX;
-        rotationMatrix[3] = 0.0f;
-        rotationMatrix[4] = sinZ;
-        rotationMatrix[5] = cosZ*cosX;
-        rotationMatrix[6] = -cosZ*sinX;
-        rotationMatrix[7] = 0.0f;
-        rotationMatrix[8] = -sinY*cosZ;
-        rotationMatrix[9] = sinY*sinZ*cosX + cosY*sinX;
-        rotationMatrix[10] = -sinY*sinZ*sinX + cosY*cosX;
-        rotationMatrix[11] = rotationMatrix[12] = rotationMatrix[13] = rotationMatrix[14] = 0.0f;
-        rotationMatrix[15] = 1.0f;
+    }
 
-        return rotationMatrix;
+    /**
+     * Method to calculate the 4x4 matrix for a rotation around an axis through a given pivot point,
+     * i.e. the product of a translation by 'pivot', a rotation around the axis through the origin, and a translation by -'pivot'.
+     * The matrix is written into a given array such that the method can be called in every frame without allocating memory.
+     * @param angle The rotation angle (degrees, counterclockwise when looking against the axis direction as for Matrix.setRotateM()).
+     * @param axis The direction of the rotation axis (array of length 3, need not be normalized).
+     * @param pivot A point on the rotation axis (array of length 3).
+     * @param result Array of length 16 to which the matrix is written (column-major order as in android.opengl.Matrix).
+     * @return false if the axis has length 0 (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean rotationMatrixAroundPivot(float angle, float[] axis, float[] pivot, float[] result) {
+        float length = (float) Math.sqrt(axis[0]*axis[0]+axis[1]*axis[1]+axis[2]*axis[2]);
+        if (length==0) return false;
+        float x = axis[0]/length, y = axis[1]/length, z = axis[2]/length;
+        float c = (float) Math.cos(Math.PI*angle/180.0);
+        float s = (float) Math.sin(Math.PI*angle/180.0);
+        float t = 1-c;
+        result[0] = c+x*x*t;     result[4] = x*y*t-z*s;   result[8] = x*z*t+y*s;
+        result[1] = x*y*t+z*s;   result[5] = c+y*y*t;     result[9] = y*z*t-x*s;
+        result[2] = x*z*t-y*s;   result[6] = y*z*t+x*s;   result[10] = c+z*z*t;
+        result[3] = result[7] = result[11] = 0;
+        for (int i=0;i<3;i++)
+            result[12+i] = pivot[i]-(result[i]*pivot[0]+result[4+i]*pivot[1]+result[8+i]*pivot[2]);
+        result[15] = 1;
+        return true;
+    }
+
+    /*
+     * Quaternions:
+     * A rotation by an angle a around an axis with unit direction (x,y,z) is represented by the unit quaternion
+     * (x*sin(a/2), y*sin(a/2), z*sin(a/2), cos(a/2)), stored as four consecutive float values x, y, z, w in an array.
+     * Compared to 4x4 rotation matrices, quaternions are composed with 16 instead of 64 multiplications,
+     * can be renormalized cheaply to remove rounding errors, and can be interpolated smoothly (slerp).
+     * The following methods write their results into given arrays at given positions and do not allocate memory.
+     */
+
+    /**
+     * Method to calculate the quaternion for a rotation around an axis through the origin.
+     * @param angle The rotation angle (degrees, counterclockwise when looking against the axis direction as for Matrix.setRotateM()).
+     * @param axisX The x coordinate of the direction of the axis (the direction need not be normalized).
+     * @param axisY The y coordinate of the direction of the axis.
+     * @param axisZ The z coordinate of the direction of the axis.
+     * @param result Array to which the quaternion is written (x, y, z, w).
+     * @param offset The position in 'result' at which the quaternion shall be written.
+     * @return false if the axis has length 0 (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean quaternionFromAxisAngle(float angle, float axisX, float axisY, float axisZ, float[] result, int offset) {
+        float length = (float) Math.sqrt(axisX*axisX+axisY*axisY+axisZ*axisZ);
+        if (length==0) return false;
+        double halfAngle = Math.PI*angle/360.0;
+        float s = (float) Math.sin(halfAngle)/length;
+        result[offset] = axisX*s;
+        result[offset+1] = axisY*s;
+        result[offset+2] = axisZ*s;
+        result[offset+3] = (float) Math.cos(halfAngle);
+        return true;
+    }
+
+    /**
+     * Method to multiply two quaternions, i.e. to compose the rotations they represent.
+     * As with the product of the corresponding rotation matrices, the result represents the rotation of q2 followed by the rotation of q1.
+     * The result may be written into one of the operands.
+     * @param q1 Array with the first quaternion (x, y, z, w).
+     * @param offset1 The position of the first quaternion in 'q1'.
+     * @param q2 Array with the second quaternion.
+     * @param offset2 The position of the second quaternion in 'q2'.
+     * @param result Array to which the product q1*q2 is written.
+     * @param resultOffset The position in 'result' at which the product shall be written.
+     */
+
+    public static void quaternionMultiply(float[] q1, int offset1, float[] q2, int offset2, float[] result, int resultOffset) {
+        float x1 = q1[offset1], y1 = q1[offset1+1], z1 = q1[offset1+2], w1 = q1[offset1+3];
+        float x2 = q2[offset2], y2 = q2[offset2+1], z2 = q2[offset2+2], w2 = q2[offset2+3];
+        result[resultOffset] = w1*x2+x1*w2+y1*z2-z1*y2;
+        result[resultOffset+1] = w1*y2-x1*z2+y1*w2+z1*x2;
+        result[resultOffset+2] = w1*z2+x1*y2-y1*x2+z1*w2;
+        result[resultOffset+3] = w1*w2-x1*x2-y1*y2-z1*z2;
+    }
+
+    /**
+     * Method to normalize a quaternion in place, i.e. to scale it to length 1
+     * (e.g. to remove the rounding errors accumulated by many multiplications).
+     * @param q Array with the quaternion (x, y, z, w).
+     * @param offset The position of the quaternion in 'q'.
+     * @return false if the quaternion has length 0 (then it is not modified), true otherwise.
+     */
+
+    public static boolean quaternionNormalize(float[] q, int offset) {
+        float length = (float) Math.sqrt(q[offset]*q[offset]+q[offset+1]*q[offset+1]+q[offset+2]*q[offset+2]+q[offset+3]*q[offset+3]);
+        if (length==0) return false;
+        for (int i=0; i<4; i++)
+            q[offset+i] /= length;
+        return true;
+    }
+
+    /**
+     * Method to interpolate between two unit quaternions by spherical linear interpolation ("slerp"),
+     * i.e. with constant angular velocity along the shortest path between the two orientations.
+     * If the two orientations are very close, the quaternions are interpolated linearly and normalized.
+     * The result may be written into one of the operands.
+     * @param q1 Array with the start quaternion (x, y, z, w).
+     * @param offset1 The position of the start quaternion in 'q1'.
+     * @param q2 Array with the end quaternion.
+     * @param offset2 The position of the end quaternion in 'q2'.
+     * @param fraction The interpolation parameter (0 = start quaternion, 1 = end quaternion).
+     * @param result Array to which the interpolated quaternion is written.
+     * @param resultOffset The position in 'result' at which the quaternion shall be written.
+     */
 
+    public static void quaternionSlerp(float[] q1, int offset1, float[] q2, int offset2, float fraction, float[] result, int resultOffset) {
+        float x2 = q2[offset2], y2 = q2[offset2+1], z2 = q2[offset2+2], w2 = q2[offset2+3];
+        float cos = q1[offset1]*x2+q1[offset1+1]*y2+q1[offset1+2]*z2+q1[offset1+3]*w2;
+        if (cos<0) {
+            // q and -q represent the same rotation: take the one closer to q1 to get the shortest path
+            cos = -cos;
+            x2 = -x2; y2 = -y2; z2 = -z2; w2 = -w2;
+        }
+        float factor1, factor2;
+        if (cos>0.9995f) {
+            factor1 = 1-fraction;
+            factor2 = fraction;
+        } else {
+            double angle = Math.acos(cos), sin = Math.sin(angle);
+            factor1 = (float) (Math.sin((1-fraction)*angle)/sin);
+            factor2 = (float) (Math.sin(fraction*angle)/sin);
+        }
+        result[resultOffset] = factor1*q1[offset1]+factor2*x2;
+        result[resultOffset+1] = factor1*q1[offset1+1]+factor2*y2;
+        result[resultOffset+2] = factor1*q1[offset1+2]+factor2*z2;
+        result[resultOffset+3] = factor1*q1[offset1+3]+factor2*w2;
+        if (cos>0.9995f)
+            quaternionNormalize(result,resultOffset);
+    }
+
+    /**
+     * Method to calculate the 4x4 rotation matrix represented by a unit quaternion.
+     * @param q Array with the quaternion (x, y, z, w).
+     * @param offset The position of the quaternion in 'q'.
+     * @param result Array to which the matrix is written (16 values in column-major order as in android.opengl.Matrix).
+     * @param resultOffset The position in 'result' at which the matrix shall be written.
+     */
+
+    public static void rotationMatrixFromQuaternion(float[] q, int offset, float[] result, int resultOffset) {
+        float x = q[offset], y = q[offset+1], z = q[offset+2], w = q[offset+3];
+        result[resultOffset] = 1-2*(y*y+z*z);
+        result[resultOffset+1] = 2*(x*y+z*w);
+        result[resultOffset+2] = 2*(x*z-y*w);
+        result[resultOffset+4] = 2*(x*y-z*w);
+        result[resultOffset+5] = 1-2*(x*x+z*z);
+        result[resultOffset+6] = 2*(y*z+x*w);
+        result[resultOffset+8] = 2*(x*z+y*w);
+        result[resultOffset+9] = 2*(y*z-x*w);
+        result[resultOffset+10] = 1-2*(x*x+y*y);
+        result[resultOffset+3] = result[resultOffset+7] = result[resultOffset+11] = 0;
+        result[resultOffset+12] = result[resultOffset+13] = result[resultOffset+14] = 0;
+        result[resultOffset+15] = 1;
+    }
+
+    /**
+     * Method to calculate the unit quaternion representing the rotation of a 4x4 rotation matrix
+     * (following Shepperd's method, i.e. based on the largest of the diagonal elements and the trace to be numerically stable).
+     * The matrix is not checked to be a rotation matrix.
+     * @param rotMatrix Array with the rotation matrix (16 values in column-major order as in android.opengl.Matrix).
+     * @param offset The position of the matrix in 'rotMatrix'.
+     * @param result Array to which the quaternion is written (x, y, z, w).
+     * @param resultOffset The position in 'result' at which the quaternion shall be written.
+     */
+
+    public static void quaternionFromRotationMatrix(float[] rotMatrix, int offset, float[] result, int resultOffset) {
+        // element in row i and column j is element offset+4*j+i of the array
+        float m00 = rotMatrix[offset], m01 = rotMatrix[offset+4], m02 = rotMatrix[offset+8];
+        float m10 = rotMatrix[offset+1], m11 = rotMatrix[offset+5], m12 = rotMatrix[offset+9];
+        float m20 = rotMatrix[offset+2], m21 = rotMatrix[offset+6], m22 = rotMatrix[offset+10];
+        float trace = m00+m11+m22;
+        float x, y, z, w;
+        if (trace>0) {
+            float s = 2*(float) Math.sqrt(trace+1);
+            w = s/4;
+            x = (m21-m12)/s;
+            y = (m02-m20)/s;
+            z = (m10-m01)/s;
+        } else if (m00>m11&&m00>m22) {
+            float s = 2*(float) Math.sqrt(1+m00-m11-m22);
+            w = (m21-m12)/s;
+            x = s/4;
+            y = (m01+m10)/s;
+            z = (m02+m20)/s;
+        } else if (m11>m22) {
+            float s = 2*(float) Math.sqrt(1+m11-m00-m22);
+            w = (m02-m20)/s;
+            x = (m01+m10)/s;
+            y = s/4;
+            z = (m12+m21)/s;
+        } else {
+            float s = 2*(float) Math.sqrt(1+m22-m00-m11);
+            w = (m10-m01)/s;
+            x = (m02+m20)/s;
+            y = (m12+m21)/s;
+            z = s/4;
+        }
+        result[resultOffset] = x;
+        result[resultOffset+1] = y;
+        result[resultOffset+2] = z;
+        result[resultOffset+3] = w;
+        quaternionNormalize(result,resultOffset);
+    }
+
+    /**
+     * Method to rotate a vector by a unit quaternion.
+     * The result may be written into the vector itself.
+     * @param q Array with the quaternion (x, y, z, w).
+     * @param offset The position of the quaternion in 'q'.
+     * @param vector Array with the vector (x, y, z).
+     * @param vectorOffset The position of the vector in 'vector'.
+     * @param result Array to which the rotated vector is written.
+     * @param resultOffset The position in 'result' at which the rotated vector shall be written.
+     */
+
+    public static void rotateByQuaternion(float[] q, int offset, float[] vector, int vectorOffset, float[] result, int resultOffset) {
+        float qx = q[offset], qy = q[offset+1], qz = q[offset+2], qw = q[offset+3];
+        float vx = vector[vectorOffset], vy = vector[vectorOffset+1], vz = vector[vectorOffset+2];
+        // v' = v + 2*qw*(q x v) + 2*(q x (q x v)), with q standing for the vector part of the quaternion
+        float tx = 2*(qy*vz-qz*vy), ty = 2*(qz*vx-qx*vz), tz = 2*(qx*vy-qy*vx);
+        result[resultOffset] = vx+qw*tx+qy*tz-qz*ty;
+        result[resultOffset+1] = vy+qw*ty+qz*tx-qx*tz;
+        result[resultOffset+2] = vz+qw*tz+qx*ty-qy*tx;
+    }
+
+    /**
+     * Method to calculate the unit quaternion for the shortest rotation that turns one direction into another.
+     * If the directions are opposite, the rotation is by 180 degrees around an arbitrary axis perpendicular to them.
+     * @param from Array with the first direction (x, y, z, need not be normalized).
+     * @param fromOffset The position of the first direction in 'from'.
+     * @param to Array with the second direction (x, y, z, need not be normalized).
+     * @param toOffset The position of the second direction in 'to'.
+     * @param result Array to which the quaternion is written (x, y, z, w).
+     * @param resultOffset The position in 'result' at which the quaternion shall be written.
+     * @return false if one of the directions has length 0 (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean quaternionBetweenVectors(float[] from, int fromOffset, float[] to, int toOffset, float[] result, int resultOffset) {
+        float lengths = vectorLength(from,fromOffset)*vectorLength(to,toOffset);
+        if (lengths==0) return false;
+        float dot = dotProduct(from,fromOffset,to,toOffset);
+        if (dot<-0.999999f*lengths) {
+            // opposite directions: rotate around the axis perpendicular to 'from' and the coordinate axis along which 'from' is smallest
+            float fx = Math.abs(from[fromOffset]), fy = Math.abs(from[fromOffset+1]), fz = Math.abs(from[fromOffset+2]);
+            int axis = fx<=fy&&fx<=fz ? 0 : (fy<=fz ? 1 : 2);
+            float ax = axis==0 ? 0 : (axis==1 ? from[fromOffset+2] : -from[fromOffset+1]);
+            float ay = axis==0 ? -from[fromOffset+2] : (axis==1 ? 0 : from[fromOffset]);
+            float az = axis==0 ? from[fromOffset+1] : (axis==1 ? -from[fromOffset] : 0);
+            result[resultOffset] = ax;
+            result[resultOffset+1] = ay;
+            result[resultOffset+2] = az;
+            result[resultOffset+3] = 0;
+        } else {
+            // (from x to, |from|*|to| + from.to) is the quaternion for twice the required angle, scaled; normalizing halves the angle
+            crossProduct(from,fromOffset,to,toOffset,result,resultOffset);
+            result[resultOffset+3] = lengths+dot;
+        }
+        return quaternionNormalize(result,resultOffset);
+    }
+
+    /**
+     * Method to check whether a sphere intersects the view frustum defined by a view/projection matrix.
+     * The six planes of the frustum are extracted from the rows of the matrix (Gribb/Hartmann).
+     * The test is conservative, i.e. it may return true for spheres near the corners of the frustum that lie outside.
+     * @param vpMatrix The view/projection matrix (array of length 16, column-major order as in android.opengl.Matrix).
+     * @param x The x coordinate of the center of the sphere (world coordinates).
+     * @param y The y coordinate of the center of the sphere.
+     * @param z The z coordinate of the center of the sphere.
+     * @param radius The radius of the sphere.
+     * @return true if the sphere lies inside or intersects the frustum, false if it lies completely outside.
+     */
+
+    public static boolean sphereIntersectsFrustum(float[] vpMatrix, float x, float y, float z, float radius) {
+        for (int plane=0; plane<6; plane++) {
+            int row = plane/2;
+            float sign = plane%2==0 ? 1 : -1;
+            float a = vpMatrix[3]+sign*vpMatrix[row];
+            float b = vpMatrix[7]+sign*vpMatrix[4+row];
+            float c = vpMatrix[11]+sign*vpMatrix[8+row];
+            float d = vpMatrix[15]+sign*vpMatrix[12+row];
+            float length = (float) Math.sqrt(a*a+b*b+c*c);
+            if (length==0) continue;
+            if ((a*x+b*y+c*z+d)/length<-radius)
+                return false;
+        }
+        return true;
     }
 
     // PROPOSED SOLUTION IN https://issuetracker.google.com/issues/36923403, Aug 17, 2011 10:20PM
@@ -604,6 +1068,96 @@ public class GraphicsUtilsCV {
         return result;
     }
 
+    /**
+     * Given is a 4x4 rotation matrix as an array of length 16 (column-major order as in android.opengl.Matrix).
+     * Returned is the corresponding rotation angle, as with rotAngleFrom4x4RotationMatrix(float[][])
+     * but without copying the matrix into a two-dimensional array and without allocating memory.
+     * @param rotMatrix The rotation matrix.
+     * @return The rotation angle (degrees)
+     * or -1000 if rotMatrix is not a valid rotation matrix.
+     */
+
+    public static float rotAngleFrom4x4RotationMatrix(float[] rotMatrix) {
+        if (!is4x4RotationMatrix(rotMatrix)) return -1000;
+        // the angle follows from the trace of the matrix: trace = 1 + 2*cos(angle)
+        float cos = (rotMatrix[0]+rotMatrix[5]+rotMatrix[10]-1)/2;
+        if (cos>1) cos=1; // to handle rounding errors
+        if (cos<-1) cos=-1;
+        return (float) Math.toDegrees(Math.acos(cos));
+    }
+
+    /**
+     * Given is a 4x4 rotation matrix as an array of length 16 (column-major order as in android.opengl.Matrix).
+     * Calculated is the corresponding rotation axis, as with rotAxisFrom4x4RotationMatrix(float[][])
+     * but without copying the matrix into a two-dimensional array and without allocating memory.
+     * @param rotMatrix The rotation matrix.
+     * @param result Array of length 3 to which the x, y, and z coordinates of the rotation axis are written.
+     */
+
+    public static void rotAxisFrom4x4RotationMatrix(float[] rotMatrix, float[] result) {
+        // element [i][j] of the two-dimensional matrix is element 4*j+i of the array
+        float m00 = rotMatrix[0], m01 = rotMatrix[4], m02 = rotMatrix[8];
+        float m10 = rotMatrix[1], m11 = rotMatrix[5], m12 = rotMatrix[9];
+        float m20 = rotMatrix[2], m21 = rotMatrix[6], m22 = rotMatrix[10];
+        if (valuesEqual(m00,1)&&valuesEqual(m11,1)&&valuesEqual(m22,1)&&valuesEqual(rotMatrix[15],1)
+                &&valuesEqual(m01,0)&&valuesEqual(m02,0)&&valuesEqual(m10,0)&&valuesEqual(m12,0)&&valuesEqual(m20,0)&&valuesEqual(m21,0)
+                &&valuesEqual(rotMatrix[3],0)&&valuesEqual(rotMatrix[7],0)&&valuesEqual(rotMatrix[11],0)
+                &&valuesEqual(rotMatrix[12],0)&&valuesEqual(rotMatrix[13],0)&&valuesEqual(rotMatrix[14],0)) {
+            // identity matrix > no rotation > return some arbitrary axis
+            result[0] = 1;
+            result[1] = result[2] = 0;
+            return;
+        }
+        float epsilon = 1E-12f;
+        if (valuesEqual(m01,m10,epsilon)&&valuesEqual(m02,m20,epsilon)&&valuesEqual(m21,m12,epsilon)) {
+            // Matrix is symmetric > rotation angle is n*180 degrees (for details, see rotAxisFrom4x4RotationMatrix(float[][]))
+            float diag_x = (m00+1)/2;
+            float diag_y = (m11+1)/2;
+            float diag_z = (m22+1)/2;
+            float matr_01 = (m01+m10)/4;
+            float matr_02 = (m02+m20)/4;
+            float matr_12 = (m12+m21)/4;
+            if ((diag_x>diag_y)&&(diag_x>diag_z)) {
+                if (diag_x<epsilon) {
+                    result[0] = 0;
+                    result[1] = (float) -Math.sqrt(0.5);
+                    result[2] = (float) -Math.sqrt(0.5);
+                } else {
+                    result[0] = (float) -Math.sqrt(diag_x);
+                    result[1] = -matr_01/result[0];
+                    result[2] = -matr_02/result[0];
+                }
+            } else if (diag_y>diag_z) {
+                if (diag_y<epsilon) {
+                    result[0] = (float) -Math.sqrt(0.5);
+                    result[1] = 0;
+                    result[2] = (float) -Math.sqrt(0.5);
+                } else {
+                    result[1] = (float) -Math.sqrt(diag_y);
+                    result[0] = -matr_01/result[1];
+                    result[2] = -matr_12/result[1];
+                }
+            } else {
+                if (diag_z<epsilon) {
+                    result[0] = (float) -Math.sqrt(0.5);
+                    result[1] = (float) -Math.sqrt(0.5);
+                    result[2] = 0;
+                } else {
+                    result[2] = (float) -Math.sqrt(diag_z);
+                    result[0] = -matr_02/result[2];
+                    result[1] = -matr_12/result[2];
+                }
+            }
+            return;
+        }
+        result[0] = m12-m21;
+        result[1] = m20-m02;
+        result[2] = m01-m10;
+        float norm = vectorLength(result,0);
+        for (int i=0;i<3;i++)
+            result[i] /= norm;
+    }
+
     /**
      * Method to rotate a point by some angle around some axis in 3D space.
      * @param point The point to rotate.
@@ -615,21 +1169,62 @@ public class GraphicsUtilsCV {
      */
 
     public static float[] rotateAroundAxis(float[] point, float[] axisPoint1, float axisPoint2[], float angle) {
-        if (point==null||point.length!=3||axisPoint1==null||axisPoint1.length!=3||axisPoint2==null||axisPoint2.length!=3) return null;
-        float[] rotMatrix = new float[16];
-        Matrix.setIdentityM(rotMatrix,0);
-        Matrix.rotateM(rotMatrix,0,angle,axisPoint2[0]-axisPoint1[0],axisPoint2[1]-axisPoint1[1],axisPoint2[2]-axisPoint1[2]);
-        float[] temp = new float[4];
-        temp[0] = point[0]-axisPoint1[0];
-        temp[1] = point[1]-axisPoint1[1];
-        temp[2] = point[2]-axisPoint1[2];
-        temp[3] = 1;
-        Matrix.multiplyMV(temp,0,rotMatrix,0,temp,0);
         float[] result = new float[3];
-        for (int i=0;i<3;i++) result[i]=temp[i]+axisPoint1[i];
+        if (!rotateAroundAxis(point,axisPoint1,axisPoint2,angle,result)) return null;
         return result;
     }
 
+    /**
+     * Method to rotate a point by some angle around some axis in 3D space, writing the result into a given array.
+     * The method does not allocate memory and can thus be called e.g. in every frame of an animation.
+     * @param point The point to rotate.
+     * @param axisPoint1 The first point defining the rotation axis.
+     * @param axisPoint2 The second point defining the rotation axis.
+     * @param angle The rotation angle (degrees, counterclockwise when looking from axisPoint2 to axisPoint1 as for Matrix.rotateM()).
+     * @param result Array of length 3 to which the rotated point is written (may be the same array as 'point').
+     * @return false if one of the parameters is not valid (then 'result' is not modified), true otherwise.
+     * If the two axis points are equal, the point is not rotated.
+     */
+
+    public static boolean rotateAroundAxis(float[] point, float[] axisPoint1, float axisPoint2[], float angle, float[] result) {
+        if (point==null||point.length!=3||axisPoint1==null||axisPoint1.length!=3||axisPoint2==null||axisPoint2.length!=3||result==null||result.length!=3) return false;
+        rotateAroundAxis(point,0,axisPoint1,axisPoint2,angle,result,0);
+        return true;
+    }
+
+    /**
+     * Method to rotate a point by some angle around some axis in 3D space (see rotateAroundAxis(float[],float[],float[],float,float[])),
+     * reading the point from and writing the result to given offsets of flat arrays, e.g. to rotate all points of a vertex array.
+     * The method does not allocate memory and does not check its parameters.
+     * @param points Array with the point to rotate (x, y, and z coordinate at positions offset, offset+1, and offset+2).
+     * @param offset The position of the point in 'points'.
+     * @param axisPoint1 The first point defining the rotation axis (array of length 3).
+     * @param axisPoint2 The second point defining the rotation axis (array of length 3).
+     * @param angle The rotation angle (degrees).
+     * @param result Array to which the rotated point is written (may be 'points').
+     * @param resultOffset The position in 'result' at which the rotated point shall be written.
+     */
+
+    public static void rotateAroundAxis(float[] points, int offset, float[] axisPoint1, float axisPoint2[], float angle, float[] result, int resultOffset) {
+        float kx = axisPoint2[0]-axisPoint1[0], ky = axisPoint2[1]-axisPoint1[1], kz = axisPoint2[2]-axisPoint1[2];
+        float length = (float) Math.sqrt(kx*kx+ky*ky+kz*kz);
+        float vx = points[offset]-axisPoint1[0], vy = points[offset+1]-axisPoint1[1], vz = points[offset+2]-axisPoint1[2];
+        if (length>0) {
+            // Rodrigues' rotation formula: v*cos + (k x v)*sin + k*(k.v)*(1-cos)
+            kx /= length; ky /= length; kz /= length;
+            float c = (float) Math.cos(Math.PI*angle/180.0);
+            float s = (float) Math.sin(Math.PI*angle/180.0);
+            float dot = (kx*vx+ky*vy+kz*vz)*(1-c);
+            float rx = vx*c+(ky*vz-kz*vy)*s+kx*dot;
+            float ry = vy*c+(kz*vx-kx*vz)*s+ky*dot;
+            float rz = vz*c+(kx*vy-ky*vx)*s+kz*dot;
+            vx = rx; vy = ry; vz = rz;
+        }
+        result[resultOffset] = vx+axisPoint1[0];
+        result[resultOffset+1] = vy+axisPoint1[1];
+        result[resultOffset+2] = vz+axisPoint1[2];
+    }
+
     /** Method to calculate a number of points in 2D space lying equidistantly on a circle around a center.
      * The first point will have the coordinates (0,radius), the following points will be calculated in counter-clockwise order.
      * @param centerX Center of the circle - X coordinate
@@ -649,6 +1244,27 @@ public class GraphicsUtilsCV {
         return result;
     }
 
+    /** Method to calculate a number of points in 2D space lying equidistantly on a circle around a center (see pointsOnCircle2D(float,float,float,int)),
+     * writing them into a flat array without allocating memory.
+     * @param centerX Center of the circle - X coordinate
+     * @param centerY Center of the circle - Y coordinate
+     * @param radius Radius of the circle
+     * @param numberOfPoints Number of points to be placed on the circle
+     * @param result Array to which the x and y coordinates of the points are written.
+     * @param offset The position in 'result' at which the coordinates of the first point shall be written.
+     * @param stride The distance between the positions of two consecutive points in 'result' (>=2).
+     * @return false if one of the parameters is not valid (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean pointsOnCircle2D(float centerX, float centerY, float radius, int numberOfPoints, float[] result, int offset, int stride) {
+        if (numberOfPoints<1||stride<2||result==null||offset<0||offset+stride*(numberOfPoints-1)+2>result.length) return false;
+        for (int i=0;i<numberOfPoints;i++) {
+            result[offset+stride*i] = -(float)(centerX+radius*Math.sin(2*Math.PI/numberOfPoints*i));
+            result[offset+stride*i+1] = -(float)(centerY-radius*Math.cos(2*Math.PI/numberOfPoints*i));
+        }
+        return true;
+    }
+
     /** Method to calculate a number of points in 3D space lying equidistantly on a circle.
      * @param center Center of the circle (array of length 3 - x, y, and z coordinate). Must be an array of length 3.
      * @param radius Radius of the circle. Must be greater than zero.
@@ -663,37 +1279,57 @@ public class GraphicsUtilsCV {
 
     public static float[][] pointsOnCircle3D(float[] center, float radius, float[] perpendicularVector, int numberOfPoints) {
         if (center==null||center.length!=3||radius<=0||numberOfPoints<2) return null;
-        float[][] result = new float[numberOfPoints][3];
-        // 1.) Construct a circle with the given radius around the origin (0,0,0) in the x-y plane
-        for (int i=0;i<numberOfPoints;i++) {
-            result[i][0] = (float)(radius* Math.sin(2* Math.PI/numberOfPoints*i));
-            result[i][1] = (float)(radius* Math.cos(2* Math.PI/numberOfPoints*i));
-            result[i][2] = 0;
-        }
-        // 2.) Rotate the circle to align it in 3D space
+        float[] flat = new float[3*numberOfPoints];
+        if (!pointsOnCircle3D(center,radius,perpendicularVector,numberOfPoints,flat,0,3)) return null;
+        return pointsFromFlatArray(flat,numberOfPoints);
+    }
+
+    /** Method to calculate a number of points in 3D space lying equidistantly on a circle (see pointsOnCircle3D(float[],float,float[],int)),
+     * writing them into a flat array (e.g. an array from which a vertex buffer is filled) without allocating memory.
+     * The rotation of the circle is calculated directly, i.e. without android.opengl.Matrix.
+     * A perpendicular vector pointing into the negative z direction turns the circle upside down (a rotation by 180 degrees around the x axis).
+     * @param center Center of the circle. Must be an array of length 3.
+     * @param radius Radius of the circle. Must be greater than zero.
+     * @param perpendicularVector Vector that is perpendicular to the plane in which the circle shall lie (null: the x-y plane).
+     *                            If not null it must be an array of length 3 and must not be the null vector.
+     * @param numberOfPoints Number of points to be placed on the circle. Must be greater than 1.
+     * @param result Array to which the x, y, and z coordinates of the points are written.
+     * @param offset The position in 'result' at which the coordinates of the first point shall be written.
+     * @param stride The distance between the positions of two consecutive points in 'result' (>=3, e.g. 3 for a tightly packed array).
+     * @return false if one of the parameters is not valid (then 'result' is not modified), true otherwise.
+     */
+
+    public static boolean pointsOnCircle3D(float[] center, float radius, float[] perpendicularVector, int numberOfPoints, float[] result, int offset, int stride) {
+        if (center==null||center.length!=3||radius<=0||numberOfPoints<2||stride<3
+                ||result==null||offset<0||offset+stride*(numberOfPoints-1)+3>result.length) return false;
+        // rotation matrix (rows r0, r1, r2) that maps the z axis to the normalized perpendicular vector
+        float r00 = 1, r01 = 0, r02 = 0, r10 = 0, r11 = 1, r12 = 0, r20 = 0, r21 = 0, r22 = 1;
         if (perpendicularVector!=null) {
-            if (perpendicularVector.length!=3) return null;
-            if (!(GraphicsUtilsCV.valuesEqual(perpendicularVector[0],0)
-                    && GraphicsUtilsCV.valuesEqual(perpendicularVector[1],0)
-                    && GraphicsUtilsCV.valuesEqual(perpendicularVector[2],1))) {
-                float[] z_axis = {0, 0, 1};
-                float[] rotAxis = GraphicsUtilsCV.crossProduct(z_axis, perpendicularVector);
-                float rotAngle = (float) Math.toDegrees(Math.acos(GraphicsUtilsCV.dotProduct(z_axis, GraphicsUtilsCV.getNormalizedCopy(perpendicularVector))));
-                float[] rotMatrix = new float[16];
-                Matrix.setIdentityM(rotMatrix, 0);
-                Matrix.rotateM(rotMatrix, 0, rotAngle, rotAxis[0], rotAxis[1], rotAxis[2]);
-                for (int i = 0; i < numberOfPoints; i++) {
-                    float[] point = GraphicsUtilsCV.homogeneousCoordsForPoint(result[i]);
-                    Matrix.multiplyMV(point, 0, rotMatrix, 0, point, 0);
-                    result[i] = GraphicsUtilsCV.coordsFromHomogeneous(point);
-                }
+            if (perpendicularVector.length!=3) return false;
+            float length = vectorLength(perpendicularVector,0);
+            if (length<1E-9f) return false;
+            float nx = perpendicularVector[0]/length, ny = perpendicularVector[1]/length, nz = perpendicularVector[2]/length;
+            // axis = z x n = (-ny, nx, 0), sin = |axis|, cos = nz (Rodrigues' formula)
+            float sin = (float) Math.sqrt(nx*nx+ny*ny), cos = nz;
+            if (sin>1E-6f) {
+                float kx = -ny/sin, ky = nx/sin, t = 1-cos;
+                r00 = cos+kx*kx*t; r01 = kx*ky*t;      r02 = ky*sin;
+                r10 = kx*ky*t;     r11 = cos+ky*ky*t;  r12 = -kx*sin;
+                r20 = -ky*sin;     r21 = kx*sin;       r22 = cos;
+            } else if (cos<0) {
+                r11 = -1;
+                r22 = -1;
             }
         }
-        // 3.) Translate the circle to its center
-        for (int i=0;i<numberOfPoints;i++)
-            for (int j=0; j<3; j++)
-                result[i][j] += center[j];
-        return result;
+        for (int i=0;i<numberOfPoints;i++) {
+            float x = (float)(radius*Math.sin(2*Math.PI/numberOfPoints*i));
+            float y = (float)(radius*Math.cos(2*Math.PI/numberOfPoints*i));
+            int position = offset+stride*i;
+            result[position] = r00*x+r01*y+center[0];
+            result[position+1] = r10*x+r11*y+center[1];
+            result[position+2] = r20*x+r21*y+center[2];
+        }
+        return true;
     }
 
     /** Method to calculate a number of points in 2D space lying equidistantly on an ellipse around a center.
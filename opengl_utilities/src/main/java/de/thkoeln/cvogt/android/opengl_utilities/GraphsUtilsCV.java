@@ -14,10 +14,13 @@ import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Point;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * <I>This class has been copied from a companion project for 2D animation and is currently not used yet.
@@ -37,11 +40,16 @@ import java.util.Iterator;
  * <P>
  * The methods of this class work mainly on the HashMap representation. The auxiliary method <I>generateGraphHashMapFromSQL()</I> generates the
  * HashMap representation from a given SQLite database.
+ * For large graphs, the class <I>IntGraphCV</I> provides a compact representation with primitive arrays (CSR format),
+ * which is used by <I>findComponents()</I> and can be built from the HashMap representation or directly from an SQLite database by <I>generateIntGraphFromSQL()</I>.
  */
 
 public class GraphsUtilsCV {
 
    /** Method to find the components of a graph.
+    * The edges are regarded as undirected, i.e. two vertices belong to the same component if they are connected by a path
+    * regardless of the directions of its edges.
+    * The graph is converted into an IntGraphCV, whose components are found in near-linear time by findComponentLabels().
     *
     * @param graph The graph as a HashMap: Its key set specifies the set of vertices.
     *              Each key (= vertex) is mapped to a collection that specifies the adjacency list of this vertex,
@@ -50,28 +58,127 @@ public class GraphsUtilsCV {
     */
 
     public static ArrayList<ArrayList<Object>> findComponents(HashMap<Object, Collection> graph) {
+       // the adjacency lists are handed over with their element type made explicit (in the iteration order of the graph)
+       LinkedHashMap<Object, Collection<?>> adjacencyLists = new LinkedHashMap<>(graph.size()*4/3+1);
+       for (Object vertex : graph.keySet())
+           adjacencyLists.put(vertex,graph.get(vertex));
+       IntGraphCV intGraph = IntGraphCV.fromHashMap(adjacencyLists,false);
+       int[] labels = findComponentLabels(intGraph);
        ArrayList<ArrayList<Object>> result = new ArrayList<>();
-       ArrayList<Object> remainingNodes = new ArrayList<>();
-       remainingNodes.addAll(graph.keySet());
-       while (!remainingNodes.isEmpty()) {
-           ArrayList<Object> currentComponent = new ArrayList<>();
-           ArrayList<Object> toBeProcessed = new ArrayList<>();
-           toBeProcessed.add(remainingNodes.remove(0));
-           while (!toBeProcessed.isEmpty()) {
-               Object next = toBeProcessed.remove(0);
-               if (currentComponent.contains(next)) continue;
-               currentComponent.add(next);
-               if (graph.get(next) == null) continue;
-               for (Object obj : graph.get(next))
-                   toBeProcessed.add(obj);
-           }
-           for (Object obj : currentComponent)
-               remainingNodes.remove(obj);
-           result.add(currentComponent);
+       for (int v=0; v<labels.length; v++) {
+           if (labels[v]==result.size())
+               result.add(new ArrayList<>());
+           result.get(labels[v]).add(intGraph.getVertex(v));
        }
        return result;
     }
 
+    /** Method to find the components of a graph in CSR format by a union-find structure
+     * (with union by size and path halving, i.e. in near-linear time in the number of vertices and edges).
+     * The edges are regarded as undirected.
+     *
+     * @param graph The graph.
+     * @return An array with the component number of each vertex. The components are numbered from 0
+     *         in the order of their vertices with the lowest numbers. Null if the graph is null.
+     */
+
+    public static int[] findComponentLabels(IntGraphCV graph) {
+        if (graph==null) return null;
+        int n = graph.getNumberOfVertices();
+        int[] offsets = graph.offsets(), targets = graph.targets();
+        int[] parent = new int[n], size = new int[n];
+        for (int v=0; v<n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        for (int v=0; v<n; v++)
+            for (int e=offsets[v]; e<offsets[v+1]; e++) {
+                int root1 = findRoot(parent,v), root2 = findRoot(parent,targets[e]);
+                if (root1==root2) continue;
+                if (size[root1]<size[root2]) {
+                    int swap = root1; root1 = root2; root2 = swap;
+                }
+                parent[root2] = root1;
+                size[root1] += size[root2];
+            }
+        // number the components in the order of their first vertices ('size' is reused for the numbers of the roots)
+        int[] labels = new int[n];
+        Arrays.fill(size,-1);
+        int components = 0;
+        for (int v=0; v<n; v++) {
+            int root = findRoot(parent,v);
+            if (size[root]<0)
+                size[root] = components++;
+            labels[v] = size[root];
+        }
+        return labels;
+    }
+
+    /** Auxiliary method for findComponentLabels(): Finds the root of the set of a vertex, halving the path to the root.
+     */
+
+    private static int findRoot(int[] parent, int v) {
+        while (parent[v]!=v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /** Method to find the components of a graph in CSR format.
+     * The edges are regarded as undirected.
+     *
+     * @param graph The graph.
+     * @return An array with the components. Each component is represented by an array with the numbers of its vertices in ascending order.
+     *         The components are ordered by their vertices with the lowest numbers. Null if the graph is null.
+     */
+
+    public static int[][] findComponents(IntGraphCV graph) {
+        int[] labels = findComponentLabels(graph);
+        if (labels==null) return null;
+        int components = 0;
+        for (int label : labels)
+            components = Math.max(components,label+1);
+        int[] sizes = new int[components];
+        for (int label : labels)
+            sizes[label]++;
+        int[][] result = new int[components][];
+        for (int c=0; c<components; c++)
+            result[c] = new int[sizes[c]];
+        int[] filled = new int[components];
+        for (int v=0; v<labels.length; v++)
+            result[labels[v]][filled[labels[v]]++] = v;
+        return result;
+    }
+
+    /** Method to find the vertices reachable from a vertex of a graph in CSR format by a breadth-first search along the directions of the edges.
+     * For an undirected graph, these are the vertices of the component of the vertex.
+     *
+     * @param graph The graph.
+     * @param start The number of the start vertex.
+     * @return The numbers of the reachable vertices (including the start vertex) in the order in which they have been visited,
+     *         null if a parameter is not valid.
+     */
+
+    public static int[] findReachableVertices(IntGraphCV graph, int start) {
+        if (graph==null||start<0||start>=graph.getNumberOfVertices()) return null;
+        int[] offsets = graph.offsets(), targets = graph.targets();
+        boolean[] visited = new boolean[graph.getNumberOfVertices()];
+        // the array serves as the queue of the search; its first 'tail' entries are the vertices visited so far
+        int[] queue = new int[graph.getNumberOfVertices()];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+        while (head<tail) {
+            int v = queue[head++];
+            for (int e=offsets[v]; e<offsets[v+1]; e++)
+                if (!visited[targets[e]]) {
+                    visited[targets[e]] = true;
+                    queue[tail++] = targets[e];
+                }
+        }
+        return Arrays.copyOf(queue,tail);
+    }
 
     /** Method to generate the layout for a graph = to calculate the 2D positions of its vertices.
      * The resulting layout will be a tree starting from a vertex marked as the "root" of the tree.
@@ -238,6 +345,41 @@ public class GraphsUtilsCV {
         return result;
     }
 */
+    /** Method to generate the layout for a graph = to calculate the 3D positions of its vertices.
+     * The method uses the algorithm for force-directed vertex placement with a Barnes-Hut approximation of the repulsive forces
+     * (see class ForceDirectedLayoutCV, which also supports parallel iterations and the continuation of a layout after the graph has been extended).
+     * The edges are regarded as undirected. The optimal distance of the vertices is 1.
+     *
+     * @param graph The graph.
+     * @param maxIterations The maximum number of iterations (the layout stops earlier if it has converged).
+     * @return The positions of the vertices, 3 values (x, y, z) per vertex in the order of the vertex numbers. Null if the graph is null.
+     */
+
+    public static float[] placeVertices_ForceDirectedLayout3D(IntGraphCV graph, int maxIterations) {
+        if (graph==null) return null;
+        ForceDirectedLayoutCV layout = new ForceDirectedLayoutCV(graph);
+        layout.iterate(maxIterations);
+        return layout.getPositions();
+    }
+
+    /** Method to generate the layout for a graph = to calculate the 3D positions of its vertices.
+     * The method uses the algorithm for force-directed vertex placement with a Barnes-Hut approximation of the repulsive forces
+     * (see placeVertices_ForceDirectedLayout3D(IntGraphCV,int)).
+     *
+     * @param graph The graph as a HashMap: Its key set specifies the set of vertices.
+     *              Each key (= vertex) is mapped to a collection that specifies the adjacency list of this vertex,
+     *              i.e. contains all the vertices that are directly connected with the key vertex by an edge.
+     * @param maxIterations The maximum number of iterations (the layout stops earlier if it has converged).
+     * @return A map mapping the vertices of the graph to their positions (x, y, z). Null if the graph is null.
+     */
+
+    public static HashMap<Object, float[]> placeVertices_ForceDirectedLayout3D(Map<?, ? extends Collection<?>> graph, int maxIterations) {
+        if (graph==null) return null;
+        ForceDirectedLayoutCV layout = new ForceDirectedLayoutCV(IntGraphCV.fromHashMap(graph,false));
+        layout.iterate(maxIterations);
+        return layout.getPositionsAsHashMap();
+    }
+
     /** Method to generate the layout for a bipartite graph = to calculate the 2D positions of its vertices.
      * The method starts from a root vertex which is placed at the top-left corner of the designated area.
      * The vertices adjacent to the root are placed right-bound in the lines below,
@@ -433,6 +575,65 @@ public class GraphsUtilsCV {
         return result;
     }
 
+    /** Auxiliary method to generate a CSR representation of an undirected graph from its SQLite representation, without building a HashMap.
+     * The tables are assumed to be as for generateGraphHashMapFromSQL(). Edges referring to vertices not contained in the vertex table are ignored.
+     * @param database The SQLite database specifying the graph.
+     * @param nameVertexTable The name of the database table specifying the vertices.
+     * @param colnameVertexPRIK The name of the column of the vertex table with the primary keys of the vertices.
+     * @param nameEdgeTable The name of the database table specifying the edges.
+     * @param colnameVertex1FOK The name of the column of the edge table with the foreign keys of the first vertices of the edges.
+     * @param colnameVertex2FOK The name of the column of the edge table with the foreign keys of the second vertices of the edges.
+     * @return The graph. Its vertices are numbered in ascending order of their primary keys; the vertex objects are Integer objects with the primary keys.
+     */
+
+    public static IntGraphCV generateIntGraphFromSQL(SQLiteDatabase database, String nameVertexTable, String colnameVertexPRIK,
+                                                     String nameEdgeTable, String colnameVertex1FOK, String colnameVertex2FOK) {
+        int[] keys = new int[16];
+        int numberOfVertices = 0;
+        String[] vertexProjection = { colnameVertexPRIK };
+        Cursor vertexCursor = database.query(nameVertexTable,vertexProjection,null,null,null,null,null);
+        if (vertexCursor != null) {
+            int prikIndex = vertexCursor.getColumnIndexOrThrow(colnameVertexPRIK);
+            if (vertexCursor.moveToFirst()) {
+                do {
+                    if (numberOfVertices==keys.length)
+                        keys = Arrays.copyOf(keys,2*keys.length);
+                    keys[numberOfVertices++] = vertexCursor.getInt(prikIndex);
+                } while (vertexCursor.moveToNext());
+            }
+            vertexCursor.close();
+        }
+        keys = Arrays.copyOf(keys,numberOfVertices);
+        Arrays.sort(keys);
+        // the vertex numbers are the positions of the primary keys in the sorted array 'keys'
+        int[] sources = new int[16], targets = new int[16];
+        int numberOfEdges = 0;
+        String[] edgeProjection = { colnameVertex1FOK, colnameVertex2FOK };
+        Cursor edgeCursor = database.query(nameEdgeTable,edgeProjection,null,null,null,null,null);
+        if (edgeCursor != null) {
+            int fok1Index = edgeCursor.getColumnIndexOrThrow(colnameVertex1FOK);
+            int fok2Index = edgeCursor.getColumnIndexOrThrow(colnameVertex2FOK);
+            if (edgeCursor.moveToFirst()) {
+                do {
+                    int vertex1 = Arrays.binarySearch(keys,edgeCursor.getInt(fok1Index));
+                    int vertex2 = Arrays.binarySearch(keys,edgeCursor.getInt(fok2Index));
+                    if (vertex1<0||vertex2<0) continue;
+                    if (numberOfEdges==sources.length) {
+                        sources = Arrays.copyOf(sources,2*sources.length);
+                        targets = Arrays.copyOf(targets,2*targets.length);
+                    }
+                    sources[numberOfEdges] = vertex1;
+                    targets[numberOfEdges++] = vertex2;
+                } while (edgeCursor.moveToNext());
+            }
+            edgeCursor.close();
+        }
+        Object[] vertices = new Object[numberOfVertices];
+        for (int v=0; v<numberOfVertices; v++)
+            vertices[v] = keys[v];
+        return IntGraphCV.fromEdges(numberOfVertices,sources,targets,numberOfEdges,true,vertices);
+    }
+
     /** Auxiliary method to complete an undirected graph: For all edges (x,y), the corresponding edge (y,x) will be added.
      * @param graph The graph as a HashMap: Its key set specifies the set of vertices.
      *              Each key (= vertex) is mapped to a collection that specifies the adjacency list of this vertex,
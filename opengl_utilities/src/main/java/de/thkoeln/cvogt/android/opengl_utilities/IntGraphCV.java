@@ -0,0 +1,271 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Class for graphs in the compressed sparse row (CSR) format, i.e. with primitive int arrays instead of collections of objects.
+ * The vertices are numbered from 0 to n-1. The edges leaving vertex v are stored at positions offsets[v] to offsets[v+1]-1 of the array 'targets'
+ * (which holds the numbers of the vertices these edges lead to). Undirected graphs hold both directions of each edge.
+ * <P>
+ * Compared to the HashMap representation of class <I>GraphsUtilsCV</I>, a graph needs about 4 bytes per vertex and edge instead of
+ * several objects per edge, and algorithms can traverse it without boxing and hashing. The adapters <I>fromHashMap()</I> and <I>toHashMap()</I>
+ * convert between the two representations; the vertex objects of the HashMap are kept and can be accessed by their numbers.
+ * <P>
+ * Objects of this class are immutable.
+ * @see GraphsUtilsCV
+ */
+
+public class IntGraphCV {
+
+    /** The positions of the first edges of the vertices in 'targets' (n+1 entries, the last one is the number of edges). */
+
+    private final int[] offsets;
+
+    /** The target vertices of the edges, grouped by their source vertices. */
+
+    private final int[] targets;
+
+    /** The vertex objects by vertex number (null if the graph has been built by fromEdges()). */
+
+    private final Object[] vertices;
+
+    /** The vertex numbers by vertex object (built when needed first). */
+
+    private HashMap<Object,Integer> indices;
+
+    private IntGraphCV(int[] offsets, int[] targets, Object[] vertices) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.vertices = vertices;
+    }
+
+    /**
+     * Builds a graph from arrays with the end points of its edges.
+     * @param numberOfVertices The number of vertices.
+     * @param sources The source vertices of the edges (numbers from 0 to numberOfVertices-1).
+     * @param targets The target vertices of the edges (numbers from 0 to numberOfVertices-1, same length as 'sources').
+     * @param undirected If true, the edges are regarded as undirected, i.e. each edge is stored in both directions.
+     * @return The graph or null if a parameter is not valid.
+     */
+
+    public static IntGraphCV fromEdges(int numberOfVertices, int[] sources, int[] targets, boolean undirected) {
+        return fromEdges(numberOfVertices,sources,targets,sources!=null?sources.length:0,undirected,null);
+    }
+
+    /**
+     * Auxiliary method to build a graph from the first 'numberOfEdges' entries of edge arrays (by a counting sort of the edges).
+     * 'vertices' are the vertex objects by vertex number (may be null).
+     */
+
+    static IntGraphCV fromEdges(int numberOfVertices, int[] sources, int[] targets, int numberOfEdges, boolean undirected, Object[] vertices) {
+        if (numberOfVertices<0||sources==null||targets==null||sources.length<numberOfEdges||targets.length<numberOfEdges)
+            return null;
+        int[] offsets = new int[numberOfVertices+1];
+        for (int e=0; e<numberOfEdges; e++) {
+            int source = sources[e], target = targets[e];
+            if (source<0||source>=numberOfVertices||target<0||target>=numberOfVertices)
+                return null;
+            offsets[source+1]++;
+            if (undirected&&source!=target)
+                offsets[target+1]++;
+        }
+        for (int v=0; v<numberOfVertices; v++)
+            offsets[v+1] += offsets[v];
+        int[] edgeTargets = new int[offsets[numberOfVertices]];
+        int[] next = new int[numberOfVertices];
+        System.arraycopy(offsets,0,next,0,numberOfVertices);
+        for (int e=0; e<numberOfEdges; e++) {
+            int source = sources[e], target = targets[e];
+            edgeTargets[next[source]++] = target;
+            if (undirected&&source!=target)
+                edgeTargets[next[target]++] = source;
+        }
+        return new IntGraphCV(offsets,edgeTargets,vertices);
+    }
+
+    /**
+     * Builds a graph from its HashMap representation (see class <I>GraphsUtilsCV</I>).
+     * The vertices are numbered in the iteration order of the key set;
+     * vertices that occur only in adjacency lists get the following numbers.
+     * @param graph The graph as a HashMap: Its key set specifies the set of vertices.
+     *              Each key (= vertex) is mapped to a collection that specifies the adjacency list of this vertex,
+     *              i.e. contains all the vertices that are directly connected with the key vertex by an edge.
+     * @param undirected If true, the edges are regarded as undirected, i.e. each edge is stored in both directions
+     *                   (for graphs whose adjacency lists already contain both directions, false is sufficient).
+     * @return The graph or null if the parameter is null.
+     */
+
+    public static IntGraphCV fromHashMap(Map<?, ? extends Collection<?>> graph, boolean undirected) {
+        if (graph==null) return null;
+        HashMap<Object,Integer> indices = new HashMap<>(graph.size()*4/3+1);
+        ArrayList<Object> vertices = new ArrayList<>(graph.size());
+        for (Object vertex : graph.keySet()) {
+            indices.put(vertex,vertices.size());
+            vertices.add(vertex);
+        }
+        int numberOfEdges = 0;
+        for (Collection<?> adjacent : graph.values())
+            if (adjacent!=null)
+                numberOfEdges += adjacent.size();
+        int[] sources = new int[numberOfEdges], targets = new int[numberOfEdges];
+        int e = 0;
+        for (Map.Entry<?, ? extends Collection<?>> entry : graph.entrySet()) {
+            if (entry.getValue()==null) continue;
+            int source = indices.get(entry.getKey());
+            for (Object adjacent : entry.getValue()) {
+                Integer target = indices.get(adjacent);
+                if (target==null) {
+                    target = vertices.size();
+                    indices.put(adjacent,target);
+                    vertices.add(adjacent);
+                }
+                sources[e] = source;
+                targets[e++] = target;
+            }
+        }
+        IntGraphCV result = fromEdges(vertices.size(),sources,targets,e,undirected,vertices.toArray());
+        result.indices = indices;
+        return result;
+    }
+
+    /**
+     * Converts the graph into the HashMap representation of class <I>GraphsUtilsCV</I>.
+     * The vertices are represented by their vertex objects (for graphs built by fromEdges(): Integer objects with their numbers).
+     * @return The graph as a HashMap that maps each vertex to the set of the vertices its edges lead to.
+     */
+
+    public HashMap<Object, Collection<Object>> toHashMap() {
+        int n = getNumberOfVertices();
+        HashMap<Object, Collection<Object>> result = new HashMap<>(n*4/3+1);
+        for (int v=0; v<n; v++) {
+            HashSet<Object> adjacent = new HashSet<>();
+            for (int e=offsets[v]; e<offsets[v+1]; e++)
+                adjacent.add(getVertex(targets[e]));
+            result.put(getVertex(v),adjacent);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the undirected simple graph of this graph, i.e. a graph with the same vertices
+     * that holds both directions of each edge exactly once and no loops.
+     * @return The undirected graph (with the vertex objects of this graph).
+     */
+
+    public IntGraphCV toUndirected() {
+        int n = getNumberOfVertices();
+        int[] sources = new int[targets.length];
+        for (int v=0; v<n; v++)
+            for (int e=offsets[v]; e<offsets[v+1]; e++)
+                sources[e] = v;
+        IntGraphCV both = fromEdges(n,sources,targets,targets.length,true,vertices);
+        // sort the adjacency lists and compact them without duplicates and loops
+        int[] newOffsets = new int[n+1];
+        int[] newTargets = both.targets;
+        int next = 0;
+        for (int v=0; v<n; v++) {
+            int from = both.offsets[v], to = both.offsets[v+1];
+            Arrays.sort(newTargets,from,to);
+            newOffsets[v] = next;
+            for (int e=from; e<to; e++)
+                if (newTargets[e]!=v&&(e==from||newTargets[e]!=newTargets[e-1]))
+                    newTargets[next++] = newTargets[e];
+        }
+        newOffsets[n] = next;
+        return new IntGraphCV(newOffsets,Arrays.copyOf(newTargets,next),vertices);
+    }
+
+    /**
+     * @return The number of vertices.
+     */
+
+    public int getNumberOfVertices() {
+        return offsets.length-1;
+    }
+
+    /**
+     * @return The number of stored edges (edges of undirected graphs are counted twice, once in each direction, except for loops).
+     */
+
+    public int getNumberOfEdges() {
+        return targets.length;
+    }
+
+    /**
+     * @param vertex The number of a vertex.
+     * @return The number of edges leaving the vertex or -1 if the vertex number is not valid.
+     */
+
+    public int getDegree(int vertex) {
+        if (vertex<0||vertex>=getNumberOfVertices()) return -1;
+        return offsets[vertex+1]-offsets[vertex];
+    }
+
+    /**
+     * @param vertex The number of a vertex.
+     * @param i The index of an edge of the vertex (0 to getDegree(vertex)-1).
+     * @return The number of the vertex the i-th edge of the vertex leads to or -1 if a parameter is not valid.
+     */
+
+    public int getNeighbor(int vertex, int i) {
+        if (vertex<0||vertex>=getNumberOfVertices()||i<0||i>=offsets[vertex+1]-offsets[vertex]) return -1;
+        return targets[offsets[vertex]+i];
+    }
+
+    /**
+     * @param vertex The number of a vertex.
+     * @return The vertex object of the vertex (for graphs built by fromEdges(): an Integer with the number) or null if the number is not valid.
+     */
+
+    public Object getVertex(int vertex) {
+        if (vertex<0||vertex>=getNumberOfVertices()) return null;
+        return vertices!=null ? vertices[vertex] : Integer.valueOf(vertex);
+    }
+
+    /**
+     * @param vertex A vertex object.
+     * @return The number of the vertex or -1 if the graph has no such vertex.
+     */
+
+    synchronized public int getIndex(Object vertex) {
+        if (vertices==null) {
+            if (!(vertex instanceof Integer)) return -1;
+            int index = (Integer) vertex;
+            return index>=0&&index<getNumberOfVertices() ? index : -1;
+        }
+        if (indices==null) {
+            indices = new HashMap<>(vertices.length*4/3+1);
+            for (int v=0; v<vertices.length; v++)
+                indices.put(vertices[v],v);
+        }
+        Integer index = indices.get(vertex);
+        return index!=null ? index : -1;
+    }
+
+    /**
+     * Package-internal access to the arrays for the algorithms of the library (the arrays must not be modified).
+     */
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+}
@@ -77,23 +77,30 @@ public class TextureBitmapsCV {
        if (bitmap!=null)
            return bitmap;
        // create the bitmap and add it to the HashMap
-       switch (name) {
-           case "dice01": textureBitmaps.put("dice01", BitmapFactory.decodeResource(context.getResources(), R.raw.dice01)); break;
-           case "dice02": textureBitmaps.put("dice02", BitmapFactory.decodeResource(context.getResources(), R.raw.dice02)); break;
-           case "dice03": textureBitmaps.put("dice03", BitmapFactory.decodeResource(context.getResources(), R.raw.dice03)); break;
-           case "dice04": textureBitmaps.put("dice04", BitmapFactory.decodeResource(context.getResources(), R.raw.dice04)); break;
-           case "dice05": textureBitmaps.put("dice05", BitmapFactory.decodeResource(context.getResources(), R.raw.dice05)); break;
-           case "dice06": textureBitmaps.put("dice06", BitmapFactory.decodeResource(context.getResources(), R.raw.dice06)); break;
-           case "front": textureBitmaps.put("front", BitmapFactory.decodeResource(context.getResources(), R.raw.front)); break;
-           case "back": textureBitmaps.put("back", BitmapFactory.decodeResource(context.getResources(), R.raw.back)); break;
-           case "left": textureBitmaps.put("left", BitmapFactory.decodeResource(context.getResources(), R.raw.left)); break;
-           case "right": textureBitmaps.put("right", BitmapFactory.decodeResource(context.getResources(), R.raw.right)); break;
-           case "top": textureBitmaps.put("top", BitmapFactory.decodeResource(context.getResources(), R.raw.top)); break;
-           case "bottom": textureBitmaps.put("bottom", BitmapFactory.decodeResource(context.getResources(), R.raw.bottom)); break;
-           case "raster": textureBitmaps.put("raster", BitmapFactory.decodeResource(context.getResources(), R.raw.raster)); break;
-           case "logo_thk": textureBitmaps.put("logo_thk", BitmapFactory.decodeResource(context.getResources(), R.raw.logo_thk)); break;
+       GLTraceCV.begin("TextureBitmapsCV.decode");
+       try {
+           switch (name) {
+               case "dice01": textureBitmaps.put("dice01", BitmapFactory.decodeResource(context.getResources(), R.raw.dice01)); break;
+               case "dice02": textureBitmaps.put("dice02", BitmapFactory.decodeResource(context.getResources(), R.raw.dice02)); break;
+               case "dice03": textureBitmaps.put("dice03", BitmapFactory.decodeResource(context.getResources(), R.raw.dice03)); break;
+               case "dice04": textureBitmaps.put("dice04", BitmapFactory.decodeResource(context.getResources(), R.raw.dice04)); break;
+               case "dice05": textureBitmaps.put("dice05", BitmapFactory.decodeResource(context.getResources(), R.raw.dice05)); break;
+               case "dice06": textureBitmaps.put("dice06", BitmapFactory.decodeResource(context.getResources(), R.raw.dice06)); break;
+               case "front": textureBitmaps.put("front", BitmapFactory.decodeResource(context.getResources(), R.raw.front)); break;
+               case "back": textureBitmaps.put("back", BitmapFactory.decodeResource(context.getResources(), R.raw.back)); break;
+               case "left": textureBitmaps.put("left", BitmapFactory.decodeResource(context.getResources(), R.raw.left)); break;
+               case "right": textureBitmaps.put("right", BitmapFactory.decodeResource(context.getResources(), R.raw.right)); break;
+               case "top": textureBitmaps.put("top", BitmapFactory.decodeResource(context.getResources(), R.raw.top)); break;
+               case "bottom": textureBitmaps.put("bottom", BitmapFactory.decodeResource(context.getResources(), R.raw.bottom)); break;
+               case "raster": textureBitmaps.put("raster", BitmapFactory.decodeResource(context.getResources(), R.raw.raster)); break;
+               case "logo_thk": textureBitmaps.put("logo_thk", BitmapFactory.decodeResource(context.getResources(), R.raw.logo_thk)); break;
+           }
+       } finally {
+           GLTraceCV.end();
        }
-       return textureBitmaps.get(name);
+       bitmap = textureBitmaps.get(name);
+       GLMemoryReportCV.addCachedBitmap(bitmap);
+       return bitmap;
     }
 
     /**
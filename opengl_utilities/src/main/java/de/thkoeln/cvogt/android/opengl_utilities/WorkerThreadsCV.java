@@ -0,0 +1,112 @@
+// This work is provided under GPLv3, the GNU General Public License 3
+//   http://www.gnu.org/licenses/gpl-3.0.html
+
+// Prof. Dr. Carsten Vogt
+// Technische Hochschule Köln, Germany
+// Fakultät für Informations-, Medien- und Elektrotechnik
+// carsten.vogt@th-koeln.de
+// 2.6.2022
+
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * Auxiliary class for a group of worker threads that execute a task split into equally sized parts, in parallel to the thread that calls <I>run()</I>.
+ * With n parts, the calling thread executes part 0 and n-1 daemon worker threads execute the other parts.
+ * The start and the end of each run are synchronized by a phaser of its own, i.e. each group of workers
+ * (in contrast to groups created before or after it by the same owner) is terminated by <I>stop()</I> only.
+ * <P>
+ * The methods must be called by one thread at a time (typically under the lock of the owner).
+ */
+
+class WorkerThreadsCV {
+
+    /** Interface for the tasks executed by the workers. */
+
+    interface Task {
+        /**
+         * Executes one part of the task.
+         * @param part The number of the part (0 to parts-1).
+         * @param parts The number of parts.
+         */
+        void runPart(int part, int parts);
+    }
+
+    private final int parts;
+
+    private final Task task;
+
+    private final Thread[] threads;
+
+    /** The phaser to synchronize the start and the end of each run; terminated by stop(). */
+
+    private final Phaser phaser;
+
+    /**
+     * Starts the worker threads.
+     * @param name The prefix of the names of the threads (followed by "-" and the number of the part).
+     * @param parts The number of parts (at least 2).
+     * @param task The task.
+     */
+
+    WorkerThreadsCV(String name, final int parts, final Task task) {
+        this.parts = parts;
+        this.task = task;
+        phaser = new Phaser(parts);
+        threads = new Thread[parts-1];
+        for (int k=0; k<threads.length; k++) {
+            final int part = k+1;
+            threads[k] = new Thread(name+"-"+part) {
+                @Override
+                public void run() {
+                    while (true) {
+                        phaser.arriveAndAwaitAdvance();   // wait for the start of a run
+                        if (phaser.isTerminated()) return;
+                        task.runPart(part,parts);
+                        phaser.arriveAndAwaitAdvance();   // signal the end of the work
+                    }
+                }
+            };
+            threads[k].setDaemon(true);
+            threads[k].start();
+        }
+    }
+
+    /**
+     * @return The number of parts.
+     */
+
+    int getParts() {
+        return parts;
+    }
+
+    /**
+     * Executes the task: part 0 in the calling thread, the other parts in the worker threads. Returns when all parts have been executed.
+     */
+
+    void run() {
+        phaser.arriveAndAwaitAdvance();   // let the workers start
+        task.runPart(0,parts);
+        phaser.arriveAndAwaitAdvance();   // wait for the workers
+    }
+
+    /**
+     * Terminates the worker threads and waits for their termination.
+     */
+
+    void stop() {
+        phaser.forceTermination();
+        boolean interrupted = false;
+        for (Thread thread : threads)
+            while (thread.isAlive())
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+}
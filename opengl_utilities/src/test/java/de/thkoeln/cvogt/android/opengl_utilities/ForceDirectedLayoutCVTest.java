@@ -0,0 +1,151 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the force-directed 3D layout with the Barnes-Hut approximation.
+ */
+public class ForceDirectedLayoutCVTest {
+
+    /** A grid graph of size x size vertices, numbered row by row. */
+
+    private static IntGraphCV grid(int size) {
+        int[] sources = new int[2*size*(size-1)], targets = new int[2*size*(size-1)];
+        int e = 0;
+        for (int i=0; i<size; i++)
+            for (int j=0; j<size; j++) {
+                if (j<size-1) { sources[e] = i*size+j; targets[e++] = i*size+j+1; }
+                if (i<size-1) { sources[e] = i*size+j; targets[e++] = (i+1)*size+j; }
+            }
+        return IntGraphCV.fromEdges(size*size,sources,targets,false);
+    }
+
+    private static float distance(float[] positions, int v, int u) {
+        float dx = positions[3*v]-positions[3*u], dy = positions[3*v+1]-positions[3*u+1], dz = positions[3*v+2]-positions[3*u+2];
+        return (float) Math.sqrt(dx*dx+dy*dy+dz*dz);
+    }
+
+    @Test
+    public void undirectedGraphHasNoDuplicatesAndLoops() {
+        IntGraphCV graph = IntGraphCV.fromEdges(3,new int[]{0,1,0,2,2},new int[]{1,0,0,1,1},false);
+        IntGraphCV undirected = graph.toUndirected();
+        assertEquals(4,undirected.getNumberOfEdges());
+        assertEquals(1,undirected.getDegree(0));
+        assertEquals(2,undirected.getDegree(1));
+        assertEquals(1,undirected.getDegree(2));
+        assertEquals(0,undirected.getNeighbor(1,0));
+        assertEquals(2,undirected.getNeighbor(1,1));
+    }
+
+    @Test
+    public void neighborsAreCloserThanOtherVertices() {
+        int size = 20, n = size*size;
+        IntGraphCV graph = grid(size);
+        float[] positions = GraphsUtilsCV.placeVertices_ForceDirectedLayout3D(graph,1000);
+        assertEquals(3*n,positions.length);
+        double meanEdgeLength = meanEdgeLength(graph,positions);
+        double allDistances = 0;
+        for (int v=0; v<n; v++)
+            for (int u=0; u<v; u++)
+                allDistances += distance(positions,v,u);
+        double meanDistance = allDistances/(n*(n-1)/2);
+        assertTrue("mean edge length "+meanEdgeLength,meanEdgeLength>0.1&&meanEdgeLength<5);
+        assertTrue("mean distance "+meanDistance,meanDistance>3*meanEdgeLength);
+        // the Barnes-Hut approximation yields a layout of the same quality as the exact calculation of the repulsive forces
+        ForceDirectedLayoutCV exact = new ForceDirectedLayoutCV(graph).setTheta(0);
+        exact.iterate(1000);
+        assertTrue(exact.isConverged());
+        assertEquals(meanEdgeLength(graph,exact.getPositions()),meanEdgeLength,0.1*meanEdgeLength);
+    }
+
+    private static double meanEdgeLength(IntGraphCV graph, float[] positions) {
+        double edgeLengths = 0;
+        for (int v=0; v<graph.getNumberOfVertices(); v++)
+            for (int i=0; i<graph.getDegree(v); i++)
+                edgeLengths += distance(positions,v,graph.getNeighbor(v,i));
+        return edgeLengths/graph.getNumberOfEdges();
+    }
+
+    @Test
+    public void hashMapAdapterPlacesAllVertices() {
+        HashMap<Object, Collection<Object>> graph = new HashMap<>();
+        for (String[] edge : new String[][]{{"a","b"},{"b","c"},{"c","a"},{"d","e"}}) {
+            if (!graph.containsKey(edge[0])) graph.put(edge[0],new HashSet<>());
+            graph.get(edge[0]).add(edge[1]);
+        }
+        HashMap<Object, float[]> positions = GraphsUtilsCV.placeVertices_ForceDirectedLayout3D(graph,200);
+        assertEquals(5,positions.size());
+        for (float[] position : positions.values())
+            for (float coordinate : position)
+                assertFalse(Float.isNaN(coordinate));
+    }
+
+    @Test
+    public void parallelLayoutEqualsSequentialLayout() {
+        IntGraphCV graph = grid(30);
+        ForceDirectedLayoutCV sequential = new ForceDirectedLayoutCV(graph,7);
+        ForceDirectedLayoutCV parallel = new ForceDirectedLayoutCV(graph,7).setParallelism(4);
+        assertEquals(4,parallel.getParallelism());
+        assertEquals(sequential.iterate(50),parallel.iterate(50));
+        parallel.release();
+        assertEquals(1,parallel.getParallelism());
+        assertArrayEquals(sequential.getPositions(),parallel.getPositions(),0);
+    }
+
+    @Test
+    public void changingParallelismStopsOldWorkers() {
+        int before = GLBulkAnimationsCVTest.countThreads("ForceDirectedLayoutCV-");
+        IntGraphCV graph = grid(20);
+        ForceDirectedLayoutCV sequential = new ForceDirectedLayoutCV(graph,3);
+        ForceDirectedLayoutCV parallel = new ForceDirectedLayoutCV(graph,3).setParallelism(4);
+        assertEquals(before+3,GLBulkAnimationsCVTest.countThreads("ForceDirectedLayoutCV-"));
+        sequential.iterate(2);
+        parallel.iterate(2);
+        parallel.setParallelism(2);
+        assertEquals(2,parallel.getParallelism());
+        assertEquals(before+1,GLBulkAnimationsCVTest.countThreads("ForceDirectedLayoutCV-"));
+        assertEquals(sequential.iterate(20),parallel.iterate(20));
+        assertArrayEquals(sequential.getPositions(),parallel.getPositions(),0);
+        parallel.release();
+        assertEquals(before,GLBulkAnimationsCVTest.countThreads("ForceDirectedLayoutCV-"));
+    }
+
+    @Test
+    public void warmStartKeepsLayout() {
+        int size = 15, n = size*size;
+        IntGraphCV graph = grid(size);
+        ForceDirectedLayoutCV layout = new ForceDirectedLayoutCV(graph);
+        layout.iterate(1000);
+        float[] before = layout.getPositions();
+        // add a vertex connected to vertex 0 and an edge between two neighbors of the grid
+        IntGraphCV extended = IntGraphCV.fromEdges(n+1,new int[]{n,1},new int[]{0,size},false);
+        int[] sources = new int[graph.getNumberOfEdges()+2], targets = new int[graph.getNumberOfEdges()+2];
+        int e = 0;
+        for (IntGraphCV g : new IntGraphCV[]{graph,extended})
+            for (int v=0; v<g.getNumberOfVertices(); v++)
+                for (int i=0; i<g.getDegree(v); i++) {
+                    sources[e] = v;
+                    targets[e++] = g.getNeighbor(v,i);
+                }
+        layout.updateGraph(IntGraphCV.fromEdges(n+1,sources,targets,false));
+        float[] after = layout.getPositions();
+        for (int i=0; i<3*n; i++)
+            assertEquals(before[i],after[i],0);
+        assertTrue(distance(after,n,0)<distance(after,n,n-1));
+        assertFalse(layout.isConverged());
+        layout.iterate(100);
+        after = layout.getPositions();
+        double moved = 0, extent = distance(before,0,n-1);
+        for (int v=0; v<n; v++)
+            moved += distance(new float[]{before[3*v],before[3*v+1],before[3*v+2],after[3*v],after[3*v+1],after[3*v+2]},0,1);
+        assertTrue("mean movement "+moved/n,moved/n<0.2*extent);
+        assertTrue(distance(after,n,0)<2*distance(after,0,1));
+    }
+
+}
@@ -0,0 +1,269 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the animation scheduler, driven by a manual clock.
+ */
+public class GLAnimationSchedulerCVTest {
+
+    private static final long MS = 1000000L;
+
+    /** Clock whose time is set by the test. */
+    private static class ManualClock implements GLAnimationSchedulerCV.Clock {
+        long time;
+        public long nanoTime() {
+            return time;
+        }
+    }
+
+    /** Property that stores its value in an array, independent of any shape. */
+    private static class ValueProperty implements GLAnimationCV.Property {
+        final float[] value = new float[1];
+        int writes;
+        public float[] get(GLShapeCV shape) {
+            return value.clone();
+        }
+        public void set(GLShapeCV shape, float[] value) {
+            this.value[0] = value[0];
+            writes++;
+        }
+    }
+
+    private ManualClock clock;
+    private GLAnimationSchedulerCV scheduler;
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        scheduler = new GLAnimationSchedulerCV(clock);
+    }
+
+    private void advanceTo(long ms) {
+        clock.time = ms*MS;
+        scheduler.advance();
+    }
+
+    @Test
+    public void translationFollowsFrameTimeAfterStartDelay() {
+        GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        shape.setTrans(1,2,3);
+        GLAnimationCV animation = new GLAnimationCV(shape,GLAnimationCV.TRANS,new float[] {11,2,-7})
+                .setDuration(1000).setStartDelay(500);
+        final int[] endActionCalls = new int[1];
+        animation.setEndAction(new Runnable() {
+            public void run() {
+                endActionCalls[0]++;
+            }
+        });
+        scheduler.start(animation);
+        advanceTo(100);   // first frame: start time of the animation
+        shape.setTrans(2,2,3);  // start value is taken when the start delay has elapsed
+        advanceTo(599);
+        assertArrayEquals(new float[] {2,2,3},shape.getTrans(),0);
+        advanceTo(600);
+        assertArrayEquals(new float[] {2,2,3},shape.getTrans(),1e-5f);
+        advanceTo(1100);
+        assertArrayEquals(new float[] {6.5f,2,-2},shape.getTrans(),1e-5f);
+        assertTrue(animation.isRunning());
+        assertEquals(0,endActionCalls[0]);
+        advanceTo(1700);
+        assertArrayEquals(new float[] {11,2,-7},shape.getTrans(),1e-5f);
+        assertFalse(animation.isRunning());
+        assertEquals(1,endActionCalls[0]);
+        assertEquals(0,scheduler.getNumberOfActiveAnimations());
+        advanceTo(2000);
+        assertEquals(1,endActionCalls[0]);
+    }
+
+    @Test
+    public void reverseRepetitionsRunBackwards() {
+        ValueProperty property = new ValueProperty();
+        GLAnimationCV animation = new GLAnimationCV(null,property,new float[] {10})
+                .setDuration(100).setRepeatCount(2).setReverse(true);
+        scheduler.start(animation);
+        advanceTo(0);
+        assertEquals(0,property.value[0],1e-4f);
+        advanceTo(25);
+        assertEquals(2.5f,property.value[0],1e-4f);
+        advanceTo(125);
+        assertEquals(7.5f,property.value[0],1e-4f);
+        advanceTo(225);
+        assertEquals(2.5f,property.value[0],1e-4f);
+        advanceTo(400);
+        assertEquals(10,property.value[0],1e-4f);
+        assertFalse(animation.isRunning());
+    }
+
+    @Test
+    public void cancelledAnimationIsRemovedWithoutEndAction() {
+        ValueProperty property = new ValueProperty();
+        final boolean[] ended = new boolean[1];
+        GLAnimationCV animation = new GLAnimationCV(null,property,new float[] {1})
+                .setDuration(100).setRepeatCount(GLAnimationCV.INFINITE)
+                .setEndAction(new Runnable() {
+                    public void run() {
+                        ended[0] = true;
+                    }
+                });
+        scheduler.start(animation);
+        advanceTo(0);
+        advanceTo(1050);
+        assertTrue(animation.isRunning());
+        int writes = property.writes;
+        animation.cancel();
+        advanceTo(1100);
+        assertEquals(writes,property.writes);
+        assertEquals(0,scheduler.getNumberOfActiveAnimations());
+        assertFalse(ended[0]);
+    }
+
+    @Test
+    public void restartResetsTiming() {
+        ValueProperty property = new ValueProperty();
+        GLAnimationCV animation = new GLAnimationCV(null,property,new float[] {10}).setDuration(100);
+        scheduler.start(animation);
+        advanceTo(0);
+        advanceTo(50);
+        assertEquals(5,property.value[0],1e-4f);
+        property.value[0] = 0;
+        scheduler.start(animation);
+        advanceTo(60);
+        assertEquals(0,property.value[0],1e-4f);
+        advanceTo(110);
+        assertEquals(5,property.value[0],1e-4f);
+        assertEquals(1,scheduler.getNumberOfActiveAnimations());
+    }
+
+    @Test
+    public void animationsOfTheSameShapeAreAdvancedTogether() {
+        GLShapeCV shape1 = GLShapeFactoryCV.makeCube("Cube1",GLShapeFactoryCV.red);
+        GLShapeCV shape2 = GLShapeFactoryCV.makeCube("Cube2",GLShapeFactoryCV.red);
+        shape1.setScale(1);
+        shape2.setScale(1);
+        GLAnimationCV transX = new GLAnimationCV(shape1,GLAnimationCV.TRANS_X,new float[] {4}).setDuration(100);
+        GLAnimationCV other = new GLAnimationCV(shape2,GLAnimationCV.SCALE_Y,new float[] {3}).setDuration(100);
+        GLAnimationCV scale = new GLAnimationCV(shape1,GLAnimationCV.SCALE,new float[] {2,2,2}).setDuration(200);
+        scheduler.start(transX);
+        scheduler.start(other);
+        scheduler.start(scale);
+        advanceTo(0);
+        advanceTo(100);
+        assertEquals(4,shape1.getTransX(),1e-5f);
+        assertEquals(1.5f,shape1.getScaleZ(),1e-5f);
+        assertEquals(3,shape2.getScaleY(),1e-5f);
+        assertEquals(1,shape2.getScaleX(),1e-5f);
+        assertEquals(1,scheduler.getNumberOfActiveAnimations());
+        advanceTo(200);
+        assertEquals(2,shape1.getScaleX(),1e-5f);
+        assertEquals(0,scheduler.getNumberOfActiveAnimations());
+    }
+
+    @Test
+    public void pauseIsExcludedFromFrameTimes() {
+        ValueProperty property = new ValueProperty();
+        GLAnimationCV animation = new GLAnimationCV(null,property,new float[] {10}).setDuration(100);
+        scheduler.start(animation);
+        advanceTo(0);
+        advanceTo(30);
+        clock.time = 40*MS;
+        scheduler.pause();
+        assertTrue(scheduler.isPaused());
+        advanceTo(500);   // no effect while paused
+        assertEquals(3,property.value[0],1e-4f);
+        clock.time = 1040*MS;
+        scheduler.resume();
+        advanceTo(1050);
+        assertEquals(5,property.value[0],1e-4f);
+        assertEquals(50*MS,scheduler.getFrameTimeNanos());
+    }
+
+    @Test
+    public void offscreenShapesAreAdvancedAccordingToPolicy() {
+        GLShapeCV visible = GLShapeFactoryCV.makeCube("Visible",GLShapeFactoryCV.red);
+        final GLShapeCV hidden = GLShapeFactoryCV.makeCube("Hidden",GLShapeFactoryCV.red);
+        scheduler.setVisibilityTest(new GLAnimationSchedulerCV.VisibilityTest() {
+            public boolean isVisible(GLShapeCV shape) {
+                return shape!=hidden;
+            }
+        });
+        assertNull(scheduler.setOffscreenPolicy(7,0));
+        scheduler.setOffscreenPolicy(GLAnimationSchedulerCV.OFFSCREEN_SKIP,0);
+        final int[] ended = new int[1];
+        Runnable endAction = new Runnable() {
+            public void run() {
+                ended[0]++;
+            }
+        };
+        scheduler.start(new GLAnimationCV(visible,GLAnimationCV.TRANS_X,new float[] {10}).setDuration(100).setEndAction(endAction));
+        GLAnimationCV skipped = new GLAnimationCV(hidden,GLAnimationCV.TRANS_X,new float[] {10}).setDuration(100).setEndAction(endAction);
+        scheduler.start(skipped);
+        advanceTo(0);
+        advanceTo(50);
+        assertEquals(5,visible.getTransX(),1e-4f);
+        assertEquals(0,hidden.getTransX(),0);
+        advanceTo(150);
+        assertEquals(1,ended[0]);
+        assertTrue(skipped.isRunning());
+        // the hidden shape catches up when it is advanced again
+        scheduler.setOffscreenPolicy(GLAnimationSchedulerCV.OFFSCREEN_ALWAYS,0);
+        advanceTo(160);
+        assertEquals(10,hidden.getTransX(),1e-4f);
+        assertEquals(2,ended[0]);
+        // reduced rate: every fourth frame
+        GLAnimationCV reduced = new GLAnimationCV(hidden,GLAnimationCV.TRANS_Y,new float[] {10}).setDuration(1000);
+        scheduler.setOffscreenPolicy(GLAnimationSchedulerCV.OFFSCREEN_REDUCED_RATE,4);
+        scheduler.start(reduced);
+        int changes = 0;
+        float last = -1;
+        for (int frame=0; frame<40; frame++) {
+            advanceTo(200+frame*10);
+            if (hidden.getTransY()!=last) changes++;
+            last = hidden.getTransY();
+        }
+        assertTrue("changes: "+changes,changes>=9&&changes<=11);
+    }
+
+    @Test
+    public void offscreenShapeKeepsItsPhaseWhenOtherAnimationsEnd() {
+        GLShapeCV visible = GLShapeFactoryCV.makeCube("Visible",GLShapeFactoryCV.red);
+        final GLShapeCV hidden = GLShapeFactoryCV.makeCube("Hidden",GLShapeFactoryCV.red);
+        scheduler.setVisibilityTest(new GLAnimationSchedulerCV.VisibilityTest() {
+            public boolean isVisible(GLShapeCV shape) {
+                return shape!=hidden;
+            }
+        });
+        scheduler.setOffscreenPolicy(GLAnimationSchedulerCV.OFFSCREEN_REDUCED_RATE,4);
+        // the animations of the visible shape precede the animation of the hidden shape and end after some frames
+        scheduler.start(new GLAnimationCV(visible,GLAnimationCV.TRANS_X,new float[] {10}).setDuration(95));
+        scheduler.start(new GLAnimationCV(visible,GLAnimationCV.TRANS_Z,new float[] {10}).setDuration(155));
+        scheduler.start(new GLAnimationCV(hidden,GLAnimationCV.TRANS_Y,new float[] {10}).setDuration(1000));
+        int lastChange = -1;
+        float last = 0;
+        for (int frame=0; frame<40; frame++) {
+            advanceTo(frame*10);
+            if (hidden.getTransY()!=last) {
+                if (lastChange>=0)
+                    assertEquals("frame "+frame,lastChange+4,frame);
+                lastChange = frame;
+            }
+            last = hidden.getTransY();
+        }
+        assertTrue(lastChange>=36);
+        assertEquals(10,visible.getTransZ(),1e-4f);
+    }
+
+    @Test
+    public void sphereFrustumTest() {
+        // orthographic projection of the cube [-1,1]^3 (identity matrix)
+        float[] vp = { 1,0,0,0, 0,1,0,0, 0,0,1,0, 0,0,0,1 };
+        assertTrue(GraphicsUtilsCV.sphereIntersectsFrustum(vp,0,0,0,0.1f));
+        assertTrue(GraphicsUtilsCV.sphereIntersectsFrustum(vp,1.5f,0,0,0.6f));
+        assertFalse(GraphicsUtilsCV.sphereIntersectsFrustum(vp,1.5f,0,0,0.4f));
+        assertFalse(GraphicsUtilsCV.sphereIntersectsFrustum(vp,0,0,-3,1));
+    }
+
+}
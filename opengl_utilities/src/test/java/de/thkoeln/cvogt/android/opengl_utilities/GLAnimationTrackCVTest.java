@@ -0,0 +1,113 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.animation.TypeEvaluator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for baking animations into tracks and replaying them.
+ */
+public class GLAnimationTrackCVTest {
+
+    private static final long MS = 1000000L;
+
+    private static final float[] IDENTITY = { 1,0,0,0, 0,1,0,0, 0,0,1,0, 0,0,0,1 };
+
+    /** Evaluator for a rotation around the z axis by f*90 degrees (independent of android.opengl.Matrix). */
+    private static class RotZEvaluator implements TypeEvaluator<float[]> {
+        public float[] evaluate(float f, float[] start, float[] end) {
+            return rotZ(f*90);
+        }
+    }
+
+    private static float[] rotZ(float angle) {
+        float c = (float) Math.cos(Math.toRadians(angle)), s = (float) Math.sin(Math.toRadians(angle));
+        return new float[] { c,s,0,0, -s,c,0,0, 0,0,1,0, 0,0,0,1 };
+    }
+
+    private static GLShapeCV makeTemplate() {
+        GLShapeCV shape = new GLShapeCV("Template",null);
+        shape.setScale(1).setTrans(1,2,3);
+        shape.setRotationMatrix(IDENTITY,false);
+        GLAnimationCV trans = new GLAnimationCV(shape,GLAnimationCV.TRANS,new float[] {11,2,3}).setDuration(1000).setStartDelay(100);
+        shape.addAnimation(trans);
+        float[] dummy = new float[1];
+        GLAnimationCV rot = new GLAnimationCV(shape,GLAnimationCV.ROTATION_MATRIX,new RotZEvaluator(),dummy,dummy).setDuration(1000);
+        shape.addAnimation(rot);
+        return shape;
+    }
+
+    @Test
+    public void bakeSamplesThePoseAndRestoresTheTemplate() {
+        GLShapeCV template = makeTemplate();
+        GLAnimationTrackCV track = GLAnimationTrackCV.bake(template,50);
+        assertNotNull(track);
+        assertEquals(23,track.getNumberOfSamples());
+        assertEquals(1100,track.getDurationMillis(),1e-3f);
+        assertArrayEquals(new float[] {1,2,3},template.getTrans(),0);
+        assertArrayEquals(IDENTITY,template.getRotationMatrix(),0);
+        float[] pose = new float[22];
+        track.getPose(610,pose);   // between two samples
+        assertEquals(6.1f,pose[0],1e-4f);
+        float[] expected = rotZ(54.9f);
+        for (int i=0; i<16; i++)
+            assertEquals(expected[i],pose[3+i],2e-3f);
+        assertEquals(1,pose[19],0);
+        track.getPose(5000,pose);
+        assertEquals(11,pose[0],1e-4f);
+        for (int i=0; i<16; i++)
+            assertEquals(rotZ(90)[i],pose[3+i],1e-5f);
+    }
+
+    @Test
+    public void bakeOfInfiniteAnimationNeedsDuration() {
+        GLShapeCV template = makeTemplate();
+        template.getAnimations().get(0).setRepeatCount(GLAnimationCV.INFINITE);
+        assertNull(GLAnimationTrackCV.bake(template,1000));
+        GLAnimationTrackCV track = GLAnimationTrackCV.bake(template,2000,100);
+        assertEquals(21,track.getNumberOfSamples());
+    }
+
+    @Test
+    public void tracksAreSerializable() throws Exception {
+        GLAnimationTrackCV track = GLAnimationTrackCV.bake(makeTemplate(),50);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(track);
+        out.close();
+        GLAnimationTrackCV copy = (GLAnimationTrackCV) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(track.getNumberOfSamples(),copy.getNumberOfSamples());
+        float[] pose1 = new float[22], pose2 = new float[22];
+        track.getPose(333,pose1);
+        copy.getPose(333,pose2);
+        assertArrayEquals(pose1,pose2,0);
+    }
+
+    @Test
+    public void shapesReplayTrackWithTimeOffsets() {
+        GLAnimationTrackCV track = GLAnimationTrackCV.bake(makeTemplate(),50);
+        GLShapeCV delayed = new GLShapeCV("Delayed",null);
+        GLShapeCV ahead = new GLShapeCV("Ahead",null);
+        GLAnimationSchedulerCV scheduler = new GLAnimationSchedulerCV();
+        scheduler.start(track.replay(delayed,200));
+        scheduler.start(track.replay(ahead,-600));
+        assertNull(track.replay(ahead,-2000));
+        scheduler.advance(0);
+        assertEquals(6,ahead.getTrans()[0],1e-4f);
+        scheduler.advance(300*MS);
+        assertEquals(1,delayed.getTrans()[0],1e-4f);   // 100 ms into the track: start delay of the translation
+        assertEquals(9,ahead.getTrans()[0],1e-4f);
+        scheduler.advance(1300*MS);
+        assertEquals(11,delayed.getTrans()[0],1e-4f);
+        assertEquals(1,delayed.getScaleX(),0);
+        assertEquals(0,scheduler.getNumberOfActiveAnimations());
+    }
+
+}
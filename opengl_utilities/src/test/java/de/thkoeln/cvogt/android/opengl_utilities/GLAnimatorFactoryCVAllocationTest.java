@@ -0,0 +1,87 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Local unit tests to check that the evaluators of GLAnimatorFactoryCV and the math helpers they use
+ * do not allocate memory per frame once the animations are running.
+ */
+public class GLAnimatorFactoryCVAllocationTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void runningAnimationsAllocateNoMemoryPerFrame() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        float[] origin = { 0, 0, 0 };
+        float[] yAxisPoint = { 0, 1, 0 };
+        float[] axis = { 1, 1, 0 };
+        GLAnimationSchedulerCV scheduler = new GLAnimationSchedulerCV();
+        for (int i=0; i<20; i++) {
+            GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube"+i,GLShapeFactoryCV.red);
+            shape.setScale(1).setTrans(1,0,0);
+            GLAnimatorFactoryCV.addAnimationRot(shape,360,axis,1000,GLAnimationCV.INFINITE,false);
+            GLAnimatorFactoryCV.addAnimationSpiralPath(shape,origin,yAxisPoint,2,3,1000,0);
+            GLShapeCV other = GLShapeFactoryCV.makeCube("Other"+i,GLShapeFactoryCV.blue);
+            GLAnimatorFactoryCV.addAnimationRotYInModelSpace(other,90,1000,GLAnimationCV.INFINITE,true);
+            GLAnimatorFactoryCV.addAnimationBezierPath(other,new float[] {1,2,3},new float[] {4,5,6},new float[] {7,8,9},-1,1000,0);
+            GLShapeCV third = GLShapeFactoryCV.makeCube("Third"+i,GLShapeFactoryCV.green);
+            GLAnimatorFactoryCV.addAnimationPitch(third,30,1000,GLAnimationCV.INFINITE);
+            GLAnimatorFactoryCV.addAnimationArcPathAroundAxis(third,origin,yAxisPoint,180,1000,0);
+            for (GLShapeCV s : new GLShapeCV[] {shape,other,third})
+                for (GLAnimationCV animation : s.getAnimations())
+                    scheduler.start(animation.setRepeatCount(GLAnimationCV.INFINITE));
+        }
+
+        // warm up: the start values are taken from the shapes in the first frames
+        long time = 0;
+        for (int frame=0; frame<200; frame++)
+            scheduler.advance(time += 16*MS);
+        assertEquals(120,scheduler.getNumberOfActiveAnimations());
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long afterEmpty = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = afterEmpty-before;
+        final int frames = 1000;
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int frame=0; frame<frames; frame++)
+            scheduler.advance(time += 16*MS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId)-start-overhead;
+        assertTrue("allocated "+allocated+" bytes in "+frames+" frames",allocated<frames);
+    }
+
+    @Test
+    public void rotateAroundAxisWritesIntoGivenArray() {
+        float[] point = { 1, 0, 0 };
+        float[] result = new float[3];
+        assertTrue(GraphicsUtilsCV.rotateAroundAxis(point,new float[] {0,0,0},new float[] {0,0,1},90,result));
+        assertArrayEquals(new float[] {0,1,0},result,1e-6f);
+        // result may be the rotated point itself
+        assertTrue(GraphicsUtilsCV.rotateAroundAxis(point,new float[] {0,1,0},new float[] {0,1,2},180,point));
+        assertArrayEquals(new float[] {-1,2,0},point,1e-6f);
+        assertFalse(GraphicsUtilsCV.rotateAroundAxis(point,new float[2],new float[] {0,0,1},90,result));
+        assertNull(GraphicsUtilsCV.rotateAroundAxis(point,new float[2],new float[] {0,0,1},90));
+    }
+
+    @Test
+    public void flatRotationMatrixCheck() {
+        float[] matrix = new float[16];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(30,new float[] {1,2,3},new float[3],matrix);
+        assertTrue(GraphicsUtilsCV.is4x4RotationMatrix(matrix));
+        matrix[0] *= 2;
+        assertFalse(GraphicsUtilsCV.is4x4RotationMatrix(matrix));
+        assertFalse(GraphicsUtilsCV.is4x4RotationMatrix(new float[9]));
+    }
+
+}
@@ -0,0 +1,179 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for stores of bulk animations, with the shader motions (CPU reference) as the reference.
+ */
+public class GLBulkAnimationsCVTest {
+
+    private static final long MS = 1000000L;
+
+    private static final float[] IDENTITY = { 1,0,0,0, 0,1,0,0, 0,0,1,0, 0,0,0,1 };
+
+    private static GLShapeCV makeShape(int i) {
+        GLShapeCV shape = new GLShapeCV("Shape"+i,null);
+        float[] rotation = new float[16];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(10*i,new float[] {1,2,3},new float[3],rotation);
+        shape.setScale(1+i%3).setTrans(i,-i,2);
+        shape.setRotationMatrix(rotation,false);
+        return shape;
+    }
+
+    /** Fills a store with shapes on different paths and a motion for each shape that describes the same animation. */
+    private static GLShaderMotionCV[] fill(GLBulkAnimationsCV store, int number) {
+        GLShaderMotionCV[] motions = new GLShaderMotionCV[number];
+        float[] axis = { 0, 1, 1 };
+        for (int i=0; i<number; i++) {
+            GLShapeCV shape = makeShape(i);
+            int slot = store.add(shape,1000);
+            assertEquals(i,slot);
+            GLShaderMotionCV motion;
+            switch (i%3) {
+                case 0:
+                    motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_LINEAR,1000);
+                    motion.setLinearPath(new float[] {5,i,0});
+                    store.setLinearPath(slot,new float[] {5,i,0});
+                    break;
+                case 1:
+                    motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_SPIRAL,1000);
+                    motion.setSpiralPath(new float[] {0,0,0},new float[] {0,1,0},1.5f,2);
+                    store.setSpiralPath(slot,new float[] {0,0,0},new float[] {0,1,0},1.5f,2);
+                    break;
+                default:
+                    motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_BEZIER,1000);
+                    motion.setBezierPath(new float[] {1,4,1},null,new float[] {-3,0,i});
+                    store.setBezierPath(slot,new float[] {1,4,1},null,new float[] {-3,0,i});
+            }
+            motion.setRotation(90*i,axis).setStartDelay(10*i).setRepeatCount(2).setReverse(true);
+            store.setRotation(slot,90*i,axis).setTiming(slot,1000,10*i,2,true);
+            float scale = shape.getScaleX();
+            motion.start(shape.getTrans(),shape.getRotationMatrix(),new float[] {scale,scale,scale});
+            motions[i] = motion;
+        }
+        return motions;
+    }
+
+    @Test
+    public void matricesAgreeWithShaderMotions() {
+        GLBulkAnimationsCV store = new GLBulkAnimationsCV(30);
+        GLShaderMotionCV[] motions = fill(store,30);
+        float[] expected = new float[16], actual = new float[16];
+        assertFalse(store.getModelMatrix(0,actual));
+        store.update(100*MS);
+        for (long time : new long[] {100, 350, 1200, 2600, 5000}) {
+            store.update((100+time)*MS);
+            for (int i=0; i<motions.length; i++) {
+                motions[i].getModelMatrix(time,expected);
+                assertTrue(store.getModelMatrix(i,actual));
+                assertArrayEquals("slot "+i+" at "+time+" ms",expected,actual,1e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void parallelUpdateAgreesWithSerialUpdate() {
+        GLBulkAnimationsCV serial = new GLBulkAnimationsCV(1000);
+        GLBulkAnimationsCV parallel = new GLBulkAnimationsCV(1000).setParallelism(4);
+        fill(serial,1000);
+        fill(parallel,1000);
+        assertEquals(4,parallel.getParallelism());
+        float[] m1 = new float[16], m2 = new float[16];
+        for (long time=0; time<2000; time+=160) {
+            serial.update(time*MS);
+            parallel.update(time*MS);
+        }
+        for (int i=0; i<1000; i++) {
+            serial.getModelMatrix(i,m1);
+            parallel.getModelMatrix(i,m2);
+            assertArrayEquals(m1,m2,0);
+        }
+        parallel.release();
+        assertEquals(1,parallel.getParallelism());
+        parallel.update(3000*MS);
+    }
+
+    /** The number of living threads whose names start with a prefix. */
+    static int countThreads(String prefix) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            if (thread.isAlive()&&thread.getName().startsWith(prefix))
+                count++;
+        return count;
+    }
+
+    @Test
+    public void changingParallelismStopsOldWorkers() {
+        int before = countThreads("GLBulkAnimationsCV-");
+        GLBulkAnimationsCV serial = new GLBulkAnimationsCV(100);
+        GLBulkAnimationsCV parallel = new GLBulkAnimationsCV(100).setParallelism(4);
+        fill(serial,100);
+        fill(parallel,100);
+        assertEquals(before+3,countThreads("GLBulkAnimationsCV-"));
+        serial.update(0);
+        parallel.update(0);
+        parallel.setParallelism(2);
+        assertEquals(2,parallel.getParallelism());
+        assertEquals(before+1,countThreads("GLBulkAnimationsCV-"));
+        float[] m1 = new float[16], m2 = new float[16];
+        for (long time=100; time<1000; time+=100) {
+            serial.update(time*MS);
+            parallel.update(time*MS);
+        }
+        for (int i=0; i<100; i++) {
+            serial.getModelMatrix(i,m1);
+            parallel.getModelMatrix(i,m2);
+            assertArrayEquals(m1,m2,0);
+        }
+        parallel.release();
+        assertEquals(before,countThreads("GLBulkAnimationsCV-"));
+    }
+
+    @Test
+    public void removeWritesPoseBackAndFreesSlot() {
+        GLBulkAnimationsCV store = new GLBulkAnimationsCV(2);
+        GLShapeCV shape = new GLShapeCV("Shape",null);
+        shape.setScale(1).setTrans(1,0,0);
+        shape.setRotationMatrix(IDENTITY,false);
+        int slot = store.add(shape,1000);
+        store.setLinearPath(slot,new float[] {3,0,0}).setScaling(slot,new float[] {2,3,4});
+        assertNull(store.setLinearPath(slot,new float[2]));
+        assertNull(store.setRotation(slot,90,new float[3]));
+        assertEquals(1,store.add(new GLShapeCV("Other",null),1000));
+        assertEquals(-1,store.add(new GLShapeCV("TooMany",null),1000));
+        store.update(0);
+        store.update(500*MS);
+        assertSame(shape,store.remove(slot));
+        assertArrayEquals(new float[] {2,0,0},shape.getTrans(),1e-5f);
+        assertEquals(1.5f,shape.getScaleX(),1e-5f);
+        assertEquals(2.5f,shape.getScaleZ(),1e-5f);
+        assertArrayEquals(IDENTITY,shape.getRotationMatrix(),1e-6f);
+        assertNull(store.remove(slot));
+        assertEquals(1,store.getNumberOfShapes());
+        assertEquals(0,store.add(shape,1000));
+    }
+
+    @Test
+    public void schedulerUpdatesStartedStores() {
+        GLBulkAnimationsCV store = new GLBulkAnimationsCV(1);
+        GLShapeCV shape = new GLShapeCV("Shape",null);
+        shape.setScale(1).setTrans(0,0,0);
+        shape.setRotationMatrix(IDENTITY,false);
+        store.add(shape,1000);
+        store.setLinearPath(0,new float[] {0,10,0});
+        GLAnimationSchedulerCV scheduler = new GLAnimationSchedulerCV();
+        scheduler.start(store);
+        scheduler.advance(0);
+        scheduler.advance(250*MS);
+        float[] matrix = new float[16];
+        store.getModelMatrix(0,matrix);
+        assertEquals(2.5f,matrix[13],1e-5f);
+        scheduler.stop(store);
+        scheduler.advance(750*MS);
+        store.getModelMatrix(0,matrix);
+        assertEquals(2.5f,matrix[13],1e-5f);
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the broad phase of the collision detection.
+ */
+public class GLCollisionDetectorCVTest {
+
+    private static final float[] IDENTITY = { 1,0,0,0, 0,1,0,0, 0,0,1,0, 0,0,0,1 };
+
+    /** Listener that records the current pairs, checking that begin and end events alternate. */
+    private static class RecordingListener implements GLCollisionDetectorCV.CollisionListener {
+        final Set<String> current = new HashSet<>();
+        int begins, ends;
+        public void collisionBegin(GLShapeCV shape1, GLShapeCV shape2) {
+            assertTrue(current.add(key(shape1,shape2)));
+            begins++;
+        }
+        public void collisionEnd(GLShapeCV shape1, GLShapeCV shape2) {
+            assertTrue(current.remove(key(shape1,shape2)));
+            ends++;
+        }
+    }
+
+    private static String key(GLShapeCV shape1, GLShapeCV shape2) {
+        return shape1.getId()+"/"+shape2.getId();
+    }
+
+    private static GLShapeCV makeCube(String id, float x, float y, float z) {
+        GLShapeCV shape = GLShapeFactoryCV.makeCube(id,GLShapeFactoryCV.red);   // edge length 1
+        shape.setRotationMatrix(IDENTITY,false);
+        shape.setScale(1).setTrans(x,y,z);
+        return shape;
+    }
+
+    @Test
+    public void beginAndEndAreReported() {
+        GLShapeCV cube1 = makeCube("1",0,0,0);
+        GLShapeCV cube2 = makeCube("2",3,0,0);
+        GLShapeCV cube3 = makeCube("3",0,0,5);
+        GLCollisionDetectorCV detector = new GLCollisionDetectorCV(2);
+        RecordingListener listener = new RecordingListener();
+        detector.setListener(listener);
+        detector.add(cube1);
+        detector.add(cube2);
+        int number3 = detector.add(cube3);
+        detector.update(0);
+        assertEquals(0,detector.getNumberOfPairs());
+        cube2.setTrans(0.9f,0.5f,0);
+        detector.update(0);
+        assertEquals(1,listener.begins);
+        assertTrue(listener.current.contains("1/2"));
+        detector.update(0);   // no change: no further events
+        assertEquals(1,listener.begins);
+        cube3.setScale(3).setTrans(0,0,1.9f);   // the box now reaches from z=0.4 to z=3.4
+        detector.update(0);
+        assertEquals(3,listener.begins);
+        assertEquals(3,detector.getNumberOfPairs());
+        cube2.setTrans(1.1f,0,0);
+        detector.update(0);
+        assertEquals(1,listener.ends);
+        assertFalse(listener.current.contains("1/2"));
+        assertEquals(cube3,detector.remove(number3));
+        assertNull(detector.remove(number3));
+        detector.update(0);
+        assertEquals(3,listener.ends);
+        assertTrue(listener.current.isEmpty());
+        assertNull(detector.getShape(number3));
+        assertEquals(number3,detector.add(cube3));   // the entry is reused
+    }
+
+    @Test
+    public void pairsMatchBruteForceForMovingShapes() {
+        Random random = new Random(4711);
+        int count = 300;
+        GLShapeCV[] cubes = new GLShapeCV[count];
+        GLCollisionDetectorCV detector = new GLCollisionDetectorCV(16);
+        RecordingListener listener = new RecordingListener();
+        detector.setListener(listener);
+        for (int i=0; i<count; i++) {
+            cubes[i] = makeCube(""+i,random.nextFloat()*20,random.nextFloat()*20,random.nextFloat()*4);
+            assertEquals(i,detector.add(cubes[i]));
+        }
+        float[] boxes = new float[6*count];
+        for (int frame=0; frame<40; frame++) {
+            for (GLShapeCV cube : cubes)   // move the cubes, mainly along the y axis (such that the sweep axis changes)
+                cube.setTrans(cube.getTransX()*0.95f+random.nextFloat()*0.1f,cube.getTransY()+random.nextFloat()*0.8f,cube.getTransZ());
+            detector.update(0);
+            Set<String> expected = new HashSet<>();
+            for (int i=0; i<count; i++)
+                assertTrue(cubes[i].getWorldBoundingBox(boxes,6*i));
+            for (int i=0; i<count; i++)
+                for (int j=i+1; j<count; j++) {
+                    boolean overlap = true;
+                    for (int axis=0; axis<3; axis++)
+                        overlap &= boxes[6*i+axis]<=boxes[6*j+3+axis]&&boxes[6*j+axis]<=boxes[6*i+3+axis];
+                    if (overlap) expected.add(i+"/"+j);
+                }
+            Set<String> found = new HashSet<>();
+            for (int[] pair : detector.getPairs())
+                found.add(pair[0]+"/"+pair[1]);
+            assertEquals(expected,found);
+            assertEquals(expected,listener.current);
+        }
+        assertTrue(listener.begins>0&&listener.ends>0);
+    }
+
+}
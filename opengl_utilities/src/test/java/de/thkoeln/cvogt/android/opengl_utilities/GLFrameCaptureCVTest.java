@@ -0,0 +1,82 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for capturing a frame and replaying it against another backend.
+ */
+public class GLFrameCaptureCVTest {
+
+    @After
+    public void restoreBackend() {
+        GLPlatformCV.setBackend(null);
+    }
+
+    @Test
+    public void replayedFrameIssuesTheCapturedCalls() {
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        GLPlatformCV.setBackend(gl);
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red));
+        shapes.add(GLShapeFactoryCV.makeSphere("Sphere",2,GLShapeFactoryCV.blue).setTrans(2,0,0));
+        GLRendererCV renderer = new GLRendererCV();
+        renderer.onSurfaceChanged(null,1080,1920);
+        renderer.drawShapes(shapes);
+        final boolean[] closed = { false };
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        renderer.captureNextFrame(out);
+        assertTrue(renderer.isCapturePending());
+        gl.reset();
+        renderer.drawShapes(shapes);
+        assertFalse(renderer.isCapturePending());
+        assertSame(gl,GLPlatformCV.getBackend());
+        assertTrue(closed[0]);
+        // the capture records the existing programs and buffers but does not create them anew
+        assertEquals(0,gl.getCallCount("glLinkProgram"));
+        assertEquals(0,gl.getCallCount("glGenBuffers"));
+        assertEquals(0,gl.getBufferBytesUploaded());
+        assertEquals(2,gl.getNumberOfPrograms());
+        assertEquals(4,gl.getNumberOfBuffers());
+        GLFrameReplayCV frame = GLFrameReplayCV.load(out.toByteArray());
+        assertNotNull(frame);
+        GLRecordingBackendCV replay = new GLRecordingBackendCV();
+        assertTrue(frame.replay(replay));
+        assertEquals(replay.getCallCounts(),frame.getCallCounts());
+        assertEquals(2,replay.getCallCount("glLinkProgram"));
+        assertEquals(2,replay.getNumberOfPrograms());
+        assertEquals(0,replay.getNumberOfShaders());
+        assertEquals(gl.getBufferMemory(),replay.getBufferMemory());
+        assertEquals(gl.getBufferMemory(),replay.getBufferBytesUploaded());
+        assertEquals(gl.getDrawCalls(),replay.getDrawCalls());
+        assertEquals(gl.getVerticesDrawn(),replay.getVerticesDrawn());
+        assertEquals(gl.getClientArrayBytes(),replay.getClientArrayBytes());
+        assertEquals(gl.getUniformBytes(),replay.getUniformBytes());
+        assertEquals(gl.getCallCount("glUseProgram"),replay.getCallCount("glUseProgram"));
+        // a frame can be replayed repeatedly
+        assertTrue(frame.replay(replay));
+        assertEquals(2*gl.getDrawCalls(),replay.getDrawCalls());
+        assertEquals(replay.getTotalCalls()/2,frame.getNumberOfCalls());
+        // the next frame is drawn without capture
+        gl.reset();
+        renderer.drawShapes(shapes);
+        assertEquals(0,gl.getCallCount("glLinkProgram"));
+    }
+
+    @Test
+    public void invalidDataIsRejected() {
+        assertNull(GLFrameReplayCV.load(new byte[] { 1, 2, 3 }));
+        assertNull(GLFrameReplayCV.load((byte[]) null));
+    }
+
+}
@@ -0,0 +1,53 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the memory reports of shapes.
+ */
+public class GLMemoryReportCVTest {
+
+    @After
+    public void restoreBackend() {
+        GLPlatformCV.setBackend(null);
+    }
+
+    @Test
+    public void reportCoversBuffersAndVertexBufferObjects() {
+        GLPlatformCV.setBackend(new GLRecordingBackendCV());
+        GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        GLMemoryReportCV report = cube.getMemoryReport();
+        assertEquals(1,report.getNumberOfShapes());
+        assertTrue(report.getBytes(GLMemoryReportCV.TRIANGLE_OBJECTS)>=12*GLMemoryReportCV.TRIANGLE_BYTES);
+        assertTrue(report.getBytes(GLMemoryReportCV.DIRECT_BUFFERS)>=36*3*4);
+        assertEquals(0,report.getGpuBytes());
+        assertEquals(-1,report.getBytes(GLMemoryReportCV.NUMBER_OF_CATEGORIES));
+        // the vertex buffer objects are created by the first frame
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(cube);
+        shapes.add(GLShapeFactoryCV.makeSphere("Sphere",2,GLShapeFactoryCV.blue));
+        GLRendererCV renderer = new GLRendererCV();
+        renderer.onSurfaceChanged(null,1080,1920);
+        renderer.drawShapes(shapes);
+        assertEquals(36*3*4+36*4*4,cube.getMemoryReport().getBytes(GLMemoryReportCV.GPU_BUFFERS));
+        GLMemoryReportCV total = GLMemoryReportCV.getReport(shapes);
+        assertEquals(2,total.getNumberOfShapes());
+        long sum = 0;
+        for (int i=0; i<GLMemoryReportCV.NUMBER_OF_CATEGORIES; i++)
+            sum += total.getBytes(i);
+        assertEquals(sum,total.getTotalBytes());
+        assertEquals(cube.getMemoryReport().getTotalBytes()+shapes.get(1).getMemoryReport().getTotalBytes(),total.getTotalBytes());
+        // high-water marks keep the maximum values
+        GLMemoryReportCV highWaterMarks = total.copy();
+        shapes.remove(1);
+        highWaterMarks.max(GLMemoryReportCV.getReport(shapes));
+        assertEquals(total.getTotalBytes(),highWaterMarks.getTotalBytes());
+        assertEquals(2,highWaterMarks.getNumberOfShapes());
+    }
+
+}
@@ -0,0 +1,147 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the physics simulation.
+ */
+public class GLPhysicsCVTest {
+
+    private static final long MS = 1000000L;
+
+    private static GLShapeCV makeShape(float x, float y, float z) {
+        GLShapeCV shape = new GLShapeCV("Body",null);
+        shape.setScale(1).setTrans(x,y,z);
+        return shape;
+    }
+
+    @Test
+    public void resultsDoNotDependOnFrameTimes() {
+        GLPhysicsCV physics1 = new GLPhysicsCV(2,5);
+        GLPhysicsCV physics2 = new GLPhysicsCV(2,5);
+        for (GLPhysicsCV physics : new GLPhysicsCV[] {physics1,physics2}) {
+            int body = physics.addBody(makeShape(1,2,0),2);
+            physics.setSpring(body,new float[] {0,0,0},20,1).setVelocity(body,new float[] {0,0,3});
+            physics.addBody(makeShape(0,5,0),1);
+            physics.setFloor(0,0.5f);
+        }
+        for (long time=0; time<=1000; time+=16)
+            physics1.update(time*MS);
+        for (long time=0; time<=1000; time+=33)
+            physics2.update(time*MS);
+        physics1.update(1040*MS);
+        physics2.update(1040*MS);
+        assertEquals(208,physics1.getNumberOfSteps());
+        assertEquals(physics1.getNumberOfSteps(),physics2.getNumberOfSteps());
+        float[] p1 = new float[3], p2 = new float[3];
+        for (int body=0; body<2; body++) {
+            physics1.getPosition(body,p1);
+            physics2.getPosition(body,p2);
+            assertArrayEquals(p1,p2,0);
+        }
+    }
+
+    @Test
+    public void shapesAreInterpolatedBetweenSteps() {
+        GLPhysicsCV physics = new GLPhysicsCV(1,10);
+        GLShapeCV shape = makeShape(0,0,0);
+        int body = physics.addBody(shape,1);
+        physics.setGravityEnabled(body,false).setVelocity(body,new float[] {1,0,0});
+        physics.update(0);
+        physics.update(25*MS);   // two steps done, half of the third step
+        assertEquals(2,physics.getNumberOfSteps());
+        // halfway between the positions after the first and the second step, i.e. the shape lags at most one step behind the simulation
+        assertEquals(0.015f,shape.getTransX(),1e-6f);
+    }
+
+    @Test
+    public void longPauseExecutesAtMostTheMaximumNumberOfSteps() {
+        GLPhysicsCV physics = new GLPhysicsCV(1,1);
+        int body = physics.addBody(makeShape(0,0,0),1);
+        physics.setGravityEnabled(body,false).setVelocity(body,new float[] {1,0,0});
+        physics.update(0);
+        // a pause of a year: the due steps beyond the maximum are dropped at once
+        long pause = 365L*24*3600*1000*MS;
+        physics.update(pause+MS/2);
+        assertEquals(GLPhysicsCV.MAX_STEPS_PER_UPDATE,physics.getNumberOfSteps());
+        // the simulation continues with the remaining half step
+        physics.update(pause+MS);
+        assertEquals(GLPhysicsCV.MAX_STEPS_PER_UPDATE+1,physics.getNumberOfSteps());
+    }
+
+    @Test
+    public void flingStopsAfterExpectedDistance() {
+        GLPhysicsCV physics = new GLPhysicsCV(1,1);
+        int body = physics.addBody(makeShape(0,0,0),1);
+        physics.setGravityEnabled(body,false).setFriction(body,4).setVelocity(body,new float[] {8,0,0});
+        physics.step(5000);
+        float[] position = new float[3];
+        physics.getPosition(body,position);
+        assertEquals(2,position[0],0.01f);   // v/friction
+    }
+
+    @Test
+    public void dampedSpringSettlesAtAnchor() {
+        GLPhysicsCV physics = new GLPhysicsCV(1,2);
+        int body = physics.addBody(makeShape(3,0,0),1);
+        physics.setGravityEnabled(body,false).setSpring(body,new float[] {1,1,1},50,4);
+        physics.step(500);   // 1 s: the body has overshot
+        float[] position = new float[3];
+        physics.getPosition(body,position);
+        assertTrue(Math.abs(position[0]-1)>0.01f);
+        physics.step(5000);
+        physics.getPosition(body,position);
+        assertArrayEquals(new float[] {1,1,1},position,1e-3f);
+    }
+
+    @Test
+    public void pendulumKeepsLengthAndPeriod() {
+        GLPhysicsCV physics = new GLPhysicsCV(1,1);
+        float length = 2;
+        float angle = 0.1f;
+        int body = physics.addBody(makeShape(length*(float)Math.sin(angle),-length*(float)Math.cos(angle),0),1);
+        assertNull(physics.setPendulum(body,new float[2]));
+        physics.setPendulum(body,new float[] {0,0,0});
+        float period = (float) (2*Math.PI*Math.sqrt(length/9.81f));
+        float[] position = new float[3];
+        int lastSign = 1, crossings = 0;
+        float firstCrossing = -1, lastCrossing = -1;
+        for (int step=1; step<=10000; step++) {
+            physics.step(1);
+            physics.getPosition(body,position);
+            assertEquals(length,Math.sqrt(position[0]*position[0]+position[1]*position[1]),1e-4);
+            int sign = position[0]>=0 ? 1 : -1;
+            if (sign!=lastSign) {
+                if (firstCrossing<0) firstCrossing = step/1000f;
+                lastCrossing = step/1000f;
+                crossings++;
+            }
+            lastSign = sign;
+        }
+        // consecutive zero crossings are half a period apart (within 1 percent)
+        assertEquals(period,2*(lastCrossing-firstCrossing)/(crossings-1),0.01f*period);
+    }
+
+    @Test
+    public void bodiesBounceOffTheFloor() {
+        GLPhysicsCV physics = new GLPhysicsCV(1,1);
+        GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        shape.setScale(1).setTrans(0,5,0);
+        int body = physics.addBody(shape,1);
+        physics.setRadius(body,0.5f).setFloor(0,0.5f);
+        float[] position = new float[3];
+        float minY = Float.MAX_VALUE;
+        for (int step=0; step<3000; step++) {
+            physics.step(1);
+            physics.getPosition(body,position);
+            minY = Math.min(minY,position[1]);
+        }
+        assertEquals(0.5f,minY,1e-6f);
+        assertEquals(0.5f,position[1],0.05f);   // the body has come to rest on the floor
+        assertNull(physics.setRadius(body,-1));
+        assertEquals(-1,physics.addBody(shape,0));
+    }
+
+}
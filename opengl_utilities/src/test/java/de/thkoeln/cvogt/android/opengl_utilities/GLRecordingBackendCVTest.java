@@ -0,0 +1,182 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import android.opengl.GLES20;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the render path, run against the recording backend without a GPU.
+ */
+public class GLRecordingBackendCVTest {
+
+    @After
+    public void restoreBackend() {
+        GLPlatformCV.setBackend(null);
+    }
+
+    private static GLRendererCV makeRenderer() {
+        GLRendererCV renderer = new GLRendererCV();
+        renderer.onSurfaceChanged(null,1080,1920);
+        return renderer;
+    }
+
+    @Test
+    public void joinedShapeNeedsFewerDrawCallsThanSeparateShapes() {
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        GLPlatformCV.setBackend(gl);
+        int n = 5;
+        boolean[][][] positions = new boolean[n][n][n];
+        ArrayList<GLShapeCV> separate = new ArrayList<>();
+        for (int i=0; i<n; i++)
+            for (int j=0; j<n; j++)
+                for (int k=0; k<n; k++) {
+                    positions[i][j][k] = true;
+                    separate.add(GLShapeFactoryCV.makeCube("Cube"+i+j+k,GLShapeFactoryCV.red,GLShapeFactoryCV.white,2).setTrans(i,j,k));
+                }
+        GLRendererCV renderer = makeRenderer();
+        renderer.drawShapes(separate);
+        assertEquals(2*n*n*n,gl.getDrawCalls());
+        assertEquals(n*n*n,gl.getCallCount("glUseProgram"));
+        ArrayList<GLShapeCV> joined = new ArrayList<>();
+        joined.add(GLShapeFactoryCV.makeShapeFromCubes("Cubes",GLShapeFactoryCV.red,GLShapeFactoryCV.white,2,positions));
+        gl.reset();
+        renderer.drawShapes(joined);
+        assertEquals(2,gl.getDrawCalls());
+        assertEquals(1,gl.getCallCount("glUseProgram"));
+        assertEquals(gl.getTotalCalls(),sum(gl));
+    }
+
+    private static long sum(GLRecordingBackendCV gl) {
+        long sum = 0;
+        for (long count : gl.getCallCounts().values())
+            sum += count;
+        return sum;
+    }
+
+    @Test
+    public void vertexBufferIsUploadedOnlyOnce() {
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        GLPlatformCV.setBackend(gl);
+        GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(cube);
+        GLRendererCV renderer = makeRenderer();
+        renderer.drawShapes(shapes);
+        assertEquals(1,gl.getCallCount("glLinkProgram"));
+        assertEquals(1,gl.getDrawCalls());
+        assertEquals(36,gl.getVerticesDrawn());
+        assertEquals(36*3*4+36*4*4,gl.getBufferBytesUploaded());
+        assertEquals(0,gl.getClientArrayBytes());   // the colors are passed in a vertex buffer object, too
+        assertEquals(2,gl.getNumberOfBuffers());
+        assertEquals(36*3*4+36*4*4,gl.getBufferMemory());
+        // bound state after the frame
+        assertTrue(gl.isEnabled(GLES20.GL_DEPTH_TEST));
+        assertNotEquals(0,gl.getCurrentProgram());
+        assertEquals(0,gl.getBoundArrayBuffer());
+        for (int i=0; i<GLRecordingBackendCV.MAX_VERTEX_ATTRIBS; i++)
+            assertFalse(gl.isVertexAttribArrayEnabled(i));
+        // the next frames only pass the MVP matrix
+        gl.reset();
+        renderer.drawShapes(shapes);
+        renderer.drawShapes(shapes);
+        assertEquals(0,gl.getBufferBytesUploaded());
+        assertEquals(0,gl.getCallCount("glLinkProgram"));
+        assertEquals(2,gl.getCallCount("glUniformMatrix4fv"));
+        assertEquals(2*64,gl.getUniformBytes());
+        // modified vertices are uploaded partially
+        cube.setTriangleVertexBufferEntry(0,-0.6f);
+        gl.reset();
+        renderer.drawShapes(shapes);
+        assertTrue(gl.getBufferBytesUploaded()>0&&gl.getBufferBytesUploaded()<36*3*4);
+        assertEquals(1,gl.getCallCount("glBufferSubData"));
+    }
+
+    @Test
+    public void drawDoesNotWaitForTheMonitorOfTheShape() throws InterruptedException {
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        GLPlatformCV.setBackend(gl);
+        final GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(cube);
+        GLRendererCV renderer = makeRenderer();
+        renderer.drawShapes(shapes);
+        // the modifications published before are drawn while another thread holds the monitor of the shape
+        cube.setTriangleVertexBufferEntry(0,-0.6f);
+        cube.setTrans(1,2,3);
+        final CountDownLatch locked = new CountDownLatch(1), release = new CountDownLatch(1);
+        final boolean[] timedOut = { false };
+        Thread holder = new Thread() {
+            @Override
+            public void run() {
+                synchronized (cube) {
+                    locked.countDown();
+                    try {
+                        timedOut[0] = !release.await(10,TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        timedOut[0] = true;
+                    }
+                }
+            }
+        };
+        holder.start();
+        locked.await();
+        gl.reset();
+        renderer.drawShapes(shapes);
+        release.countDown();
+        holder.join();
+        assertFalse(timedOut[0]);
+        assertEquals(1,gl.getDrawCalls());
+        assertEquals(1,gl.getCallCount("glBufferSubData"));
+        assertEquals(0,gl.getClientArrayBytes());
+    }
+
+    @Test
+    public void rebuildingTheProgramDoesNotLeakObjects() {
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        GLPlatformCV.setBackend(gl);
+        GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(cube);
+        GLRendererCV renderer = makeRenderer();
+        renderer.drawShapes(shapes);
+        assertEquals(1,gl.getNumberOfPrograms());
+        assertEquals(0,gl.getNumberOfShaders());
+        assertEquals(2,gl.getNumberOfBuffers());
+        // each toggle of the shader motion rebuilds the program, but the old program is deleted and the vertex buffer objects are kept
+        gl.reset();
+        for (int i=0; i<10; i++) {
+            cube.setShaderMotion(i%2==0?new GLShaderMotionCV(GLShaderMotionCV.PATH_LINEAR,1000):null);
+            renderer.drawShapes(shapes);
+        }
+        assertEquals(10,gl.getCallCount("glLinkProgram"));
+        assertEquals(10,gl.getCallCount("glDeleteProgram"));
+        assertEquals(0,gl.getCallCount("glGenBuffers"));
+        assertEquals(0,gl.getBufferBytesUploaded());
+        assertEquals(1,gl.getNumberOfPrograms());
+        assertEquals(0,gl.getNumberOfShaders());
+        assertEquals(2,gl.getNumberOfBuffers());
+    }
+
+    @Test
+    public void callsAreForwardedToTheTargetBackend() {
+        GLRecordingBackendCV target = new GLRecordingBackendCV();
+        GLRecordingBackendCV gl = new GLRecordingBackendCV(target);
+        GLPlatformCV.setBackend(gl);
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(GLShapeFactoryCV.makeSphere("Sphere",2,GLShapeFactoryCV.blue));
+        makeRenderer().drawShapes(shapes);
+        assertTrue(shapes.get(0).isCompiled());
+        assertEquals(target.getCallCounts(),gl.getCallCounts());
+        assertEquals(target.getBufferBytesUploaded(),gl.getBufferBytesUploaded());
+        assertEquals(target.getCurrentProgram(),gl.getCurrentProgram());
+        assertSame(target,gl.getTarget());
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the CPU reference implementation of shader motions.
+ */
+public class GLShaderMotionCVTest {
+
+    private static final float[] IDENTITY = { 1,0,0,0, 0,1,0,0, 0,0,1,0, 0,0,0,1 };
+
+    private static final float[] UNIT_SCALE = { 1,1,1 };
+
+    @Test
+    public void fractionFollowsDelayRepeatAndReverse() {
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_NONE,100)
+                .setStartDelay(50).setRepeatCount(2).setReverse(true);
+        assertEquals(0,motion.getFraction(0),1e-6f);
+        assertEquals(0,motion.getFraction(50),1e-6f);
+        assertEquals(0.25f,motion.getFraction(75),1e-6f);
+        assertEquals(0.75f,motion.getFraction(175),1e-6f);
+        assertEquals(0.25f,motion.getFraction(275),1e-6f);
+        assertEquals(1,motion.getFraction(1000),1e-6f);
+        motion.setRepeatCount(GLAnimationCV.INFINITE);
+        assertEquals(0.25f,motion.getFraction(10075),1e-4f);
+    }
+
+    @Test
+    public void reducedTimeIsSmallAndYieldsTheSameFraction() {
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_NONE,100)
+                .setStartDelay(50).setRepeatCount(GLAnimationCV.INFINITE).setReverse(true);
+        assertEquals(30,motion.getReducedTime(30000000L),1e-4f);
+        // ten days after the start: the reduced time lies within the start delay plus two iterations
+        long nanos = 10L*24*3600*1000000000L+175000000L;
+        float reduced = motion.getReducedTime(nanos);
+        assertTrue(reduced>=50&&reduced<250);
+        assertEquals(0.75f,motion.getFraction(reduced),1e-4f);
+        // a motion that is not repeated endlessly stays at its end
+        motion.setRepeatCount(2);
+        assertEquals(350,motion.getReducedTime(nanos),1e-4f);
+        assertEquals(1,motion.getFraction(motion.getReducedTime(nanos)),1e-6f);
+    }
+
+    @Test
+    public void linearPathInterpolatesFromStartPosition() {
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_LINEAR,1000);
+        motion.setLinearPath(new float[] {10,0,-4});
+        motion.start(new float[] {2,2,2},IDENTITY,UNIT_SCALE);
+        float[] position = new float[3];
+        motion.getPosition(0.5f,position);
+        assertArrayEquals(new float[] {6,1,-1},position,1e-5f);
+    }
+
+    @Test
+    public void spiralPathRotatesAroundAxisAndRises() {
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_SPIRAL,1000);
+        motion.setSpiralPath(new float[] {1,0,0},new float[] {1,0,2},1,4);
+        motion.start(new float[] {2,0,0},IDENTITY,UNIT_SCALE);
+        float[] position = new float[3];
+        motion.getPosition(0.25f,position);   // quarter turn counterclockwise around the z axis through (1,0,0)
+        assertArrayEquals(new float[] {1,1,1},position,1e-5f);
+        motion.getPosition(1,position);
+        assertArrayEquals(new float[] {2,0,4},position,1e-5f);
+    }
+
+    @Test
+    public void quadraticBezierPathMatchesQuadraticCurve() {
+        float[] start = {0,0,0}, control = {2,4,-2}, target = {4,0,6};
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_BEZIER,1000);
+        motion.setBezierPath(control,null,target);
+        motion.start(start,IDENTITY,UNIT_SCALE);
+        float[] position = new float[3];
+        for (float f=0; f<=1; f+=0.125f) {
+            motion.getPosition(f,position);
+            for (int i=0; i<3; i++) {
+                float expected = (1-f)*(1-f)*start[i]+2*(1-f)*f*control[i]+f*f*target[i];
+                assertEquals(expected,position[i],1e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void modelMatrixCombinesRotationScaleAndPath() {
+        GLShaderMotionCV motion = new GLShaderMotionCV(GLShaderMotionCV.PATH_LINEAR,1000);
+        motion.setLinearPath(new float[] {0,0,-10});
+        motion.setRotation(180,new float[] {0,0,2});
+        motion.start(new float[] {0,0,0},IDENTITY,new float[] {2,3,4});
+        float[] model = new float[16];
+        motion.getModelMatrix(500,model);
+        // rotation by 90 degrees around z: x axis -> y axis, y axis -> -x axis
+        float[] expected = { 0,2,0,0, -3,0,0,0, 0,0,4,0, 0,0,-5,1 };
+        assertArrayEquals(expected,model,1e-5f);
+    }
+
+}
@@ -0,0 +1,73 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the bounding box, the bounding sphere and the intrinsic sizes of shapes.
+ */
+public class GLShapeCVBoundingVolumesTest {
+
+    /** Two triangles with all coordinates negative, spanning x from -5 to -1, y from -4 to -2 and z from -3 to -0.5. */
+
+    private static GLTriangleCV[] negativeTriangles() {
+        return new GLTriangleCV[] {
+                new GLTriangleCV("T0",new float[]{-5,-4,-3},new float[]{-1,-4,-3},new float[]{-5,-2,-3}),
+                new GLTriangleCV("T1",new float[]{-3,-3,-0.5f},new float[]{-2,-3,-1},new float[]{-3,-2,-2}) };
+    }
+
+    private static void assertEnclosed(GLShapeCV shape, float[][] points) {
+        float[] box = shape.getBoundingBox(), sphere = shape.getBoundingSphere();
+        for (float[] point : points) {
+            for (int d=0; d<3; d++)
+                assertTrue(box[d]<=point[d]&&point[d]<=box[d+3]);
+            float dx = point[0]-sphere[0], dy = point[1]-sphere[1], dz = point[2]-sphere[2];
+            assertTrue((float)Math.sqrt(dx*dx+dy*dy+dz*dz)<=sphere[3]+1e-5f);
+        }
+    }
+
+    @Test
+    public void boundingVolumesOfShapeWithNegativeCoordinates() {
+        GLShapeCV shape = new GLShapeCV("Negative",negativeTriangles());
+        assertArrayEquals(new float[]{-5,-4,-3,-1,-2,-0.5f},shape.getBoundingBox(),0);
+        assertEquals(4,shape.getIntrinsicSizeX(),0);
+        assertEquals(2,shape.getIntrinsicSizeY(),0);
+        assertEquals(2.5f,shape.getIntrinsicSizeZ(),0);
+        float[] sphere = shape.getBoundingSphere();
+        assertEquals(4,sphere.length);
+        assertTrue(sphere[3]>0&&sphere[3]<=(float)Math.sqrt(4*4+2*2+2.5f*2.5f));
+        assertEnclosed(shape,new float[][]{{-5,-4,-3},{-1,-4,-3},{-5,-2,-3},{-3,-3,-0.5f},{-2,-3,-1},{-3,-2,-2}});
+        // the returned arrays are copies
+        shape.getBoundingBox()[0] = 100;
+        assertEquals(-5,shape.getBoundingBox()[0],0);
+    }
+
+    @Test
+    public void boundingVolumesFollowModifications() {
+        GLShapeCV shape = new GLShapeCV("Negative",negativeTriangles());
+        // a new triangle extends the volumes
+        shape.addTriangle(new GLTriangleCV("T2",new float[]{-8,-4,-3},new float[]{-7,-4,-3},new float[]{-8,-3,-3}));
+        assertArrayEquals(new float[]{-8,-4,-3,-1,-2,-0.5f},shape.getBoundingBox(),0);
+        assertEnclosed(shape,new float[][]{{-8,-4,-3},{-1,-4,-3},{-3,-3,-0.5f}});
+        // moving a vertex on the boundary inwards shrinks the box
+        assertTrue(shape.setTriangleVertex("T1",0,new float[]{-3,-3,-2}));
+        assertEquals(-1,shape.getBoundingBox()[5],0);
+        // moving a vertex outwards extends the box
+        assertTrue(shape.setTriangleVertex("T1",1,new float[]{-2,-1.5f,-1}));
+        assertEquals(-1.5f,shape.getBoundingBox()[4],0);
+        assertEquals(2.5f,shape.getIntrinsicSizeY(),0);
+        assertEnclosed(shape,new float[][]{{-2,-1.5f,-1},{-8,-4,-3},{-3,-3,-2}});
+    }
+
+    @Test
+    public void boundingVolumesOfLinesWithNegativeCoordinates() {
+        GLLineCV[] lines = { new GLLineCV("L0",new float[]{-6,-1,-2},new float[]{-2,-3,-2}) };
+        GLShapeCV shape = new GLShapeCV("Lines",lines,1);
+        assertArrayEquals(new float[]{-6,-3,-2,-2,-1,-2},shape.getBoundingBox(),0);
+        assertEquals(0,shape.getIntrinsicSizeZ(),0);
+        assertEnclosed(shape,new float[][]{{-6,-1,-2},{-2,-3,-2}});
+        assertEquals(4,shape.getIntrinsicSizeX(),0);
+    }
+
+}
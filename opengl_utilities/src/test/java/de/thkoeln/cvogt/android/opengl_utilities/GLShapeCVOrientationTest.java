@@ -0,0 +1,149 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the orientation of shapes as quaternions, the rotation animations based on it,
+ * and the model matrix composed from the scaling, orientation, and translation.
+ */
+public class GLShapeCVOrientationTest {
+
+    private static final long MS = 1000000L;
+
+    private static float[] quaternion(float angle, float axisX, float axisY, float axisZ) {
+        float[] result = new float[4];
+        GraphicsUtilsCV.quaternionFromAxisAngle(angle,axisX,axisY,axisZ,result,0);
+        return result;
+    }
+
+    private static float[] matrix(float angle, float axisX, float axisY, float axisZ) {
+        float[] result = new float[16];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(angle,new float[] {axisX,axisY,axisZ},new float[3],result);
+        return result;
+    }
+
+    private static void assertSameRotation(float[] expected, float[] quaternion) {
+        float sign = Math.signum(expected[0]*quaternion[0]+expected[1]*quaternion[1]+expected[2]*quaternion[2]+expected[3]*quaternion[3]);
+        for (int i=0; i<4; i++)
+            assertEquals(expected[i],sign*quaternion[i],1e-5f);
+    }
+
+    @Test
+    public void orientationAndRotationMatrixAreKeptConsistent() {
+        GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        assertSame(shape,shape.setOrientation(new float[] {0,0,2*(float)Math.sin(Math.PI/4),2*(float)Math.cos(Math.PI/4)}));
+        assertArrayEquals(matrix(90,0,0,1),shape.getRotationMatrix(),1e-6f);
+        assertEquals(90,shape.getRotAngle(),1e-3f);
+        // rotation around the own x axis, i.e. the x axis rotated by 90 degrees around z
+        shape.addRotationAroundOwnXAxis(90);
+        float[] expected = new float[16], rotZ = matrix(90,0,0,1), rotX = matrix(90,1,0,0);
+        for (int col=0; col<4; col++)
+            for (int row=0; row<4; row++)
+                for (int k=0; k<4; k++)
+                    expected[4*col+row] += rotZ[4*k+row]*rotX[4*col+k];
+        assertArrayEquals(expected,shape.getRotationMatrix(),1e-6f);
+        // a rotation matrix written directly is reflected by the orientation
+        shape.setRotationMatrix(matrix(-40,1,2,3),false);
+        assertSameRotation(quaternion(-40,1,2,3),shape.getOrientation());
+        GLShapeCV other = GLShapeFactoryCV.makeCube("Other",GLShapeFactoryCV.red);
+        other.alignWith(shape);
+        assertArrayEquals(shape.getRotationMatrix(),other.getRotationMatrix(),1e-6f);
+        assertNull(shape.setOrientation(new float[4]));
+        assertNull(shape.setOrientation(new float[3]));
+    }
+
+    @Test
+    public void rotationAnimationsInterpolateTheOrientation() {
+        GLAnimationSchedulerCV scheduler = new GLAnimationSchedulerCV();
+        GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        shape.setOrientation(quaternion(30,1,0,0));
+        // a rotation by more than 180 degrees is not shortened
+        scheduler.start(GLAnimatorFactoryCV.addAnimationRot(shape,270,new float[] {0,0,1},1000,0,false));
+        scheduler.advance(0);
+        scheduler.advance(500*MS);
+        float[] expected = new float[4];
+        GraphicsUtilsCV.quaternionMultiply(quaternion(135,0,0,1),0,quaternion(30,1,0,0),0,expected,0);
+        assertSameRotation(expected,shape.getOrientation());
+        scheduler.advance(1000*MS);
+        GraphicsUtilsCV.quaternionMultiply(quaternion(270,0,0,1),0,quaternion(30,1,0,0),0,expected,0);
+        assertSameRotation(expected,shape.getOrientation());
+        // alignment of the x axis of the shape with a vector
+        float[] vector = { 1, -2, 0.5f };
+        scheduler.start(GLAnimatorFactoryCV.addAnimationAlign(shape,0,vector,1000));
+        scheduler.advance(2000*MS);
+        scheduler.advance(3000*MS);
+        float[] xAxis = new float[3];
+        GraphicsUtilsCV.rotateByQuaternion(shape.getOrientation(),0,new float[] {1,0,0},0,xAxis,0);
+        assertArrayEquals(GraphicsUtilsCV.getNormalizedCopy(vector),xAxis,1e-5f);
+        float[] rotationMatrix = shape.getRotationMatrix();
+        assertArrayEquals(xAxis,new float[] {rotationMatrix[0],rotationMatrix[1],rotationMatrix[2]},1e-5f);
+    }
+
+    @Test
+    public void modelMatrixIsComposedWhenRead() {
+        GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        shape.setScale(2,3,4).setOrientation(quaternion(50,1,-2,1));
+        for (int i=0; i<10; i++)
+            shape.setTrans(i,-i,2*i);
+        float[] rotation = matrix(50,1,-2,1), expected = new float[16], scale = { 2, 3, 4 };
+        for (int col=0; col<3; col++)
+            for (int row=0; row<3; row++)
+                expected[4*col+row] = rotation[4*col+row]*scale[col];
+        expected[12] = 9;
+        expected[13] = -9;
+        expected[14] = 18;
+        expected[15] = 1;
+        assertArrayEquals(expected,shape.getCurrentModelMatrix(),1e-6f);
+        shape.setTransY(5);
+        expected[13] = 5;
+        assertArrayEquals(expected,shape.getCurrentModelMatrix(),1e-6f);
+        // the world bounding box follows the lazily composed matrix
+        float[] box = new float[6];
+        assertTrue(shape.getWorldBoundingBox(box,0));
+        assertEquals(9,(box[0]+box[3])/2,1e-5f);
+        assertEquals(5,(box[1]+box[4])/2,1e-5f);
+    }
+
+
+    @Test
+    public void publishedOrientationIsReadWithoutTheMonitor() throws InterruptedException {
+        final GLShapeCV other = GLShapeFactoryCV.makeCube("Other",GLShapeFactoryCV.red);
+        GLShapeCV shape = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        float[] published = new float[5];
+        // published as a quaternion
+        other.setOrientation(quaternion(40,0,1,0));
+        other.getPublishedOrientation(published,1);
+        assertSameRotation(quaternion(40,0,1,0),Arrays.copyOfRange(published,1,5));
+        // published as a rotation matrix, read while another thread holds the monitor of the shape
+        other.setRotationMatrix(matrix(-70,1,1,0));
+        final CountDownLatch locked = new CountDownLatch(1), release = new CountDownLatch(1);
+        final boolean[] timedOut = { false };
+        Thread holder = new Thread() {
+            @Override
+            public void run() {
+                synchronized (other) {
+                    locked.countDown();
+                    try {
+                        timedOut[0] = !release.await(10,TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        timedOut[0] = true;
+                    }
+                }
+            }
+        };
+        holder.start();
+        locked.await();
+        shape.alignWith(other);
+        release.countDown();
+        holder.join();
+        assertFalse(timedOut[0]);
+        assertSameRotation(quaternion(-70,1,1,0),shape.getOrientation());
+    }
+
+}
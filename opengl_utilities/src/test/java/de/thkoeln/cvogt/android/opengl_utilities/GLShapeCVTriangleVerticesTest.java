@@ -0,0 +1,115 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the modification of triangle vertices by their IDs and the partial upload of the vertex buffer.
+ */
+public class GLShapeCVTriangleVerticesTest {
+
+    @After
+    public void restoreBackend() {
+        GLPlatformCV.setBackend(null);
+    }
+
+    /** A shape with triangles side by side along the x axis that have the given IDs. */
+
+    private static GLShapeCV makeShape(String... ids) {
+        GLTriangleCV[] triangles = new GLTriangleCV[ids.length];
+        for (int i=0; i<ids.length; i++)
+            triangles[i] = new GLTriangleCV(ids[i],new float[]{i,0,0},new float[]{i+1,0,0},new float[]{i,1,0});
+        return new GLShapeCV("Shape",triangles);
+    }
+
+    private static String[] ids(int n) {
+        String[] ids = new String[n];
+        for (int i=0; i<n; i++)
+            ids[i] = "T"+i;
+        return ids;
+    }
+
+    @Test
+    public void setTriangleVertexFindsTheFirstTriangleWithTheId() {
+        GLShapeCV shape = makeShape("A","B","A","C");
+        float[] values = { 5, 6, 7 };
+        assertTrue(shape.setTriangleVertex("A",1,values));
+        GLTriangleCV[] triangles = shape.getTriangles();
+        assertEquals(5,triangles[0].getVertexCoordinate(1,0),0);
+        assertEquals(7,triangles[0].getVertexCoordinate(1,2),0);
+        assertEquals(3,triangles[2].getVertexCoordinate(1,0),0);   // the second triangle with ID "A" is not modified
+        assertFalse(shape.setTriangleVertex("X",1,values));
+        assertFalse(shape.setTriangleVertex("B",3,values));
+        assertFalse(shape.setTriangleVertex("B",0,new float[2]));
+        // the index is rebuilt when triangles are added
+        shape.addTriangle(new GLTriangleCV("X",new float[]{0,0,0},new float[]{1,0,0},new float[]{0,1,0}));
+        assertTrue(shape.setTriangleVertex("X",2,values));
+        assertEquals(6,shape.getTriangles()[4].getVertexCoordinate(2,1),0);
+    }
+
+    @Test
+    public void setTriangleVerticesModifiesAllTrianglesWithTheId() {
+        GLShapeCV shape = makeShape("A","B","A","C");
+        shape.setTriangleVertices(new String[]{"A","C","X","B"},new int[]{0,2,0,5},new float[][]{{-1,-2,-3},{8,8,8},{0,0,0},{0,0,0}});
+        GLTriangleCV[] triangles = shape.getTriangles();
+        assertArrayEquals(new float[]{-1,-2,-3},new float[]{triangles[0].getVertexCoordinate(0,0),triangles[0].getVertexCoordinate(0,1),triangles[0].getVertexCoordinate(0,2)},0);
+        assertEquals(-1,triangles[2].getVertexCoordinate(0,0),0);
+        assertEquals(8,triangles[3].getVertexCoordinate(2,1),0);
+        assertEquals(1,triangles[1].getVertexCoordinate(0,0),0);   // invalid vertex number: "B" is not modified
+        // the bounding box follows the modified vertices
+        assertEquals(-1,shape.getBoundingBox()[0],0);
+    }
+
+    @Test
+    public void modifiedVerticesAreUploadedInSeparateRanges() {
+        GLRecordingBackendCV gl = new GLRecordingBackendCV();
+        GLPlatformCV.setBackend(gl);
+        GLShapeCV shape = makeShape(ids(20));
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(shape);
+        GLRendererCV renderer = new GLRendererCV();
+        renderer.onSurfaceChanged(null,1080,1920);
+        renderer.drawShapes(shapes);
+        assertEquals(0,shape.getDirtyVertexRanges().length);
+        // two distant vertices: two ranges of three floats each
+        shape.setTriangleVertex("T0",0,new float[]{0,0,1});
+        shape.setTriangleVertex("T19",2,new float[]{19,1,1});
+        assertArrayEquals(new int[]{0,3,19*9+6,19*9+9},shape.getDirtyVertexRanges());
+        gl.reset();
+        renderer.drawShapes(shapes);
+        assertEquals(2,gl.getCallCount("glBufferSubData"));
+        assertEquals(2*3*4,gl.getBufferBytesUploaded());
+        assertEquals(0,shape.getDirtyVertexRanges().length);
+        // adjacent and overlapping ranges are merged
+        shape.setTriangleVertex("T1",1,new float[]{2,0,1});
+        shape.setTriangleVertex("T1",0,new float[]{1,0,1});
+        shape.setTriangleVertexBufferEntry(11,1);
+        assertArrayEquals(new int[]{9,15},shape.getDirtyVertexRanges());
+    }
+
+    @Test
+    public void numberOfRangesIsBounded() {
+        GLShapeCV shape = makeShape(ids(20));
+        // ten ranges, the gap between the last two is the smallest
+        for (int i=0; i<9; i++)
+            shape.setTriangleVertex("T"+2*i,0,new float[]{2*i,0,1});
+        shape.setTriangleVertex("T17",0,new float[]{17,0,1});
+        int[] ranges = shape.getDirtyVertexRanges();
+        assertEquals(2*8,ranges.length);
+        // the ranges are sorted and disjoint and cover all modified entries
+        for (int k=0; k+1<ranges.length; k++)
+            assertTrue(ranges[k]<ranges[k+1]);
+        for (int t : new int[]{0,2,4,6,8,10,12,14,16,17}) {
+            boolean covered = false;
+            for (int k=0; k<ranges.length; k+=2)
+                covered |= ranges[k]<=t*9&&t*9+3<=ranges[k+1];
+            assertTrue("triangle "+t,covered);
+        }
+        assertArrayEquals(new int[]{16*9,17*9+3},new int[]{ranges[14],ranges[15]});
+    }
+
+}
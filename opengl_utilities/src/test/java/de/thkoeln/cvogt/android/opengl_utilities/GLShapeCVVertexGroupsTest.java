@@ -0,0 +1,76 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the vertex groups of shapes and their animation by the animation scheduler.
+ */
+public class GLShapeCVVertexGroupsTest {
+
+    @Test
+    public void joinShapesDefinesOneGroupPerNamedComponent() {
+        GLShapeCV bird = GLShapeFactoryCV.makeBird("Bird",1000,10);
+        assertArrayEquals(new String[] {"Wing1","Wing2","BeakUpper","BeakLower","Tail"},bird.getVertexGroupNames());
+        assertEquals(1,bird.getVertexGroup("Wing1"));
+        assertEquals(5,bird.getVertexGroup("Tail"));
+        assertEquals(-1,bird.getVertexGroup("Body"));
+        assertEquals(5,bird.getAnimations().size());
+        GLShapeCV plain = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        assertEquals(0,plain.getVertexGroupNames().length);
+        assertNull(plain.getVertexGroupMatrix("Wing1"));
+    }
+
+    @Test
+    public void defineVertexGroupChecksRangesAndPaletteSize() {
+        GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        int triangles = cube.getNumberOfTriangles();
+        assertEquals(-1,cube.defineVertexGroup("TooMany",0,triangles+1,0,0));
+        assertEquals(-1,cube.defineVertexGroup(null,0,1,0,0));
+        for (int i=1;i<GLShapeCV.MAX_VERTEX_GROUPS;i++)
+            assertEquals(i,cube.defineVertexGroup("G"+i,i-1,1,0,0));
+        assertEquals(-1,cube.defineVertexGroup("Full",0,1,0,0));
+        assertEquals(2,cube.defineVertexGroup("G2",triangles-1,1,0,0));   // existing group is extended
+        float[] identity = new float[16];
+        identity[0] = identity[5] = identity[10] = identity[15] = 1;
+        assertArrayEquals(identity,cube.getVertexGroupMatrix("G3"),0);
+    }
+
+    @Test
+    public void rotationAroundPivotKeepsPivotFixed() {
+        float[] matrix = new float[16];
+        float[] pivot = { 2, 0.3f, 0 };
+        assertTrue(GraphicsUtilsCV.rotationMatrixAroundPivot(90,new float[] {0,0,2},pivot,matrix));
+        // pivot is mapped to itself, (3,0.3,0) is rotated by 90 degrees to (2,1.3,0)
+        assertArrayEquals(pivot,transform(matrix,pivot),1e-5f);
+        assertArrayEquals(new float[] {2,1.3f,0},transform(matrix,new float[] {3,0.3f,0}),1e-5f);
+        assertFalse(GraphicsUtilsCV.rotationMatrixAroundPivot(90,new float[3],pivot,matrix));
+    }
+
+    @Test
+    public void animationWritesGroupMatrix() {
+        GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        cube.defineVertexGroup("Part",0,2,0,0);
+        float[] axis = { 1, 0, 0 };
+        float[] pivot = { 0, 0, 0 };
+        GLAnimationCV animation = GLAnimatorFactoryCV.addAnimationVertexGroupRot(cube,"Part",axis,pivot,0,90,1000,0,false);
+        assertNull(GLAnimatorFactoryCV.addAnimationVertexGroupRot(cube,"Missing",axis,pivot,0,90,1000,0,false));
+        GLAnimationSchedulerCV scheduler = new GLAnimationSchedulerCV();
+        scheduler.start(animation);
+        scheduler.advance(0);
+        scheduler.advance(1000000000L);
+        float[] expected = new float[16];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(90,axis,pivot,expected);
+        assertArrayEquals(expected,cube.getVertexGroupMatrix("Part"),1e-6f);
+        assertFalse(animation.isRunning());
+    }
+
+    private static float[] transform(float[] m, float[] p) {
+        float[] result = new float[3];
+        for (int i=0;i<3;i++)
+            result[i] = m[i]*p[0]+m[4+i]*p[1]+m[8+i]*p[2]+m[12+i];
+        return result;
+    }
+
+}
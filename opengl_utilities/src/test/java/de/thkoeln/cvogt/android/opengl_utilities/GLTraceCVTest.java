@@ -0,0 +1,115 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the tracing of the startup path.
+ */
+public class GLTraceCVTest {
+
+    private final ArrayList<String> sections = new ArrayList<>();
+
+    private final GLTraceCV.Sink sink = new GLTraceCV.Sink() {
+        @Override
+        public void beginSection(String name) {
+            sections.add(name);
+        }
+        @Override
+        public void endSection() {
+            sections.add("end");
+        }
+    };
+
+    @After
+    public void disableTracing() {
+        GLTraceCV.setEnabled(false);
+        GLTraceCV.setSink(GLTraceCV.ANDROID_TRACE);
+        GLTraceCV.reset();
+        GLPlatformCV.setBackend(null);
+    }
+
+    @Test
+    public void startupStepsAreTraced() {
+        GLPlatformCV.setBackend(new GLRecordingBackendCV());
+        GLTraceCV.setSink(sink);
+        GLTraceCV.setEnabled(true);
+        GLShapeCV cube1 = GLShapeFactoryCV.makeCube("Cube1",GLShapeFactoryCV.red);
+        GLShapeCV cube2 = GLShapeFactoryCV.makeCube("Cube2",GLShapeFactoryCV.blue);
+        ArrayList<GLShapeCV> shapes = new ArrayList<>();
+        shapes.add(GLShapeFactoryCV.joinShapes("Cubes",cube1,cube2,1,1,1,0,0,0,2,0,0));
+        GLRendererCV renderer = new GLRendererCV();
+        renderer.onSurfaceChanged(null,1080,1920);
+        renderer.drawShapes(shapes);
+        renderer.drawShapes(shapes);
+        assertEquals(1,GLTraceCV.getSummary("GLRendererCV.firstFrame").getCount());
+        assertEquals(1,GLTraceCV.getSummary("GLShapeCV.initOpenGLProgram").getCount());
+        assertEquals(1,GLTraceCV.getSummary("GLShapeFactoryCV.joinShapes").getCount());
+        assertTrue(GLTraceCV.getSummary("GLShapeCV.construct").getCount()>=3);
+        assertTrue(GLTraceCV.getSummary("GLShapeCV.updateBuffers").getCount()>=3);
+        assertNull(GLTraceCV.getSummary("GLShapeCV.prepareTextures"));   // no textured shapes
+        // the sections passed to the sink are balanced
+        int depth = 0;
+        for (String section : sections) {
+            depth += section.equals("end") ? -1 : 1;
+            assertTrue(depth>=0);
+        }
+        assertEquals(0,depth);
+        // the top costs are sorted by the durations excluding nested spans
+        ArrayList<GLTraceCV.Summary> topCosts = GLTraceCV.getTopCosts(3);
+        assertEquals(3,topCosts.size());
+        for (int i=1; i<topCosts.size(); i++)
+            assertTrue(topCosts.get(i-1).getSelfNanos()>=topCosts.get(i).getSelfNanos());
+        GLTraceCV.Summary firstFrame = GLTraceCV.getSummary("GLRendererCV.firstFrame");
+        assertTrue(firstFrame.getSelfNanos()<=firstFrame.getTotalNanos());
+        assertTrue(GLTraceCV.getTopCostsTable(10).contains("GLShapeCV.construct"));
+    }
+
+    @Test
+    public void openSpanIsEndedWithItsSinkAfterDisablingAndChangingTheSink() {
+        final ArrayList<String> otherSections = new ArrayList<>();
+        GLTraceCV.setSink(sink);
+        GLTraceCV.setEnabled(true);
+        GLTraceCV.begin("Outer");
+        GLTraceCV.setSink(new GLTraceCV.Sink() {
+            @Override
+            public void beginSection(String name) {
+                otherSections.add(name);
+            }
+            @Override
+            public void endSection() {
+                otherSections.add("end");
+            }
+        });
+        GLTraceCV.begin("Inner");
+        GLTraceCV.setEnabled(false);
+        GLTraceCV.end();
+        GLTraceCV.end();
+        GLTraceCV.end();   // no open span: ignored
+        assertEquals(2,sections.size());
+        assertEquals("end",sections.get(1));
+        assertEquals(2,otherSections.size());
+        assertEquals("end",otherSections.get(1));
+        assertEquals(1,GLTraceCV.getSummary("Outer").getCount());
+        assertEquals(1,GLTraceCV.getSummary("Inner").getCount());
+        // a new span after enabling again is not nested into the ended spans
+        GLTraceCV.setEnabled(true);
+        GLTraceCV.begin("Next");
+        GLTraceCV.end();
+        assertEquals(GLTraceCV.getSummary("Next").getTotalNanos(),GLTraceCV.getSummary("Next").getSelfNanos());
+        assertEquals(GLTraceCV.getSummary("Outer").getTotalNanos()-GLTraceCV.getSummary("Inner").getTotalNanos(),GLTraceCV.getSummary("Outer").getSelfNanos());
+    }
+
+    @Test
+    public void nothingIsRecordedWhenDisabled() {
+        GLTraceCV.setSink(sink);
+        GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        assertTrue(sections.isEmpty());
+        assertTrue(GLTraceCV.getTopCosts(10).isEmpty());
+    }
+
+}
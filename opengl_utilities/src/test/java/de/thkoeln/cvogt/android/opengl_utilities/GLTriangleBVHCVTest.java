@@ -0,0 +1,131 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the intersection and distance queries between shapes, compared with brute-force references over all pairs of triangles.
+ */
+public class GLTriangleBVHCVTest {
+
+    private static GLShapeCV makeSphere(String id, float rotationAngle, float[] scale, float[] trans) {
+        GLShapeCV shape = GLShapeFactoryCV.makeSphere(id,3,GLShapeFactoryCV.red);   // 1024 triangles
+        float[] rotation = new float[16];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(rotationAngle,new float[] {1,2,0.5f},new float[3],rotation);
+        shape.setRotationMatrix(rotation,false);
+        shape.setScale(scale[0],scale[1],scale[2]).setTrans(trans[0],trans[1],trans[2]);
+        return shape;
+    }
+
+    /** The triangles of a shape in world coordinates, 9 values per triangle. */
+    private static float[] worldTriangles(GLShapeCV shape) {
+        GLTriangleCV[] triangles = shape.getTriangles();
+        float[] vertices = new float[9*triangles.length], result = new float[9*triangles.length], triangle = new float[9];
+        for (int t=0; t<triangles.length; t++)
+            System.arraycopy(triangles[t].getVertexCoordinates(),0,vertices,9*t,9);
+        float[] modelMatrix = new float[16];
+        shape.getCurrentModelMatrix(modelMatrix);
+        for (int t=0; t<triangles.length; t++) {
+            GLTriangleBVHCV.transformTriangle(vertices,t,modelMatrix,triangle);
+            System.arraycopy(triangle,0,result,9*t,9);
+        }
+        return result;
+    }
+
+    private static ArrayList<float[]> bruteForceContacts(float[] triangles1, float[] triangles2) {
+        ArrayList<float[]> contacts = new ArrayList<>();
+        float[] t1 = new float[9], t2 = new float[9], point = new float[3], closest = new float[6];
+        for (int i=0; i<triangles1.length; i+=9) {
+            System.arraycopy(triangles1,i,t1,0,9);
+            for (int j=0; j<triangles2.length; j+=9) {
+                System.arraycopy(triangles2,j,t2,0,9);
+                GLTriangleBVHCV.trianglesIntersect(t1,t2,contacts,point,closest);
+            }
+        }
+        return contacts;
+    }
+
+    private static float bruteForceDistance(float[] triangles1, float[] triangles2) {
+        float best = Float.MAX_VALUE;
+        float[] t1 = new float[9], t2 = new float[9], closest = new float[6];
+        for (int i=0; i<triangles1.length; i+=9) {
+            System.arraycopy(triangles1,i,t1,0,9);
+            for (int j=0; j<triangles2.length; j+=9) {
+                System.arraycopy(triangles2,j,t2,0,9);
+                best = Math.min(best,GLTriangleBVHCV.triangleDistance(t1,t2,closest));
+            }
+        }
+        return best;
+    }
+
+    private static void sort(float[][] points) {
+        Arrays.sort(points,new Comparator<float[]>() {
+            public int compare(float[] p1, float[] p2) {
+                for (int d=0; d<3; d++)
+                    if (p1[d]!=p2[d]) return Float.compare(p1[d],p2[d]);
+                return 0;
+            }
+        });
+    }
+
+    @Test
+    public void intersectionsMatchBruteForce() {
+        GLShapeCV sphere1 = makeSphere("1",30,new float[] {1,1,1},new float[] {0,0,0});
+        GLShapeCV sphere2 = makeSphere("2",-70,new float[] {1.2f,0.7f,1},new float[] {1.6f,0.4f,-0.3f});
+        ArrayList<float[]> expected = bruteForceContacts(worldTriangles(sphere1),worldTriangles(sphere2));
+        float[][] contacts = sphere1.getContactPoints(sphere2);
+        assertTrue(expected.size()>10);
+        assertEquals(expected.size(),contacts.length);
+        float[][] expectedArray = expected.toArray(new float[0][]);
+        sort(expectedArray);
+        sort(contacts);
+        for (int i=0; i<contacts.length; i++)
+            assertArrayEquals(expectedArray[i],contacts[i],0);
+        assertTrue(sphere1.intersects(sphere2));
+        assertEquals(0,sphere1.distanceTo(sphere2,null),0);
+        // the BVHs test a small fraction of the pairs of triangles tested by the brute-force reference
+        float[] modelMatrix1 = new float[16], modelMatrix2 = new float[16];
+        sphere1.getCurrentModelMatrix(modelMatrix1);
+        sphere2.getCurrentModelMatrix(modelMatrix2);
+        int[] statistics = new int[2];
+        ArrayList<float[]> bvhContacts = new ArrayList<>();
+        GLTriangleBVHCV.intersect(new GLTriangleBVHCV(sphere1.getTriangles()),modelMatrix1,new GLTriangleBVHCV(sphere2.getTriangles()),modelMatrix2,bvhContacts,statistics);
+        assertEquals(contacts.length,bvhContacts.size());
+        int bruteForcePairs = sphere1.getNumberOfTriangles()*sphere2.getNumberOfTriangles();
+        assertTrue("node pairs: "+statistics[0]+", triangle pairs: "+statistics[1]+" of "+bruteForcePairs,statistics[0]*100<bruteForcePairs&&statistics[1]*100<bruteForcePairs);
+        // separated shapes
+        sphere2.setTrans(2.6f,0.4f,-0.3f);
+        assertFalse(sphere1.intersects(sphere2));
+        assertEquals(0,sphere1.getContactPoints(sphere2).length);
+    }
+
+    @Test
+    public void distancesMatchBruteForce() {
+        GLShapeCV sphere1 = makeSphere("1",10,new float[] {1,2,1},new float[] {0,0,0});
+        GLShapeCV sphere2 = makeSphere("2",45,new float[] {0.5f,0.5f,1.5f},new float[] {2.5f,1,0.5f});
+        float[] closest = new float[6];
+        for (int i=0; i<3; i++) {
+            float distance = sphere1.distanceTo(sphere2,closest);
+            assertEquals(bruteForceDistance(worldTriangles(sphere1),worldTriangles(sphere2)),distance,1e-5f);
+            float dx = closest[0]-closest[3], dy = closest[1]-closest[4], dz = closest[2]-closest[5];
+            assertEquals(distance,(float)Math.sqrt(dx*dx+dy*dy+dz*dz),1e-5f);
+            assertFalse(sphere1.intersects(sphere2));
+            sphere2.setTrans(2.5f+i,-1-i,0.5f*i);
+        }
+        // the BVH follows changes of the triangles
+        GLShapeCV cube = GLShapeFactoryCV.makeCube("Cube",GLShapeFactoryCV.red);
+        cube.setRotationMatrix(new float[] { 1,0,0,0, 0,1,0,0, 0,0,1,0, 0,0,0,1 },false);
+        cube.setScale(1).setTrans(3,0,0);
+        assertEquals(1.5f,sphere1.distanceTo(cube,null),1e-2f);
+        cube.addTriangle(new GLTriangleCV("Extra",new float[] {-1.4f,0,0},new float[] {-1.4f,0.1f,0},new float[] {-1.4f,0,0.1f},GLShapeFactoryCV.red));
+        float distance = sphere1.distanceTo(cube,null);
+        assertTrue(distance>0.5f&&distance<0.7f);
+        assertEquals(-1,sphere1.distanceTo(new GLShapeCV("Empty",null),null),0);
+    }
+
+}
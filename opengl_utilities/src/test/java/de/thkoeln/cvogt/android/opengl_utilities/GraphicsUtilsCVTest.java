@@ -0,0 +1,190 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Local unit tests for the offset-based variants of the GraphicsUtilsCV methods.
+ */
+public class GraphicsUtilsCVTest {
+
+    @Test
+    public void offsetVariantsMatchAllocatingVariants() {
+        float[] p1 = { 1, -2, 3 }, p2 = { 4, 0.5f, -1 };
+        float[] flat = new float[20];
+        System.arraycopy(p1,0,flat,2,3);
+        System.arraycopy(p2,0,flat,7,3);
+        GraphicsUtilsCV.vectorBetweenPoints(flat,2,flat,7,flat,11);
+        assertArrayEquals(GraphicsUtilsCV.vectorBetweenPoints(p1,p2),new float[] {flat[11],flat[12],flat[13]},0);
+        assertEquals(GraphicsUtilsCV.distance(p1,p2),GraphicsUtilsCV.distance(flat,2,flat,7),0);
+        GraphicsUtilsCV.midpoint(flat,2,flat,7,flat,14);
+        assertArrayEquals(GraphicsUtilsCV.midpoint(p1,p2),new float[] {flat[14],flat[15],flat[16]},0);
+        GraphicsUtilsCV.crossProduct(flat,2,flat,7,flat,2);   // the result overwrites the first vector
+        assertArrayEquals(GraphicsUtilsCV.crossProduct(p1,p2),new float[] {flat[2],flat[3],flat[4]},0);
+        assertEquals(GraphicsUtilsCV.dotProduct(p1,p2),GraphicsUtilsCV.dotProduct(p1,0,flat,7),0);
+        assertTrue(GraphicsUtilsCV.normalize(p2,0,flat,17));
+        assertArrayEquals(GraphicsUtilsCV.getNormalizedCopy(p2),new float[] {flat[17],flat[18],flat[19]},0);
+        assertFalse(GraphicsUtilsCV.normalize(new float[3],0,flat,17));
+        GraphicsUtilsCV.homogeneousCoords(p1,0,1,flat,0);
+        assertArrayEquals(GraphicsUtilsCV.homogeneousCoordsForPoint(p1),new float[] {flat[0],flat[1],flat[2],flat[3]},0);
+        float[] euler = new float[18];
+        GraphicsUtilsCV.rotationMatrixFromEulerAngles(10,20,30,euler,2);
+        float[] expected = GraphicsUtilsCV.rotationMatrixFromEulerAngles(10,20,30);
+        for (int i=0; i<16; i++)
+            assertEquals(expected[i],euler[2+i],0);
+    }
+
+    @Test
+    public void rotationAxisAndAngleFromFlatMatrix() {
+        float[] matrix = new float[16], axis = new float[3];
+        GraphicsUtilsCV.rotationMatrixAroundPivot(40,new float[] {1,2,2},new float[3],matrix);
+        assertEquals(40,GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(matrix),1e-3f);
+        GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(matrix,axis);
+        // the axis is returned with the opposite orientation, as by rotAxisFrom4x4RotationMatrix(float[][])
+        assertArrayEquals(new float[] {-1/3f,-2/3f,-2/3f},axis,1e-4f);
+        GraphicsUtilsCV.rotationMatrixAroundPivot(180,new float[] {0,1,0},new float[3],matrix);
+        assertEquals(180,GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(matrix),1e-3f);
+        GraphicsUtilsCV.rotAxisFrom4x4RotationMatrix(matrix,axis);
+        assertEquals(1,Math.abs(axis[1]),1e-5f);
+        matrix[0] = 2;
+        assertEquals(-1000,GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(matrix),0);
+    }
+
+    @Test
+    public void pointGeneratorsFillFlatArrays() {
+        float[] center = { 1, 2, 3 }, normal = { 1, 1, 0 };
+        int n = 12;
+        float[] points = new float[1+4*n];
+        assertTrue(GraphicsUtilsCV.pointsOnCircle3D(center,2,normal,n,points,1,4));
+        float[] unitNormal = GraphicsUtilsCV.getNormalizedCopy(normal);
+        for (int i=0; i<n; i++) {
+            float[] point = { points[1+4*i], points[2+4*i], points[3+4*i] };
+            assertEquals(2,GraphicsUtilsCV.distance(center,point),1e-5f);
+            assertEquals(0,GraphicsUtilsCV.dotProduct(GraphicsUtilsCV.vectorBetweenPoints(center,point),unitNormal),1e-5f);
+            assertEquals(0,points[4+4*i],0);   // the stride leaves the fourth value untouched
+        }
+        float[][] points2D = GraphicsUtilsCV.pointsOnCircle3D(center,2,normal,n);
+        for (int i=0; i<n; i++)
+            assertArrayEquals(points2D[i],new float[] {points[1+4*i],points[2+4*i],points[3+4*i]},0);
+        // a normal in the negative z direction turns the circle upside down
+        assertTrue(GraphicsUtilsCV.pointsOnCircle3D(center,2,new float[] {0,0,-5},n,points,0,3));
+        assertArrayEquals(new float[] {1,0,3},new float[] {points[0],points[1],points[2]},1e-5f);
+        assertFalse(GraphicsUtilsCV.pointsOnCircle3D(center,2,normal,n,new float[3*n-1],0,3));
+        float[] line = new float[9];
+        assertTrue(GraphicsUtilsCV.pointsInLine(new float[] {0,0,0},new float[] {2,4,6},3,line,0,3));
+        assertArrayEquals(new float[] {0,0,0,1,2,3,2,4,6},line,0);
+        assertArrayEquals(new float[] {1,2,3},GraphicsUtilsCV.pointsInLine(new float[] {0,0,0},new float[] {2,4,6},3)[1],0);
+    }
+
+    @Test
+    public void offsetVariantsAllocateNoMemory() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        float[] buffer = new float[3*64+16], rotation = new float[16], center = { 0, 0, 0 }, normal = { 0, 1, 1 }, axisPoint = { 0, 0, 1 };
+        float sum = 0;
+        for (int round=0; round<2; round++) {   // the first round warms up
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            long overhead = threadBean.getThreadAllocatedBytes(threadId)-start;   // allocated by the measurement itself
+            start = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i=0; i<1000; i++) {
+                GraphicsUtilsCV.pointsOnCircle3D(center,1,normal,64,buffer,0,3);
+                GraphicsUtilsCV.rotateAroundAxis(buffer,3,center,axisPoint,i,buffer,6);
+                GraphicsUtilsCV.crossProduct(buffer,0,buffer,3,buffer,9);
+                GraphicsUtilsCV.normalize(buffer,9,buffer,9);
+                GraphicsUtilsCV.rotationMatrixFromEulerAngles(i,2*i,3*i,buffer,3*64);
+                GraphicsUtilsCV.rotationMatrixFromEulerAngles(i,0,0,rotation,0);
+                sum += GraphicsUtilsCV.distance(buffer,0,buffer,6)+GraphicsUtilsCV.rotAngleFrom4x4RotationMatrix(rotation);
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(threadId)-start-overhead;
+            if (round==1)
+                assertTrue("allocated "+allocated+" bytes",allocated<64);   // not even one array of a 4x4 matrix
+        }
+        assertTrue(sum>0);
+    }
+
+    /** Product of two 4x4 matrices in column-major order (android.opengl.Matrix is not available in local unit tests). */
+    private static float[] multiply(float[] m1, float[] m2) {
+        float[] result = new float[16];
+        for (int col=0; col<4; col++)
+            for (int row=0; row<4; row++)
+                for (int k=0; k<4; k++)
+                    result[4*col+row] += m1[4*k+row]*m2[4*col+k];
+        return result;
+    }
+
+    @Test
+    public void quaternionsMatchRotationMatrices() {
+        Random random = new Random(4711);
+        float[] q1 = new float[4], q2 = new float[8], m1 = new float[16], m2 = new float[16], matrix = new float[16], fromMatrix = new float[4];
+        for (int i=0; i<50; i++) {
+            float[] axis1 = { random.nextFloat()-0.5f, random.nextFloat()-0.5f, random.nextFloat()-0.5f };
+            float[] axis2 = { random.nextFloat()-0.5f, random.nextFloat()-0.5f, random.nextFloat()-0.5f };
+            float angle1 = 720*random.nextFloat()-360, angle2 = 720*random.nextFloat()-360;
+            assertTrue(GraphicsUtilsCV.quaternionFromAxisAngle(angle1,axis1[0],axis1[1],axis1[2],q1,0));
+            assertTrue(GraphicsUtilsCV.quaternionFromAxisAngle(angle2,axis2[0],axis2[1],axis2[2],q2,4));
+            GraphicsUtilsCV.rotationMatrixAroundPivot(angle1,axis1,new float[3],m1);
+            GraphicsUtilsCV.rotationMatrixAroundPivot(angle2,axis2,new float[3],m2);
+            GraphicsUtilsCV.rotationMatrixFromQuaternion(q1,0,matrix,0);
+            assertArrayEquals(m1,matrix,1e-5f);
+            // the matrix of the product is the product of the matrices
+            GraphicsUtilsCV.quaternionMultiply(q1,0,q2,4,q2,0);
+            GraphicsUtilsCV.rotationMatrixFromQuaternion(q2,0,matrix,0);
+            float[] product = multiply(m1,m2);
+            assertArrayEquals(product,matrix,1e-5f);
+            // back from the matrix to the quaternion (q and -q represent the same rotation)
+            GraphicsUtilsCV.quaternionFromRotationMatrix(product,0,fromMatrix,0);
+            float sign = Math.signum(fromMatrix[3]*q2[3]+fromMatrix[0]*q2[0]);
+            for (int k=0; k<4; k++)
+                assertEquals(q2[k],sign*fromMatrix[k],1e-5f);
+            // rotation of a vector
+            float[] vector = { 1, 2, 3 }, rotated = new float[3];
+            GraphicsUtilsCV.rotateByQuaternion(q1,0,vector,0,rotated,0);
+            for (int k=0; k<3; k++)
+                assertEquals(m1[k]+2*m1[4+k]+3*m1[8+k],rotated[k],1e-5f);
+            // shortest rotation between two directions
+            assertTrue(GraphicsUtilsCV.quaternionBetweenVectors(axis1,0,axis2,0,q1,0));
+            GraphicsUtilsCV.rotateByQuaternion(q1,0,axis1,0,rotated,0);
+            assertArrayEquals(GraphicsUtilsCV.getNormalizedCopy(axis2),GraphicsUtilsCV.getNormalizedCopy(rotated),1e-5f);
+        }
+        // opposite directions
+        assertTrue(GraphicsUtilsCV.quaternionBetweenVectors(new float[] {0,2,0},0,new float[] {0,-1,0},0,q1,0));
+        float[] rotated = new float[3];
+        GraphicsUtilsCV.rotateByQuaternion(q1,0,new float[] {0,1,0},0,rotated,0);
+        assertArrayEquals(new float[] {0,-1,0},rotated,1e-6f);
+        assertFalse(GraphicsUtilsCV.quaternionBetweenVectors(new float[3],0,new float[] {0,1,0},0,q1,0));
+        assertFalse(GraphicsUtilsCV.quaternionFromAxisAngle(30,0,0,0,q1,0));
+    }
+
+    @Test
+    public void slerpInterpolatesAlongTheShortestPath() {
+        float[] q = new float[12];
+        GraphicsUtilsCV.quaternionFromAxisAngle(0,0,0,1,q,0);
+        GraphicsUtilsCV.quaternionFromAxisAngle(100,0,0,1,q,4);
+        GraphicsUtilsCV.quaternionSlerp(q,0,q,4,0.25f,q,8);
+        float[] expected = new float[4];
+        GraphicsUtilsCV.quaternionFromAxisAngle(25,0,0,1,expected,0);
+        assertArrayEquals(expected,new float[] {q[8],q[9],q[10],q[11]},1e-6f);
+        // 300 degrees around z equals -60 degrees: the interpolation runs backwards
+        GraphicsUtilsCV.quaternionFromAxisAngle(300,0,0,1,q,4);
+        GraphicsUtilsCV.quaternionSlerp(q,0,q,4,0.5f,q,8);
+        GraphicsUtilsCV.quaternionFromAxisAngle(-30,0,0,1,expected,0);
+        float sign = Math.signum(q[11]);
+        for (int k=0; k<4; k++)
+            assertEquals(expected[k],sign*q[8+k],1e-6f);
+        // nearly equal quaternions: linear interpolation, normalized
+        GraphicsUtilsCV.quaternionFromAxisAngle(0.01f,1,0,0,q,4);
+        GraphicsUtilsCV.quaternionSlerp(q,0,q,4,0.5f,q,8);
+        GraphicsUtilsCV.quaternionFromAxisAngle(0.005f,1,0,0,expected,0);
+        assertArrayEquals(expected,new float[] {q[8],q[9],q[10],q[11]},1e-6f);
+    }
+
+}
@@ -0,0 +1,75 @@
+package de.thkoeln.cvogt.android.opengl_utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the component search on graphs in HashMap and CSR representation.
+ */
+public class GraphsUtilsCVTest {
+
+    private static void addEdge(HashMap<Object, Collection<Object>> graph, Object vertex1, Object vertex2) {
+        if (!graph.containsKey(vertex1)) graph.put(vertex1,new HashSet<>());
+        if (!graph.containsKey(vertex2)) graph.put(vertex2,new HashSet<>());
+        graph.get(vertex1).add(vertex2);
+        graph.get(vertex2).add(vertex1);
+    }
+
+    @Test
+    public void componentsOfHashMapGraph() {
+        HashMap<Object, Collection<Object>> graph = new HashMap<>();
+        addEdge(graph,"a","b");
+        addEdge(graph,"b","c");
+        addEdge(graph,"d","e");
+        graph.put("f",new HashSet<>());
+        ArrayList<ArrayList<Object>> components = GraphsUtilsCV.findComponents(new HashMap<>(graph));
+        assertEquals(3,components.size());
+        HashSet<HashSet<Object>> sets = new HashSet<>();
+        for (ArrayList<Object> component : components)
+            sets.add(new HashSet<>(component));
+        assertTrue(sets.contains(new HashSet<Object>(Arrays.asList("a","b","c"))));
+        assertTrue(sets.contains(new HashSet<Object>(Arrays.asList("d","e"))));
+        assertTrue(sets.contains(new HashSet<Object>(Arrays.asList("f"))));
+        // the adapter back to the HashMap representation reproduces the graph
+        assertEquals(graph,IntGraphCV.fromHashMap(graph,false).toHashMap());
+    }
+
+    @Test
+    public void componentsOfLargeCsrGraph() {
+        // 100 chains of 2000 vertices each, with the vertices of the chains interleaved
+        int chains = 100, length = 2000, n = chains*length;
+        int[] sources = new int[n-chains], targets = new int[n-chains];
+        int e = 0;
+        for (int c=0; c<chains; c++)
+            for (int i=0; i<length-1; i++) {
+                sources[e] = i*chains+c;
+                targets[e++] = (i+1)*chains+c;
+            }
+        IntGraphCV graph = IntGraphCV.fromEdges(n,sources,targets,true);
+        assertEquals(2*(n-chains),graph.getNumberOfEdges());
+        assertEquals(1,graph.getDegree(0));
+        assertEquals(2,graph.getDegree(chains));
+        int[] labels = GraphsUtilsCV.findComponentLabels(graph);
+        for (int v=0; v<n; v++)
+            assertEquals(v%chains,labels[v]);
+        int[][] components = GraphsUtilsCV.findComponents(graph);
+        assertEquals(chains,components.length);
+        assertEquals(length,components[7].length);
+        assertEquals(7+chains,components[7][1]);
+        int[] reachable = GraphsUtilsCV.findReachableVertices(graph,5);
+        assertEquals(length,reachable.length);
+        assertEquals(5,reachable[0]);
+        // invalid parameters
+        assertNull(IntGraphCV.fromEdges(2,new int[] { 0 },new int[] { 2 },true));
+        assertNull(GraphsUtilsCV.findReachableVertices(graph,n));
+        assertEquals(-1,graph.getNeighbor(0,1));
+    }
+
+}